@@ -0,0 +1,230 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Admission layer in front of another {@link RequestProcessor}. Each session has its own token buckets for
+ * reads and writes, so a runaway client is held to its budget while every other client keeps its own.
+ * A request over budget is delayed if its token is due within the maximum throttle wait and rejected
+ * otherwise. Admitted requests then need one of a fixed number of pending slots; once all are taken,
+ * further requests are rejected immediately instead of piling up behind the service's lock.
+ *
+ * <p>Clients bind to a session with {@link #forSession(String)}; requests sent to the controller itself
+ * share the {@value #ANONYMOUS_SESSION} session.
+ */
+@Slf4j
+public final class AdmissionController implements RequestProcessor {
+
+    public static final String RATE_LIMIT_EXCEEDED = "Rate limit exceeded";
+    public static final String TOO_MANY_PENDING_REQUESTS = "Too many pending requests";
+    public static final String ANONYMOUS_SESSION = "anonymous";
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    public static final Duration DEFAULT_BURST = Duration.ofMillis(100);
+    public static final Duration DEFAULT_MAX_THROTTLE_WAIT = Duration.ofMillis(100);
+
+    private final RequestProcessor delegate;
+    @Getter
+    private final double readsPerSecond;
+    @Getter
+    private final double writesPerSecond;
+    private final double burstSeconds;
+    @Getter
+    private final int maxPending;
+    private final long maxThrottleWaitNanos;
+    private final Semaphore pending;
+    private final Map<String, Session> sessions;
+    private final LongAdder admitted;
+    private final LongAdder throttled;
+    private final LongAdder rateLimited;
+    private final LongAdder rejected;
+
+    public AdmissionController(@NonNull RequestProcessor delegate, double readsPerSecond, double writesPerSecond) {
+        this(delegate, readsPerSecond, writesPerSecond, DEFAULT_BURST, DEFAULT_MAX_PENDING, DEFAULT_MAX_THROTTLE_WAIT);
+    }
+
+    /**
+     * Creates a controller allowing each session {@code readsPerSecond} reads and {@code writesPerSecond}
+     * writes on average, with bursts of up to {@code burst} worth of each budget (at least one request).
+     */
+    public AdmissionController(@NonNull RequestProcessor delegate, double readsPerSecond, double writesPerSecond,
+                               @NonNull Duration burst, int maxPending, @NonNull Duration maxThrottleWait) {
+        if (readsPerSecond <= 0 || writesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rates must be positive");
+        }
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("Max pending must be positive");
+        }
+        if (burst.isNegative() || maxThrottleWait.isNegative()) {
+            throw new IllegalArgumentException("Burst and max throttle wait cannot be negative");
+        }
+        this.delegate = delegate;
+        this.readsPerSecond = readsPerSecond;
+        this.writesPerSecond = writesPerSecond;
+        this.burstSeconds = burst.toNanos() / 1e9;
+        this.maxPending = maxPending;
+        this.maxThrottleWaitNanos = maxThrottleWait.toNanos();
+        this.pending = new Semaphore(maxPending);
+        this.sessions = new ConcurrentHashMap<>();
+        this.admitted = new LongAdder();
+        this.throttled = new LongAdder();
+        this.rateLimited = new LongAdder();
+        this.rejected = new LongAdder();
+    }
+
+    @Override
+    public ZooKeeperResponse processRequest(ZooKeeperRequest request) {
+        return processRequest(ANONYMOUS_SESSION, request);
+    }
+
+    /**
+     * Returns a processor that charges every request to {@code sessionId}'s budgets.
+     */
+    public RequestProcessor forSession(@NonNull String sessionId) {
+        return request -> processRequest(sessionId, request);
+    }
+
+    /**
+     * Forgets a session's budgets; a later request under the same id starts with full buckets.
+     */
+    public void closeSession(@NonNull String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    private ZooKeeperResponse processRequest(String sessionId, ZooKeeperRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request cannot be null");
+        }
+        Session session = sessions.computeIfAbsent(sessionId, id -> new Session());
+        TokenBucket bucket = request.getOperation().isWrite() ? session.writes : session.reads;
+        long waitNanos = bucket.reserve(System.nanoTime(), maxThrottleWaitNanos);
+        if (waitNanos < 0) {
+            rateLimited.increment();
+            session.rateLimited.increment();
+            return ZooKeeperResponse.error(RATE_LIMIT_EXCEEDED);
+        }
+        if (waitNanos > 0) {
+            throttled.increment();
+            long deadline = System.nanoTime() + waitNanos;
+            for (long remaining = waitNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+
+        if (!pending.tryAcquire()) {
+            rejected.increment();
+            log.debug("Rejected {} request for session {}: {} requests pending", request.getOperation(),
+                sessionId, maxPending);
+            return ZooKeeperResponse.error(TOO_MANY_PENDING_REQUESTS);
+        }
+        try {
+            admitted.increment();
+            session.admitted.increment();
+            return delegate.processRequest(request);
+        } finally {
+            pending.release();
+        }
+    }
+
+    /**
+     * Requests passed on to the delegate.
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * Requests delayed until their session had budget for them.
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Requests rejected because their session's budget would not recover within the maximum throttle wait.
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Requests rejected because every pending slot was taken.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getPendingCount() {
+        return maxPending - pending.availablePermits();
+    }
+
+    /**
+     * Requests admitted for {@code sessionId}, or zero if it is unknown.
+     */
+    public long getAdmittedCount(String sessionId) {
+        Session session = sessions.get(sessionId);
+        return session == null ? 0 : session.admitted.sum();
+    }
+
+    /**
+     * Requests rejected by {@code sessionId}'s budgets, or zero if it is unknown.
+     */
+    public long getRateLimitedCount(String sessionId) {
+        Session session = sessions.get(sessionId);
+        return session == null ? 0 : session.rateLimited.sum();
+    }
+
+    private final class Session {
+
+        private final TokenBucket reads = new TokenBucket(readsPerSecond, readsPerSecond * burstSeconds);
+        private final TokenBucket writes = new TokenBucket(writesPerSecond, writesPerSecond * burstSeconds);
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rateLimited = new LongAdder();
+    }
+
+    /**
+     * Token bucket that hands out reservations: a caller may take a token that is not there yet and wait
+     * for it, so concurrent waiters queue up behind each other instead of all waking at the next refill.
+     */
+    static final class TokenBucket {
+
+        private final double nanosPerToken;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double tokensPerSecond, double capacity) {
+            this.nanosPerToken = 1e9 / tokensPerSecond;
+            this.capacity = Math.max(1, capacity);
+            this.tokens = this.capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * Takes one token and returns how long to wait for it, or -1 without taking it if the wait
+         * would exceed {@code maxWaitNanos}.
+         */
+        synchronized long reserve(long now, long maxWaitNanos) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / nanosPerToken);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            long waitNanos = (long) Math.ceil((1 - tokens) * nanosPerToken);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            tokens -= 1;
+            return waitNanos;
+        }
+    }
+}
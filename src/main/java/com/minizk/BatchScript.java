@@ -0,0 +1,323 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-interactive runner for a script of server commands, one per line. A reader thread parses lines into
+ * requests while the calling thread runs the previous batch through {@link RequestProcessor#processBatch},
+ * so parsing overlaps execution. Write commands print nothing on success; reads print their result, and
+ * failures print the line number, command and error. Output goes through the given writer, which the caller
+ * should buffer. Blank lines and lines starting with {@code #} are skipped.
+ *
+ * <p>Supported commands: create, createttl, createcontainer, get, set, incr, append, delete, ls, digest.
+ */
+@Slf4j
+public final class BatchScript {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    /** Parsed batches the reader may run ahead of execution */
+    private static final int PIPELINE_DEPTH = 4;
+
+    private final RequestProcessor processor;
+    private final int batchSize;
+
+    public BatchScript(@NonNull RequestProcessor processor) {
+        this(processor, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchScript(@NonNull RequestProcessor processor, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.processor = processor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs every command in {@code script}, writing results and failures to {@code out}, and returns the
+     * totals. Stops early only if reading the script or writing the output fails.
+     */
+    public Summary run(@NonNull Reader script, @NonNull Writer out) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        Summary summary = new Summary();
+        BlockingQueue<List<Command>> batches = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        ExecutorService reader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "minizk-batch-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<?> parsing = reader.submit(() -> {
+                parse(script, batches);
+                return null;
+            });
+            while (true) {
+                List<Command> batch = batches.poll(100, TimeUnit.MILLISECONDS);
+                if (batch == null) {
+                    // A reader that stopped without queueing the end marker failed.
+                    if (parsing.isDone() && batches.isEmpty()) {
+                        awaitParsing(parsing);
+                        break;
+                    }
+                    continue;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                execute(batch, out, summary);
+            }
+        } finally {
+            reader.shutdownNow();
+        }
+        out.flush();
+        summary.elapsedNanos = System.nanoTime() - startNanos;
+        log.info("Batch script finished: {}", summary);
+        return summary;
+    }
+
+    private static void awaitParsing(Future<?> parsing) throws IOException, InterruptedException {
+        try {
+            parsing.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to read batch script", e.getCause());
+        }
+    }
+
+    /**
+     * Reads the script into batches of parsed commands, ending with an empty batch.
+     */
+    private void parse(Reader script, BlockingQueue<List<Command>> batches) throws IOException, InterruptedException {
+        BufferedReader lines = script instanceof BufferedReader
+            ? (BufferedReader) script : new BufferedReader(script, 1 << 16);
+        List<Command> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            Command command = parseLine(lineNumber, line);
+            if (command == null) {
+                continue;
+            }
+            batch.add(command);
+            if (batch.size() >= batchSize) {
+                batches.put(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.put(batch);
+        }
+        batches.put(new ArrayList<>());
+    }
+
+    /**
+     * Parses one line, or returns null if it is blank or a comment. Malformed lines become commands that
+     * carry their error instead of a request.
+     */
+    static Command parseLine(long lineNumber, String line) {
+        int start = skipSpaces(line, 0);
+        if (start == line.length() || line.charAt(start) == '#') {
+            return null;
+        }
+        int end = nextSpace(line, start);
+        String name = line.substring(start, end);
+        int pathStart = skipSpaces(line, end);
+        int pathEnd = nextSpace(line, pathStart);
+        String path = line.substring(pathStart, pathEnd);
+        String rest = line.substring(skipSpaces(line, pathEnd)).trim();
+        try {
+            return new Command(lineNumber, line.trim(), toRequest(name.toLowerCase(), path, rest), null);
+        } catch (IllegalArgumentException e) {
+            return new Command(lineNumber, line.trim(), null, e.getMessage());
+        }
+    }
+
+    private static ZooKeeperRequest toRequest(String name, String path, String rest) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Missing path");
+        }
+        ZooKeeperRequest.ZooKeeperRequestBuilder request = ZooKeeperRequest.builder().path(path);
+        switch (name) {
+            case "create":
+                return request.operation(ZooKeeperRequest.Operation.CREATE).data(utf8(rest)).build();
+            case "createttl": {
+                int ttlEnd = nextSpace(rest, 0);
+                return request.operation(ZooKeeperRequest.Operation.CREATE)
+                    .ttl(parseLong(rest.substring(0, ttlEnd), "TTL"))
+                    .data(utf8(rest.substring(skipSpaces(rest, ttlEnd))))
+                    .build();
+            }
+            case "createcontainer":
+                return request.operation(ZooKeeperRequest.Operation.CREATE).container(true).build();
+            case "get":
+                return request.operation(ZooKeeperRequest.Operation.READ).build();
+            case "set":
+                return request.operation(ZooKeeperRequest.Operation.UPDATE).data(utf8(rest)).build();
+            case "incr":
+                return request.operation(ZooKeeperRequest.Operation.INCREMENT)
+                    .data(Long.toString(rest.isEmpty() ? 1 : parseLong(rest, "Delta"))
+                        .getBytes(StandardCharsets.US_ASCII))
+                    .build();
+            case "append":
+                return request.operation(ZooKeeperRequest.Operation.APPEND).data(utf8(rest)).build();
+            case "delete":
+                return request.operation(ZooKeeperRequest.Operation.DELETE).build();
+            case "ls":
+                return request.operation(ZooKeeperRequest.Operation.LIST).build();
+            case "digest":
+                return request.operation(ZooKeeperRequest.Operation.DIGEST).build();
+            default:
+                throw new IllegalArgumentException("Unknown command: " + name);
+        }
+    }
+
+    private void execute(List<Command> batch, Writer out, Summary summary) throws IOException {
+        List<ZooKeeperRequest> requests = new ArrayList<>(batch.size());
+        for (Command command : batch) {
+            if (command.request != null) {
+                requests.add(command.request);
+            }
+        }
+        List<ZooKeeperResponse> responses = processor.processBatch(requests);
+        int next = 0;
+        for (Command command : batch) {
+            if (command.request == null) {
+                summary.failed++;
+                writeFailure(out, command, command.error);
+                continue;
+            }
+            ZooKeeperResponse response = responses.get(next++);
+            if (!response.isSuccess()) {
+                summary.failed++;
+                writeFailure(out, command, response.getErrorMessage());
+                continue;
+            }
+            summary.succeeded++;
+            writeResult(out, command.request, response);
+        }
+    }
+
+    private static void writeFailure(Writer out, Command command, String error) throws IOException {
+        out.write("line ");
+        out.write(Long.toString(command.lineNumber));
+        out.write(": ");
+        out.write(command.line);
+        out.write(" failed: ");
+        out.write(error != null ? error : "unknown error");
+        out.write('\n');
+    }
+
+    private static void writeResult(Writer out, ZooKeeperRequest request, ZooKeeperResponse response)
+            throws IOException {
+        String result;
+        switch (request.getOperation()) {
+            case READ:
+                result = new String(response.getUncompressedData(), StandardCharsets.UTF_8);
+                break;
+            case INCREMENT:
+                result = new String(response.getData(), StandardCharsets.US_ASCII);
+                break;
+            case LIST:
+                result = response.getChildren().toString();
+                break;
+            case DIGEST:
+                result = String.format("%016x", response.getDigest());
+                break;
+            default:
+                return;
+        }
+        out.write(request.getPath());
+        out.write(": ");
+        out.write(result);
+        out.write('\n');
+    }
+
+    private static byte[] utf8(String data) {
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long parseLong(String value, String name) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number: " + value);
+        }
+    }
+
+    private static int skipSpaces(String line, int from) {
+        int i = from;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int nextSpace(String line, int from) {
+        int i = from;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * One script line: its request, or the reason it could not be parsed.
+     */
+    @Getter
+    static final class Command {
+
+        private final long lineNumber;
+        private final String line;
+        private final ZooKeeperRequest request;
+        private final String error;
+
+        private Command(long lineNumber, String line, ZooKeeperRequest request, String error) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.request = request;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Totals of a script run.
+     */
+    @Getter
+    public static final class Summary {
+
+        private long succeeded;
+        private long failed;
+        private long elapsedNanos;
+
+        public long getCommandCount() {
+            return succeeded + failed;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%d commands: %d succeeded, %d failed in %.3f s (%.0f commands/sec)",
+                getCommandCount(), succeeded, failed, seconds, seconds > 0 ? getCommandCount() / seconds : 0);
+        }
+    }
+}
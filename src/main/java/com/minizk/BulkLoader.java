@@ -0,0 +1,281 @@
+package com.minizk;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds the nodes of a bulk load as detached subtrees for {@link MiniZooKeeper#bulkLoad}, off the live tree
+ * and without its lock. The input is read in chunks of {@link #READ_CHUNK_SIZE} entries, so beside the nodes
+ * built so far only one chunk of raw entries is held. Every other stage runs on a fork/join pool: each chunk's
+ * paths are parsed and nodes built (payloads compressed and hashed) in index ranges and linked to their parents
+ * within the load, then the subtree digests and memory estimates are summed bottom up.
+ */
+final class BulkLoader {
+
+    /** Entries per task when building and linking nodes */
+    static final int CHUNK_SIZE = 4_096;
+
+    /** Entries read from the input before they are built */
+    static final int READ_CHUNK_SIZE = 16 * CHUNK_SIZE;
+
+    private final String[] paths;
+    private final byte[][] data;
+    private final ZNode[] nodes;
+    private final Map<ZPath, ZNode> byPath;
+    private final Queue<ZNode> roots;
+    private final int trackedDepth;
+    private final PayloadCodec codec;
+    private String previous;
+
+    private BulkLoader(int trackedDepth, PayloadCodec codec) {
+        this.paths = new String[READ_CHUNK_SIZE];
+        this.data = new byte[READ_CHUNK_SIZE][];
+        this.nodes = new ZNode[READ_CHUNK_SIZE];
+        this.byPath = new ConcurrentHashMap<>();
+        this.roots = new ConcurrentLinkedQueue<>();
+        this.trackedDepth = trackedDepth;
+        this.codec = codec;
+    }
+
+    /**
+     * Reads {@code entries}, which must be in strictly ascending path order so every parent in the load
+     * precedes its children, and returns the roots of the detached subtrees in path order: the loaded nodes
+     * whose parent is not part of the load. Memory usage is summed per subtree at or below
+     * {@code trackedDepth}, see {@link MemoryAccounting}, so linking does not account nodes one at a time.
+     * Payloads are compressed as {@code codec} decides.
+     *
+     * @throws IllegalArgumentException if a path is invalid, out of order or repeated, or the data is null
+     */
+    static List<Subtree> build(Iterator<Map.Entry<String, byte[]>> entries, ForkJoinPool pool, int trackedDepth,
+                               PayloadCodec codec) {
+        BulkLoader loader = new BulkLoader(trackedDepth, codec);
+        for (int count = loader.read(entries); count > 0; count = loader.read(entries)) {
+            loader.buildChunk(pool, count);
+        }
+        return loader.buildSubtrees(pool);
+    }
+
+    /**
+     * Reads up to {@link #READ_CHUNK_SIZE} entries into the chunk buffers and returns how many were read.
+     */
+    private int read(Iterator<Map.Entry<String, byte[]>> entries) {
+        int count = 0;
+        while (count < READ_CHUNK_SIZE && entries.hasNext()) {
+            Map.Entry<String, byte[]> entry = entries.next();
+            String path = entry.getKey();
+            if (path == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("Bulk load entries need a path and data");
+            }
+            if (previous != null && path.compareTo(previous) <= 0) {
+                throw new IllegalArgumentException("Bulk load paths must be sorted and unique: " + path
+                    + " after " + previous);
+            }
+            paths[count] = path;
+            data[count] = entry.getValue();
+            previous = path;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Builds the nodes of the {@code count} entries read, then links each to its parent. Input order puts a
+     * parent in this chunk or an earlier one, so it is already built.
+     */
+    private void buildChunk(ForkJoinPool pool, int count) {
+        pool.invoke(new RangeAction(0, count, i -> {
+            ZPath path = ZPath.tryParse(paths[i]);
+            if (path == null || path.isRoot()) {
+                throw new IllegalArgumentException("Invalid bulk load path: " + paths[i]);
+            }
+            ZNode node = new ZNode(path);
+            node.setData(data[i], codec);
+            nodes[i] = node;
+            byPath.put(path, node);
+        }));
+        pool.invoke(new RangeAction(0, count, i -> {
+            ZPath path = nodes[i].getZPath();
+            ZNode parent = byPath.get(path.parent());
+            if (parent != null) {
+                parent.addChild(path.name(), nodes[i]);
+            } else {
+                roots.add(nodes[i]);
+            }
+        }));
+        Arrays.fill(paths, 0, count, null);
+        Arrays.fill(data, 0, count, null);
+        Arrays.fill(nodes, 0, count, null);
+    }
+
+    private List<Subtree> buildSubtrees(ForkJoinPool pool) {
+        byPath.clear();
+        List<Subtree> subtrees = new ArrayList<>(roots.size());
+        for (ZNode root : roots) {
+            subtrees.add(new Subtree(root, trackedDepth));
+        }
+        subtrees.sort(Comparator.comparing(subtree -> subtree.root.getZPath()));
+        for (Subtree subtree : subtrees) {
+            pool.execute(subtree.digestTask);
+        }
+        for (Subtree subtree : subtrees) {
+            subtree.complete();
+        }
+        return subtrees;
+    }
+
+    private interface IndexAction {
+        void apply(int index);
+    }
+
+    /**
+     * Applies an action to each index of a range, split in halves down to {@link #CHUNK_SIZE}.
+     */
+    private static final class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IndexAction action;
+
+        private RangeAction(int from, int to, IndexAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    action.apply(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, middle, action), new RangeAction(middle, to, action));
+        }
+    }
+
+    /**
+     * Sums the subtree below a node bottom up, storing each node's digest; children with children of their
+     * own are summed by forked tasks. Returns the digest, node count, payload bytes and estimated retained
+     * bytes of the subtree. Unless an ancestor in the load already covers it, the node's memory usage is
+     * recorded: on its own above the tracked depth, as its whole subtree at or below it.
+     */
+    private static final class DigestTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ZNode node;
+        private final Subtree subtree;
+        private final boolean covered;
+
+        private DigestTask(ZNode node, Subtree subtree, boolean covered) {
+            this.node = node;
+            this.subtree = subtree;
+            this.covered = covered;
+        }
+
+        @Override
+        protected long[] compute() {
+            long retainedBytes = node.estimateRetainedBytes();
+            long[] totals = {node.getContentHash(), 1, node.getDataLength(), retainedBytes};
+            boolean summed = node.getZPath().depth() >= subtree.trackedDepth;
+            if (!covered && !summed) {
+                subtree.usages.add(new Usage(node.getZPath(), 1, retainedBytes));
+            }
+            List<DigestTask> forked = new ArrayList<>();
+            for (ZNode child : node.getChildren().values()) {
+                if (child.getChildren().isEmpty()) {
+                    long childBytes = child.estimateRetainedBytes();
+                    totals[0] += child.getContentHash();
+                    totals[1]++;
+                    totals[2] += child.getDataLength();
+                    totals[3] += childBytes;
+                    if (!covered && !summed) {
+                        subtree.usages.add(new Usage(child.getZPath(), 1, childBytes));
+                    }
+                } else {
+                    DigestTask task = new DigestTask(child, subtree, covered || summed);
+                    task.fork();
+                    forked.add(task);
+                }
+            }
+            for (DigestTask task : forked) {
+                long[] childTotals = task.join();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += childTotals[i];
+                }
+            }
+            node.restoreHashes(node.getContentHash(), totals[0]);
+            if (!covered && summed) {
+                subtree.usages.add(new Usage(node.getZPath(), totals[1], totals[3]));
+            }
+            return totals;
+        }
+    }
+
+    private static final class Usage {
+
+        private final ZPath path;
+        private final long nodes;
+        private final long bytes;
+
+        private Usage(ZPath path, long nodes, long bytes) {
+            this.path = path;
+            this.nodes = nodes;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A detached subtree ready to be linked, with its size for quota checks.
+     */
+    static final class Subtree {
+
+        @Getter
+        private final ZNode root;
+        private final int trackedDepth;
+        private final Queue<Usage> usages;
+        private final DigestTask digestTask;
+        @Getter
+        private long nodeCount;
+        @Getter
+        private long dataBytes;
+
+        private Subtree(ZNode root, int trackedDepth) {
+            this.root = root;
+            this.trackedDepth = trackedDepth;
+            this.usages = new ConcurrentLinkedQueue<>();
+            this.digestTask = new DigestTask(root, this, false);
+        }
+
+        /**
+         * Adds the subtree's estimated memory usage to {@code accounting}.
+         */
+        void account(MemoryAccounting accounting) {
+            for (Usage usage : usages) {
+                accounting.adjust(usage.path, usage.nodes, usage.bytes);
+            }
+        }
+
+        private void complete() {
+            long[] totals = digestTask.join();
+            nodeCount = totals[1];
+            dataBytes = totals[2];
+        }
+    }
+}
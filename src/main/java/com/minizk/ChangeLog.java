@@ -0,0 +1,278 @@
+package com.minizk;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory log of committed changes, each stamped with a monotonically increasing transaction id
+ * (zxid). Once full, the oldest changes are overwritten. Subscribers read from any zxid still retained, so
+ * a mirror that disconnects resumes from its last position instead of rescanning the tree; a position that
+ * has already been overwritten fails with {@link IllegalStateException} and needs a full resync.
+ *
+ * <p>A zxid carries the log's epoch in its high 32 bits and a counter below it. Every service start takes a new,
+ * greater epoch from its store, so zxids keep increasing across restarts and a position handed out before one
+ * is rejected as truncated instead of being mistaken for a change the new log has not yet reached.
+ *
+ * <p>Changes are appended by the single writer holding the service's write lock. Payloads are kept in their
+ * stored, possibly compressed form and shared with the node, which never mutates a stored array in place,
+ * so the log is bounded by change count and holds at most that many payloads.
+ */
+public final class ChangeLog {
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+    public static final String CHANGE_LOG_TRUNCATED = "Change log truncated";
+
+    private static final int EPOCH_SHIFT = 32;
+    /** Clock epochs count seconds from 2024-01-01T00:00:00Z so they stay below 2^31 for decades */
+    private static final long CLOCK_EPOCH_ORIGIN = 1_704_067_200L;
+    private static final AtomicLong LAST_CLOCK_EPOCH = new AtomicLong();
+
+    @Getter
+    private final long epoch;
+    private final long startZxid;
+    private final ChangeEvent[] events;
+    private final ReentrantLock lock;
+    private final Condition appended;
+    private long lastZxid;
+
+    public ChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeLog(int capacity) {
+        this(capacity, nextClockEpoch());
+    }
+
+    /**
+     * Creates a log whose zxids start after {@code epoch}, which must be greater than any epoch a subscriber
+     * may still hold a position from.
+     */
+    public ChangeLog(int capacity, long epoch) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (epoch < 0 || epoch > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Epoch must be between 0 and " + Integer.MAX_VALUE);
+        }
+        this.epoch = epoch;
+        this.startZxid = epoch << EPOCH_SHIFT;
+        this.lastZxid = startZxid;
+        this.events = new ChangeEvent[capacity];
+        this.lock = new ReentrantLock();
+        this.appended = lock.newCondition();
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * Returns the seconds since 2024 on the clock, or one more than the last epoch returned in this process if
+     * that is greater, for stores that cannot remember their epoch.
+     */
+    static long nextClockEpoch() {
+        long now = Math.max(1, Instant.now().getEpochSecond() - CLOCK_EPOCH_ORIGIN);
+        return LAST_CLOCK_EPOCH.updateAndGet(last -> Math.max(now, last + 1));
+    }
+
+    /**
+     * Returns the zxid of the latest committed change, or the epoch shifted into the high bits if there has
+     * been none.
+     */
+    public long getLastZxid() {
+        lock.lock();
+        try {
+            return lastZxid;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the oldest zxid still retained; a subscription must be positioned at or after this minus one.
+     */
+    public long getFirstRetainedZxid() {
+        lock.lock();
+        try {
+            return firstRetainedZxid();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a change to {@code node}, assigning it the next zxid.
+     */
+    ChangeEvent append(ZooKeeperRequest.Operation operation, ZNode node) {
+        lock.lock();
+        try {
+            ChangeEvent event = new ChangeEvent(++lastZxid, operation, node);
+            events[slot(event.getZxid())] = event;
+            appended.signalAll();
+            return event;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens a subscription that delivers changes after {@code afterZxid} at or below {@code prefix}.
+     * Pass zero to start from the oldest retained change, or a previous {@link Subscription#getPosition()}
+     * to resume.
+     */
+    public Subscription subscribe(long afterZxid, String prefix) {
+        ZPath prefixPath = ZPath.tryParse(prefix);
+        if (prefixPath == null) {
+            throw new IllegalArgumentException("Invalid path format: " + prefix);
+        }
+        if (afterZxid < 0) {
+            throw new IllegalArgumentException("Zxid cannot be negative");
+        }
+        lock.lock();
+        try {
+            if (afterZxid != 0 && afterZxid < startZxid) {
+                throw new IllegalStateException(CHANGE_LOG_TRUNCATED + ": zxid " + afterZxid + " is from epoch "
+                    + (afterZxid >>> EPOCH_SHIFT) + ", before the current epoch " + epoch);
+            }
+            if (afterZxid > lastZxid) {
+                throw new IllegalArgumentException("Zxid " + afterZxid + " has not been committed yet");
+            }
+            long position = afterZxid == 0 ? firstRetainedZxid() - 1 : afterZxid;
+            checkRetained(position);
+            return new Subscription(prefixPath, position);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long firstRetainedZxid() {
+        return Math.max(startZxid + 1, lastZxid - events.length + 1);
+    }
+
+    private void checkRetained(long position) {
+        if (position + 1 < firstRetainedZxid()) {
+            throw new IllegalStateException(CHANGE_LOG_TRUNCATED + ": zxid " + (position + 1)
+                + " was overwritten, oldest retained is " + firstRetainedZxid());
+        }
+    }
+
+    private int slot(long zxid) {
+        return (int) (zxid % events.length);
+    }
+
+    /**
+     * Cursor over the change log filtered by path prefix. Not thread-safe; use one per consumer.
+     */
+    public final class Subscription {
+
+        private final ZPath prefix;
+
+        /** Zxid of the last change consumed, whether or not it matched the prefix */
+        @Getter
+        private long position;
+
+        private Subscription(ZPath prefix, long position) {
+            this.prefix = prefix;
+            this.position = position;
+        }
+
+        public String getPrefix() {
+            return prefix.toString();
+        }
+
+        /**
+         * Returns up to {@code maxEvents} matching changes after the current position, waiting up to
+         * {@code timeout} for the first one. Returns an empty list if none arrived in time.
+         *
+         * @throws IllegalStateException if the position has fallen out of the log
+         */
+        public List<ChangeEvent> poll(int maxEvents, Duration timeout) throws InterruptedException {
+            if (maxEvents <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive");
+            }
+            long remainingNanos = timeout.toNanos();
+            List<ChangeEvent> batch = new ArrayList<>(Math.min(maxEvents, 64));
+            lock.lock();
+            try {
+                while (true) {
+                    checkRetained(position);
+                    while (position < lastZxid && batch.size() < maxEvents) {
+                        ChangeEvent event = events[slot(++position)];
+                        if (event.path.isAtOrBelow(prefix)) {
+                            batch.add(event);
+                        }
+                    }
+                    if (!batch.isEmpty() || remainingNanos <= 0) {
+                        return batch;
+                    }
+                    remainingNanos = appended.awaitNanos(remainingNanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * One committed change. For creates and updates the payload is the node's data after the change;
+     * deletes carry the data the node held when it was removed.
+     */
+    @Getter
+    public static final class ChangeEvent {
+
+        private final long zxid;
+
+        private final ZooKeeperRequest.Operation operation;
+
+        @Getter(AccessLevel.NONE)
+        private final ZPath path;
+
+        private final long version;
+
+        private final long modifiedTime;
+
+        @Getter(AccessLevel.NONE)
+        private final byte[] storedData;
+
+        @Getter(AccessLevel.NONE)
+        private final boolean compressed;
+
+        private final int dataLength;
+
+        ChangeEvent(long zxid, ZooKeeperRequest.Operation operation, ZNode node) {
+            this.zxid = zxid;
+            this.operation = operation;
+            this.path = node.getZPath();
+            this.version = node.getVersion();
+            this.modifiedTime = node.getModifiedTime();
+            this.storedData = node.getStoredData();
+            this.compressed = node.isCompressed();
+            this.dataLength = node.getDataLength();
+        }
+
+        public String getPath() {
+            return path.toString();
+        }
+
+        ZPath getZPath() {
+            return path;
+        }
+
+        public byte[] getData() {
+            return compressed ? PayloadCodec.decompress(storedData, dataLength) : storedData.clone();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("zxid=%d %s %s version=%d bytes=%d", zxid, operation, path, version, dataLength);
+        }
+    }
+}
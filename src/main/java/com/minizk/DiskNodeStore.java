@@ -0,0 +1,930 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured store for trees larger than the heap. Writes go to a sorted in-memory memtable that is
+ * flushed to immutable sorted run files once it grows past a limit; runs are merged when too many pile up.
+ * Decoded nodes are kept in a bounded LRU cache so hot nodes stay on the heap and cold nodes load on demand.
+ *
+ * <p>Keys are the path prefixed with its zero-padded depth, so the direct children of a node are one
+ * contiguous key range and child listing is a range scan rather than a walk of the whole subtree.
+ *
+ * <p>Every write is appended to a {@link TransactionLog} before it reaches the memtable, so writes not yet
+ * flushed survive a crash of the process and are replayed on open. Each flush checkpoints the log, which
+ * lets the segments the new run covers be purged.
+ *
+ * <p>Digest-only updates of ancestors are not logged: they are held on the heap and written into the
+ * memtable when it is flushed. After a crash, the digests above every replayed write are recomputed from
+ * their children instead.
+ */
+@Slf4j
+public final class DiskNodeStore implements NodeStore {
+
+    public static final long DEFAULT_MEMTABLE_BYTES = 4L * 1024 * 1024;
+    public static final int DEFAULT_CACHE_NODES = 10_000;
+
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".sst";
+    private static final String INDEX_FILE = "startup.index";
+    private static final String EPOCH_FILE = "epoch";
+    private static final int MAX_RUNS = 8;
+    private static final int INDEX_INTERVAL = 64;
+    private static final int DEPTH_DIGITS = 4;
+    private static final int RECORD_OVERHEAD = 64;
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private final Path directory;
+    private final long memtableLimitBytes;
+    private final Map<ZPath, ZNode> cache;
+    private final Map<ZPath, ZNode> dirtyDigests;
+    private final CopyOnWriteArrayList<SortedRun> runs;
+    @Getter
+    private final TransactionLog transactionLog;
+    private ConcurrentSkipListMap<String, byte[]> memtable;
+    private long memtableBytes;
+    private long nextRunId;
+
+    public DiskNodeStore(Path directory) {
+        this(directory, DEFAULT_MEMTABLE_BYTES, DEFAULT_CACHE_NODES);
+    }
+
+    public DiskNodeStore(Path directory, long memtableLimitBytes, int cacheNodes) {
+        this(directory, memtableLimitBytes, cacheNodes, TransactionLog.DEFAULT_SEGMENT_BYTES,
+            TransactionLog.DEFAULT_RETAINED_SEGMENTS, TransactionLog.DEFAULT_RETENTION_AGE);
+    }
+
+    /**
+     * Creates a store whose transaction log rolls over every {@code logSegmentBytes} and, beyond the segments
+     * recovery needs, keeps the newest {@code retainedLogSegments} and any written within {@code logRetention}.
+     */
+    public DiskNodeStore(Path directory, long memtableLimitBytes, int cacheNodes, long logSegmentBytes,
+                         int retainedLogSegments, Duration logRetention) {
+        this(directory, memtableLimitBytes, cacheNodes, logSegmentBytes, retainedLogSegments, logRetention,
+            Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a store that replays its transaction log on {@code replayParallelism} threads when opened.
+     */
+    public DiskNodeStore(Path directory, long memtableLimitBytes, int cacheNodes, long logSegmentBytes,
+                         int retainedLogSegments, Duration logRetention, int replayParallelism) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (memtableLimitBytes <= 0 || cacheNodes <= 0) {
+            throw new IllegalArgumentException("Memtable limit and cache size must be positive");
+        }
+        this.directory = directory;
+        this.memtableLimitBytes = memtableLimitBytes;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<ZPath, ZNode>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ZPath, ZNode> eldest) {
+                return size() > cacheNodes;
+            }
+        });
+        this.dirtyDigests = new ConcurrentHashMap<>();
+        this.runs = new CopyOnWriteArrayList<>();
+        this.memtable = new ConcurrentSkipListMap<>();
+
+        Set<String> replayedKeys = ConcurrentHashMap.newKeySet();
+        try {
+            Files.createDirectories(directory);
+            openRuns();
+            LongAdder replayedBytes = new LongAdder();
+            this.transactionLog = new TransactionLog(directory, logSegmentBytes, retainedLogSegments, logRetention,
+                replayParallelism, (key, value) -> replay(key, value, replayedBytes, replayedKeys));
+            this.memtableBytes = replayedBytes.sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open node store at " + directory, e);
+        }
+        if (get(ZPath.ROOT) == null) {
+            write(new ZNode(ZPath.ROOT));
+        }
+        repairDigests(replayedKeys);
+        maybeFlush();
+        log.info("Opened disk node store at {} with {} sorted runs", directory, runs.size());
+    }
+
+    @Override
+    public ZNode get(ZPath path) {
+        ZNode cached = resident(path);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] value = lookup(toKey(path));
+        if (value == null || value == TOMBSTONE) {
+            return null;
+        }
+        ZNode node = decode(path, value);
+        cache.put(path, node);
+        return node;
+    }
+
+    @Override
+    public void insert(ZNode parent, String name, ZNode node) {
+        write(node);
+    }
+
+    /**
+     * Logs the subtree as one batch, see {@link #insertSubtrees}.
+     */
+    @Override
+    public void insertSubtree(ZNode parent, ZNode root, ForkJoinPool pool) {
+        insertSubtrees(Collections.singletonList(root), pool);
+    }
+
+    /**
+     * Logs every node of the subtrees between batch markers, so recovery replays all of them or none, and
+     * flushes only before and after them so no sorted run holds part of the load. The nodes are not cached:
+     * each holds its whole subtree in its children map, which this store never reads.
+     */
+    @Override
+    public void insertSubtrees(List<ZNode> roots, ForkJoinPool pool) {
+        maybeFlush();
+        transactionLog.beginBatch();
+        Deque<ZNode> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            ZNode node = pending.pop();
+            append(node);
+            node.getChildren().values().forEach(pending::push);
+        }
+        transactionLog.commitBatch();
+        maybeFlush();
+    }
+
+    @Override
+    public void update(ZNode node) {
+        write(node);
+    }
+
+    /**
+     * Keeps the node on the heap until the next flush instead of logging it.
+     */
+    @Override
+    public void updateDigest(ZNode node) {
+        cache.put(node.getZPath(), node);
+        dirtyDigests.put(node.getZPath(), node);
+    }
+
+    @Override
+    public void delete(ZNode parent, String name, ZNode node) {
+        maybeFlush();
+        cache.remove(node.getZPath());
+        dirtyDigests.remove(node.getZPath());
+        String key = toKey(node.getZPath());
+        transactionLog.append(key, null);
+        memtable.put(key, TOMBSTONE);
+        memtableBytes += RECORD_OVERHEAD + node.getPath().length();
+    }
+
+    @Override
+    public List<String> getChildrenNames(ZNode node) {
+        String prefix = childKeyPrefix(node.getZPath());
+        List<String> names = new ArrayList<>();
+        Iterator<Map.Entry<String, byte[]>> children = scan(prefix, prefix + Character.MAX_VALUE);
+        while (children.hasNext()) {
+            names.add(children.next().getKey().substring(prefix.length()));
+        }
+        return names;
+    }
+
+    @Override
+    public List<String> getChildrenNames(ZNode node, String startAfter, int limit) {
+        String prefix = childKeyPrefix(node.getZPath());
+        // Appending the lowest character gives the first key after startAfter, as the scan range is half-open.
+        String from = startAfter == null ? prefix : prefix + startAfter + Character.MIN_VALUE;
+        List<String> names = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Map.Entry<String, byte[]>> children = scan(from, prefix + Character.MAX_VALUE);
+        while (children.hasNext() && names.size() < limit) {
+            names.add(children.next().getKey().substring(prefix.length()));
+        }
+        return names;
+    }
+
+    @Override
+    public boolean hasChildren(ZNode node) {
+        String prefix = childKeyPrefix(node.getZPath());
+        return scan(prefix, prefix + Character.MAX_VALUE).hasNext();
+    }
+
+    @Override
+    public void forEachChild(ZNode node, Consumer<ZNode> action) {
+        String prefix = childKeyPrefix(node.getZPath());
+        Iterator<Map.Entry<String, byte[]>> children = scan(prefix, prefix + Character.MAX_VALUE);
+        while (children.hasNext()) {
+            Map.Entry<String, byte[]> child = children.next();
+            ZPath path = node.getZPath().child(child.getKey().substring(prefix.length()));
+            ZNode cached = resident(path);
+            action.accept(cached != null ? cached : decode(path, child.getValue()));
+        }
+    }
+
+    /**
+     * Scans one depth at a time, since each depth is its own key range. The scan stops at the first depth
+     * with no nodes below {@code root}, as every deeper node would need a parent there.
+     */
+    @Override
+    public boolean scanSubtree(ZPath root, int minDepth, int maxDepth, Predicate<ZPath> visitor) {
+        String subtreePrefix = root.isRoot() ? root.toString() : root + "/";
+        for (int depth = Math.max(minDepth, root.depth() + 1); depth <= maxDepth; depth++) {
+            String prefix = depthPrefix(depth) + subtreePrefix;
+            Iterator<Map.Entry<String, byte[]>> level = scan(prefix, prefix + Character.MAX_VALUE);
+            if (!level.hasNext()) {
+                break;
+            }
+            while (level.hasNext()) {
+                if (!visitor.test(ZPath.of(level.next().getKey().substring(DEPTH_DIGITS)))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the nodes straight from one range scan per depth, bypassing the node cache so a pass over a
+     * large subtree does not evict the hot set.
+     */
+    @Override
+    public void forEachInSubtree(ZPath root, Consumer<ZNode> action) {
+        String subtreePrefix = root.isRoot() ? root.toString() : root + "/";
+        for (int depth = root.depth() + 1; ; depth++) {
+            String prefix = depthPrefix(depth) + subtreePrefix;
+            Iterator<Map.Entry<String, byte[]>> level = scan(prefix, prefix + Character.MAX_VALUE);
+            if (!level.hasNext()) {
+                break;
+            }
+            while (level.hasNext()) {
+                Map.Entry<String, byte[]> entry = level.next();
+                ZPath path = ZPath.of(entry.getKey().substring(DEPTH_DIGITS));
+                ZNode dirty = dirtyDigests.isEmpty() ? null : dirtyDigests.get(path);
+                action.accept(dirty != null ? dirty : decode(path, entry.getValue()));
+            }
+        }
+    }
+
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Writes the memtable out as a new sorted run, together with the digests held since the last flush,
+     * making every write so far durable without the log.
+     */
+    public void flush() {
+        if (memtable.isEmpty() && dirtyDigests.isEmpty()) {
+            return;
+        }
+        for (ZNode node : dirtyDigests.values()) {
+            memtable.put(toKey(node.getZPath()), encode(node));
+        }
+        try {
+            SortedRun run = writeRun(memtable.entrySet().iterator(), false);
+            runs.add(0, run);
+            memtable = new ConcurrentSkipListMap<>();
+            memtableBytes = 0;
+            dirtyDigests.clear();
+            transactionLog.checkpoint();
+            log.debug("Flushed memtable to {}", run.getFile());
+            if (runs.size() > MAX_RUNS) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush memtable", e);
+        }
+    }
+
+    /**
+     * Writes the index to a file stamped with the log's last sequence number, so it is only loaded while no
+     * write has been logged since.
+     */
+    @Override
+    public void saveIndex(byte[] index) {
+        CRC32 crc = new CRC32();
+        crc.update(index);
+        ByteBuffer contents = ByteBuffer.allocate(2 * Long.BYTES + Integer.BYTES + index.length)
+            .putLong(transactionLog.getLastLsn()).putLong(crc.getValue()).putInt(index.length).put(index);
+        contents.flip();
+        try {
+            replaceFile(INDEX_FILE, contents);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save index", e);
+        }
+    }
+
+    /**
+     * Durably records the new epoch before returning it, so a crash cannot hand the same epoch out twice.
+     */
+    @Override
+    public long nextEpoch() {
+        Path file = directory.resolve(EPOCH_FILE);
+        try {
+            long last = Files.exists(file) ? ByteBuffer.wrap(Files.readAllBytes(file)).getLong() : 0;
+            long epoch = Math.max(last + 1, ChangeLog.nextClockEpoch());
+            replaceFile(EPOCH_FILE, ByteBuffer.allocate(Long.BYTES).putLong(0, epoch));
+            return epoch;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to advance epoch", e);
+        }
+    }
+
+    private void replaceFile(String name, ByteBuffer contents) throws IOException {
+        Path temp = directory.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public byte[] loadIndex() {
+        Path file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (contents.remaining() < 2 * Long.BYTES + Integer.BYTES
+                    || contents.getLong() != transactionLog.getLastLsn()) {
+                return null;
+            }
+            long checksum = contents.getLong();
+            int length = contents.getInt();
+            if (length != contents.remaining()) {
+                return null;
+            }
+            byte[] index = new byte[length];
+            contents.get(index);
+            CRC32 crc = new CRC32();
+            crc.update(index);
+            return crc.getValue() == checksum ? index : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load index", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        transactionLog.close();
+        for (SortedRun run : runs) {
+            run.close();
+        }
+        runs.clear();
+        cache.clear();
+        dirtyDigests.clear();
+        log.info("Closed disk node store at {}", directory);
+    }
+
+    /**
+     * Flushes before rather than after the write when the memtable is full, so a flush never lands between
+     * a write and the digest updates of its ancestors that follow it.
+     */
+    private void write(ZNode node) {
+        maybeFlush();
+        append(node);
+        cache.put(node.getZPath(), node);
+        dirtyDigests.remove(node.getZPath());
+    }
+
+    private void append(ZNode node) {
+        byte[] value = encode(node);
+        String key = toKey(node.getZPath());
+        transactionLog.append(key, value);
+        memtable.put(key, value);
+        memtableBytes += RECORD_OVERHEAD + node.getPath().length() + value.length;
+    }
+
+    /**
+     * Applies a write read back from the transaction log; a null value is a delete. Called concurrently for
+     * different keys, so the memtable size is summed into {@code replayedBytes} rather than the field.
+     */
+    private void replay(String key, byte[] value, LongAdder replayedBytes, Set<String> replayedKeys) {
+        memtable.put(key, value == null ? TOMBSTONE : value);
+        replayedBytes.add(RECORD_OVERHEAD + key.length() + (value == null ? 0 : value.length));
+        replayedKeys.add(key);
+    }
+
+    /**
+     * Recomputes, deepest first, the digests of the ancestors of every replayed write, since the digest
+     * updates that followed those writes were lost unless a flush took them.
+     */
+    private void repairDigests(Set<String> replayedKeys) {
+        Set<ZPath> ancestors = new HashSet<>();
+        for (String key : replayedKeys) {
+            ZPath ancestor = ZPath.of(key.substring(DEPTH_DIGITS)).parent();
+            while (ancestor != null && ancestors.add(ancestor)) {
+                ancestor = ancestor.parent();
+            }
+        }
+        List<ZPath> deepestFirst = new ArrayList<>(ancestors);
+        deepestFirst.sort(Comparator.comparingInt(ZPath::depth).reversed());
+        for (ZPath path : deepestFirst) {
+            ZNode node = get(path);
+            if (node == null) {
+                continue;
+            }
+            long[] digest = {node.getContentHash()};
+            forEachChild(node, child -> digest[0] += child.getDigest());
+            if (digest[0] != node.getDigest()) {
+                node.restoreHashes(node.getContentHash(), digest[0]);
+                updateDigest(node);
+            }
+        }
+        if (!ancestors.isEmpty()) {
+            log.info("Checked the digests of {} ancestors of replayed writes", ancestors.size());
+        }
+    }
+
+    /**
+     * Returns the node if it is already on the heap, preferring a digest update not yet flushed.
+     */
+    private ZNode resident(ZPath path) {
+        ZNode dirty = dirtyDigests.get(path);
+        return dirty != null ? dirty : cache.get(path);
+    }
+
+    private void maybeFlush() {
+        if (memtableBytes >= memtableLimitBytes) {
+            flush();
+        }
+    }
+
+    private byte[] lookup(String key) {
+        byte[] value = memtable.get(key);
+        if (value != null) {
+            return value;
+        }
+        for (SortedRun run : runs) {
+            value = run.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Merges the memtable and every run over {@code [from, to)}, newest value winning, tombstones hidden.
+     */
+    private Iterator<Map.Entry<String, byte[]>> scan(String from, String to) {
+        List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>(runs.size() + 1);
+        sources.add(memtable.subMap(from, to).entrySet().iterator());
+        for (SortedRun run : runs) {
+            sources.add(run.iterator(from, to));
+        }
+        return new MergingIterator(sources, true);
+    }
+
+    /**
+     * Merges all runs into one. The result covers every key, so tombstones can be dropped.
+     */
+    private void compact() throws IOException {
+        List<SortedRun> inputs = new ArrayList<>(runs);
+        List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>(inputs.size());
+        for (SortedRun run : inputs) {
+            sources.add(run.iterator("", String.valueOf(Character.MAX_VALUE)));
+        }
+        SortedRun compacted = writeRun(new MergingIterator(sources, true), true);
+        runs.add(0, compacted);
+        runs.removeAll(inputs);
+        for (SortedRun run : inputs) {
+            run.close();
+            Files.deleteIfExists(run.getFile());
+        }
+        log.info("Compacted {} sorted runs into {}", inputs.size(), compacted.getFile());
+    }
+
+    private void openRuns() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(file -> file.getFileName().toString().startsWith(RUN_PREFIX)
+                    && file.getFileName().toString().endsWith(RUN_SUFFIX))
+                .forEach(files::add);
+        }
+        files.sort(Collections.reverseOrder());
+        for (Path file : files) {
+            runs.add(SortedRun.open(file));
+            long id = Long.parseLong(file.getFileName().toString()
+                .substring(RUN_PREFIX.length(), file.getFileName().toString().length() - RUN_SUFFIX.length()));
+            nextRunId = Math.max(nextRunId, id + 1);
+        }
+    }
+
+    /**
+     * Writes sorted entries to a new run file: records, then a sparse index, then the index position.
+     */
+    private SortedRun writeRun(Iterator<Map.Entry<String, byte[]>> entries, boolean dropTombstones)
+            throws IOException {
+        Path file = directory.resolve(String.format("%s%016d%s", RUN_PREFIX, nextRunId++, RUN_SUFFIX));
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        List<String> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            int count = 0;
+            while (entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                boolean tombstone = entry.getValue() == TOMBSTONE;
+                if (tombstone && dropTombstones) {
+                    continue;
+                }
+                if (count++ % INDEX_INTERVAL == 0) {
+                    indexKeys.add(entry.getKey());
+                    indexOffsets.add(counter.getCount());
+                }
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(tombstone ? -1 : entry.getValue().length);
+                if (!tombstone) {
+                    out.write(entry.getValue());
+                }
+            }
+            long indexStart = counter.getCount();
+            for (int i = 0; i < indexKeys.size(); i++) {
+                byte[] key = indexKeys.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(indexOffsets.get(i));
+            }
+            out.writeInt(indexKeys.size());
+            out.writeLong(indexStart);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return SortedRun.open(file);
+    }
+
+    static String toKey(ZPath path) {
+        return depthPrefix(path.depth()) + path;
+    }
+
+    private static String childKeyPrefix(ZPath path) {
+        return depthPrefix(path.depth() + 1) + (path.isRoot() ? path : path + "/");
+    }
+
+    private static String depthPrefix(int depth) {
+        String digits = Integer.toString(depth);
+        StringBuilder prefix = new StringBuilder(DEPTH_DIGITS + 1);
+        for (int i = digits.length(); i < DEPTH_DIGITS; i++) {
+            prefix.append('0');
+        }
+        return prefix.append(digits).toString();
+    }
+
+    private static byte[] encode(ZNode node) {
+        try {
+            byte[] data = node.getStoredData();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(66 + data.length);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(node.getVersion());
+            out.writeLong(node.getCreatedTime());
+            out.writeLong(node.getModifiedTime());
+            out.writeBoolean(node.isCompressed());
+            out.writeInt(node.getDataLength());
+            out.writeInt(data.length);
+            out.write(data);
+            out.writeInt(node.getChildSequence());
+            out.writeLong(node.getTtl());
+            out.writeBoolean(node.isContainer());
+            out.writeLong(node.getContentHash());
+            out.writeLong(node.getDigest());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ZNode decode(ZPath path, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        long version = buffer.getLong();
+        long createdTime = buffer.getLong();
+        long modifiedTime = buffer.getLong();
+        boolean compressed = buffer.get() != 0;
+        int dataLength = buffer.getInt();
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        ZNode node = new ZNode(path, data, compressed, dataLength, version, createdTime, modifiedTime);
+        // Records written before sequential nodes existed end with the payload.
+        if (buffer.remaining() >= Integer.BYTES) {
+            node.setChildSequence(buffer.getInt());
+        }
+        // Likewise, records written before TTL and container nodes end with the sequence.
+        if (buffer.remaining() >= Long.BYTES + 1) {
+            node.setTtl(buffer.getLong());
+            node.setContainer(buffer.get() != 0);
+        }
+        // Records written before subtree digests existed get a zero digest, which MiniZooKeeper rebuilds.
+        if (buffer.remaining() >= 2 * Long.BYTES) {
+            node.restoreHashes(buffer.getLong(), buffer.getLong());
+        } else {
+            node.restoreHashes(ZNode.hashContent(path, node.getData()), 0);
+        }
+        return node;
+    }
+
+    /**
+     * Immutable sorted file of records with an in-memory sparse index of every {@value #INDEX_INTERVAL}th key.
+     */
+    private static final class SortedRun {
+
+        @Getter
+        private final Path file;
+        private final FileChannel channel;
+        private final String[] indexKeys;
+        private final long[] indexOffsets;
+        private final long indexStart;
+
+        private SortedRun(Path file, FileChannel channel, String[] indexKeys, long[] indexOffsets, long indexStart) {
+            this.file = file;
+            this.channel = channel;
+            this.indexKeys = indexKeys;
+            this.indexOffsets = indexOffsets;
+            this.indexStart = indexStart;
+        }
+
+        static SortedRun open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            ByteBuffer footer = read(channel, size - 12, 12);
+            int count = footer.getInt();
+            long indexStart = footer.getLong();
+            ByteBuffer index = read(channel, indexStart, (int) (size - 12 - indexStart));
+            String[] keys = new String[count];
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = readString(index);
+                offsets[i] = index.getLong();
+            }
+            return new SortedRun(file, channel, keys, offsets, indexStart);
+        }
+
+        /**
+         * Returns the stored value, {@link #TOMBSTONE} for a deleted key, or null if this run has no entry.
+         */
+        byte[] get(String key) {
+            int block = floorBlock(key);
+            if (block < 0) {
+                return null;
+            }
+            ByteBuffer records = readBlock(block);
+            while (records.hasRemaining()) {
+                String recordKey = readString(records);
+                int length = records.getInt();
+                int cmp = recordKey.compareTo(key);
+                if (cmp == 0) {
+                    return length < 0 ? TOMBSTONE : readBytes(records, length);
+                }
+                if (cmp > 0) {
+                    return null;
+                }
+                if (length > 0) {
+                    records.position(records.position() + length);
+                }
+            }
+            return null;
+        }
+
+        Iterator<Map.Entry<String, byte[]>> iterator(String from, String to) {
+            return new Iterator<Map.Entry<String, byte[]>>() {
+                private int block = Math.max(0, floorBlock(from));
+                private ByteBuffer records = indexKeys.length > 0 ? readBlock(block) : ByteBuffer.allocate(0);
+                private Map.Entry<String, byte[]> next = advance();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<String, byte[]> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Map.Entry<String, byte[]> current = next;
+                    next = advance();
+                    return current;
+                }
+
+                private Map.Entry<String, byte[]> advance() {
+                    while (true) {
+                        if (!records.hasRemaining()) {
+                            if (++block >= indexKeys.length) {
+                                return null;
+                            }
+                            records = readBlock(block);
+                        }
+                        String key = readString(records);
+                        int length = records.getInt();
+                        if (key.compareTo(to) >= 0) {
+                            block = indexKeys.length;
+                            records = ByteBuffer.allocate(0);
+                            return null;
+                        }
+                        byte[] value = length < 0 ? TOMBSTONE : readBytes(records, length);
+                        if (key.compareTo(from) >= 0) {
+                            return new AbstractMap.SimpleImmutableEntry<>(key, value);
+                        }
+                    }
+                }
+            };
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close sorted run {}", file, e);
+            }
+        }
+
+        private int floorBlock(String key) {
+            int low = 0;
+            int high = indexKeys.length - 1;
+            int floor = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (indexKeys[mid].compareTo(key) <= 0) {
+                    floor = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return floor;
+        }
+
+        private ByteBuffer readBlock(int block) {
+            long start = indexOffsets[block];
+            long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : indexStart;
+            try {
+                return read(channel, start, (int) (end - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        }
+
+        private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of sorted run");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            return new String(readBytes(buffer, buffer.getInt()), StandardCharsets.UTF_8);
+        }
+
+        private static byte[] readBytes(ByteBuffer buffer, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * K-way merge of sorted sources ordered newest first; for equal keys only the newest source's value is kept.
+     */
+    private static final class MergingIterator implements Iterator<Map.Entry<String, byte[]>> {
+
+        private final List<Iterator<Map.Entry<String, byte[]>>> sources;
+        private final PriorityQueue<Head> heads;
+        private final boolean hideTombstones;
+        private Map.Entry<String, byte[]> next;
+
+        MergingIterator(List<Iterator<Map.Entry<String, byte[]>>> sources, boolean hideTombstones) {
+            this.sources = sources;
+            this.hideTombstones = hideTombstones;
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int cmp = a.entry.getKey().compareTo(b.entry.getKey());
+                return cmp != 0 ? cmp : Integer.compare(a.source, b.source);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                pull(i);
+            }
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, byte[]> current = next;
+            next = advance();
+            return current;
+        }
+
+        private Map.Entry<String, byte[]> advance() {
+            while (!heads.isEmpty()) {
+                Head newest = heads.poll();
+                pull(newest.source);
+                while (!heads.isEmpty() && heads.peek().entry.getKey().equals(newest.entry.getKey())) {
+                    pull(heads.poll().source);
+                }
+                if (!hideTombstones || newest.entry.getValue() != TOMBSTONE) {
+                    return newest.entry;
+                }
+            }
+            return null;
+        }
+
+        private void pull(int source) {
+            Iterator<Map.Entry<String, byte[]>> iterator = sources.get(source);
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), source));
+            }
+        }
+
+        private static final class Head {
+            private final Map.Entry<String, byte[]> entry;
+            private final int source;
+
+            private Head(Map.Entry<String, byte[]> entry, int source) {
+                this.entry = entry;
+                this.source = source;
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        @Getter
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
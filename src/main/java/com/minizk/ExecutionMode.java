@@ -0,0 +1,27 @@
+package com.minizk;
+
+/**
+ * Threading model used to run client sessions against a {@link MiniZooKeeper}.
+ */
+public enum ExecutionMode {
+    /** Sessions share a fixed pool of platform threads */
+    PLATFORM_THREADS,
+    /** Each session runs on its own virtual thread (requires a Java 21+ runtime) */
+    VIRTUAL_THREADS;
+
+    /**
+     * Parses a mode name such as {@code virtual} or {@code platform_threads}, ignoring case.
+     */
+    public static ExecutionMode parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Execution mode cannot be null or empty");
+        }
+        String normalized = value.trim().toUpperCase();
+        for (ExecutionMode mode : values()) {
+            if (mode.name().equals(normalized) || mode.name().startsWith(normalized + "_")) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution mode: " + value);
+    }
+}
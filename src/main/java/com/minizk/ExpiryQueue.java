@@ -0,0 +1,112 @@
+package com.minizk;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Paths ordered by the time at which they become eligible for removal, so the reaper only ever touches
+ * the due head of the queue. Mutated by the writer holding the service's write lock; the size may be read
+ * from any thread.
+ */
+final class ExpiryQueue {
+
+    private final NavigableSet<Entry> entries;
+
+    /** Kept alongside the set, whose own size() walks every entry */
+    private volatile int size;
+
+    ExpiryQueue() {
+        this.entries = new ConcurrentSkipListSet<>();
+    }
+
+    void add(ZPath path, long dueTime) {
+        if (entries.add(new Entry(dueTime, path))) {
+            size++;
+        }
+    }
+
+    void remove(ZPath path, long dueTime) {
+        if (entries.remove(new Entry(dueTime, path))) {
+            size--;
+        }
+    }
+
+    /**
+     * Removes and returns up to {@code max} paths due at or before {@code now}, earliest first.
+     */
+    List<ZPath> pollDue(long now, int max) {
+        List<ZPath> due = new ArrayList<>(Math.min(max, 256));
+        while (due.size() < max) {
+            Entry first = entries.isEmpty() ? null : entries.first();
+            if (first == null || first.dueTime > now) {
+                break;
+            }
+            entries.remove(first);
+            size--;
+            due.add(first.path);
+        }
+        return due;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes every queued path with its due time, for {@link #restore} after a restart.
+     */
+    void save(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (Entry entry : entries) {
+            byte[] path = entry.path.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeLong(entry.dueTime);
+            out.writeInt(path.length);
+            out.write(path);
+        }
+    }
+
+    /**
+     * Adds back the paths written by {@link #save}.
+     */
+    void restore(DataInput in) throws IOException {
+        for (int remaining = in.readInt(); remaining > 0; remaining--) {
+            long dueTime = in.readLong();
+            byte[] path = new byte[in.readInt()];
+            in.readFully(path);
+            add(ZPath.of(new String(path, StandardCharsets.UTF_8)), dueTime);
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final long dueTime;
+        private final ZPath path;
+
+        private Entry(long dueTime, ZPath path) {
+            this.dueTime = dueTime;
+            this.path = path;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(dueTime, other.dueTime);
+            return byTime != 0 ? byTime : path.compareTo(other.path);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && compareTo((Entry) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(dueTime) * 31 + path.hashCode();
+        }
+    }
+}
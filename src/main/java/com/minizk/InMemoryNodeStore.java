@@ -0,0 +1,186 @@
+package com.minizk;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Default heap-resident store: a path index over {@link ZNode}s linked through their children maps.
+ * A second, lexicographically ordered index keeps every subtree in one contiguous key range, so subtree
+ * scans touch only the nodes below their root while point lookups stay on the hash index.
+ */
+public final class InMemoryNodeStore implements NodeStore {
+
+    private final Map<ZPath, ZNode> nodeCache;
+    private final NavigableMap<String, ZPath> orderedIndex;
+
+    public InMemoryNodeStore() {
+        this.nodeCache = new ConcurrentHashMap<>();
+        this.nodeCache.put(ZPath.ROOT, new ZNode(ZPath.ROOT));
+        this.orderedIndex = new ConcurrentSkipListMap<>();
+    }
+
+    @Override
+    public ZNode get(ZPath path) {
+        return nodeCache.get(path);
+    }
+
+    @Override
+    public boolean contains(ZPath path) {
+        return nodeCache.containsKey(path);
+    }
+
+    @Override
+    public void insert(ZNode parent, String name, ZNode node) {
+        parent.addChild(name, node);
+        nodeCache.put(node.getZPath(), node);
+        orderedIndex.put(node.getPath(), node.getZPath());
+    }
+
+    /**
+     * Indexes the subtree's nodes in parallel on {@code pool}; both indexes take concurrent writes. The root
+     * is linked under {@code parent} last.
+     */
+    @Override
+    public void insertSubtree(ZNode parent, ZNode root, ForkJoinPool pool) {
+        pool.invoke(new IndexTask(root));
+        parent.addChild(root.getZPath().name(), root);
+    }
+
+    private void index(ZNode node) {
+        nodeCache.put(node.getZPath(), node);
+        orderedIndex.put(node.getPath(), node.getZPath());
+    }
+
+    /**
+     * Indexes a node and its leaf children, forking a task for each child with children of its own.
+     */
+    private final class IndexTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ZNode node;
+
+        private IndexTask(ZNode node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            index(node);
+            List<IndexTask> forked = new ArrayList<>();
+            for (ZNode child : node.getChildren().values()) {
+                if (child.getChildren().isEmpty()) {
+                    index(child);
+                } else {
+                    forked.add(new IndexTask(child));
+                }
+            }
+            invokeAll(forked);
+        }
+    }
+
+    @Override
+    public void update(ZNode node) {
+        // Nodes are modified in place on the heap; nothing to write back.
+    }
+
+    @Override
+    public void delete(ZNode parent, String name, ZNode node) {
+        parent.removeChild(name);
+        nodeCache.remove(node.getZPath());
+        orderedIndex.remove(node.getPath());
+    }
+
+    @Override
+    public List<String> getChildrenNames(ZNode node) {
+        return node.getChildrenNames();
+    }
+
+    /**
+     * Walks the ordered index from {@code startAfter}, jumping over each child's subtree when it is reached,
+     * so a page costs one index lookup per child returned or skipped over rather than a pass over every
+     * descendant.
+     */
+    @Override
+    public List<String> getChildrenNames(ZNode node, String startAfter, int limit) {
+        ZPath parent = node.getZPath();
+        String prefix = parent.isRoot() ? parent.toString() : parent + "/";
+        String end = prefix + Character.MAX_VALUE;
+        List<String> names = new ArrayList<>(Math.min(limit, 1024));
+        String key = startAfter == null ? orderedIndex.ceilingKey(prefix) : orderedIndex.higherKey(prefix + startAfter);
+        while (key != null && key.compareTo(end) < 0 && names.size() < limit) {
+            int separator = key.indexOf('/', prefix.length());
+            if (separator < 0) {
+                names.add(key.substring(prefix.length()));
+                key = orderedIndex.higherKey(key);
+            } else {
+                key = orderedIndex.ceilingKey(subtreeEnd(key, separator));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the smallest key after every key below the node whose path is {@code key} cut at
+     * {@code separator}: its descendants all continue with '/', and '0' is the next character.
+     */
+    private static String subtreeEnd(String key, int separator) {
+        return key.substring(0, separator) + '0';
+    }
+
+    @Override
+    public boolean hasChildren(ZNode node) {
+        return !node.getChildren().isEmpty();
+    }
+
+    @Override
+    public void forEachChild(ZNode node, Consumer<ZNode> action) {
+        node.getChildren().values().forEach(action);
+    }
+
+    /**
+     * Walks the subtree's key range, jumping over the part of it below {@code maxDepth} whenever it is
+     * reached, so a shallow scan of a deep subtree does not read the deep nodes.
+     */
+    @Override
+    public boolean scanSubtree(ZPath root, int minDepth, int maxDepth, Predicate<ZPath> visitor) {
+        if (maxDepth <= root.depth()) {
+            return true;
+        }
+        String prefix = root.isRoot() ? root.toString() : root + "/";
+        NavigableMap<String, ZPath> range = orderedIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        Iterator<Map.Entry<String, ZPath>> entries = range.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, ZPath> entry = entries.next();
+            ZPath path = entry.getValue();
+            int depth = path.depth();
+            if (depth > maxDepth) {
+                String key = entry.getKey();
+                int separator = prefix.length() - 1;
+                for (int i = root.depth(); i < maxDepth; i++) {
+                    separator = key.indexOf('/', separator + 1);
+                }
+                entries = range.tailMap(subtreeEnd(key, separator), true).entrySet().iterator();
+                continue;
+            }
+            if (depth >= minDepth && !visitor.test(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release.
+    }
+}
@@ -0,0 +1,291 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduling front-end that queues reads and writes in separate lanes before they reach another
+ * {@link RequestProcessor}, so reads no longer wait behind every queued write for the service's lock.
+ * Granted reads run together and a granted write runs alone, mirroring the service's read/write lock, so
+ * requests let through rarely contend there.
+ *
+ * <p>While both lanes have waiters they take turns by weight: a lane is granted up to its weight in requests
+ * before the other lane's turn, and a write whose turn has come holds back new reads until the running ones
+ * finish. To bound starvation, a lane whose oldest waiter has waited longer than the maximum wait is served
+ * next regardless of turn. Requests arriving at an idle lane while the other is empty are granted at once.
+ * {@link #processBatch} goes through the write lane as one request.
+ */
+@Slf4j
+public final class LaneScheduler implements RequestProcessor {
+
+    public static final int DEFAULT_READ_WEIGHT = 8;
+    public static final int DEFAULT_WRITE_WEIGHT = 1;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofMillis(50);
+
+    private final RequestProcessor delegate;
+    private final ReentrantLock lock;
+    @Getter
+    private final Lane readLane;
+    @Getter
+    private final Lane writeLane;
+    @Getter
+    private final Duration maxWait;
+    private final long maxWaitNanos;
+    /** Lane whose turn it is while both have waiters */
+    private Lane turn;
+    private int activeReads;
+    private boolean writeActive;
+
+    public LaneScheduler(@NonNull RequestProcessor delegate) {
+        this(delegate, DEFAULT_READ_WEIGHT, DEFAULT_WRITE_WEIGHT, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * Creates a scheduler that, under contention, grants up to {@code readWeight} reads for every
+     * {@code writeWeight} writes, and serves any lane whose oldest request has waited over {@code maxWait} next.
+     */
+    public LaneScheduler(@NonNull RequestProcessor delegate, int readWeight, int writeWeight,
+                         @NonNull Duration maxWait) {
+        if (readWeight <= 0 || writeWeight <= 0) {
+            throw new IllegalArgumentException("Weights must be positive");
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Max wait cannot be negative");
+        }
+        this.delegate = delegate;
+        this.lock = new ReentrantLock();
+        this.readLane = new Lane("read", readWeight);
+        this.writeLane = new Lane("write", writeWeight);
+        this.maxWait = maxWait;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.turn = readLane;
+        this.turn.credits = readWeight;
+    }
+
+    @Override
+    public ZooKeeperResponse processRequest(ZooKeeperRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request cannot be null");
+        }
+        Lane lane = request.getOperation().isWrite() ? writeLane : readLane;
+        await(lane);
+        try {
+            return delegate.processRequest(request);
+        } finally {
+            release(lane);
+        }
+    }
+
+    @Override
+    public List<ZooKeeperResponse> processBatch(List<ZooKeeperRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Requests cannot be null");
+        }
+        await(writeLane);
+        try {
+            return delegate.processBatch(requests);
+        } finally {
+            release(writeLane);
+        }
+    }
+
+    private void await(Lane lane) {
+        Waiter waiter = new Waiter(lock.newCondition());
+        lock.lock();
+        try {
+            lane.queue.add(waiter);
+            lane.peakQueueDepth = Math.max(lane.peakQueueDepth, lane.queue.size());
+            dispatch();
+            boolean interrupted = false;
+            while (!waiter.granted) {
+                // A granted slot must be released, so waiting is not interruptible.
+                try {
+                    waiter.ready.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lane lane) {
+        lock.lock();
+        try {
+            if (lane == writeLane) {
+                writeActive = false;
+            } else {
+                activeReads--;
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grants waiting requests for as long as the lane served next can run alongside the requests already
+     * running. Called under the lock whenever a request arrives or finishes.
+     */
+    private void dispatch() {
+        while (true) {
+            Lane lane = nextLane();
+            if (lane == null || writeActive || (lane == writeLane && activeReads > 0)) {
+                return;
+            }
+            Waiter waiter = lane.queue.poll();
+            long waitNanos = System.nanoTime() - waiter.enqueuedNanos;
+            lane.grantedCount++;
+            lane.totalWaitNanos += waitNanos;
+            lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waitNanos);
+            if (lane == turn && turn.credits > 0) {
+                turn.credits--;
+            }
+            if (lane == writeLane) {
+                writeActive = true;
+            } else {
+                activeReads++;
+            }
+            waiter.granted = true;
+            waiter.ready.signal();
+        }
+    }
+
+    /**
+     * Returns the lane whose oldest request is served next, or null if both are empty.
+     */
+    private Lane nextLane() {
+        Waiter read = readLane.queue.peek();
+        Waiter write = writeLane.queue.peek();
+        if (read == null || write == null) {
+            return read != null ? readLane : write != null ? writeLane : null;
+        }
+        long now = System.nanoTime();
+        boolean readOverdue = now - read.enqueuedNanos > maxWaitNanos;
+        boolean writeOverdue = now - write.enqueuedNanos > maxWaitNanos;
+        if (readOverdue || writeOverdue) {
+            return !writeOverdue || (readOverdue && read.enqueuedNanos - write.enqueuedNanos < 0)
+                ? readLane : writeLane;
+        }
+        if (turn.credits == 0) {
+            turn = turn == readLane ? writeLane : readLane;
+            turn.credits = turn.weight;
+        }
+        return turn;
+    }
+
+    @Override
+    public String toString() {
+        return readLane + "; " + writeLane;
+    }
+
+    private static final class Waiter {
+
+        private final Condition ready;
+        private final long enqueuedNanos;
+        private boolean granted;
+
+        private Waiter(Condition ready) {
+            this.ready = ready;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Queue of one kind of request, with its depth and wait-time metrics.
+     */
+    public final class Lane {
+
+        @Getter
+        private final String name;
+        @Getter
+        private final int weight;
+        private final ArrayDeque<Waiter> queue;
+        /** Grants left in this lane's turn */
+        private int credits;
+        private int peakQueueDepth;
+        private long grantedCount;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Lane(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+            this.queue = new ArrayDeque<>();
+        }
+
+        /**
+         * Requests waiting in this lane now.
+         */
+        public int getQueueDepth() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getPeakQueueDepth() {
+            lock.lock();
+            try {
+                return peakQueueDepth;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long getGrantedCount() {
+            lock.lock();
+            try {
+                return grantedCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Average time granted requests spent queued in this lane.
+         */
+        public Duration getAverageWait() {
+            lock.lock();
+            try {
+                return Duration.ofNanos(grantedCount == 0 ? 0 : totalWaitNanos / grantedCount);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Duration getMaxWait() {
+            lock.lock();
+            try {
+                return Duration.ofNanos(maxWaitNanos);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String toString() {
+            lock.lock();
+            try {
+                return String.format("%s lane: weight=%d depth=%d peak=%d granted=%d avgWait=%dus maxWait=%dus",
+                    name, weight, queue.size(), peakQueueDepth, grantedCount,
+                    grantedCount == 0 ? 0 : totalWaitNanos / grantedCount / 1_000, maxWaitNanos / 1_000);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Standalone load tool that drives a {@link MiniZooKeeper} through {@link MiniZooKeeperClient} or directly
+ * through {@link MiniZooKeeper#processRequest}, with a configurable operation mix, key distribution,
+ * payload size and target rate.
+ *
+ * <p>With a target rate each operation has an intended start time on a fixed schedule and latency is measured
+ * from that time, so a stall is charged to every operation queued behind it instead of being hidden by the
+ * generator slowing down (coordinated omission). Without a target rate the generator runs closed-loop and
+ * reports service time only.
+ *
+ * <pre>
+ * java -cp ... com.minizk.LoadGenerator --threads=8 --duration=30 --rate=50000 \
+ *     --mix=read:80,update:10,create:5,delete:3,list:2 --keys=100000 --distribution=zipfian --payload=256
+ * </pre>
+ */
+@Slf4j
+public final class LoadGenerator {
+
+    private static final String ROOT = "/load";
+    private static final int KEYS_PER_GROUP = 100;
+    private static final int POPULATE_BATCH_SIZE = 1_000;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final MiniZooKeeper zooKeeper;
+    private final Options options;
+
+    public LoadGenerator(@NonNull MiniZooKeeper zooKeeper, @NonNull Options options) {
+        this.zooKeeper = zooKeeper;
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(1);
+            return;
+        }
+
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper()) {
+            System.out.println("Running load: " + options);
+            Report report = new LoadGenerator(zooKeeper, options).run();
+            System.out.print(report);
+        }
+    }
+
+    /**
+     * Populates the key space, runs the workload for the configured duration and returns the merged results.
+     */
+    public Report run() throws Exception {
+        populate();
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+        try {
+            long startNanos = System.nanoTime();
+            long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < options.getThreads(); i++) {
+                Worker worker = new Worker(i, startNanos, deadlineNanos);
+                futures.add(executor.submit(worker, worker));
+            }
+
+            Report report = new Report(options.getTargetRate() > 0);
+            for (Future<Worker> future : futures) {
+                report.add(future.get());
+            }
+            report.elapsedNanos = System.nanoTime() - startNanos;
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void populate() {
+        List<ZooKeeperRequest> batch = new ArrayList<>(POPULATE_BATCH_SIZE);
+        byte[] payload = new byte[options.getPayloadBytes()];
+        batch.add(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, ROOT, new byte[0]));
+        for (int thread = 0; thread < options.getThreads(); thread++) {
+            batch.add(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, ROOT + "/t" + thread, new byte[0]));
+        }
+        for (long key = 0; key < options.getKeys(); key++) {
+            if (key % KEYS_PER_GROUP == 0) {
+                batch.add(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, groupPath(key), new byte[0]));
+            }
+            batch.add(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, keyPath(key), payload));
+            if (batch.size() >= POPULATE_BATCH_SIZE) {
+                zooKeeper.processBatch(batch);
+                batch.clear();
+            }
+        }
+        zooKeeper.processBatch(batch);
+        log.info("Populated {} keys under {}", options.getKeys(), ROOT);
+    }
+
+    private static String groupPath(long key) {
+        return ROOT + "/g" + (key / KEYS_PER_GROUP);
+    }
+
+    private static String keyPath(long key) {
+        return groupPath(key) + "/k" + key;
+    }
+
+    /**
+     * One load thread. Owns its histograms and the nodes it creates, so deletes never race with other threads.
+     */
+    private final class Worker implements Runnable {
+
+        private final int id;
+        private final long startNanos;
+        private final long deadlineNanos;
+        private final Map<ZooKeeperRequest.Operation, LatencyHistogram> histograms;
+        private final ArrayDeque<String> created;
+        private final MiniZooKeeperClient client;
+        private final ZipfianGenerator zipfian;
+        private final byte[] payload;
+        private final String payloadString;
+        private long createdCount;
+        private long errors;
+
+        Worker(int id, long startNanos, long deadlineNanos) {
+            this.id = id;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+            this.histograms = new EnumMap<>(ZooKeeperRequest.Operation.class);
+            this.created = new ArrayDeque<>();
+            this.client = new MiniZooKeeperClient(zooKeeper);
+            this.zipfian = options.getDistribution() == KeyDistribution.ZIPFIAN
+                ? new ZipfianGenerator(options.getKeys()) : null;
+            this.payload = new byte[options.getPayloadBytes()];
+            Arrays.fill(payload, (byte) 'x');
+            this.payloadString = new String(payload, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void run() {
+            long intervalNanos = options.getTargetRate() > 0
+                ? TimeUnit.SECONDS.toNanos(options.getThreads()) / options.getTargetRate() : 0;
+            long nextStart = startNanos;
+
+            while (!Thread.currentThread().isInterrupted()) {
+                long intendedStart;
+                if (intervalNanos > 0) {
+                    intendedStart = nextStart;
+                    nextStart += intervalNanos;
+                    long wait;
+                    while ((wait = intendedStart - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intendedStart = System.nanoTime();
+                }
+                if (intendedStart >= deadlineNanos) {
+                    break;
+                }
+
+                ZooKeeperRequest.Operation operation = options.pickOperation();
+                String path = pathFor(operation);
+                if (path == null) {
+                    continue;
+                }
+                if (!execute(operation, path)) {
+                    errors++;
+                }
+                histograms.computeIfAbsent(operation, op -> new LatencyHistogram())
+                    .record(System.nanoTime() - intendedStart);
+            }
+        }
+
+        private String pathFor(ZooKeeperRequest.Operation operation) {
+            switch (operation) {
+                case CREATE:
+                    String path = ROOT + "/t" + id + "/c" + createdCount++;
+                    created.add(path);
+                    return path;
+                case DELETE:
+                    return created.poll();
+                case LIST:
+                    return groupPath(nextKey());
+                default:
+                    return keyPath(nextKey());
+            }
+        }
+
+        private long nextKey() {
+            return zipfian != null ? zipfian.next() : ThreadLocalRandom.current().nextLong(options.getKeys());
+        }
+
+        private boolean execute(ZooKeeperRequest.Operation operation, String path) {
+            if (options.getTarget() == Target.CLIENT) {
+                switch (operation) {
+                    case CREATE:
+                        return client.create(path, payloadString);
+                    case READ:
+                        return client.getData(path) != null;
+                    case UPDATE:
+                        return client.setData(path, payloadString);
+                    case DELETE:
+                        return client.delete(path);
+                    default:
+                        return client.getChildren(path) != null;
+                }
+            }
+            byte[] data = operation == ZooKeeperRequest.Operation.CREATE
+                || operation == ZooKeeperRequest.Operation.UPDATE ? payload : new byte[0];
+            return zooKeeper.processRequest(new ZooKeeperRequest(operation, path, data)).isSuccess();
+        }
+    }
+
+    public enum KeyDistribution {
+        UNIFORM,
+        ZIPFIAN
+    }
+
+    public enum Target {
+        /** Through {@link MiniZooKeeperClient}, including string conversion */
+        CLIENT,
+        /** Straight into {@link MiniZooKeeper#processRequest} */
+        DIRECT
+    }
+
+    /**
+     * Workload parameters, parsed from {@code --name=value} arguments.
+     */
+    @Getter
+    public static final class Options {
+
+        static final String USAGE = "Usage: LoadGenerator [--threads=N] [--duration=SECONDS] [--rate=OPS_PER_SEC]"
+            + " [--mix=read:80,update:10,create:5,delete:3,list:2] [--keys=N] [--distribution=uniform|zipfian]"
+            + " [--payload=BYTES] [--target=client|direct]";
+
+        private int threads = 4;
+        private long durationSeconds = 10;
+        private long targetRate;
+        private long keys = 10_000;
+        private int payloadBytes = 128;
+        private KeyDistribution distribution = KeyDistribution.UNIFORM;
+        private Target target = Target.CLIENT;
+        private final Map<ZooKeeperRequest.Operation, Integer> mix = new EnumMap<>(ZooKeeperRequest.Operation.class);
+        private ZooKeeperRequest.Operation[] operations;
+        private int[] cumulativeWeights;
+
+        public Options() {
+            mix("read:80,update:10,create:5,delete:3,list:2");
+        }
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Invalid argument: " + arg);
+                }
+                String name = arg.substring(2, equals);
+                String value = arg.substring(equals + 1);
+                switch (name) {
+                    case "threads":
+                        options.threads(Integer.parseInt(value));
+                        break;
+                    case "duration":
+                        options.durationSeconds(Long.parseLong(value));
+                        break;
+                    case "rate":
+                        options.targetRate(Long.parseLong(value));
+                        break;
+                    case "mix":
+                        options.mix(value);
+                        break;
+                    case "keys":
+                        options.keys(Long.parseLong(value));
+                        break;
+                    case "distribution":
+                        options.distribution(KeyDistribution.valueOf(value.toUpperCase()));
+                        break;
+                    case "payload":
+                        options.payloadBytes(Integer.parseInt(value));
+                        break;
+                    case "target":
+                        options.target(Target.valueOf(value.toUpperCase()));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+            return options;
+        }
+
+        public Options threads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Thread count must be positive");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        public Options durationSeconds(long durationSeconds) {
+            if (durationSeconds <= 0) {
+                throw new IllegalArgumentException("Duration must be positive");
+            }
+            this.durationSeconds = durationSeconds;
+            return this;
+        }
+
+        /**
+         * Total operations per second across all threads; 0 runs closed-loop as fast as possible.
+         */
+        public Options targetRate(long targetRate) {
+            if (targetRate < 0) {
+                throw new IllegalArgumentException("Target rate cannot be negative");
+            }
+            this.targetRate = targetRate;
+            return this;
+        }
+
+        public Options keys(long keys) {
+            if (keys <= 0) {
+                throw new IllegalArgumentException("Key count must be positive");
+            }
+            this.keys = keys;
+            return this;
+        }
+
+        public Options payloadBytes(int payloadBytes) {
+            if (payloadBytes < 0) {
+                throw new IllegalArgumentException("Payload size cannot be negative");
+            }
+            this.payloadBytes = payloadBytes;
+            return this;
+        }
+
+        public Options distribution(@NonNull KeyDistribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        public Options target(@NonNull Target target) {
+            this.target = target;
+            return this;
+        }
+
+        /**
+         * Sets relative operation weights, e.g. {@code read:80,update:20}. Operations not listed are not issued.
+         */
+        public Options mix(@NonNull String spec) {
+            Map<ZooKeeperRequest.Operation, Integer> weights = new EnumMap<>(ZooKeeperRequest.Operation.class);
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid mix entry: " + entry);
+                }
+                ZooKeeperRequest.Operation operation = ZooKeeperRequest.Operation.valueOf(parts[0].toUpperCase());
+                if (operation != ZooKeeperRequest.Operation.CREATE && operation != ZooKeeperRequest.Operation.READ
+                    && operation != ZooKeeperRequest.Operation.UPDATE && operation != ZooKeeperRequest.Operation.DELETE
+                    && operation != ZooKeeperRequest.Operation.LIST) {
+                    throw new IllegalArgumentException("Unsupported operation in mix: " + operation);
+                }
+                int weight = Integer.parseInt(parts[1]);
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Mix weights cannot be negative");
+                }
+                weights.put(operation, weight);
+            }
+
+            List<ZooKeeperRequest.Operation> selected = new ArrayList<>();
+            List<Integer> cumulative = new ArrayList<>();
+            int total = 0;
+            for (Map.Entry<ZooKeeperRequest.Operation, Integer> weight : weights.entrySet()) {
+                if (weight.getValue() > 0) {
+                    total += weight.getValue();
+                    selected.add(weight.getKey());
+                    cumulative.add(total);
+                }
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("Mix must contain at least one positive weight");
+            }
+            mix.clear();
+            mix.putAll(weights);
+            operations = selected.toArray(new ZooKeeperRequest.Operation[0]);
+            cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+            return this;
+        }
+
+        ZooKeeperRequest.Operation pickOperation() {
+            int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (draw < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            return operations[operations.length - 1];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("threads=%d duration=%ds rate=%s mix=%s keys=%d distribution=%s payload=%dB target=%s",
+                threads, durationSeconds, targetRate > 0 ? targetRate + "/s" : "unthrottled", mix, keys,
+                distribution, payloadBytes, target);
+        }
+    }
+
+    /**
+     * Merged results of all load threads.
+     */
+    public static final class Report {
+
+        @Getter
+        private final boolean corrected;
+        private final Map<ZooKeeperRequest.Operation, LatencyHistogram> histograms;
+        @Getter
+        private final LatencyHistogram overall;
+        @Getter
+        private long errors;
+        @Getter
+        private long elapsedNanos;
+
+        Report(boolean corrected) {
+            this.corrected = corrected;
+            this.histograms = new EnumMap<>(ZooKeeperRequest.Operation.class);
+            this.overall = new LatencyHistogram();
+        }
+
+        void add(Worker worker) {
+            for (Map.Entry<ZooKeeperRequest.Operation, LatencyHistogram> entry : worker.histograms.entrySet()) {
+                histograms.computeIfAbsent(entry.getKey(), op -> new LatencyHistogram()).add(entry.getValue());
+                overall.add(entry.getValue());
+            }
+            errors += worker.errors;
+        }
+
+        public LatencyHistogram getHistogram(ZooKeeperRequest.Operation operation) {
+            return histograms.get(operation);
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : overall.getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("Operations: %d in %.2fs (%.0f ops/s), errors: %d%n",
+                overall.getTotalCount(), elapsedNanos / 1e9, getThroughput(), errors));
+            report.append(corrected
+                ? "Latency (us, from intended start, corrected for coordinated omission):\n"
+                : "Latency (us, service time only, closed loop):\n");
+            report.append(String.format("  %-8s %10s %8s %8s %8s %8s %8s%n",
+                "op", "count", "p50", "p90", "p99", "p99.9", "max"));
+            for (Map.Entry<ZooKeeperRequest.Operation, LatencyHistogram> entry : histograms.entrySet()) {
+                appendRow(report, entry.getKey().name(), entry.getValue());
+            }
+            appendRow(report, "ALL", overall);
+            return report.toString();
+        }
+
+        private static void appendRow(StringBuilder report, String name, LatencyHistogram histogram) {
+            report.append(String.format("  %-8s %10d", name, histogram.getTotalCount()));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(" %8d", histogram.getValueAtPercentile(percentile) / 1_000));
+            }
+            report.append(String.format(" %8d%n", histogram.getMax() / 1_000));
+        }
+    }
+}
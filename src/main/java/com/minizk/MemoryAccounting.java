@@ -0,0 +1,173 @@
+package com.minizk;
+
+import lombok.Getter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Estimated heap footprint of the namespace, see {@link ZNode#estimateRetainedBytes()}, in total and for
+ * the subtree below every node down to {@code trackedDepth}. {@link MiniZooKeeper} adjusts the counters on
+ * every create, update and delete, and seeds them from its startup load or from the counters it saved at its
+ * last close, so a report only sorts the tracked subtrees and never walks the tree. Tracking costs one entry
+ * per node at or above the tracked depth.
+ */
+public final class MemoryAccounting {
+
+    public static final int DEFAULT_TRACKED_DEPTH = 2;
+
+    @Getter
+    private final int trackedDepth;
+    /** Guarded by this */
+    private final Map<ZPath, SubtreeUsage> subtrees;
+    private long totalNodes;
+    private long totalBytes;
+
+    public MemoryAccounting() {
+        this(DEFAULT_TRACKED_DEPTH);
+    }
+
+    public MemoryAccounting(int trackedDepth) {
+        if (trackedDepth < 0) {
+            throw new IllegalArgumentException("Tracked depth cannot be negative");
+        }
+        this.trackedDepth = trackedDepth;
+        this.subtrees = new HashMap<>();
+    }
+
+    /**
+     * Adds nodes and bytes at or below {@code path} to the totals and to every tracked subtree containing
+     * {@code path}, dropping a subtree once it holds no nodes.
+     */
+    synchronized void adjust(ZPath path, long nodeDelta, long byteDelta) {
+        totalNodes += nodeDelta;
+        totalBytes += byteDelta;
+        for (ZPath ancestor = path; !ancestor.isRoot(); ancestor = ancestor.parent()) {
+            if (ancestor.depth() > trackedDepth) {
+                continue;
+            }
+            SubtreeUsage usage = subtrees.computeIfAbsent(ancestor, key -> new SubtreeUsage(key.toString()));
+            usage.nodes += nodeDelta;
+            usage.bytes += byteDelta;
+            if (usage.nodes <= 0) {
+                subtrees.remove(ancestor);
+            }
+        }
+    }
+
+    /**
+     * Writes the totals and every tracked subtree, for {@link #restore} after a restart with the same tracked
+     * depth.
+     */
+    synchronized void save(DataOutput out) throws IOException {
+        out.writeLong(totalNodes);
+        out.writeLong(totalBytes);
+        out.writeInt(subtrees.size());
+        for (SubtreeUsage usage : subtrees.values()) {
+            byte[] path = usage.path.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(path.length);
+            out.write(path);
+            out.writeLong(usage.nodes);
+            out.writeLong(usage.bytes);
+        }
+    }
+
+    /**
+     * Adds the counters written by {@link #save} to this accounting's.
+     */
+    synchronized void restore(DataInput in) throws IOException {
+        totalNodes += in.readLong();
+        totalBytes += in.readLong();
+        for (int remaining = in.readInt(); remaining > 0; remaining--) {
+            byte[] path = new byte[in.readInt()];
+            in.readFully(path);
+            SubtreeUsage usage = subtrees.computeIfAbsent(ZPath.of(new String(path, StandardCharsets.UTF_8)),
+                key -> new SubtreeUsage(key.toString()));
+            usage.nodes += in.readLong();
+            usage.bytes += in.readLong();
+        }
+    }
+
+    public synchronized long getTotalNodes() {
+        return totalNodes;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getTrackedSubtreeCount() {
+        return subtrees.size();
+    }
+
+    /**
+     * Returns copies of the {@code limit} largest tracked subtrees, largest first, ordered by estimated bytes
+     * or by node count, with ties in path order.
+     */
+    public synchronized List<SubtreeUsage> getTopSubtrees(int limit, Order order) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Comparator<SubtreeUsage> bySize = order == Order.NODES
+            ? Comparator.comparingLong(SubtreeUsage::getNodes).thenComparingLong(SubtreeUsage::getBytes)
+            : Comparator.comparingLong(SubtreeUsage::getBytes).thenComparingLong(SubtreeUsage::getNodes);
+        Comparator<SubtreeUsage> largestFirst = bySize.reversed().thenComparing(SubtreeUsage::getPath);
+        PriorityQueue<SubtreeUsage> smallestKept = new PriorityQueue<>(limit + 1, largestFirst.reversed());
+        for (SubtreeUsage usage : subtrees.values()) {
+            smallestKept.add(usage);
+            if (smallestKept.size() > limit) {
+                smallestKept.poll();
+            }
+        }
+        List<SubtreeUsage> top = new ArrayList<>(smallestKept.size());
+        for (SubtreeUsage usage : smallestKept) {
+            top.add(new SubtreeUsage(usage.path, usage.nodes, usage.bytes));
+        }
+        top.sort(largestFirst);
+        return top;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("nodes=%d bytes=%d trackedSubtrees=%d", totalNodes, totalBytes, subtrees.size());
+    }
+
+    public enum Order {
+        BYTES,
+        NODES
+    }
+
+    /**
+     * Nodes and estimated bytes of a subtree, including its root.
+     */
+    @Getter
+    public static final class SubtreeUsage {
+
+        private final String path;
+        private long nodes;
+        private long bytes;
+
+        private SubtreeUsage(String path) {
+            this(path, 0, 0);
+        }
+
+        private SubtreeUsage(String path, long nodes, long bytes) {
+            this.path = path;
+            this.nodes = nodes;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s nodes=%d bytes=%d", path, nodes, bytes);
+        }
+    }
+}
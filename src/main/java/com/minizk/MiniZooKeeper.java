@@ -1,185 +1,1123 @@
 package com.minizk;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * Simplified ZooKeeper-like service with hierarchical namespace and CRUD operations.
- * Thread-safe.
+ * Thread-safe. Writes are serialized by the write side of a {@link ReentrantReadWriteLock} while reads
+ * share the read side, so reads proceed concurrently against the last published state. Explicit locks are
+ * used rather than a monitor so that callers running on virtual threads park without pinning their carrier.
  */
 @Slf4j
-public final class MiniZooKeeper {
+public final class MiniZooKeeper implements RequestProcessor, AutoCloseable {
     
-    private static final String ROOT_PATH = "/";
     private static final String INVALID_PATH_FORMAT = "Invalid path format";
     private static final String NODE_ALREADY_EXISTS = "Node already exists";
     private static final String PARENT_NODE_DOES_NOT_EXIST = "Parent node does not exist";
     private static final String NODE_DOES_NOT_EXIST = "Node does not exist";
     private static final String CANNOT_DELETE_ROOT_NODE = "Cannot delete root node";
     private static final String NODE_HAS_CHILDREN = "Node has children";
-    private final ZNode root;
-    private final Map<String, ZNode> nodeCache;
+    private static final String NODE_COUNT_QUOTA_EXCEEDED = "Node count quota exceeded";
+    private static final String DATA_BYTES_QUOTA_EXCEEDED = "Data bytes quota exceeded";
+    private static final String QUOTA_DOES_NOT_EXIST = "Quota does not exist";
+    private static final String NODE_DATA_NOT_A_NUMBER = "Node data is not a number";
+    private static final String INVALID_INCREMENT = "Invalid increment";
+    private static final String COUNTER_OVERFLOW = "Counter overflow";
+    private static final String DATA_SIZE_LIMIT_EXCEEDED = "Data size limit exceeded";
+    private static final String SEQUENCE_FORMAT = "%010d";
+
+    /** Largest payload an {@link ZooKeeperRequest.Operation#APPEND} may produce; a request limit can only lower it */
+    public static final int MAX_APPEND_BYTES = 1024 * 1024;
+
+    /** Parent paths whose nearest quota root is remembered before the cache starts over */
+    private static final int QUOTA_ROOT_CACHE_CAPACITY = 65_536;
+
+    /** Nodes above this depth hand their children to other threads during the startup load */
+    private static final int LOAD_SPLIT_DEPTH = 2;
+    /** Subtrees handed to another thread at once during the startup load */
+    private static final int LOAD_CHUNK_SIZE = 16;
+    /** Format of the expiry queue and memory accounting saved with the store at close */
+    private static final int STARTUP_INDEX_VERSION = 1;
+
+    private final NodeStore nodeStore;
+    private final Map<ZPath, SubtreeQuota> quotas;
+    /** Nearest quota root at or above a parent path, so a write does not look up each of its ancestors */
+    private final Map<ZPath, Optional<SubtreeQuota>> quotaRoots;
+    private final ReadWriteLock lock;
+    @Getter
+    private final SlowRequestLog slowRequestLog;
+    @Getter
+    private final ChangeLog changeLog;
+    private final WatchManager watchManager;
+    private final ExpiryQueue expiryQueue;
+    @Getter
+    private final ResponseCache responseCache;
+    @Getter
+    private final MemoryAccounting memoryAccounting;
+    /** Decides which payloads written through this service are stored compressed */
+    @Getter
+    private final PayloadCodec payloadCodec;
+    /** Stored nodes read by the startup load, zero if the index saved at the last close was used instead */
+    @Getter
+    private final long loadedNodeCount;
 
     public MiniZooKeeper() {
-        this.root = new ZNode(ROOT_PATH);
-        this.nodeCache = new ConcurrentHashMap<>();
-        this.nodeCache.put(ROOT_PATH, root);
+        this(new InMemoryNodeStore());
+    }
+
+    /**
+     * Creates a service on top of the given storage engine, which must already contain the root node.
+     */
+    public MiniZooKeeper(NodeStore nodeStore) {
+        this(nodeStore, ChangeLog.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a service whose change log retains the last {@code changeLogCapacity} committed changes.
+     */
+    public MiniZooKeeper(NodeStore nodeStore, int changeLogCapacity) {
+        this(nodeStore, changeLogCapacity, ResponseCache.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a service that also caches up to {@code responseCacheBytes} of READ responses for hot nodes,
+     * see {@link ResponseCache}; zero disables the cache.
+     */
+    public MiniZooKeeper(NodeStore nodeStore, int changeLogCapacity, long responseCacheBytes) {
+        this(nodeStore, changeLogCapacity, responseCacheBytes, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a service that reads the stored tree at startup on {@code loadParallelism} threads, see
+     * {@link #loadStoredNodes}, unless the store kept the index saved at the last close.
+     */
+    public MiniZooKeeper(NodeStore nodeStore, int changeLogCapacity, long responseCacheBytes, int loadParallelism) {
+        this(nodeStore, changeLogCapacity, responseCacheBytes, loadParallelism, PayloadCodec.DEFAULT);
+    }
+
+    /**
+     * Creates a service that stores payloads compressed as {@code payloadCodec} decides.
+     */
+    public MiniZooKeeper(NodeStore nodeStore, int changeLogCapacity, long responseCacheBytes, int loadParallelism,
+                         PayloadCodec payloadCodec) {
+        if (nodeStore == null) {
+            throw new IllegalArgumentException("Node store cannot be null");
+        }
+        if (loadParallelism <= 0) {
+            throw new IllegalArgumentException("Load parallelism must be positive");
+        }
+        if (payloadCodec == null) {
+            throw new IllegalArgumentException("Payload codec cannot be null");
+        }
+        this.nodeStore = nodeStore;
+        this.payloadCodec = payloadCodec;
+        this.quotas = new ConcurrentHashMap<>();
+        this.quotaRoots = new ConcurrentHashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.slowRequestLog = new SlowRequestLog();
+        this.changeLog = new ChangeLog(changeLogCapacity, nodeStore.nextEpoch());
+        this.watchManager = new WatchManager();
+        this.expiryQueue = new ExpiryQueue();
+        this.responseCache = new ResponseCache(responseCacheBytes);
+        this.memoryAccounting = new MemoryAccounting();
+        this.loadedNodeCount = restoreStartupIndex() ? 0 : loadStoredNodes(loadParallelism);
+        ZNode root = nodeStore.get(ZPath.ROOT);
+        if (root.getDigest() == 0) {
+            log.info("Rebuilding subtree digests");
+            rebuildDigest(root);
+        }
         
         log.info("Mini ZooKeeper initialized with root node");
     }
 
     /**
      * Processes a ZooKeeper request. All operations are atomic and thread-safe.
+     * Requests slower than the slow request threshold are recorded in {@link #getSlowRequestLog()}.
      */
-    public synchronized ZooKeeperResponse processRequest(ZooKeeperRequest request) {
+    @Override
+    public ZooKeeperResponse processRequest(ZooKeeperRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("Request cannot be null");
         }
-        
+
+        Lock requestLock = request.getOperation().isWrite() ? lock.writeLock() : lock.readLock();
+        long arrivalNanos = System.nanoTime();
+        long lockedNanos;
+        ZooKeeperResponse response;
+        requestLock.lock();
+        try {
+            lockedNanos = System.nanoTime();
+            response = execute(request);
+        } finally {
+            requestLock.unlock();
+        }
+        long completedNanos = System.nanoTime();
+
+        slowRequestLog.record(request.getOperation(), request.getPath(), request.getDataLength(),
+            arrivalNanos - request.getSubmittedNanos(), lockedNanos - arrivalNanos, completedNanos - lockedNanos);
+        return response;
+    }
+
+    /**
+     * Processes requests in order under a single acquisition of the write lock, so no other write
+     * can interleave with the batch. Each request succeeds or fails independently.
+     */
+    @Override
+    public List<ZooKeeperResponse> processBatch(List<ZooKeeperRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Requests cannot be null");
+        }
+
+        List<ZooKeeperResponse> responses = new ArrayList<>(requests.size());
+        long arrivalNanos = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            long lockWaitNanos = System.nanoTime() - arrivalNanos;
+            for (ZooKeeperRequest request : requests) {
+                if (request == null) {
+                    throw new IllegalArgumentException("Request cannot be null");
+                }
+                long startNanos = System.nanoTime();
+                responses.add(execute(request));
+                slowRequestLog.record(request.getOperation(), request.getPath(), request.getDataLength(),
+                    arrivalNanos - request.getSubmittedNanos(), lockWaitNanos, System.nanoTime() - startNanos);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return responses;
+    }
+
+    private ZooKeeperResponse execute(ZooKeeperRequest request) {
         log.debug("Processing {} request for path: {}", request.getOperation(), request.getPath());
+        ZPath path = request.getZPath();
+        if (path == null) {
+            return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
+        }
         switch (request.getOperation()) {
             case CREATE:
-                return create(request.getPath(), request.getData());
+                return create(path, request.getData(), request.getTtl(), request.isContainer());
             case READ:
-                return read(request.getPath());
+                return read(path, request.isAcceptCompressed());
             case UPDATE:
-                return update(request.getPath(), request.getData());
+                return update(path, request.getData());
             case DELETE:
-                return delete(request.getPath());
+                return delete(path);
             case LIST:
-                return listChildren(request.getPath());
+                return listChildren(path, request.getStartAfter(), request.getLimit());
+            case FIND:
+                return findAll(request.getPath());
+            case CREATE_SEQUENTIAL:
+                return createSequential(path, request.getData(), request.getTtl(), request.isContainer());
+            case EXISTS:
+                return exists(path, request.getWatcher());
+            case INCREMENT:
+                return increment(path, request.getData());
+            case APPEND:
+                return append(path, request.getData(),
+                    request.getLimit() > 0 ? Math.min(request.getLimit(), MAX_APPEND_BYTES) : MAX_APPEND_BYTES);
+            case DIGEST:
+                return digest(path);
             default:
                 return ZooKeeperResponse.error("Unknown operation");
         }
     }
 
-    private ZooKeeperResponse create(String path, byte[] data) {
-        if (!isValidPath(path)) {
-            return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
-        }
-        
-        if (nodeCache.containsKey(path)) {
+    private ZooKeeperResponse create(ZPath path, byte[] data, long ttl, boolean container) {
+        if (nodeStore.contains(path)) {
             return ZooKeeperResponse.error(NODE_ALREADY_EXISTS);
         }
 
-        String parentPath = getParentPath(path);
-        ZNode parent = nodeCache.get(parentPath);
+        ZNode parent = nodeStore.get(path.parent());
         if (parent == null) {
             return ZooKeeperResponse.error(PARENT_NODE_DOES_NOT_EXIST);
         }
 
+        String quotaViolation = checkQuotas(path, 1, data.length);
+        if (quotaViolation != null) {
+            return ZooKeeperResponse.error(quotaViolation);
+        }
+
         ZNode newNode = new ZNode(path);
-        newNode.setData(data);
-        
-        String nodeName = getNodeName(path);
-        parent.addChild(nodeName, newNode);
-        nodeCache.put(path, newNode);
+        newNode.setData(data, payloadCodec);
+        newNode.setTtl(ttl);
+        newNode.setContainer(container);
+        insertNode(parent, newNode);
+        if (ttl > 0) {
+            expiryQueue.add(path, newNode.getExpiryTime());
+        }
 
         return ZooKeeperResponse.success();
     }
 
-    private ZooKeeperResponse read(String path) {
-        if (!isValidPath(path)) {
+    /**
+     * Creates {@code prefix} with the parent's next sequence number appended, zero-padded to ten digits
+     * so that names sort in creation order. The counter belongs to the parent and never goes backwards.
+     */
+    private ZooKeeperResponse createSequential(ZPath prefix, byte[] data, long ttl, boolean container) {
+        if (prefix.isRoot()) {
             return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
         }
-        
-        ZNode node = nodeCache.get(path);
+        ZPath parentPath = prefix.parent();
+        ZNode parent = nodeStore.get(parentPath);
+        if (parent == null) {
+            return ZooKeeperResponse.error(PARENT_NODE_DOES_NOT_EXIST);
+        }
+
+        ZPath path = parentPath.child(prefix.name() + String.format(SEQUENCE_FORMAT, parent.nextChildSequence()));
+        nodeStore.update(parent);
+        ZooKeeperResponse response = create(path, data, ttl, container);
+        return response.isSuccess() ? ZooKeeperResponse.created(path.toString()) : response;
+    }
+
+    private ZooKeeperResponse exists(ZPath path, Watcher watcher) {
+        if (watcher != null) {
+            watchManager.register(path, watcher);
+        }
+        return nodeStore.contains(path) ? ZooKeeperResponse.success() : ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
+    }
+
+    private void insertNode(ZNode parent, ZNode node) {
+        ZPath path = node.getZPath();
+        nodeStore.insert(parent, path.name(), node);
+        adjustQuotas(path, 1, node.getDataLength());
+        memoryAccounting.adjust(path, 1, node.estimateRetainedBytes());
+        propagateDigest(path, node.getDigest());
+        commit(ZooKeeperRequest.Operation.CREATE, node);
+    }
+
+    private ZooKeeperResponse read(ZPath path, boolean acceptCompressed) {
+        ZooKeeperResponse cached = responseCache.get(path, acceptCompressed);
+        if (cached != null) {
+            return cached;
+        }
+        ZNode node = nodeStore.get(path);
         if (node == null) {
             return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
         }
-        return ZooKeeperResponse.withData(node.getData());
+        ZooKeeperResponse response = acceptCompressed && node.isCompressed()
+            ? ZooKeeperResponse.withCompressedData(node.getStoredData())
+            : ZooKeeperResponse.withData(node.getData());
+        responseCache.put(path, response, node.isCompressed());
+        return response;
     }
 
-    private ZooKeeperResponse update(String path, byte[] data) {
-        if (!isValidPath(path)) {
-            return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
+    private ZooKeeperResponse update(ZPath path, byte[] data) {
+        ZNode node = nodeStore.get(path);
+        if (node == null) {
+            return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
         }
-        
-        ZNode node = nodeCache.get(path);
+
+        long byteDelta = (long) data.length - node.getDataLength();
+        String quotaViolation = checkQuotas(path, 0, byteDelta);
+        if (quotaViolation != null) {
+            return ZooKeeperResponse.error(quotaViolation);
+        }
+
+        replaceData(node, data);
+        return ZooKeeperResponse.success();
+    }
+
+    /**
+     * Adds a delta to the node's payload read as a signed decimal, where an empty payload counts as zero,
+     * and returns the new value as the response data.
+     */
+    private ZooKeeperResponse increment(ZPath path, byte[] deltaBytes) {
+        ZNode node = nodeStore.get(path);
         if (node == null) {
             return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
         }
-        node.setData(data);
+
+        Long delta = deltaBytes.length == 0 ? Long.valueOf(1) : parseDecimal(deltaBytes);
+        if (delta == null) {
+            return ZooKeeperResponse.error(INVALID_INCREMENT);
+        }
+        Long current = node.getDataLength() == 0 ? Long.valueOf(0) : parseDecimal(node.getData());
+        if (current == null) {
+            return ZooKeeperResponse.error(NODE_DATA_NOT_A_NUMBER);
+        }
+
+        long value;
+        try {
+            value = Math.addExact(current, delta);
+        } catch (ArithmeticException e) {
+            return ZooKeeperResponse.error(COUNTER_OVERFLOW);
+        }
+        byte[] data = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+        String quotaViolation = checkQuotas(path, 0, (long) data.length - node.getDataLength());
+        if (quotaViolation != null) {
+            return ZooKeeperResponse.error(quotaViolation);
+        }
+
+        replaceData(node, data);
+        return ZooKeeperResponse.withData(data);
+    }
+
+    private static Long parseDecimal(byte[] bytes) {
+        try {
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends to the node's payload, failing without change if the result would exceed {@code maxBytes}.
+     */
+    private ZooKeeperResponse append(ZPath path, byte[] suffix, int maxBytes) {
+        ZNode node = nodeStore.get(path);
+        if (node == null) {
+            return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
+        }
+
+        long length = (long) node.getDataLength() + suffix.length;
+        if (length > maxBytes) {
+            return ZooKeeperResponse.error(DATA_SIZE_LIMIT_EXCEEDED);
+        }
+        String quotaViolation = checkQuotas(path, 0, suffix.length);
+        if (quotaViolation != null) {
+            return ZooKeeperResponse.error(quotaViolation);
+        }
+
+        byte[] data = Arrays.copyOf(node.getData(), (int) length);
+        System.arraycopy(suffix, 0, data, node.getDataLength(), suffix.length);
+        replaceData(node, data);
         return ZooKeeperResponse.success();
     }
 
-    private ZooKeeperResponse delete(String path) {
-        if (!isValidPath(path)) {
-            return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
+    private void replaceData(ZNode node, byte[] data) {
+        long byteDelta = (long) data.length - node.getDataLength();
+        long previousExpiry = node.getExpiryTime();
+        long previousDigest = node.getDigest();
+        long previousBytes = node.estimateRetainedBytes();
+        node.setData(data, payloadCodec);
+        if (node.getTtl() > 0) {
+            expiryQueue.remove(node.getZPath(), previousExpiry);
+            expiryQueue.add(node.getZPath(), node.getExpiryTime());
         }
-        
-        if (path.equals(ROOT_PATH)) {
+        nodeStore.update(node);
+        adjustQuotas(node.getZPath(), 0, byteDelta);
+        memoryAccounting.adjust(node.getZPath(), 0, node.estimateRetainedBytes() - previousBytes);
+        propagateDigest(node.getZPath(), node.getDigest() - previousDigest);
+        commit(ZooKeeperRequest.Operation.UPDATE, node);
+    }
+
+    private ZooKeeperResponse delete(ZPath path) {
+        if (path.isRoot()) {
             return ZooKeeperResponse.error(CANNOT_DELETE_ROOT_NODE);
         }
 
-        ZNode node = nodeCache.get(path);
+        ZNode node = nodeStore.get(path);
         if (node == null) {
             return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
         }
 
-        if (!node.getChildren().isEmpty()) {
+        if (nodeStore.hasChildren(node)) {
             return ZooKeeperResponse.error(NODE_HAS_CHILDREN);
         }
 
-        String parentPath = getParentPath(path);
-        ZNode parent = nodeCache.get(parentPath);
-        if (parent != null) {
-            String nodeName = getNodeName(path);
-            parent.removeChild(nodeName);
+        ZNode parent = nodeStore.get(path.parent());
+        nodeStore.delete(parent, path.name(), node);
+        if (quotas.remove(path) != null) {
+            relinkQuotas();
+        }
+        adjustQuotas(path, -1, -node.getDataLength());
+        memoryAccounting.adjust(path, -1, -node.estimateRetainedBytes());
+        propagateDigest(path, -node.getDigest());
+        commit(ZooKeeperRequest.Operation.DELETE, node);
+        if (node.getTtl() > 0) {
+            expiryQueue.remove(path, node.getExpiryTime());
+        }
+        if ((parent.isContainer() || parent.getTtl() > 0) && !nodeStore.hasChildren(parent)) {
+            long dueTime = parent.isContainer() ? System.currentTimeMillis() : parent.getExpiryTime();
+            expiryQueue.add(parent.getZPath(), dueTime);
         }
-
-        nodeCache.remove(path);
         return ZooKeeperResponse.success();
     }
 
-    private ZooKeeperResponse listChildren(String path) {
-        if (!isValidPath(path)) {
-            return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
+    /**
+     * Deletes up to {@code max} TTL nodes that expired at or before {@code now} and containers whose last
+     * child went away, taking them from the head of the expiry queue under one write lock acquisition.
+     * Nodes that gained children are dropped from the queue until their last child is deleted.
+     *
+     * @return the number of nodes deleted
+     */
+    int reapExpired(long now, int max) {
+        lock.writeLock().lock();
+        try {
+            int reaped = 0;
+            for (ZPath path : expiryQueue.pollDue(now, max)) {
+                ZNode node = nodeStore.get(path);
+                if (node == null || (node.getTtl() == 0 && !node.isContainer()) || nodeStore.hasChildren(node)) {
+                    continue;
+                }
+                if (node.getTtl() > 0 && node.getExpiryTime() > now) {
+                    expiryQueue.add(path, node.getExpiryTime());
+                    continue;
+                }
+                if (delete(path).isSuccess()) {
+                    reaped++;
+                }
+            }
+            return reaped;
+        } finally {
+            lock.writeLock().unlock();
         }
-        
-        ZNode node = nodeCache.get(path);
+    }
+
+    /**
+     * Adds {@code delta} to the digest of every ancestor of {@code path} after its own digest changed by it.
+     */
+    private void propagateDigest(ZPath path, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (ZPath ancestor = path.parent(); ancestor != null; ancestor = ancestor.parent()) {
+            ZNode node = nodeStore.get(ancestor);
+            node.addToDigest(delta);
+            nodeStore.updateDigest(node);
+        }
+    }
+
+    /**
+     * Returns the node's subtree digest together with its children's, so a {@link TreeComparator} can tell
+     * which children to descend into.
+     */
+    private ZooKeeperResponse digest(ZPath path) {
+        ZNode node = nodeStore.get(path);
         if (node == null) {
             return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
         }
-        return ZooKeeperResponse.withChildren(node.getChildrenNames());
+        Map<String, Long> childDigests = new HashMap<>();
+        nodeStore.forEachChild(node, child -> childDigests.put(child.getZPath().name(), child.getDigest()));
+        return ZooKeeperResponse.withDigests(node.getDigest(), childDigests);
     }
 
-    private boolean isValidPath(String path) {
-        if (path == null || path.isEmpty()) {
-            return false;
+    /**
+     * Recomputes the subtree digests below and including {@code node} bottom up, for stores written before
+     * digests were kept.
+     */
+    private long rebuildDigest(ZNode node) {
+        long digest = node.getContentHash();
+        for (String name : nodeStore.getChildrenNames(node)) {
+            digest += rebuildDigest(nodeStore.get(node.getZPath().child(name)));
         }
-        if (!path.startsWith(ROOT_PATH)) {
-            return false;
+        node.restoreHashes(node.getContentHash(), digest);
+        nodeStore.updateDigest(node);
+        return digest;
+    }
+
+    /**
+     * Number of TTL and container nodes waiting in the expiry queue.
+     */
+    public int getPendingExpiryCount() {
+        return expiryQueue.size();
+    }
+
+    /**
+     * Encodes the expiry queue and memory accounting, so the next startup can skip {@link #loadStoredNodes}.
+     */
+    private byte[] saveStartupIndex() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(STARTUP_INDEX_VERSION);
+            out.writeInt(memoryAccounting.getTrackedDepth());
+            memoryAccounting.save(out);
+            expiryQueue.save(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save the startup index", e);
         }
-        if (path.length() > 1 && path.endsWith("/")) {
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the expiry queue and memory accounting saved at the last close, if the store still holds the
+     * tree they describe. Returns false if they have to be rebuilt by reading the tree instead, as after a
+     * crash.
+     */
+    private boolean restoreStartupIndex() {
+        byte[] index = nodeStore.loadIndex();
+        if (index == null) {
             return false;
         }
-        if (path.contains("//")) {
-            return false;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(index))) {
+            if (in.readInt() != STARTUP_INDEX_VERSION || in.readInt() != memoryAccounting.getTrackedDepth()) {
+                return false;
+            }
+            memoryAccounting.restore(in);
+            expiryQueue.restore(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore the startup index", e);
         }
+        log.info("Restored {} pending expiries and the memory accounting of {} nodes from the startup index",
+            expiryQueue.size(), memoryAccounting.getTotalNodes());
         return true;
     }
 
-    private String getParentPath(String path) {
-        if (path.equals(ROOT_PATH)) {
+    /**
+     * Reads the stored tree once at startup, queues its TTL nodes and empty containers and seeds the memory
+     * accounting. Whether an empty container ever had a child is not stored, so after a restart every empty
+     * container is a candidate.
+     * The tree is split into chunks of subtrees below the top levels, which a fork/join pool of
+     * {@code parallelism} threads reads and decodes independently.
+     *
+     * @return the number of nodes read, excluding the root
+     */
+    private long loadStoredNodes(int parallelism) {
+        long startNanos = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long count;
+        try {
+            count = pool.invoke(new LoadTask(List.of(nodeStore.get(ZPath.ROOT)))) - 1;
+        } finally {
+            pool.shutdown();
+        }
+        log.info("Loaded {} stored nodes in {} ms on {} threads", count,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), parallelism);
+        return count;
+    }
+
+    /**
+     * Reads the subtrees below a chunk of nodes and returns how many nodes it read. The children of a node
+     * above {@link #LOAD_SPLIT_DEPTH} are forked off in chunks; deeper subtrees are streamed from the store
+     * on the same thread.
+     */
+    private final class LoadTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<ZNode> roots;
+
+        private LoadTask(List<ZNode> roots) {
+            this.roots = roots;
+        }
+
+        @Override
+        protected Long compute() {
+            List<LoadTask> forked = new ArrayList<>();
+            long count = 0;
+            for (ZNode root : roots) {
+                count += load(root, forked);
+            }
+            for (LoadTask task : forked) {
+                count += task.join();
+            }
+            return count;
+        }
+
+        private long load(ZNode node, List<LoadTask> forked) {
+            scheduleStored(node);
+            int depth = node.getZPath().depth();
+            if (depth >= LOAD_SPLIT_DEPTH) {
+                // Below the tracked depth a whole subtree counts towards the same tracked subtrees, so its
+                // usage is summed here and added once.
+                boolean summed = depth >= memoryAccounting.getTrackedDepth();
+                long[] usage = {1, node.estimateRetainedBytes()};
+                nodeStore.forEachInSubtree(node.getZPath(), descendant -> {
+                    scheduleStored(descendant);
+                    usage[0]++;
+                    if (summed) {
+                        usage[1] += descendant.estimateRetainedBytes();
+                    } else {
+                        memoryAccounting.adjust(descendant.getZPath(), 1, descendant.estimateRetainedBytes());
+                    }
+                });
+                if (summed) {
+                    memoryAccounting.adjust(node.getZPath(), usage[0], usage[1]);
+                } else {
+                    memoryAccounting.adjust(node.getZPath(), 1, usage[1]);
+                }
+                return usage[0];
+            }
+            memoryAccounting.adjust(node.getZPath(), 1, node.estimateRetainedBytes());
+            List<ZNode> chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+            nodeStore.forEachChild(node, child -> {
+                chunk.add(child);
+                if (chunk.size() == LOAD_CHUNK_SIZE) {
+                    forkChunk(chunk, forked);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                forkChunk(chunk, forked);
+            }
+            return 1;
+        }
+
+        private void forkChunk(List<ZNode> chunk, List<LoadTask> forked) {
+            LoadTask task = new LoadTask(new ArrayList<>(chunk));
+            task.fork();
+            forked.add(task);
+            chunk.clear();
+        }
+
+        private void scheduleStored(ZNode node) {
+            if (node.getTtl() > 0) {
+                schedule(node.getZPath(), node.getExpiryTime());
+            } else if (node.isContainer() && !nodeStore.hasChildren(node)) {
+                schedule(node.getZPath(), node.getModifiedTime());
+            }
+        }
+
+        private void schedule(ZPath path, long dueTime) {
+            synchronized (expiryQueue) {
+                expiryQueue.add(path, dueTime);
+            }
+        }
+    }
+
+    /**
+     * Logs a committed change, drops any cached response for its path and fires the watches on it.
+     */
+    private void commit(ZooKeeperRequest.Operation operation, ZNode node) {
+        responseCache.invalidate(node.getZPath());
+        watchManager.trigger(changeLog.append(operation, node));
+    }
+
+    /**
+     * Lists all children in no particular order, or a page of them in name order if a cursor or limit is given.
+     */
+    private ZooKeeperResponse listChildren(ZPath path, String startAfter, int limit) {
+        ZNode node = nodeStore.get(path);
+        if (node == null) {
+            return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
+        }
+        if (startAfter == null && limit == 0) {
+            return ZooKeeperResponse.withChildren(nodeStore.getChildrenNames(node));
+        }
+        return ZooKeeperResponse.withChildren(
+            nodeStore.getChildrenNames(node, startAfter, limit > 0 ? limit : Integer.MAX_VALUE));
+    }
+
+    /**
+     * Number of watchers fired so far; with herd-free recipes this grows by about one per release.
+     */
+    public long getTriggeredWatchCount() {
+        return watchManager.getTriggeredCount();
+    }
+
+    public int getWatchedPathCount() {
+        return watchManager.getWatchedPathCount();
+    }
+
+    /**
+     * Subscribes to committed changes at or below {@code prefix} after {@code afterZxid}, see {@link ChangeLog}.
+     */
+    public ChangeLog.Subscription subscribe(long afterZxid, String prefix) {
+        return changeLog.subscribe(afterZxid, prefix);
+    }
+
+    /**
+     * Streams every path matching {@code pattern} to {@code visitor} until it returns false, without
+     * collecting the results. See {@link PathPattern} for the syntax; only the subtree below the pattern's
+     * wildcard-free prefix is read. Runs under the read lock, so the visitor should be quick and must not
+     * write to this service.
+     *
+     * @return the number of matches visited
+     */
+    public long find(String pattern, Predicate<ZPath> visitor) {
+        if (ZPath.tryParse(pattern) == null) {
+            throw new IllegalArgumentException(INVALID_PATH_FORMAT);
+        }
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor cannot be null");
+        }
+        lock.readLock().lock();
+        try {
+            return find(PathPattern.compile(pattern), visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long find(PathPattern pattern, Predicate<ZPath> visitor) {
+        ZPath base = pattern.getBase();
+        if (!nodeStore.contains(base)) {
+            return 0;
+        }
+        long[] visited = {0};
+        if (pattern.matches(base)) {
+            visited[0]++;
+            if (!visitor.test(base) || pattern.isLiteral()) {
+                return visited[0];
+            }
+        }
+        nodeStore.scanSubtree(base, pattern.getMinDepth(), pattern.getMaxDepth(), path -> {
+            if (!pattern.matches(path)) {
+                return true;
+            }
+            visited[0]++;
+            return visitor.test(path);
+        });
+        return visited[0];
+    }
+
+    private ZooKeeperResponse findAll(String pattern) {
+        List<String> matches = new ArrayList<>();
+        find(PathPattern.compile(pattern), match -> matches.add(match.toString()));
+        return ZooKeeperResponse.withChildren(matches);
+    }
+
+    /**
+     * Closes the underlying node store, flushing anything it still buffers.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            nodeStore.saveIndex(saveStartupIndex());
+            nodeStore.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Mini ZooKeeper closed");
+    }
+
+    /**
+     * Streams the subtree rooted at {@code path} to {@code out} as JSON, one node at a time in pre-order.
+     * Holds the read lock throughout so the export is a consistent snapshot; writes wait until it finishes.
+     *
+     * @return the number of nodes exported
+     */
+    public long exportTree(String path, OutputStream out) throws IOException {
+        ZPath exportPath = ZPath.tryParse(path);
+        if (exportPath == null) {
+            throw new IllegalArgumentException(INVALID_PATH_FORMAT);
+        }
+        lock.readLock().lock();
+        try {
+            ZNode node = nodeStore.get(exportPath);
+            if (node == null) {
+                throw new IllegalArgumentException(NODE_DOES_NOT_EXIST);
+            }
+            return TreeTransfer.write(node, nodeStore, out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Imports a tree written by {@link #exportTree}, rebased onto {@code targetPath} if given, else at its
+     * original location. Nodes are inserted straight into the store in batches, each batch under one write
+     * lock acquisition. Existing nodes have their data replaced. Quotas are enforced; on a violation or a
+     * missing parent the import stops with an {@link IllegalStateException}, keeping the batches already applied.
+     *
+     * @return the number of nodes imported
+     */
+    public long importTree(InputStream in, String targetPath) throws IOException {
+        if (targetPath != null && ZPath.tryParse(targetPath) == null) {
+            throw new IllegalArgumentException(INVALID_PATH_FORMAT);
+        }
+        return TreeTransfer.read(in, targetPath, this::importNodes);
+    }
+
+    private void importNodes(List<TreeTransfer.NodeRecord> records) {
+        lock.writeLock().lock();
+        try {
+            for (TreeTransfer.NodeRecord record : records) {
+                importNode(record);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void importNode(TreeTransfer.NodeRecord record) {
+        ZPath path = ZPath.tryParse(record.getPath());
+        if (path == null) {
+            throw new IllegalStateException(INVALID_PATH_FORMAT + ": " + record.getPath());
+        }
+        byte[] data = record.getData();
+
+        ZNode existing = nodeStore.get(path);
+        if (existing != null) {
+            String quotaViolation = checkQuotas(path, 0, (long) data.length - existing.getDataLength());
+            if (quotaViolation != null) {
+                throw new IllegalStateException(quotaViolation + ": " + path);
+            }
+            replaceData(existing, data);
+            return;
+        }
+
+        ZNode parent = nodeStore.get(path.parent());
+        if (parent == null) {
+            throw new IllegalStateException(PARENT_NODE_DOES_NOT_EXIST + ": " + path);
+        }
+        String quotaViolation = checkQuotas(path, 1, data.length);
+        if (quotaViolation != null) {
+            throw new IllegalStateException(quotaViolation + ": " + path);
+        }
+        insertNode(parent, ZNode.restore(path, data, record.getVersion(),
+            record.getCreatedTime(), record.getModifiedTime(), payloadCodec));
+    }
+
+    /**
+     * Loads many nodes at once on one thread per available processor, see {@link #bulkLoad(Iterator, int)}.
+     */
+    public long bulkLoad(Iterator<Map.Entry<String, byte[]>> sortedEntries) {
+        return bulkLoad(sortedEntries, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads many nodes at once from {@code sortedEntries}, (path, data) pairs in strictly ascending path
+     * order. The nodes are built off the live tree as detached subtrees on {@code parallelism} threads, see
+     * {@link BulkLoader}, and then linked in under a single write lock acquisition, so readers see either
+     * none or all of them; stores that support it index the subtrees on the same threads. Each subtree's
+     * parent must already exist and none of the paths may; quotas are enforced. If any check fails, nothing
+     * is linked. Every node is committed to the change log as a CREATE.
+     *
+     * @return the number of nodes loaded
+     * @throws IllegalArgumentException if an entry is invalid or out of order
+     * @throws IllegalStateException if a subtree cannot be linked
+     */
+    public long bulkLoad(Iterator<Map.Entry<String, byte[]>> sortedEntries, int parallelism) {
+        if (sortedEntries == null) {
+            throw new IllegalArgumentException("Entries cannot be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        long startNanos = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<BulkLoader.Subtree> subtrees;
+        long builtNanos;
+        long count = 0;
+        try {
+            subtrees = BulkLoader.build(sortedEntries, pool, memoryAccounting.getTrackedDepth(), payloadCodec);
+            builtNanos = System.nanoTime();
+
+            lock.writeLock().lock();
+            try {
+                checkBulkLoad(subtrees);
+                List<ZNode> roots = new ArrayList<>(subtrees.size());
+                for (BulkLoader.Subtree subtree : subtrees) {
+                    roots.add(subtree.getRoot());
+                }
+                nodeStore.insertSubtrees(roots, pool);
+                for (BulkLoader.Subtree subtree : subtrees) {
+                    ZNode root = subtree.getRoot();
+                    subtree.account(memoryAccounting);
+                    adjustQuotas(root.getZPath(), subtree.getNodeCount(), subtree.getDataBytes());
+                    propagateDigest(root.getZPath(), root.getDigest());
+                    commitSubtree(root);
+                    count += subtree.getNodeCount();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        log.info("Bulk loaded {} nodes in {} subtrees: built in {} ms, linked in {} ms", count, subtrees.size(),
+            TimeUnit.NANOSECONDS.toMillis(builtNanos - startNanos),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - builtNanos));
+        return count;
+    }
+
+    /**
+     * Checks that every subtree of a bulk load can be linked, before any of them is.
+     */
+    private void checkBulkLoad(List<BulkLoader.Subtree> subtrees) {
+        Map<SubtreeQuota, long[]> quotaUsage = new IdentityHashMap<>();
+        for (BulkLoader.Subtree subtree : subtrees) {
+            ZPath path = subtree.getRoot().getZPath();
+            if (nodeStore.contains(path)) {
+                throw new IllegalStateException(NODE_ALREADY_EXISTS + ": " + path);
+            }
+            if (!nodeStore.contains(path.parent())) {
+                throw new IllegalStateException(PARENT_NODE_DOES_NOT_EXIST + ": " + path);
+            }
+            for (SubtreeQuota quota = nearestQuota(path); quota != null; quota = quota.parent) {
+                long[] usage = quotaUsage.computeIfAbsent(quota, key -> new long[2]);
+                usage[0] += subtree.getNodeCount();
+                usage[1] += subtree.getDataBytes();
+                if (!quota.allowsNodes(usage[0])) {
+                    throw new IllegalStateException(NODE_COUNT_QUOTA_EXCEEDED + ": " + quota.getPath());
+                }
+                if (!quota.allowsBytes(usage[1])) {
+                    throw new IllegalStateException(DATA_BYTES_QUOTA_EXCEEDED + ": " + quota.getPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits a CREATE for each node of a linked subtree, each after its parent.
+     */
+    private void commitSubtree(ZNode root) {
+        Deque<ZNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ZNode node = pending.pop();
+            commit(ZooKeeperRequest.Operation.CREATE, node);
+            for (ZNode child : node.getChildren().values()) {
+                pending.push(child);
+            }
+        }
+    }
+
+    /**
+     * Sets a quota on the subtree below {@code path}. Current usage is counted once here;
+     * afterwards it is maintained incrementally by every create, update and delete.
+     */
+    public ZooKeeperResponse setQuota(String path, long maxNodes, long maxBytes) {
+        lock.writeLock().lock();
+        try {
+            return doSetQuota(path, maxNodes, maxBytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ZooKeeperResponse removeQuota(String path) {
+        lock.writeLock().lock();
+        try {
+            ZPath quotaPath = ZPath.tryParse(path);
+            if (quotaPath == null || quotas.remove(quotaPath) == null) {
+                return ZooKeeperResponse.error(QUOTA_DOES_NOT_EXIST);
+            }
+            relinkQuotas();
+            return ZooKeeperResponse.success();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the quota and current usage below {@code path}, or null if none is set.
+     */
+    public SubtreeQuota getQuota(String path) {
+        lock.readLock().lock();
+        try {
+            ZPath quotaPath = ZPath.tryParse(path);
+            SubtreeQuota quota = quotaPath != null ? quotas.get(quotaPath) : null;
+            return quota != null ? quota.snapshot() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ZooKeeperResponse doSetQuota(String quotaPath, long maxNodes, long maxBytes) {
+        ZPath path = ZPath.tryParse(quotaPath);
+        if (path == null) {
+            return ZooKeeperResponse.error(INVALID_PATH_FORMAT);
+        }
+
+        ZNode node = nodeStore.get(path);
+        if (node == null) {
+            return ZooKeeperResponse.error(NODE_DOES_NOT_EXIST);
+        }
+
+        SubtreeQuota quota = new SubtreeQuota(quotaPath, maxNodes, maxBytes);
+        nodeStore.forEachChild(node, child -> countSubtree(child, quota));
+        quotas.put(path, quota);
+        relinkQuotas();
+        log.info("Set quota {}", quota);
+        return ZooKeeperResponse.success();
+    }
+
+    private void countSubtree(ZNode node, SubtreeQuota quota) {
+        quota.adjust(1, node.getDataLength());
+        nodeStore.forEachChild(node, child -> countSubtree(child, quota));
+    }
+
+    /**
+     * Links every quota root to the nearest one above it and forgets the cached roots of parent paths.
+     * Called whenever a quota is set or removed, which is rare next to writes.
+     */
+    private void relinkQuotas() {
+        quotaRoots.clear();
+        for (Map.Entry<ZPath, SubtreeQuota> entry : quotas.entrySet()) {
+            SubtreeQuota parent = null;
+            for (ZPath ancestor = entry.getKey().parent(); ancestor != null && parent == null;
+                 ancestor = ancestor.parent()) {
+                parent = quotas.get(ancestor);
+            }
+            entry.getValue().parent = parent;
+        }
+    }
+
+    /**
+     * Returns the nearest quota root above {@code path}, or null if none applies. The answer is cached
+     * per parent path, and a miss only walks up to the nearest ancestor already cached.
+     */
+    private SubtreeQuota nearestQuota(ZPath path) {
+        ZPath parent = path.parent();
+        if (parent == null || quotas.isEmpty()) {
             return null;
         }
-        int lastSlash = path.lastIndexOf('/');
-        if (lastSlash == 0) {
-            return ROOT_PATH;
+        Optional<SubtreeQuota> root = quotaRoots.get(parent);
+        if (root == null) {
+            root = Optional.empty();
+            for (ZPath ancestor = parent; ancestor != null; ancestor = ancestor.parent()) {
+                SubtreeQuota quota = quotas.get(ancestor);
+                if (quota != null) {
+                    root = Optional.of(quota);
+                    break;
+                }
+                Optional<SubtreeQuota> cached = ancestor != parent ? quotaRoots.get(ancestor) : null;
+                if (cached != null) {
+                    root = cached;
+                    break;
+                }
+            }
+            if (quotaRoots.size() >= QUOTA_ROOT_CACHE_CAPACITY) {
+                quotaRoots.clear();
+            }
+            quotaRoots.put(parent, root);
+        }
+        return root.orElse(null);
+    }
+
+    /**
+     * Checks the counters of every quota root above {@code path}, nearest first. Only the quota roots
+     * that apply are visited, never the other ancestors or the subtree below a quota root.
+     */
+    private String checkQuotas(ZPath path, long nodeDelta, long byteDelta) {
+        for (SubtreeQuota quota = nearestQuota(path); quota != null; quota = quota.parent) {
+            if (!quota.allowsNodes(nodeDelta)) {
+                log.warn("Node count quota exceeded at {} for {}", quota.getPath(), path);
+                return NODE_COUNT_QUOTA_EXCEEDED;
+            }
+            if (!quota.allowsBytes(byteDelta)) {
+                log.warn("Data bytes quota exceeded at {} for {}", quota.getPath(), path);
+                return DATA_BYTES_QUOTA_EXCEEDED;
+            }
         }
-        return path.substring(0, lastSlash);
+        return null;
     }
 
-    private String getNodeName(String path) {
-        if (path.equals(ROOT_PATH)) {
-            return "";
+    private void adjustQuotas(ZPath path, long nodeDelta, long byteDelta) {
+        for (SubtreeQuota quota = nearestQuota(path); quota != null; quota = quota.parent) {
+            quota.adjust(nodeDelta, byteDelta);
         }
-        int lastSlash = path.lastIndexOf('/');
-        return path.substring(lastSlash + 1);
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,50 @@
 package com.minizk;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Client for Mini ZooKeeper operations. Handles string data and converts to byte arrays internally.
+ * Talks to any {@link RequestProcessor}, usually a {@link MiniZooKeeper} or a {@link WritePipeline} in front of one.
  */
 @Slf4j
-@RequiredArgsConstructor
 public final class MiniZooKeeperClient {
     
-    @NonNull
-    private final MiniZooKeeper zooKeeper;
+    private final RequestProcessor zooKeeper;
+
+    /** Shares in-flight reads between threads using this client; null when coalescing is off */
+    private final SingleFlight<List<Object>, Object> reads;
+
+    /** Writes completed through this client; a read only joins a flight started after the latest one */
+    private final AtomicLong writeEpoch;
+
+    public MiniZooKeeperClient(@NonNull RequestProcessor zooKeeper) {
+        this(zooKeeper, true);
+    }
+
+    /**
+     * Creates a client that, if {@code coalesceReads} is set, sends one request for identical concurrent
+     * {@link #getData} and {@link #getChildren} calls and hands every caller the same immutable result.
+     */
+    public MiniZooKeeperClient(@NonNull RequestProcessor zooKeeper, boolean coalesceReads) {
+        this.zooKeeper = zooKeeper;
+        this.reads = coalesceReads ? new SingleFlight<>() : null;
+        this.writeEpoch = new AtomicLong();
+    }
+
+    /**
+     * Reads that shared the result of an identical read already in flight.
+     */
+    public long getCoalescedReadCount() {
+        return reads == null ? 0 : reads.getCoalescedCount();
+    }
 
     public boolean create(@NonNull String path, @NonNull String data) {
         log.debug("Creating ZNode at path: {} with data length: {}", path, data.length());
@@ -24,26 +53,112 @@ public final class MiniZooKeeperClient {
             .path(path)
             .data(data.getBytes(StandardCharsets.UTF_8))
             .build();
-        ZooKeeperResponse response = zooKeeper.processRequest(request);
+        ZooKeeperResponse response = write(request);
         if (!response.isSuccess()) {
             System.err.println("Create failed: " + response.getErrorMessage());
         }
         return response.isSuccess();
     }
 
-    public String getData(@NonNull String path) {
-        log.debug("Reading data from ZNode at path: {}", path);
+    /**
+     * Creates a node that the reaper deletes {@code ttlMillis} after its last modification, unless it
+     * has children at that point.
+     */
+    public boolean createTtl(@NonNull String path, @NonNull String data, long ttlMillis) {
+        log.debug("Creating TTL ZNode at path: {} with TTL: {} ms", path, ttlMillis);
         ZooKeeperRequest request = ZooKeeperRequest.builder()
-            .operation(ZooKeeperRequest.Operation.READ)
+            .operation(ZooKeeperRequest.Operation.CREATE)
             .path(path)
+            .data(data.getBytes(StandardCharsets.UTF_8))
+            .ttl(ttlMillis)
             .build();
-        ZooKeeperResponse response = zooKeeper.processRequest(request);
+        ZooKeeperResponse response = write(request);
         if (!response.isSuccess()) {
-            System.err.println("Read failed: " + response.getErrorMessage());
+            System.err.println("Create failed: " + response.getErrorMessage());
+        }
+        return response.isSuccess();
+    }
+
+    /**
+     * Creates a container node, which the reaper deletes once its last child has been deleted.
+     */
+    public boolean createContainer(@NonNull String path) {
+        log.debug("Creating container ZNode at path: {}", path);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.CREATE)
+            .path(path)
+            .container(true)
+            .build();
+        ZooKeeperResponse response = write(request);
+        if (!response.isSuccess()) {
+            System.err.println("Create failed: " + response.getErrorMessage());
+        }
+        return response.isSuccess();
+    }
+
+    /**
+     * Creates a node named {@code pathPrefix} plus a ten-digit sequence number and returns its path,
+     * or null if the create failed.
+     */
+    public String createSequential(@NonNull String pathPrefix, @NonNull String data) {
+        log.debug("Creating sequential ZNode with prefix: {}", pathPrefix);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.CREATE_SEQUENTIAL)
+            .path(pathPrefix)
+            .data(data.getBytes(StandardCharsets.UTF_8))
+            .build();
+        ZooKeeperResponse response = write(request);
+        if (!response.isSuccess()) {
+            System.err.println("Create failed: " + response.getErrorMessage());
             return null;
         }
-        byte[] data = response.getData();
-        return data != null ? new String(data, StandardCharsets.UTF_8) : "";
+        return response.getCreatedPath();
+    }
+
+    public boolean exists(@NonNull String path) {
+        return exists(path, null);
+    }
+
+    /**
+     * Returns whether {@code path} exists, leaving {@code watcher} to fire on its next change if not null.
+     */
+    public boolean exists(@NonNull String path, Watcher watcher) {
+        log.debug("Checking existence of ZNode at path: {}", path);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.EXISTS)
+            .path(path)
+            .watcher(watcher)
+            .build();
+        return zooKeeper.processRequest(request).isSuccess();
+    }
+
+    /**
+     * Returns the digest of the subtree at {@code path}, or null if it does not exist. Equal digests mean
+     * equal subtrees, see {@link TreeComparator}.
+     */
+    public Long getDigest(@NonNull String path) {
+        log.debug("Reading digest of ZNode at path: {}", path);
+        ZooKeeperResponse response = zooKeeper.processRequest(
+            new ZooKeeperRequest(ZooKeeperRequest.Operation.DIGEST, path));
+        return response.isSuccess() ? response.getDigest() : null;
+    }
+
+    public String getData(@NonNull String path) {
+        log.debug("Reading data from ZNode at path: {}", path);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.READ)
+            .path(path)
+            .acceptCompressed(true)
+            .build();
+        return coalesce(request, () -> {
+            ZooKeeperResponse response = zooKeeper.processRequest(request);
+            if (!response.isSuccess()) {
+                System.err.println("Read failed: " + response.getErrorMessage());
+                return null;
+            }
+            byte[] data = response.getUncompressedData();
+            return data != null ? new String(data, StandardCharsets.UTF_8) : "";
+        });
     }
 
     public boolean setData(@NonNull String path, @NonNull String data) {
@@ -53,20 +168,58 @@ public final class MiniZooKeeperClient {
             .path(path)
             .data(data.getBytes(StandardCharsets.UTF_8))
             .build();
-        ZooKeeperResponse response = zooKeeper.processRequest(request);
+        ZooKeeperResponse response = write(request);
         if (!response.isSuccess()) {
             System.err.println("Update failed: " + response.getErrorMessage());
         }
         return response.isSuccess();
     }
 
+    /**
+     * Atomically adds {@code delta} to the decimal counter stored at {@code path} and returns the new value,
+     * or null if the node is missing or does not hold a number.
+     */
+    public Long increment(@NonNull String path, long delta) {
+        log.debug("Incrementing ZNode at path: {} by: {}", path, delta);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.INCREMENT)
+            .path(path)
+            .data(Long.toString(delta).getBytes(StandardCharsets.US_ASCII))
+            .build();
+        ZooKeeperResponse response = write(request);
+        if (!response.isSuccess()) {
+            System.err.println("Increment failed: " + response.getErrorMessage());
+            return null;
+        }
+        return Long.parseLong(new String(response.getData(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Atomically appends {@code data} to the payload at {@code path}, failing if the result would exceed
+     * {@code maxBytes} or {@link MiniZooKeeper#MAX_APPEND_BYTES}, whichever is lower; zero uses the latter.
+     */
+    public boolean append(@NonNull String path, @NonNull String data, int maxBytes) {
+        log.debug("Appending to ZNode at path: {} data length: {}", path, data.length());
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.APPEND)
+            .path(path)
+            .data(data.getBytes(StandardCharsets.UTF_8))
+            .limit(maxBytes)
+            .build();
+        ZooKeeperResponse response = write(request);
+        if (!response.isSuccess()) {
+            System.err.println("Append failed: " + response.getErrorMessage());
+        }
+        return response.isSuccess();
+    }
+
     public boolean delete(@NonNull String path) {
         log.debug("Deleting ZNode at path: {}", path);
         ZooKeeperRequest request = ZooKeeperRequest.builder()
             .operation(ZooKeeperRequest.Operation.DELETE)
             .path(path)
             .build();
-        ZooKeeperResponse response = zooKeeper.processRequest(request);
+        ZooKeeperResponse response = write(request);
         if (!response.isSuccess()) {
             System.err.println("Delete failed: " + response.getErrorMessage());
         }
@@ -79,11 +232,69 @@ public final class MiniZooKeeperClient {
             .operation(ZooKeeperRequest.Operation.LIST)
             .path(path)
             .build();
+        return coalesce(request, () -> listChildren(request));
+    }
+
+    /**
+     * Returns up to {@code limit} children of {@code path} in name order, starting after {@code startAfter}
+     * or from the first child if it is null; a limit of zero returns them all.
+     */
+    public List<String> getChildren(@NonNull String path, String startAfter, int limit) {
+        log.debug("Listing children of ZNode at path: {} after: {}", path, startAfter);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.LIST)
+            .path(path)
+            .startAfter(startAfter)
+            .limit(limit)
+            .build();
+        return coalesce(request, () -> listChildren(request));
+    }
+
+    private List<String> listChildren(ZooKeeperRequest request) {
         ZooKeeperResponse response = zooKeeper.processRequest(request);
         if (!response.isSuccess()) {
             System.err.println("List failed: " + response.getErrorMessage());
             return null;
         }
+        return Collections.unmodifiableList(response.getChildren());
+    }
+
+    /**
+     * Returns every path matching a glob such as {@code /services/*}{@code /instances/*}, see {@link PathPattern}.
+     */
+    public List<String> find(@NonNull String pattern) {
+        log.debug("Finding ZNodes matching: {}", pattern);
+        ZooKeeperRequest request = ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.FIND)
+            .path(pattern)
+            .build();
+        ZooKeeperResponse response = zooKeeper.processRequest(request);
+        if (!response.isSuccess()) {
+            System.err.println("Find failed: " + response.getErrorMessage());
+            return null;
+        }
         return response.getChildren();
     }
-}
\ No newline at end of file
+
+    private ZooKeeperResponse write(ZooKeeperRequest request) {
+        try {
+            return zooKeeper.processRequest(request);
+        } finally {
+            writeEpoch.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs a read, or waits for an identical one already in flight that started after this client's last
+     * write, so coalescing never hides the caller's own writes.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(ZooKeeperRequest request, Supplier<T> read) {
+        if (reads == null) {
+            return read.get();
+        }
+        List<Object> key = Arrays.asList(request.getOperation(), request.getPath(), request.getStartAfter(),
+            request.getLimit(), writeEpoch.get());
+        return (T) reads.execute(key, (Supplier<Object>) read);
+    }
+}
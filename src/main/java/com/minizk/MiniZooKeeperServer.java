@@ -2,25 +2,77 @@ package com.minizk;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 import java.util.Scanner;
 
 /**
  * Interactive command-line server for Mini ZooKeeper.
- * Commands: create, get, set, delete, ls, quit
+ * Commands: create, createttl, createcontainer, get, set, incr, append, delete, ls, find, digest, setquota,
+ * delquota, quota, export, import, changes, compression, cache, mem, slowlog, quit
+ * With {@code -Dminizk.script=<file>} (or {@code -} for standard input) it runs the file's commands through
+ * {@link BatchScript} instead and exits.
  */
 @Slf4j
 public final class MiniZooKeeperServer {
+
+    private static final String SLOW_REQUEST_THRESHOLD_PROPERTY = "minizk.slowRequestThresholdMs";
+    private static final String EXECUTION_MODE_PROPERTY = "minizk.executionMode";
+    private static final String DATA_DIR_PROPERTY = "minizk.dataDir";
+    private static final String COMPRESSION_THRESHOLD_PROPERTY = "minizk.compressionThresholdBytes";
+    private static final String CHANGE_LOG_CAPACITY_PROPERTY = "minizk.changeLogCapacity";
+    private static final String REAPER_INTERVAL_PROPERTY = "minizk.reaperIntervalMs";
+    private static final String REAPER_SLICE_PROPERTY = "minizk.reaperSliceSize";
+    private static final String RESPONSE_CACHE_BYTES_PROPERTY = "minizk.responseCacheBytes";
+    private static final String LOG_SEGMENT_BYTES_PROPERTY = "minizk.logSegmentBytes";
+    private static final String LOG_RETAINED_SEGMENTS_PROPERTY = "minizk.logRetainedSegments";
+    private static final String LOG_RETENTION_PROPERTY = "minizk.logRetentionMs";
+    private static final String STARTUP_THREADS_PROPERTY = "minizk.startupThreads";
+    private static final String SCRIPT_PROPERTY = "minizk.script";
+    private static final String SCRIPT_BATCH_SIZE_PROPERTY = "minizk.scriptBatchSize";
+    private static final int SCRIPT_BUFFER_BYTES = 1 << 16;
+    private static final int CHANGES_BATCH_SIZE = 100;
     
     public static void main(String[] args) {
         log.info("Starting Mini ZooKeeper Server...");
         System.out.println("Starting Mini ZooKeeper Server...");
         
-        try {
-            MiniZooKeeper zooKeeper = new MiniZooKeeper();
-            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
-            
-            runInteractiveSession(client);
+        int startupThreads = Integer.getInteger(STARTUP_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(createNodeStore(startupThreads),
+                Integer.getInteger(CHANGE_LOG_CAPACITY_PROPERTY, ChangeLog.DEFAULT_CAPACITY),
+                Long.getLong(RESPONSE_CACHE_BYTES_PROPERTY, ResponseCache.DEFAULT_MAX_BYTES), startupThreads,
+                new PayloadCodec(Integer.getInteger(COMPRESSION_THRESHOLD_PROPERTY,
+                    PayloadCodec.DEFAULT_THRESHOLD_BYTES)))) {
+            Long thresholdMillis = Long.getLong(SLOW_REQUEST_THRESHOLD_PROPERTY);
+            if (thresholdMillis != null) {
+                zooKeeper.getSlowRequestLog().setThreshold(Duration.ofMillis(thresholdMillis));
+            }
+            String script = System.getProperty(SCRIPT_PROPERTY);
+            if (script != null) {
+                runScript(zooKeeper, script);
+                return;
+            }
+            ExecutionMode mode = ExecutionMode.parse(System.getProperty(EXECUTION_MODE_PROPERTY, "platform"));
+
+            NodeReaper reaper = new NodeReaper(zooKeeper,
+                Long.getLong(REAPER_INTERVAL_PROPERTY, NodeReaper.DEFAULT_INTERVAL_MILLIS),
+                Integer.getInteger(REAPER_SLICE_PROPERTY, NodeReaper.DEFAULT_SLICE_SIZE));
+            try (SessionExecutor sessions = new SessionExecutor(zooKeeper, mode, 1)) {
+                sessions.openSession(client -> runInteractiveSession(zooKeeper, client)).get();
+            } finally {
+                reaper.close();
+            }
         } catch (Exception e) {
             log.error("Failed to start Mini ZooKeeper Server", e);
             System.err.println("Failed to start server: " + e.getMessage());
@@ -28,12 +80,38 @@ public final class MiniZooKeeperServer {
         }
     }
     
-    private static void runInteractiveSession(MiniZooKeeperClient client) {
+    private static NodeStore createNodeStore(int startupThreads) {
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dataDir == null) {
+            return new InMemoryNodeStore();
+        }
+        System.out.println("Using disk-backed storage in " + dataDir);
+        return new DiskNodeStore(Paths.get(dataDir), DiskNodeStore.DEFAULT_MEMTABLE_BYTES,
+            DiskNodeStore.DEFAULT_CACHE_NODES,
+            Long.getLong(LOG_SEGMENT_BYTES_PROPERTY, TransactionLog.DEFAULT_SEGMENT_BYTES),
+            Integer.getInteger(LOG_RETAINED_SEGMENTS_PROPERTY, TransactionLog.DEFAULT_RETAINED_SEGMENTS),
+            Duration.ofMillis(Long.getLong(LOG_RETENTION_PROPERTY, TransactionLog.DEFAULT_RETENTION_AGE.toMillis())),
+            startupThreads);
+    }
+
+    private static void runScript(MiniZooKeeper zooKeeper, String script) throws IOException, InterruptedException {
+        InputStream in = script.equals("-") ? System.in : Files.newInputStream(Paths.get(script));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), SCRIPT_BUFFER_BYTES);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                SCRIPT_BUFFER_BYTES)) {
+            BatchScript.Summary summary = new BatchScript(zooKeeper,
+                Integer.getInteger(SCRIPT_BATCH_SIZE_PROPERTY, BatchScript.DEFAULT_BATCH_SIZE)).run(reader, out);
+            out.write("Script finished: " + summary + "\n");
+            out.flush();
+        }
+    }
+
+    private static void runInteractiveSession(MiniZooKeeper zooKeeper, MiniZooKeeperClient client) {
         System.out.println("Mini ZooKeeper is ready!");
         printUsage();
         
         try (Scanner scanner = new Scanner(System.in)) {
-            processCommands(scanner, client);
+            processCommands(scanner, zooKeeper, client);
         }
         
         System.out.println("Mini ZooKeeper Server stopped.");
@@ -43,15 +121,31 @@ public final class MiniZooKeeperServer {
     private static void printUsage() {
         System.out.println("Available commands:");
         System.out.println("  create <path> <data> - Create a new znode");
+        System.out.println("  createttl <path> <ttlMs> <data> - Create a znode deleted ttlMs after its last change");
+        System.out.println("  createcontainer <path> - Create a znode deleted once its last child is deleted");
         System.out.println("  get <path> - Get data from znode");
         System.out.println("  set <path> <data> - Set data in znode");
+        System.out.println("  incr <path> [delta] - Atomically add delta (default 1) to a numeric znode");
+        System.out.println("  append <path> <data> - Atomically append data to znode");
         System.out.println("  delete <path> - Delete znode");
         System.out.println("  ls <path> - List children of znode");
+        System.out.println("  find <pattern> - List paths matching a glob (* and ? within a name, ** across levels)");
+        System.out.println("  digest <path> - Show the digest of the subtree at path, for comparing copies");
+        System.out.println("  setquota <path> <maxNodes> <maxBytes> - Limit descendants of znode (-1 = unlimited)");
+        System.out.println("  delquota <path> - Remove quota from znode");
+        System.out.println("  quota <path> - Show quota limits and current usage");
+        System.out.println("  export <path> <file> - Export the subtree at path to a JSON file");
+        System.out.println("  import <file> [path] - Import a JSON export, optionally rebased onto path");
+        System.out.println("  changes <afterZxid> [prefix] - Show committed changes after a transaction id");
+        System.out.println("  compression - Show payload compression savings and latency");
+        System.out.println("  cache - Show read response cache size and hit rate");
+        System.out.println("  mem [n] [nodes] - Show the n largest subtrees by estimated heap bytes (or node count)");
+        System.out.println("  slowlog - Dump requests slower than the slow request threshold");
         System.out.println("  help - Show this help message");
         System.out.println("  quit - Exit the server");
     }
     
-    private static void processCommands(Scanner scanner, MiniZooKeeperClient client) {
+    private static void processCommands(Scanner scanner, MiniZooKeeper zooKeeper, MiniZooKeeperClient client) {
         while (true) {
             System.out.print("minizk> ");
             String input = scanner.nextLine().trim();
@@ -68,7 +162,7 @@ public final class MiniZooKeeperServer {
             String command = parts[0].toLowerCase();
             
             try {
-                executeCommand(command, parts, client);
+                executeCommand(command, parts, zooKeeper, client);
             } catch (Exception e) {
                 System.out.println("Error executing command: " + e.getMessage());
                 log.error("Error executing command: {}", input, e);
@@ -76,7 +170,8 @@ public final class MiniZooKeeperServer {
         }
     }
     
-    private static void executeCommand(String command, String[] parts, MiniZooKeeperClient client) {
+    private static void executeCommand(String command, String[] parts, MiniZooKeeper zooKeeper,
+                                       MiniZooKeeperClient client) throws IOException, InterruptedException {
         switch (command) {
             case "help":
                 printUsage();
@@ -84,18 +179,66 @@ public final class MiniZooKeeperServer {
             case "create":
                 executeCreateCommand(parts, client);
                 break;
+            case "createttl":
+                executeCreateTtlCommand(parts, client);
+                break;
+            case "createcontainer":
+                executeCreateContainerCommand(parts, client);
+                break;
             case "get":
                 executeGetCommand(parts, client);
                 break;
             case "set":
                 executeSetCommand(parts, client);
                 break;
+            case "incr":
+                executeIncrementCommand(parts, client);
+                break;
+            case "append":
+                executeAppendCommand(parts, client);
+                break;
             case "delete":
                 executeDeleteCommand(parts, client);
                 break;
             case "ls":
                 executeListCommand(parts, client);
                 break;
+            case "find":
+                executeFindCommand(parts, zooKeeper);
+                break;
+            case "digest":
+                executeDigestCommand(parts, client);
+                break;
+            case "setquota":
+                executeSetQuotaCommand(parts, zooKeeper);
+                break;
+            case "delquota":
+                executeDeleteQuotaCommand(parts, zooKeeper);
+                break;
+            case "quota":
+                executeQuotaCommand(parts, zooKeeper);
+                break;
+            case "export":
+                executeExportCommand(parts, zooKeeper);
+                break;
+            case "import":
+                executeImportCommand(parts, zooKeeper);
+                break;
+            case "changes":
+                executeChangesCommand(parts, zooKeeper);
+                break;
+            case "compression":
+                System.out.println("Compression: " + PayloadCodec.getStats());
+                break;
+            case "cache":
+                System.out.println("Response cache: " + zooKeeper.getResponseCache());
+                break;
+            case "mem":
+                executeMemoryCommand(parts, zooKeeper);
+                break;
+            case "slowlog":
+                executeSlowLogCommand(zooKeeper);
+                break;
             default:
                 System.out.println("Unknown command: " + command);
                 System.out.println("Type 'help' for available commands.");
@@ -111,6 +254,24 @@ public final class MiniZooKeeperServer {
         System.out.println(created ? "Created successfully" : "Create failed");
     }
 
+    private static void executeCreateTtlCommand(String[] parts, MiniZooKeeperClient client) {
+        String[] ttlAndData = parts.length > 2 ? parts[2].split("\\s+", 2) : new String[0];
+        if (ttlAndData.length < 2) {
+            System.out.println("Usage: createttl <path> <ttlMs> <data>");
+            return;
+        }
+        boolean created = client.createTtl(parts[1], ttlAndData[1], Long.parseLong(ttlAndData[0]));
+        System.out.println(created ? "Created successfully" : "Create failed");
+    }
+
+    private static void executeCreateContainerCommand(String[] parts, MiniZooKeeperClient client) {
+        if (!validateArguments(parts, 2, "createcontainer <path>")) {
+            return;
+        }
+        boolean created = client.createContainer(parts[1]);
+        System.out.println(created ? "Created successfully" : "Create failed");
+    }
+
     private static void executeGetCommand(String[] parts, MiniZooKeeperClient client) {
         if (!validateArguments(parts, 2, "get <path>")) {
             return;
@@ -129,6 +290,43 @@ public final class MiniZooKeeperServer {
         System.out.println(updated ? "Updated successfully" : "Update failed");
     }
 
+    private static void executeIncrementCommand(String[] parts, MiniZooKeeperClient client) {
+        if (!validateArguments(parts, 2, "incr <path> [delta]")) {
+            return;
+        }
+        Long value = client.increment(parts[1], parts.length > 2 ? Long.parseLong(parts[2]) : 1);
+        if (value != null) {
+            System.out.println("Value: " + value);
+        }
+    }
+
+    private static void executeDigestCommand(String[] parts, MiniZooKeeperClient client) {
+        if (!validateArguments(parts, 2, "digest <path>")) {
+            return;
+        }
+        Long digest = client.getDigest(parts[1]);
+        System.out.println(digest != null ? String.format("Digest: %016x", digest) : "Node does not exist");
+    }
+
+    private static void executeMemoryCommand(String[] parts, MiniZooKeeper zooKeeper) {
+        int limit = parts.length > 1 ? Integer.parseInt(parts[1]) : 10;
+        MemoryAccounting.Order order = parts.length > 2 && parts[2].equalsIgnoreCase("nodes")
+            ? MemoryAccounting.Order.NODES : MemoryAccounting.Order.BYTES;
+        MemoryAccounting accounting = zooKeeper.getMemoryAccounting();
+        System.out.println("Estimated heap: " + accounting);
+        for (MemoryAccounting.SubtreeUsage usage : accounting.getTopSubtrees(limit, order)) {
+            System.out.println("  " + usage);
+        }
+    }
+
+    private static void executeAppendCommand(String[] parts, MiniZooKeeperClient client) {
+        if (!validateArguments(parts, 3, "append <path> <data>")) {
+            return;
+        }
+        boolean appended = client.append(parts[1], parts[2], 0);
+        System.out.println(appended ? "Appended successfully" : "Append failed");
+    }
+
     private static void executeDeleteCommand(String[] parts, MiniZooKeeperClient client) {
         if (!validateArguments(parts, 2, "delete <path>")) {
             return;
@@ -137,6 +335,29 @@ public final class MiniZooKeeperServer {
         System.out.println(deleted ? "Deleted successfully" : "Delete failed");
     }
 
+    private static void executeFindCommand(String[] parts, MiniZooKeeper zooKeeper) {
+        if (!validateArguments(parts, 2, "find <pattern>")) {
+            return;
+        }
+        long matches = zooKeeper.find(parts[1], path -> {
+            System.out.println("  " + path);
+            return true;
+        });
+        System.out.println(matches + " matching znode(s)");
+    }
+
+    private static void executeChangesCommand(String[] parts, MiniZooKeeper zooKeeper)
+            throws InterruptedException {
+        if (!validateArguments(parts, 2, "changes <afterZxid> [prefix]")) {
+            return;
+        }
+        ChangeLog.Subscription subscription = zooKeeper.subscribe(Long.parseLong(parts[1]),
+            parts.length > 2 ? parts[2] : "/");
+        List<ChangeLog.ChangeEvent> changes = subscription.poll(CHANGES_BATCH_SIZE, Duration.ZERO);
+        changes.forEach(change -> System.out.println("  " + change));
+        System.out.println(changes.size() + " change(s), resume after zxid " + subscription.getPosition());
+    }
+
     private static void executeListCommand(String[] parts, MiniZooKeeperClient client) {
         if (!validateArguments(parts, 2, "ls <path>")) {
             return;
@@ -151,6 +372,67 @@ public final class MiniZooKeeperServer {
         }
     }
 
+    private static void executeSetQuotaCommand(String[] parts, MiniZooKeeper zooKeeper) {
+        String usage = "setquota <path> <maxNodes> <maxBytes>";
+        if (!validateArguments(parts, 3, usage)) {
+            return;
+        }
+        String[] limits = parts[2].split("\\s+");
+        if (!validateArguments(limits, 2, usage)) {
+            return;
+        }
+        ZooKeeperResponse response = zooKeeper.setQuota(parts[1], Long.parseLong(limits[0]), Long.parseLong(limits[1]));
+        System.out.println(response.isSuccess() ? "Quota set" : "Set quota failed: " + response.getErrorMessage());
+    }
+
+    private static void executeDeleteQuotaCommand(String[] parts, MiniZooKeeper zooKeeper) {
+        if (!validateArguments(parts, 2, "delquota <path>")) {
+            return;
+        }
+        ZooKeeperResponse response = zooKeeper.removeQuota(parts[1]);
+        System.out.println(response.isSuccess() ? "Quota removed" : "Remove quota failed: " + response.getErrorMessage());
+    }
+
+    private static void executeQuotaCommand(String[] parts, MiniZooKeeper zooKeeper) {
+        if (!validateArguments(parts, 2, "quota <path>")) {
+            return;
+        }
+        SubtreeQuota quota = zooKeeper.getQuota(parts[1]);
+        System.out.println(quota != null ? "Quota: " + quota : "No quota set");
+    }
+
+    private static void executeExportCommand(String[] parts, MiniZooKeeper zooKeeper) throws IOException {
+        if (!validateArguments(parts, 3, "export <path> <file>")) {
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(Paths.get(parts[2]))) {
+            long count = zooKeeper.exportTree(parts[1], out);
+            System.out.println("Exported " + count + " nodes to " + parts[2]);
+        }
+    }
+
+    private static void executeImportCommand(String[] parts, MiniZooKeeper zooKeeper) throws IOException {
+        if (!validateArguments(parts, 2, "import <file> [path]")) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(parts[1]))) {
+            long count = zooKeeper.importTree(in, parts.length > 2 ? parts[2] : null);
+            System.out.println("Imported " + count + " nodes from " + parts[1]);
+        }
+    }
+
+    private static void executeSlowLogCommand(MiniZooKeeper zooKeeper) {
+        SlowRequestLog slowRequestLog = zooKeeper.getSlowRequestLog();
+        List<SlowRequestLog.SlowRequest> slowRequests = slowRequestLog.dump();
+        if (slowRequests.isEmpty()) {
+            System.out.println("No requests slower than " + slowRequestLog.getThreshold().toMillis() + "ms");
+            return;
+        }
+        for (SlowRequestLog.SlowRequest slowRequest : slowRequests) {
+            System.out.println(slowRequest);
+        }
+    }
+
     private static boolean validateArguments(String[] parts, int requiredLength, String usage) {
         if (parts.length < requiredLength) {
             System.out.println("Usage: " + usage);
@@ -0,0 +1,100 @@
+package com.minizk;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background cleaner for TTL and container nodes. Every interval it deletes at most one slice of due nodes
+ * from the head of the service's expiry queue, under a single short write lock acquisition, so a backlog of
+ * millions of stale nodes drains at a bounded rate instead of stalling writers. It never scans the tree.
+ */
+@Slf4j
+public final class NodeReaper implements AutoCloseable {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 10;
+    public static final int DEFAULT_SLICE_SIZE = 100;
+
+    private final MiniZooKeeper zooKeeper;
+    private final long intervalNanos;
+    private final int sliceSize;
+    private final AtomicLong reapedCount;
+    private final AtomicLong sliceCount;
+    private final Thread reaper;
+    private volatile boolean running;
+
+    public NodeReaper(@NonNull MiniZooKeeper zooKeeper) {
+        this(zooKeeper, DEFAULT_INTERVAL_MILLIS, DEFAULT_SLICE_SIZE);
+    }
+
+    /**
+     * Starts a reaper deleting at most {@code sliceSize} nodes every {@code intervalMillis}.
+     */
+    public NodeReaper(@NonNull MiniZooKeeper zooKeeper, long intervalMillis, int sliceSize) {
+        if (intervalMillis <= 0 || sliceSize <= 0) {
+            throw new IllegalArgumentException("Interval and slice size must be positive");
+        }
+        this.zooKeeper = zooKeeper;
+        this.intervalNanos = intervalMillis * 1_000_000;
+        this.sliceSize = sliceSize;
+        this.reapedCount = new AtomicLong();
+        this.sliceCount = new AtomicLong();
+        this.running = true;
+        this.reaper = new Thread(this::runReaper, "minizk-reaper");
+        this.reaper.setDaemon(true);
+        this.reaper.start();
+
+        log.info("Node reaper started, at most {} deletes every {} ms", sliceSize, intervalMillis);
+    }
+
+    /**
+     * Deletes one slice of nodes that are due now and returns how many were deleted.
+     */
+    public int reapSlice() {
+        int reaped = zooKeeper.reapExpired(System.currentTimeMillis(), sliceSize);
+        reapedCount.addAndGet(reaped);
+        sliceCount.incrementAndGet();
+        return reaped;
+    }
+
+    public long getReapedCount() {
+        return reapedCount.get();
+    }
+
+    public long getSliceCount() {
+        return sliceCount.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(reaper);
+        try {
+            reaper.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Node reaper stopped after deleting {} nodes", getReapedCount());
+    }
+
+    private void runReaper() {
+        long next = System.nanoTime();
+        while (running) {
+            try {
+                reapSlice();
+            } catch (RuntimeException e) {
+                log.warn("Node reaper slice failed", e);
+            }
+            next += intervalNanos;
+            long now = System.nanoTime();
+            if (next < now) {
+                next = now;
+            }
+            while (running && next - System.nanoTime() > 0) {
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.minizk;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Storage engine behind {@link MiniZooKeeper}, keyed by absolute path.
+ * Mutating methods are only called while the service holds its write lock; lookups may run concurrently.
+ * Implementations always contain the root node.
+ */
+public interface NodeStore extends AutoCloseable {
+
+    /**
+     * Returns the node at {@code path}, loading it on demand, or null if it does not exist.
+     */
+    ZNode get(ZPath path);
+
+    default boolean contains(ZPath path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Stores a new node and links it under {@code parent} as {@code name}.
+     */
+    void insert(ZNode parent, String name, ZNode node);
+
+    /**
+     * Stores a detached subtree, whose nodes are already linked to their children, and links its root under
+     * {@code parent}. Implementations may spread the work over {@code pool}; by default each node is inserted
+     * on the calling thread after its parent.
+     */
+    default void insertSubtree(ZNode parent, ZNode root, ForkJoinPool pool) {
+        Deque<ZNode[]> pending = new ArrayDeque<>();
+        pending.push(new ZNode[] {parent, root});
+        while (!pending.isEmpty()) {
+            ZNode[] link = pending.pop();
+            ZNode node = link[1];
+            insert(link[0], node.getZPath().name(), node);
+            for (ZNode child : node.getChildren().values()) {
+                pending.push(new ZNode[] {node, child});
+            }
+        }
+    }
+
+    /**
+     * Stores the detached subtrees of one bulk load, each under its parent already in the store, see
+     * {@link #insertSubtree}. Implementations that log writes make all of them durable or none; by default
+     * each subtree is inserted in turn.
+     */
+    default void insertSubtrees(List<ZNode> roots, ForkJoinPool pool) {
+        for (ZNode root : roots) {
+            insertSubtree(get(root.getZPath().parent()), root, pool);
+        }
+    }
+
+    /**
+     * Writes back a node whose data was modified in place.
+     */
+    void update(ZNode node);
+
+    /**
+     * Writes back a node whose subtree digest alone changed. Digests can be recomputed from the children, so
+     * implementations may defer making this durable; by default it is an ordinary {@link #update}.
+     */
+    default void updateDigest(ZNode node) {
+        update(node);
+    }
+
+    /**
+     * Removes a childless node and unlinks it from {@code parent}.
+     */
+    void delete(ZNode parent, String name, ZNode node);
+
+    List<String> getChildrenNames(ZNode node);
+
+    /**
+     * Returns up to {@code limit} child names of {@code node} in lexicographic order, starting after
+     * {@code startAfter} or from the first child if it is null. Reads only the children it returns.
+     */
+    List<String> getChildrenNames(ZNode node, String startAfter, int limit);
+
+    boolean hasChildren(ZNode node);
+
+    /**
+     * Visits each direct child of {@code node}, in no particular order.
+     */
+    void forEachChild(ZNode node, Consumer<ZNode> action);
+
+    /**
+     * Visits the paths strictly below {@code root} whose depth lies within {@code [minDepth, maxDepth]},
+     * stopping as soon as {@code visitor} returns false. Only the subtree below {@code root} is read;
+     * the visiting order is up to the implementation.
+     *
+     * @return false if the visitor stopped the scan early
+     */
+    boolean scanSubtree(ZPath root, int minDepth, int maxDepth, Predicate<ZPath> visitor);
+
+    /**
+     * Visits every node strictly below {@code root}, in no particular order, for read-only passes over a
+     * whole subtree. Implementations may hand out nodes without caching them.
+     */
+    default void forEachInSubtree(ZPath root, Consumer<ZNode> action) {
+        scanSubtree(root, 0, Integer.MAX_VALUE, path -> {
+            ZNode node = get(path);
+            if (node != null) {
+                action.accept(node);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Keeps {@code index}, state the service would otherwise rebuild by reading the whole tree, for
+     * {@link #loadIndex} on the next open. By default nothing is kept.
+     */
+    default void saveIndex(byte[] index) {
+    }
+
+    /**
+     * Returns the index last saved, or null if there is none or the tree was written to after it was saved.
+     */
+    default byte[] loadIndex() {
+        return null;
+    }
+
+    /**
+     * Returns an epoch greater than any returned before for this store's data, see {@link ChangeLog}. By
+     * default it comes from the clock, which only orders restarts more than a second apart.
+     */
+    default long nextEpoch() {
+        return ChangeLog.nextClockEpoch();
+    }
+
+    @Override
+    void close();
+}
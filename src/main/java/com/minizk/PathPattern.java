@@ -0,0 +1,151 @@
+package com.minizk;
+
+/**
+ * Glob over znode paths, as used by {@link ZooKeeperRequest.Operation#FIND}. Patterns are matched component
+ * by component: within a component {@code *} matches any run of characters and {@code ?} any single
+ * character, while a component that is exactly {@code **} matches zero or more whole components, so
+ * {@code /services/**} is a prefix query and {@code /services/*}{@code /instances/*} a structured one.
+ *
+ * <p>The components in front of the first wildcard form the base path, so a query only ever reads the
+ * subtree below it, and a pattern without {@code **} also fixes the depth of every match.
+ */
+final class PathPattern {
+
+    private static final String ANY_COMPONENTS = "**";
+
+    private final String pattern;
+    private final String[] segments;
+    private final ZPath base;
+    private final int minDepth;
+    private final int maxDepth;
+
+    private PathPattern(String pattern, String[] segments, ZPath base, int minDepth, int maxDepth) {
+        this.pattern = pattern;
+        this.segments = segments;
+        this.base = base;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Compiles {@code pattern}, which must be a well-formed absolute path apart from its wildcards.
+     */
+    static PathPattern compile(String pattern) {
+        ZPath parsed = ZPath.tryParse(pattern);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Invalid path format: " + pattern);
+        }
+
+        String[] segments = new String[parsed.depth()];
+        ZPath base = ZPath.ROOT;
+        boolean literal = true;
+        int fixedSegments = 0;
+        boolean anyComponents = false;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = pattern.substring(parsed.componentStart(i), parsed.componentEnd(i));
+            if (segments[i].equals(ANY_COMPONENTS)) {
+                anyComponents = true;
+            } else {
+                fixedSegments++;
+            }
+            literal &= !isWildcard(segments[i]);
+            if (literal) {
+                base = base.child(segments[i]);
+            }
+        }
+        return new PathPattern(pattern, segments, base, fixedSegments,
+            anyComponents ? Integer.MAX_VALUE : segments.length);
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    /**
+     * Returns the longest wildcard-free prefix of the pattern; every match lies at or below it.
+     */
+    ZPath getBase() {
+        return base;
+    }
+
+    int getMinDepth() {
+        return minDepth;
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns whether the pattern contains no wildcards, so the base path is the only possible match.
+     */
+    boolean isLiteral() {
+        return base.depth() == segments.length;
+    }
+
+    boolean matches(ZPath path) {
+        int depth = path.depth();
+        if (depth < minDepth || depth > maxDepth) {
+            return false;
+        }
+        return matchFrom(path, 0, 0);
+    }
+
+    private boolean matchFrom(ZPath path, int segment, int component) {
+        String value = path.toString();
+        while (segment < segments.length) {
+            String glob = segments[segment];
+            if (glob.equals(ANY_COMPONENTS)) {
+                if (segment == segments.length - 1) {
+                    return true;
+                }
+                for (int skip = component; skip <= path.depth(); skip++) {
+                    if (matchFrom(path, segment + 1, skip)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (component == path.depth()
+                || !globMatches(glob, value, path.componentStart(component), path.componentEnd(component))) {
+                return false;
+            }
+            segment++;
+            component++;
+        }
+        return component == path.depth();
+    }
+
+    /**
+     * Matches a single-component glob against {@code value[start, end)}, backtracking to the last {@code *}.
+     */
+    private static boolean globMatches(String glob, String value, int start, int end) {
+        int g = 0;
+        int v = start;
+        int starGlob = -1;
+        int starValue = -1;
+        while (v < end) {
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == value.charAt(v))) {
+                g++;
+                v++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                starGlob = g++;
+                starValue = v;
+            } else if (starGlob >= 0) {
+                g = starGlob + 1;
+                v = ++starValue;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,191 @@
+package com.minizk;
+
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of large znode payloads with the JDK's pure-Java deflate codec at its fastest level.
+ * Payloads at or above an instance's threshold are compressed when that saves at least an eighth of their size;
+ * each {@link MiniZooKeeper} has its own instance. Decompression needs no threshold and is static. Keeps
+ * process-wide counters, since startup, of payload bytes saved and time spent compressing and decompressing.
+ *
+ * <p>Deflaters and inflaters hold native zlib memory until ended, so they are borrowed from small bounded pools
+ * rather than kept per thread, and any that do not fit back into a pool are ended at once.
+ */
+public final class PayloadCodec {
+
+    public static final int DEFAULT_THRESHOLD_BYTES = 16 * 1024;
+
+    /** Codec with the default threshold, used by nodes written outside a service */
+    public static final PayloadCodec DEFAULT = new PayloadCodec(DEFAULT_THRESHOLD_BYTES);
+
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final AtomicLong compressedPayloads = new AtomicLong();
+    private static final AtomicLong uncompressedBytes = new AtomicLong();
+    private static final AtomicLong compressedBytes = new AtomicLong();
+    private static final AtomicLong compressNanos = new AtomicLong();
+    private static final AtomicLong decompressions = new AtomicLong();
+    private static final AtomicLong decompressNanos = new AtomicLong();
+
+    /** Payload size from which {@link #compress} compresses; {@link Integer#MAX_VALUE} disables it */
+    @Getter
+    private final int thresholdBytes;
+
+    public PayloadCodec(int thresholdBytes) {
+        if (thresholdBytes <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * Returns the compressed form of {@code data}, or null if it is under the threshold or does not compress well.
+     */
+    public byte[] compress(byte[] data) {
+        if (data.length < thresholdBytes) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        int limit = data.length - data.length / 8;
+        byte[] buffer = new byte[limit];
+        int length = 0;
+        boolean finished;
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            while (!deflater.finished() && length < limit) {
+                length += deflater.deflate(buffer, length, limit - length);
+            }
+            finished = deflater.finished();
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+            compressNanos.addAndGet(System.nanoTime() - start);
+        }
+        if (!finished) {
+            return null;
+        }
+
+        compressedPayloads.incrementAndGet();
+        uncompressedBytes.addAndGet(data.length);
+        compressedBytes.addAndGet(length);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Inflates a payload produced by {@link #compress}. Pass the original length if known, or -1.
+     *
+     * @throws IllegalArgumentException if the payload is corrupt, truncated or not of the given length
+     */
+    public static byte[] decompress(byte[] compressed, int originalLength) {
+        long start = System.nanoTime();
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(compressed);
+            if (originalLength >= 0) {
+                byte[] result = new byte[originalLength];
+                int length = 0;
+                while (length < originalLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(result, length, originalLength - length);
+                    checkProgress(inflater, inflated);
+                    length += inflated;
+                }
+                if (length < originalLength) {
+                    throw new IllegalArgumentException("Truncated compressed payload");
+                }
+                return result;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                checkProgress(inflater, length);
+                out.write(chunk, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed payload", e);
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+            decompressions.incrementAndGet();
+            decompressNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Fails a call to inflate that produced nothing and never will, instead of looping on it.
+     */
+    private static void checkProgress(Inflater inflater, int inflated) {
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            throw new IllegalArgumentException("Truncated compressed payload");
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(compressedPayloads.get(), uncompressedBytes.get(), compressedBytes.get(),
+            compressNanos.get(), decompressions.get(), decompressNanos.get());
+    }
+
+    /**
+     * Point-in-time view of the compression counters.
+     */
+    @Getter
+    public static final class Stats {
+
+        private final long compressedPayloads;
+
+        private final long uncompressedBytes;
+
+        private final long compressedBytes;
+
+        private final long compressNanos;
+
+        private final long decompressions;
+
+        private final long decompressNanos;
+
+        public Stats(long compressedPayloads, long uncompressedBytes, long compressedBytes,
+                     long compressNanos, long decompressions, long decompressNanos) {
+            this.compressedPayloads = compressedPayloads;
+            this.uncompressedBytes = uncompressedBytes;
+            this.compressedBytes = compressedBytes;
+            this.compressNanos = compressNanos;
+            this.decompressions = decompressions;
+            this.decompressNanos = decompressNanos;
+        }
+
+        public long getBytesSaved() {
+            return uncompressedBytes - compressedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("payloads=%d saved=%d bytes (%d -> %d) compress=%dus decompressions=%d avg=%dus",
+                compressedPayloads, getBytesSaved(), uncompressedBytes, compressedBytes,
+                compressNanos / 1_000, decompressions, decompressions == 0 ? 0 : decompressNanos / decompressions / 1_000);
+        }
+    }
+}
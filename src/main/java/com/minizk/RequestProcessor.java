@@ -0,0 +1,27 @@
+package com.minizk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Anything that can execute a {@link ZooKeeperRequest}: the service itself or a front-end that forwards to it.
+ */
+public interface RequestProcessor {
+
+    ZooKeeperResponse processRequest(ZooKeeperRequest request);
+
+    /**
+     * Processes requests in order, returning one response per request. The default simply runs them one
+     * after another; {@link MiniZooKeeper} applies the whole batch under a single write lock acquisition.
+     */
+    default List<ZooKeeperResponse> processBatch(List<ZooKeeperRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Requests cannot be null");
+        }
+        List<ZooKeeperResponse> responses = new ArrayList<>(requests.size());
+        for (ZooKeeperRequest request : requests) {
+            responses.add(processRequest(request));
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,321 @@
+package com.minizk;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte-bounded cache of built READ responses, so a hot read is one map lookup that hands back a shared,
+ * immutable response instead of fetching the node, copying (and possibly inflating) its payload and
+ * building a new response. Entries are invalidated by the service when their node is written, under the
+ * write lock, so a cached response never outlives the data it was built from.
+ *
+ * <p>Admission is frequency aware: when the cache is full, a newcomer only displaces the oldest entry if a
+ * small count-min sketch of recent accesses says it is read more often, so a scan of cold nodes cannot flush
+ * the hot set. An oldest entry that wins the comparison is moved to the back and gets another round.
+ *
+ * <p>Lookups never lock. Fills come from concurrent readers, so the budget is split over up to
+ * {@value #MAX_STRIPES} stripes by path hash, each with its own lock and eviction order; a fill that finds its
+ * stripe busy is skipped rather than waited for, as caching is only an optimization.
+ */
+public final class ResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /** Rough per-entry cost of the map entries, the response object and the path beyond the payload itself */
+    static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private static final int MAX_STRIPES = 16;
+    /** Smallest budget a stripe gets; smaller caches use fewer stripes so large entries still fit */
+    private static final long MIN_STRIPE_BYTES = 1024 * 1024;
+
+    @Getter
+    private final long maxBytes;
+    private final Map<ZPath, Entry> entries;
+    private final Stripe[] stripes;
+    private final FrequencySketch sketch;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder rejections;
+    private final LongAdder invalidations;
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a cache holding at most {@code maxBytes} of responses; zero disables caching.
+     */
+    public ResponseCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Max bytes cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.entries = new ConcurrentHashMap<>();
+        int stripeCount = (int) Math.max(1, Math.min(MAX_STRIPES, Long.highestOneBit(maxBytes / MIN_STRIPE_BYTES)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(maxBytes / stripeCount);
+        }
+        this.sketch = new FrequencySketch(maxBytes / 256);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.rejections = new LongAdder();
+        this.invalidations = new LongAdder();
+    }
+
+    /**
+     * Returns the cached response for {@code path}, or null on a miss. A compressed node's response is
+     * only returned to callers that asked for the same form, compressed or not, that it was built in.
+     * Every call counts towards the path's access frequency.
+     */
+    ZooKeeperResponse get(ZPath path, boolean acceptCompressed) {
+        if (maxBytes == 0) {
+            return null;
+        }
+        sketch.increment(path);
+        Entry entry = entries.get(path);
+        if (entry == null || (entry.nodeCompressed && entry.response.isCompressed() != acceptCompressed)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Offers a freshly built response for {@code path}, whose node holds a compressed payload if
+     * {@code nodeCompressed}; it is kept only if it fits and is read at least as often as whatever it
+     * would displace, and skipped if another reader is filling the same stripe.
+     */
+    void put(ZPath path, ZooKeeperResponse response, boolean nodeCompressed) {
+        Stripe stripe = stripeFor(path);
+        long weight = weigh(path, response);
+        if (weight > stripe.maxBytes || !stripe.lock.tryLock()) {
+            rejections.increment();
+            return;
+        }
+        try {
+            stripe.remove(path);
+
+            int frequency = sketch.frequency(path);
+            while (stripe.usedBytes + weight > stripe.maxBytes) {
+                Iterator<Map.Entry<ZPath, Entry>> oldest = stripe.order.entrySet().iterator();
+                Map.Entry<ZPath, Entry> victim = oldest.next();
+                oldest.remove();
+                if (sketch.frequency(victim.getKey()) > frequency) {
+                    stripe.order.put(victim.getKey(), victim.getValue());
+                    rejections.increment();
+                    return;
+                }
+                entries.remove(victim.getKey());
+                stripe.usedBytes -= victim.getValue().weight;
+                evictions.increment();
+            }
+
+            Entry entry = new Entry(response, nodeCompressed, weight);
+            stripe.order.put(path, entry);
+            entries.put(path, entry);
+            stripe.usedBytes += weight;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the cached response for {@code path}, if any.
+     */
+    void invalidate(ZPath path) {
+        Stripe stripe = stripeFor(path);
+        stripe.lock.lock();
+        try {
+            if (stripe.remove(path)) {
+                invalidations.increment();
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(ZPath path) {
+        int hash = path.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static long weigh(ZPath path, ZooKeeperResponse response) {
+        return ENTRY_OVERHEAD_BYTES + 2L * path.toString().length() + response.getDataLength();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Fraction of lookups answered from the cache, or zero before the first lookup.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Entries dropped to make room for a more frequently read response.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Responses not cached because they were too large or read less often than the entry they would replace.
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Entries dropped because their node was written.
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getUsedBytes() {
+        long used = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                used += stripe.usedBytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return used;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("entries=%d bytes=%d/%d hitRate=%.3f hits=%d misses=%d evictions=%d rejections=%d "
+                + "invalidations=%d", getEntryCount(), getUsedBytes(), maxBytes, getHitRate(), getHitCount(),
+            getMissCount(), getEvictionCount(), getRejectionCount(), getInvalidationCount());
+    }
+
+    private static final class Entry {
+
+        private final ZooKeeperResponse response;
+        private final boolean nodeCompressed;
+        private final long weight;
+
+        private Entry(ZooKeeperResponse response, boolean nodeCompressed, long weight) {
+            this.response = response;
+            this.nodeCompressed = nodeCompressed;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Share of the byte budget with its own eviction order.
+     */
+    private final class Stripe {
+
+        private final ReentrantLock lock;
+        /** Insertion order for eviction, guarded by the lock */
+        private final LinkedHashMap<ZPath, Entry> order;
+        private final long maxBytes;
+        private long usedBytes;
+
+        private Stripe(long maxBytes) {
+            this.lock = new ReentrantLock();
+            this.order = new LinkedHashMap<>();
+            this.maxBytes = maxBytes;
+        }
+
+        private boolean remove(ZPath path) {
+            Entry entry = order.remove(path);
+            if (entry == null) {
+                return false;
+            }
+            entries.remove(path);
+            usedBytes -= entry.weight;
+            return true;
+        }
+    }
+
+    /**
+     * Count-min sketch of access frequencies with four rows of saturating counters. All counters are
+     * halved once the number of increments reaches ten times the width, so old popularity fades.
+     * Updates from concurrent readers may occasionally be lost, which only makes the estimate coarser.
+     */
+    static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final AtomicIntegerArray counters;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions;
+
+        FrequencySketch(long expectedEntries) {
+            int width = Integer.highestOneBit((int) Math.max(1024, Math.min(expectedEntries, 1 << 20)) * 2 - 1);
+            this.counters = new AtomicIntegerArray(width * DEPTH);
+            this.mask = width - 1;
+            this.sampleSize = width * 10;
+            this.additions = new AtomicInteger();
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                int count = counters.get(index);
+                if (count < MAX_COUNT && counters.compareAndSet(index, count, count + 1)) {
+                    added = true;
+                }
+            }
+            if (added && additions.incrementAndGet() == sampleSize) {
+                age();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters.get(index(hash, row)));
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+            return row * (mask + 1) + ((h ^ (h >>> 15)) & mask);
+        }
+
+        private void age() {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.set(i, counters.get(i) >>> 1);
+            }
+            additions.set(0);
+        }
+    }
+}
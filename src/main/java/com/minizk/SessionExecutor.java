@@ -0,0 +1,92 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs client sessions against a shared {@link MiniZooKeeper}, either on a fixed platform-thread pool
+ * or with one virtual thread per session. Virtual threads are looked up reflectively so the project
+ * still builds for Java 11; selecting them on an older runtime fails fast.
+ */
+@Slf4j
+public final class SessionExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_PLATFORM_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Getter
+    private final ExecutionMode mode;
+
+    private final MiniZooKeeper zooKeeper;
+
+    private final ExecutorService executor;
+
+    public SessionExecutor(@NonNull MiniZooKeeper zooKeeper, @NonNull ExecutionMode mode) {
+        this(zooKeeper, mode, DEFAULT_PLATFORM_THREADS);
+    }
+
+    public SessionExecutor(@NonNull MiniZooKeeper zooKeeper, @NonNull ExecutionMode mode, int platformThreads) {
+        if (platformThreads <= 0) {
+            throw new IllegalArgumentException("Platform thread count must be positive");
+        }
+        this.zooKeeper = zooKeeper;
+        this.mode = mode;
+        this.executor = mode == ExecutionMode.VIRTUAL_THREADS
+            ? newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(platformThreads);
+
+        log.info("Session executor started in {} mode", mode);
+    }
+
+    /**
+     * Returns whether the running JVM supports virtual threads.
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a session with its own client and runs it to completion on a session thread.
+     */
+    public Future<?> openSession(@NonNull Consumer<MiniZooKeeperClient> session) {
+        return executor.submit(() -> session.accept(new MiniZooKeeperClient(zooKeeper)));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Sessions still running after 30 seconds, interrupting");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer, running on "
+                + System.getProperty("java.version"), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+}
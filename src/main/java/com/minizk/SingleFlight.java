@@ -0,0 +1,69 @@
+package com.minizk;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with equal keys: the first caller runs the call and every caller that arrives
+ * while it is in flight waits for and shares its result, which must therefore be immutable. Nothing is
+ * cached; a call arriving after the result was published starts a new flight.
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight;
+    private final LongAdder executed;
+    private final LongAdder coalesced;
+
+    SingleFlight() {
+        this.inFlight = new ConcurrentHashMap<>();
+        this.executed = new LongAdder();
+        this.coalesced = new LongAdder();
+    }
+
+    V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        executed.increment();
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors and sneaky-thrown checked exceptions must release the waiters too.
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Calls that were actually run.
+     */
+    long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Calls that shared the result of a call already in flight.
+     */
+    long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
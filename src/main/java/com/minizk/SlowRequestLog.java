@@ -0,0 +1,195 @@
+package com.minizk;
+
+import lombok.Getter;
+
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free ring buffer of requests whose total latency exceeded a threshold.
+ * Requests under the threshold are rejected with a single comparison and never allocate.
+ */
+public final class SlowRequestLog {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(100);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong cursor;
+    private volatile long thresholdNanos;
+
+    public SlowRequestLog() {
+        this(DEFAULT_CAPACITY, DEFAULT_THRESHOLD);
+    }
+
+    public SlowRequestLog(int capacity, Duration threshold) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.cursor = new AtomicLong();
+        setThreshold(threshold);
+    }
+
+    public Duration getThreshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+
+    public void setThreshold(Duration threshold) {
+        if (threshold == null || threshold.isNegative()) {
+            throw new IllegalArgumentException("Threshold cannot be null or negative");
+        }
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Total number of slow requests recorded, including those already overwritten.
+     */
+    public long getRecordedCount() {
+        return cursor.get();
+    }
+
+    /**
+     * Records a request if its queue, lock wait and execution time add up to more than the threshold.
+     */
+    public void record(ZooKeeperRequest.Operation operation, String path, int payloadSize,
+                       long queueNanos, long lockWaitNanos, long executionNanos) {
+        if (queueNanos + lockWaitNanos + executionNanos < thresholdNanos) {
+            return;
+        }
+
+        long sequence = cursor.getAndIncrement();
+        Slot slot = slots[(int) (sequence & mask)];
+        // Seqlock-style publication: the writer claims the slot by making its stamp odd, and readers discard
+        // a slot whose stamp changed while copying it. Once the log wraps, two writers can map to the same
+        // slot; the one that loses the claim, or finds a newer entry there, drops its entry.
+        long stamp = slot.stamp.get();
+        if ((stamp & 1) != 0 || stamp > stampOf(sequence) || !slot.stamp.compareAndSet(stamp, stamp + 1)) {
+            return;
+        }
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.operation = operation;
+        slot.path = path;
+        slot.payloadSize = payloadSize;
+        slot.queueNanos = queueNanos;
+        slot.lockWaitNanos = lockWaitNanos;
+        slot.executionNanos = executionNanos;
+        slot.stamp.set(stampOf(sequence));
+    }
+
+    /**
+     * Returns a snapshot of the retained slow requests, oldest first.
+     */
+    public List<SlowRequest> dump() {
+        long end = cursor.get();
+        long start = Math.max(0, end - slots.length);
+        List<SlowRequest> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Slot slot = slots[(int) (sequence & mask)];
+            long stamp = stampOf(sequence);
+            if (slot.stamp.get() != stamp) {
+                continue;
+            }
+            SlowRequest request = new SlowRequest(sequence, slot.timestampMillis, slot.operation, slot.path,
+                slot.payloadSize, slot.queueNanos, slot.lockWaitNanos, slot.executionNanos);
+            // Plain reads may otherwise be reordered past the recheck and return a torn entry.
+            VarHandle.loadLoadFence();
+            if (slot.stamp.get() == stamp) {
+                result.add(request);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public void clear() {
+        for (Slot slot : slots) {
+            long stamp = slot.stamp.get();
+            // A slot being written is left to its writer, which publishes the entry when it finishes.
+            if ((stamp & 1) == 0) {
+                slot.stamp.compareAndSet(stamp, 0);
+            }
+        }
+    }
+
+    /**
+     * Even stamp of a slot holding the entry with {@code sequence}; zero is an empty slot and odd stamps
+     * mark a slot being written.
+     */
+    private static long stampOf(long sequence) {
+        return 2 * sequence + 2;
+    }
+
+    private static final class Slot {
+        private final AtomicLong stamp = new AtomicLong();
+        private long timestampMillis;
+        private ZooKeeperRequest.Operation operation;
+        private String path;
+        private int payloadSize;
+        private long queueNanos;
+        private long lockWaitNanos;
+        private long executionNanos;
+    }
+
+    /**
+     * Immutable copy of a recorded slow request.
+     */
+    @Getter
+    public static final class SlowRequest {
+
+        private final long sequence;
+
+        private final long timestampMillis;
+
+        private final ZooKeeperRequest.Operation operation;
+
+        private final String path;
+
+        private final int payloadSize;
+
+        private final long queueNanos;
+
+        private final long lockWaitNanos;
+
+        private final long executionNanos;
+
+        public SlowRequest(long sequence, long timestampMillis, ZooKeeperRequest.Operation operation, String path,
+                           int payloadSize, long queueNanos, long lockWaitNanos, long executionNanos) {
+            this.sequence = sequence;
+            this.timestampMillis = timestampMillis;
+            this.operation = operation;
+            this.path = path;
+            this.payloadSize = payloadSize;
+            this.queueNanos = queueNanos;
+            this.lockWaitNanos = lockWaitNanos;
+            this.executionNanos = executionNanos;
+        }
+
+        public long getTotalNanos() {
+            return queueNanos + lockWaitNanos + executionNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %s bytes=%d total=%dus queue=%dus lockWait=%dus exec=%dus",
+                sequence, operation, path, payloadSize,
+                TimeUnit.NANOSECONDS.toMicros(getTotalNanos()),
+                TimeUnit.NANOSECONDS.toMicros(queueNanos),
+                TimeUnit.NANOSECONDS.toMicros(lockWaitNanos),
+                TimeUnit.NANOSECONDS.toMicros(executionNanos));
+        }
+    }
+}
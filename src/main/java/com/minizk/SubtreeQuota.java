@@ -0,0 +1,71 @@
+package com.minizk;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Limits on the number of descendants and total data bytes below a quota root.
+ * Usage counters are maintained incrementally by {@link MiniZooKeeper} so enforcement never walks the subtree.
+ * A negative limit means unlimited.
+ */
+@Getter
+public final class SubtreeQuota {
+
+    public static final long UNLIMITED = -1;
+
+    private final String path;
+
+    private final long maxNodes;
+
+    private final long maxBytes;
+
+    private long usedNodes;
+
+    private long usedBytes;
+
+    /** Nearest quota root above this one, maintained by {@link MiniZooKeeper} */
+    @Getter(AccessLevel.NONE)
+    SubtreeQuota parent;
+
+    public SubtreeQuota(String path, long maxNodes, long maxBytes) {
+        this(path, maxNodes, maxBytes, 0, 0);
+    }
+
+    public SubtreeQuota(String path, long maxNodes, long maxBytes, long usedNodes, long usedBytes) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Path cannot be null or empty");
+        }
+        this.path = path;
+        this.maxNodes = maxNodes;
+        this.maxBytes = maxBytes;
+        this.usedNodes = usedNodes;
+        this.usedBytes = usedBytes;
+    }
+
+    boolean allowsNodes(long nodeDelta) {
+        return maxNodes < 0 || nodeDelta <= 0 || usedNodes + nodeDelta <= maxNodes;
+    }
+
+    boolean allowsBytes(long byteDelta) {
+        return maxBytes < 0 || byteDelta <= 0 || usedBytes + byteDelta <= maxBytes;
+    }
+
+    void adjust(long nodeDelta, long byteDelta) {
+        usedNodes += nodeDelta;
+        usedBytes += byteDelta;
+    }
+
+    /**
+     * Returns a detached copy whose counters no longer change.
+     */
+    SubtreeQuota snapshot() {
+        return new SubtreeQuota(path, maxNodes, maxBytes, usedNodes, usedBytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s nodes=%d/%s bytes=%d/%s", path,
+            usedNodes, maxNodes < 0 ? "unlimited" : String.valueOf(maxNodes),
+            usedBytes, maxBytes < 0 ? "unlimited" : String.valueOf(maxBytes));
+    }
+}
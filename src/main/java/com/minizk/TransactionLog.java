@@ -0,0 +1,628 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of {@link DiskNodeStore} writes, split into numbered segment files of a fixed size.
+ * Each segment is created at full size before it is needed, by a background thread one segment ahead,
+ * so appends never grow a file or touch directory metadata and rolling over is a pointer swap.
+ *
+ * <p>A checkpoint records that every write so far is durable elsewhere (in a sorted run), by its sequence
+ * number and the segment the next write goes to. Recovery opens only that segment and later ones, and
+ * segments before it are purged, except the newest {@code retainedSegments} of them and any written within
+ * {@code retentionAge}.
+ *
+ * <pre>
+ * segment: MAGIC record* zero-fill
+ * record:  bodyLength crc32(body) body
+ * body:    lsn keyLength key valueLength(-1 for a delete) value
+ *        | lsn -1 marker(batch begin, commit or abort)
+ * </pre>
+ *
+ * Appends are written to the OS but only forced to the device by {@link #sync()}, so they survive a crash of
+ * the process but not of the machine unless synced. Not thread-safe: the store's single writer drives it.
+ *
+ * <p>Recovery streams the records of the segments it needs through a small read buffer, then replays
+ * them in batches of lanes partitioned by key, so writes to different keys are applied concurrently while
+ * each key's writes keep their log order.
+ *
+ * <p>Writes appended between {@link #beginBatch()} and {@link #commitBatch()} are replayed all together or
+ * not at all: recovery holds them back until it reads the commit marker and drops them if the log ends
+ * first, appending an abort marker so later recoveries drop them too. A batch must not span a checkpoint.
+ */
+@Slf4j
+public final class TransactionLog implements AutoCloseable {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_RETAINED_SEGMENTS = 1;
+    public static final Duration DEFAULT_RETENTION_AGE = Duration.ZERO;
+
+    static final String SEGMENT_PREFIX = "log-";
+    static final String SEGMENT_SUFFIX = ".wal";
+    static final String CHECKPOINT_FILE = "log.checkpoint";
+
+    private static final int MAGIC = 0x4D5A4C47;
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+    private static final int BODY_OVERHEAD = Long.BYTES + 2 * Integer.BYTES;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int REPLAY_BATCH_RECORDS = 16_384;
+    private static final int BATCH_BEGIN = 1;
+    private static final int BATCH_COMMIT = 2;
+    private static final int BATCH_ABORT = 3;
+
+    private final Path directory;
+    @Getter
+    private final long segmentBytes;
+    @Getter
+    private final int retainedSegments;
+    @Getter
+    private final Duration retentionAge;
+    private final ExecutorService preallocator;
+    private final CRC32 crc;
+    private ByteBuffer record;
+    private Segment current;
+    private CompletableFuture<Segment> next;
+    private boolean inBatch;
+    @Getter
+    private long lastLsn;
+    @Getter
+    private long checkpointLsn;
+    @Getter
+    private long purgedSegmentCount;
+    @Getter
+    private int recoveredSegmentCount;
+    @Getter
+    private long recoveredRecordCount;
+    @Getter
+    private long discardedRecordCount;
+
+    TransactionLog(Path directory, long segmentBytes, int retainedSegments, Duration retentionAge,
+                   BiConsumer<String, byte[]> replay) throws IOException {
+        this(directory, segmentBytes, retainedSegments, retentionAge, Runtime.getRuntime().availableProcessors(),
+            replay);
+    }
+
+    /**
+     * Opens the log in {@code directory}, replaying every write after the last checkpoint into {@code replay}
+     * on {@code replayParallelism} threads before returning. A delete is replayed with a null value;
+     * {@code replay} is called concurrently for different keys but never for the same key.
+     */
+    TransactionLog(Path directory, long segmentBytes, int retainedSegments, Duration retentionAge,
+                   int replayParallelism, BiConsumer<String, byte[]> replay) throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1024 bytes");
+        }
+        if (retainedSegments < 0 || retentionAge == null || retentionAge.isNegative()) {
+            throw new IllegalArgumentException("Retention cannot be negative");
+        }
+        if (replayParallelism <= 0) {
+            throw new IllegalArgumentException("Replay parallelism must be positive");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainedSegments = retainedSegments;
+        this.retentionAge = retentionAge;
+        this.preallocator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "minizk-log-preallocator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.crc = new CRC32();
+        this.record = ByteBuffer.allocate(4096);
+
+        long checkpointSegment = readCheckpoint();
+        List<Path> unwritten = new ArrayList<>();
+        long lastSegment = recover(checkpointSegment, replayParallelism, replay, unwritten);
+        // Segments preallocated but never written to, typically the spare left by the last close.
+        for (Path file : unwritten) {
+            Files.delete(file);
+        }
+        this.current = Segment.allocate(directory, lastSegment + 1, segmentBytes);
+        this.next = preallocate(current.id + 1);
+        if (inBatch) {
+            // Close the batch recovery dropped, so the records appended after it are not taken as part of it.
+            inBatch = false;
+            appendMarker(BATCH_ABORT);
+            sync();
+        }
+    }
+
+    /**
+     * Appends a write of {@code value} to {@code key}, or a delete if {@code value} is null, and returns its
+     * sequence number.
+     */
+    long append(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = BODY_OVERHEAD + keyBytes.length + (value == null ? 0 : value.length);
+        int recordLength = RECORD_HEADER + bodyLength;
+        if (record.capacity() < recordLength) {
+            record = ByteBuffer.allocate(Math.max(recordLength, record.capacity() * 2));
+        }
+        record.clear();
+        record.position(RECORD_HEADER);
+        record.putLong(lastLsn + 1).putInt(keyBytes.length).put(keyBytes).putInt(value == null ? -1 : value.length);
+        if (value != null) {
+            record.put(value);
+        }
+        return write(bodyLength);
+    }
+
+    /**
+     * Starts a batch of writes that recovery replays only if {@link #commitBatch()} follows it.
+     */
+    void beginBatch() {
+        if (inBatch) {
+            throw new IllegalStateException("A batch is already open");
+        }
+        appendMarker(BATCH_BEGIN);
+        inBatch = true;
+    }
+
+    /**
+     * Ends the open batch, making its writes part of what recovery replays.
+     */
+    void commitBatch() {
+        if (!inBatch) {
+            throw new IllegalStateException("No batch is open");
+        }
+        appendMarker(BATCH_COMMIT);
+        inBatch = false;
+    }
+
+    private void appendMarker(int marker) {
+        record.clear();
+        record.position(RECORD_HEADER);
+        record.putLong(lastLsn + 1).putInt(-1).putInt(marker);
+        write(BODY_OVERHEAD);
+    }
+
+    /**
+     * Checksums and writes the body staged in {@code record} after its header, and returns its sequence number.
+     */
+    private long write(int bodyLength) {
+        int recordLength = RECORD_HEADER + bodyLength;
+        long lsn = lastLsn + 1;
+        crc.reset();
+        crc.update(record.array(), RECORD_HEADER, bodyLength);
+        record.putInt(0, bodyLength).putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+
+        try {
+            if (current.position + recordLength > current.capacity) {
+                roll(recordLength);
+            }
+            current.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to transaction log", e);
+        }
+        lastLsn = lsn;
+        return lsn;
+    }
+
+    /**
+     * Forces appended records to the device. Segments are preallocated, so this does not flush file metadata.
+     */
+    public void sync() {
+        try {
+            current.channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync transaction log", e);
+        }
+    }
+
+    /**
+     * Records that every write so far is durable elsewhere, then purges the segments no longer needed for
+     * recovery beyond what the retention settings keep.
+     */
+    void checkpoint() {
+        if (inBatch) {
+            throw new IllegalStateException("Cannot checkpoint inside a batch");
+        }
+        long lsn = lastLsn;
+        try {
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            ByteBuffer contents = ByteBuffer.allocate(2 * Long.BYTES).putLong(lsn).putLong(current.id);
+            contents.flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(contents);
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+            checkpointLsn = lsn;
+            purge(current.id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to checkpoint transaction log", e);
+        }
+    }
+
+    /**
+     * Number of segment files on disk, including the one being written and the preallocated next one.
+     */
+    public int getSegmentCount() {
+        try {
+            // The next segment is created in the background; count it once it exists.
+            next.join();
+            return listSegments().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            next.join().close();
+        } catch (CompletionException | IOException e) {
+            log.warn("Failed to close preallocated log segment", e);
+        }
+        preallocator.shutdown();
+        try {
+            current.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close transaction log", e);
+        }
+    }
+
+    private void roll(int recordLength) throws IOException {
+        Segment previous = current;
+        if (recordLength > segmentBytes - Integer.BYTES) {
+            // An oversized record gets a segment of its own; the preallocated one is kept for the next roll.
+            Segment oversized = next.join();
+            oversized.close();
+            Files.delete(oversized.file);
+            current = Segment.allocate(directory, previous.id + 1, recordLength + Integer.BYTES);
+        } else {
+            current = next.join();
+        }
+        next = preallocate(current.id + 1);
+        previous.channel.force(false);
+        previous.close();
+        log.debug("Rolled transaction log from segment {} to {}", previous.id, current.id);
+    }
+
+    private CompletableFuture<Segment> preallocate(long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Segment.allocate(directory, id, segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to preallocate log segment " + id, e);
+            }
+        }, preallocator);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file));
+        checkpointLsn = contents.getLong();
+        lastLsn = checkpointLsn;
+        return contents.getLong();
+    }
+
+    /**
+     * Replays the records after the checkpoint from segment {@code fromSegment} on and returns the highest
+     * segment id found, adding the segments that were never written to {@code unwritten}. Records are read
+     * one segment after another and split into one lane per thread by key; every
+     * {@value #REPLAY_BATCH_RECORDS} records the lanes are replayed concurrently, so memory stays bounded by
+     * the batch rather than the log. The writes of an open {@link #beginBatch() batch} are held aside until
+     * its commit marker and dropped at its abort marker or the end of the log, leaving the log inside the batch.
+     */
+    private long recover(long fromSegment, int parallelism, BiConsumer<String, byte[]> replay,
+                         List<Path> unwritten) throws IOException {
+        long lastSegment = 0;
+        List<Path> needed = new ArrayList<>();
+        for (Path file : listSegments()) {
+            long id = segmentId(file);
+            lastSegment = Math.max(lastSegment, id);
+            if (id >= fromSegment) {
+                needed.add(file);
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<List<Record>> lanes = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                lanes.add(new ArrayList<>());
+            }
+            List<Record> held = new ArrayList<>();
+            int batched = 0;
+            for (Path file : needed) {
+                recoveredSegmentCount++;
+                try (SegmentReader reader = new SegmentReader(file)) {
+                    if (reader.isUnwritten()) {
+                        unwritten.add(file);
+                        continue;
+                    }
+                    for (Record record = reader.next(); record != null; record = reader.next()) {
+                        if (record.lsn <= lastLsn) {
+                            continue;
+                        }
+                        lastLsn = record.lsn;
+                        if (record.marker == BATCH_BEGIN) {
+                            discard(held);
+                            inBatch = true;
+                            continue;
+                        }
+                        if (record.marker == BATCH_ABORT) {
+                            discard(held);
+                            inBatch = false;
+                            continue;
+                        }
+                        List<Record> committed = Collections.singletonList(record);
+                        if (record.marker == BATCH_COMMIT) {
+                            committed = held;
+                            inBatch = false;
+                        } else if (inBatch) {
+                            held.add(record);
+                            continue;
+                        }
+                        for (Record write : committed) {
+                            lanes.get((write.key.hashCode() & Integer.MAX_VALUE) % parallelism).add(write);
+                            recoveredRecordCount++;
+                            if (++batched == REPLAY_BATCH_RECORDS) {
+                                replayLanes(pool, lanes, replay);
+                                batched = 0;
+                            }
+                        }
+                        held.clear();
+                    }
+                }
+            }
+            replayLanes(pool, lanes, replay);
+            discard(held);
+        } finally {
+            pool.shutdown();
+        }
+        if (recoveredRecordCount > 0) {
+            log.info("Replayed {} transaction log records from {} segments on {} threads", recoveredRecordCount,
+                recoveredSegmentCount, parallelism);
+        }
+        if (discardedRecordCount > 0) {
+            log.warn("Dropped {} transaction log records of batches that were never committed",
+                discardedRecordCount);
+        }
+        return lastSegment;
+    }
+
+    private void discard(List<Record> held) {
+        discardedRecordCount += held.size();
+        held.clear();
+    }
+
+    private static void replayLanes(ForkJoinPool pool, List<List<Record>> lanes, BiConsumer<String, byte[]> replay) {
+        List<ForkJoinTask<?>> replays = new ArrayList<>(lanes.size());
+        for (List<Record> lane : lanes) {
+            if (!lane.isEmpty()) {
+                replays.add(pool.submit(() -> lane.forEach(record -> replay.accept(record.key, record.value))));
+            }
+        }
+        replays.forEach(ForkJoinTask::join);
+        lanes.forEach(List::clear);
+    }
+
+    /**
+     * Deletes segments before {@code firstNeeded} unless they are among the newest {@code retainedSegments}
+     * such segments or were last written within {@code retentionAge}.
+     */
+    private void purge(long firstNeeded) throws IOException {
+        List<Path> covered = new ArrayList<>();
+        for (Path file : listSegments()) {
+            if (segmentId(file) < firstNeeded) {
+                covered.add(file);
+            }
+        }
+        long cutoffMillis = System.currentTimeMillis() - retentionAge.toMillis();
+        for (int i = 0; i < covered.size() - retainedSegments; i++) {
+            Path file = covered.get(i);
+            if (Files.getLastModifiedTime(file).toMillis() <= cutoffMillis) {
+                Files.deleteIfExists(file);
+                purgedSegmentCount++;
+                log.debug("Purged transaction log segment {}", file);
+            }
+        }
+    }
+
+    /**
+     * Returns the segment files in id order.
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Record {
+
+        private final long lsn;
+        private final String key;
+        private final byte[] value;
+        /** Batch marker type, or zero for a write */
+        private final int marker;
+
+        private Record(long lsn, String key, byte[] value, int marker) {
+            this.lsn = lsn;
+            this.key = key;
+            this.value = value;
+            this.marker = marker;
+        }
+    }
+
+    /**
+     * Decodes a segment's records through a read buffer, up to its zero fill or its first torn or corrupt
+     * record. The buffer only grows for a record larger than it.
+     */
+    private static final class SegmentReader implements AutoCloseable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final CRC32 crc;
+        private ByteBuffer buffer;
+        private long unread;
+        private boolean readable;
+
+        SegmentReader(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.crc = new CRC32();
+            this.buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            this.buffer.limit(0);
+            this.unread = channel.size();
+            this.readable = fill(Integer.BYTES) && buffer.getInt() == MAGIC;
+        }
+
+        /**
+         * Returns true for a segment preallocated but never written to: the magic number, then zero fill.
+         */
+        boolean isUnwritten() throws IOException {
+            return readable && (!fill(RECORD_HEADER) || buffer.getInt(buffer.position()) == 0);
+        }
+
+        /**
+         * Returns the next record, or null at the end of the written part of the segment.
+         */
+        Record next() throws IOException {
+            if (!readable || !fill(RECORD_HEADER)) {
+                return null;
+            }
+            int bodyLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (bodyLength < BODY_OVERHEAD || !fill(bodyLength)) {
+                readable = false;
+                return null;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), bodyLength);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Transaction log segment {} ends with a corrupt record", file);
+                readable = false;
+                return null;
+            }
+            long lsn = buffer.getLong();
+            int keyLength = buffer.getInt();
+            if (keyLength < 0) {
+                return new Record(lsn, null, null, buffer.getInt());
+            }
+            byte[] key = new byte[keyLength];
+            buffer.get(key);
+            int valueLength = buffer.getInt();
+            byte[] value = valueLength < 0 ? null : new byte[valueLength];
+            if (value != null) {
+                buffer.get(value);
+            }
+            return new Record(lsn, new String(key, StandardCharsets.UTF_8), value, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Makes at least {@code bytes} bytes readable from the buffer, or returns false if the file has fewer.
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            if (bytes > buffer.remaining() + unread) {
+                return false;
+            }
+            if (bytes > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(bytes).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                unread -= read;
+            }
+            buffer.flip();
+            return true;
+        }
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private final long capacity;
+        private long position;
+
+        private Segment(long id, Path file, FileChannel channel, long capacity) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.capacity = capacity;
+            this.position = Integer.BYTES;
+        }
+
+        /**
+         * Creates segment {@code id} at its full size, writing the magic number first and the last byte
+         * last so the file never needs to grow afterwards.
+         */
+        static Segment allocate(Path directory, long id, long capacity) throws IOException {
+            Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC);
+            magic.flip();
+            channel.write(magic, 0);
+            channel.write(ByteBuffer.allocate(1), capacity - 1);
+            channel.force(true);
+            return new Segment(id, file, channel, capacity);
+        }
+
+        void write(ByteBuffer record) throws IOException {
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                channel.write(record, position + length - record.remaining());
+            }
+            position += length;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
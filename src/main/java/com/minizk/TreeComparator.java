@@ -0,0 +1,128 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares the subtrees at the same path in two services, for example a replica and its primary or a
+ * restored backup and the live tree, by their {@link ZooKeeperRequest.Operation#DIGEST} responses. Only
+ * children whose digests differ are descended into, so the number of requests grows with the size of the
+ * difference rather than the size of the tree. Each node is read separately, so a comparison made while
+ * either side is being written may report changes that happened during the comparison.
+ */
+public final class TreeComparator {
+
+    private final RequestProcessor left;
+    private final RequestProcessor right;
+    /** DIGEST requests sent to either side by the last comparison */
+    @Getter
+    private long requestCount;
+
+    public TreeComparator(@NonNull RequestProcessor left, @NonNull RequestProcessor right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Returns every difference at or below {@code path}, sorted by path. A subtree present on only one
+     * side is reported once, at its root.
+     */
+    public List<Difference> compare(String path) {
+        if (ZPath.tryParse(path) == null) {
+            throw new IllegalArgumentException("Invalid path format");
+        }
+        requestCount = 0;
+        List<Difference> differences = new ArrayList<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(path);
+        while (!pending.isEmpty()) {
+            String current = pending.pop();
+            ZooKeeperResponse leftDigests = digest(left, current);
+            ZooKeeperResponse rightDigests = digest(right, current);
+            if (!leftDigests.isSuccess() || !rightDigests.isSuccess()) {
+                if (leftDigests.isSuccess()) {
+                    differences.add(new Difference(current, DifferenceType.ONLY_IN_LEFT));
+                } else if (rightDigests.isSuccess()) {
+                    differences.add(new Difference(current, DifferenceType.ONLY_IN_RIGHT));
+                }
+                continue;
+            }
+            if (leftDigests.getDigest() == rightDigests.getDigest()) {
+                continue;
+            }
+
+            Map<String, Long> leftChildren = leftDigests.getChildDigests();
+            Map<String, Long> rightChildren = rightDigests.getChildDigests();
+            if (contentHash(leftDigests) != contentHash(rightDigests)) {
+                differences.add(new Difference(current, DifferenceType.DATA));
+            }
+            Set<String> names = new HashSet<>(leftChildren.keySet());
+            names.addAll(rightChildren.keySet());
+            String prefix = current.equals("/") ? "/" : current + "/";
+            for (String name : names) {
+                Long leftDigest = leftChildren.get(name);
+                Long rightDigest = rightChildren.get(name);
+                if (rightDigest == null) {
+                    differences.add(new Difference(prefix + name, DifferenceType.ONLY_IN_LEFT));
+                } else if (leftDigest == null) {
+                    differences.add(new Difference(prefix + name, DifferenceType.ONLY_IN_RIGHT));
+                } else if (!leftDigest.equals(rightDigest)) {
+                    pending.push(prefix + name);
+                }
+            }
+        }
+        differences.sort(Comparator.comparing(Difference::getPath));
+        return differences;
+    }
+
+    private ZooKeeperResponse digest(RequestProcessor processor, String path) {
+        requestCount++;
+        return processor.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.DIGEST, path));
+    }
+
+    /**
+     * Recovers a node's own content hash from its subtree digest by subtracting its children's.
+     */
+    private static long contentHash(ZooKeeperResponse digests) {
+        long contentHash = digests.getDigest();
+        for (long childDigest : digests.getChildDigests().values()) {
+            contentHash -= childDigest;
+        }
+        return contentHash;
+    }
+
+    public enum DifferenceType {
+        /** The node exists on both sides with different payloads */
+        DATA,
+        /** The node and its subtree exist only on the left side */
+        ONLY_IN_LEFT,
+        /** The node and its subtree exist only on the right side */
+        ONLY_IN_RIGHT
+    }
+
+    @Getter
+    public static final class Difference {
+
+        private final String path;
+        private final DifferenceType type;
+
+        private Difference(String path, DifferenceType type) {
+            this.path = path;
+            this.type = type;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + path;
+        }
+    }
+}
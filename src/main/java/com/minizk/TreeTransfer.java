@@ -0,0 +1,218 @@
+package com.minizk;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming JSON format for subtree export and import, written and read token by token with Jackson's
+ * {@link JsonGenerator} and {@link JsonParser} so memory use does not depend on the size of the tree.
+ *
+ * <pre>
+ * {"format":"minizk-tree","version":1,"root":"/app","nodes":[
+ *   {"path":"/app","data":"base64...","version":3,"ctime":1700000000000,"mtime":1700000000000}, ...]}
+ * </pre>
+ *
+ * Nodes are listed in pre-order so every parent precedes its children.
+ */
+final class TreeTransfer {
+
+    static final String FORMAT = "minizk-tree";
+    static final int FORMAT_VERSION = 1;
+    static final int IMPORT_BATCH_SIZE = 1_000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String ROOT_PATH = "/";
+
+    private TreeTransfer() {
+    }
+
+    static long write(ZNode root, NodeStore nodeStore, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.writeStartObject();
+            generator.writeStringField("format", FORMAT);
+            generator.writeNumberField("version", FORMAT_VERSION);
+            generator.writeStringField("root", root.getPath());
+            generator.writeArrayFieldStart("nodes");
+            long count = writeSubtree(root, nodeStore, generator);
+            generator.writeEndArray();
+            generator.writeEndObject();
+            return count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long writeSubtree(ZNode node, NodeStore nodeStore, JsonGenerator generator) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("path", node.getPath());
+            generator.writeBinaryField("data", node.getData());
+            generator.writeNumberField("version", node.getVersion());
+            generator.writeNumberField("ctime", node.getCreatedTime());
+            generator.writeNumberField("mtime", node.getModifiedTime());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long[] count = {1};
+        nodeStore.forEachChild(node, child -> count[0] += writeSubtree(child, nodeStore, generator));
+        return count[0];
+    }
+
+    /**
+     * Parses an export and hands nodes to {@code sink} in batches of at most {@value #IMPORT_BATCH_SIZE}.
+     */
+    static long read(InputStream in, String targetPath, Consumer<List<NodeRecord>> sink) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            parser.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+            String root = null;
+            long count = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "format":
+                        if (!FORMAT.equals(parser.getText())) {
+                            throw new IOException("Not a tree export: " + parser.getText());
+                        }
+                        break;
+                    case "version":
+                        if (parser.getIntValue() != FORMAT_VERSION) {
+                            throw new IOException("Unsupported tree export version: " + parser.getIntValue());
+                        }
+                        break;
+                    case "root":
+                        root = parser.getText();
+                        break;
+                    case "nodes":
+                        if (root == null) {
+                            throw new IOException("Tree export is missing its root before the node list");
+                        }
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        count = readNodes(parser, root, targetPath, sink);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static long readNodes(JsonParser parser, String root, String targetPath,
+                                  Consumer<List<NodeRecord>> sink) throws IOException {
+        List<NodeRecord> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+            String path = null;
+            byte[] data = new byte[0];
+            long version = 0;
+            long createdTime = 0;
+            long modifiedTime = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "path":
+                        path = parser.getText();
+                        break;
+                    case "data":
+                        data = parser.getBinaryValue();
+                        break;
+                    case "version":
+                        version = parser.getLongValue();
+                        break;
+                    case "ctime":
+                        createdTime = parser.getLongValue();
+                        break;
+                    case "mtime":
+                        modifiedTime = parser.getLongValue();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            if (path == null) {
+                throw new IOException("Node without a path in tree export");
+            }
+            batch.add(new NodeRecord(relocate(path, root, targetPath), data, version, createdTime, modifiedTime));
+            count++;
+            if (batch.size() >= IMPORT_BATCH_SIZE) {
+                sink.accept(batch);
+                batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+        expect(parser, token, JsonToken.END_ARRAY);
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return count;
+    }
+
+    /**
+     * Maps an exported path under {@code root} to the same relative position under {@code targetPath}.
+     */
+    static String relocate(String path, String root, String targetPath) {
+        if (targetPath == null || targetPath.equals(root)) {
+            return path;
+        }
+        if (!path.equals(root) && !path.startsWith(root.equals(ROOT_PATH) ? ROOT_PATH : root + "/")) {
+            throw new IllegalStateException("Node " + path + " is outside the exported root " + root);
+        }
+        String suffix = path.equals(root) ? "" : root.equals(ROOT_PATH) ? path : path.substring(root.length());
+        if (suffix.isEmpty()) {
+            return targetPath;
+        }
+        return targetPath.equals(ROOT_PATH) ? suffix : targetPath + suffix;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Malformed tree export: expected " + expected + " but found " + actual
+                + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * One exported node: absolute path, uncompressed data and original metadata.
+     */
+    @Getter
+    static final class NodeRecord {
+
+        private final String path;
+
+        private final byte[] data;
+
+        private final long version;
+
+        private final long createdTime;
+
+        private final long modifiedTime;
+
+        NodeRecord(String path, byte[] data, long version, long createdTime, long modifiedTime) {
+            this.path = path;
+            this.data = data;
+            this.version = version;
+            this.createdTime = createdTime;
+            this.modifiedTime = modifiedTime;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.minizk;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for a ring buffer slot to change state.
+ * Trades CPU burned while idle against wake-up latency.
+ */
+public enum WaitStrategy {
+    /** Spin on the CPU. Lowest latency, but needs a dedicated core for every waiting thread */
+    BUSY_SPIN {
+        @Override
+        void idle() {
+            Thread.onSpinWait();
+        }
+    },
+    /** Yield to other runnable threads between checks */
+    YIELD {
+        @Override
+        void idle() {
+            Thread.yield();
+        }
+    },
+    /** Park for a short interval between checks. Cheapest while idle, highest wake-up latency */
+    PARK {
+        @Override
+        void idle() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+
+    private static final long PARK_NANOS = 50_000;
+
+    abstract void idle();
+}
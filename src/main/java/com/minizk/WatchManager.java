@@ -0,0 +1,60 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of one-shot {@link Watcher}s by path. Watches are registered by reads holding the read lock and
+ * triggered by writes holding the write lock, so a check and its watch are atomic with respect to writes.
+ */
+@Slf4j
+final class WatchManager {
+
+    private final Map<ZPath, Set<Watcher>> watches;
+    private final LongAdder triggered;
+
+    WatchManager() {
+        this.watches = new ConcurrentHashMap<>();
+        this.triggered = new LongAdder();
+    }
+
+    void register(ZPath path, Watcher watcher) {
+        watches.computeIfAbsent(path, key -> ConcurrentHashMap.newKeySet()).add(watcher);
+    }
+
+    /**
+     * Fires and removes every watcher on the changed path.
+     */
+    void trigger(ChangeLog.ChangeEvent event) {
+        if (watches.isEmpty()) {
+            return;
+        }
+        Set<Watcher> fired = watches.remove(event.getZPath());
+        if (fired == null) {
+            return;
+        }
+        for (Watcher watcher : fired) {
+            triggered.increment();
+            try {
+                watcher.process(event);
+            } catch (RuntimeException e) {
+                log.warn("Watcher on {} failed", event.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Number of paths that currently have at least one watcher.
+     */
+    int getWatchedPathCount() {
+        return watches.size();
+    }
+
+    long getTriggeredCount() {
+        return triggered.sum();
+    }
+}
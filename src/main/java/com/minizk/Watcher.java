@@ -0,0 +1,14 @@
+package com.minizk;
+
+/**
+ * One-shot callback left on a path by an {@link ZooKeeperRequest.Operation#EXISTS} request. It fires once,
+ * on the first committed create, update or delete of that path, and is then discarded.
+ *
+ * <p>Watchers run on the writing thread while the write lock is held, so they must return quickly and must
+ * not call back into the service; typically they just wake the client that is waiting for the change.
+ */
+@FunctionalInterface
+public interface Watcher {
+
+    void process(ChangeLog.ChangeEvent event);
+}
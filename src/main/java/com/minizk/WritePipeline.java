@@ -0,0 +1,222 @@
+package com.minizk;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer front-end for {@link MiniZooKeeper}. Writes are published into a pre-allocated ring buffer
+ * and applied in order by one dedicated writer thread, which drains consecutive writes into batches applied
+ * under a single write lock acquisition. Reads bypass the ring and run concurrently against published state.
+ *
+ * <p>Every slot carries two sequence numbers: {@code published} tells the writer the request is ready and
+ * {@code free} tells producers the previous occupant has collected its response. Neither side ever takes a lock.
+ */
+@Slf4j
+public final class WritePipeline implements RequestProcessor, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 128;
+
+    private static final String PIPELINE_CLOSED = "Write pipeline is closed";
+
+    private final MiniZooKeeper zooKeeper;
+    private final Slot[] ring;
+    private final int mask;
+    private final int maxBatchSize;
+    @Getter
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong claimSequence;
+    private final AtomicLong batchCount;
+    private final AtomicLong writeCount;
+    private final Thread writer;
+    private volatile boolean running;
+
+    public WritePipeline(@NonNull MiniZooKeeper zooKeeper) {
+        this(zooKeeper, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE, WaitStrategy.PARK);
+    }
+
+    public WritePipeline(@NonNull MiniZooKeeper zooKeeper, int capacity, int maxBatchSize,
+                         @NonNull WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+        this.zooKeeper = zooKeeper;
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot(i);
+        }
+        this.mask = capacity - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.waitStrategy = waitStrategy;
+        this.claimSequence = new AtomicLong();
+        this.batchCount = new AtomicLong();
+        this.writeCount = new AtomicLong();
+        this.running = true;
+        this.writer = new Thread(this::runWriter, "minizk-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        log.info("Write pipeline started with {} slots and {} wait strategy", capacity, waitStrategy);
+    }
+
+    /**
+     * Reads are executed directly on the calling thread; writes are queued for the writer thread
+     * and this call waits until the batch containing them has been applied.
+     */
+    @Override
+    public ZooKeeperResponse processRequest(ZooKeeperRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request cannot be null");
+        }
+        if (!request.getOperation().isWrite()) {
+            return zooKeeper.processRequest(request);
+        }
+        if (!running) {
+            return ZooKeeperResponse.error(PIPELINE_CLOSED);
+        }
+
+        long sequence = claimSequence.getAndIncrement();
+        Slot slot = ring[(int) (sequence & mask)];
+        while (slot.free != sequence) {
+            if (!running || !writer.isAlive()) {
+                return ZooKeeperResponse.error(PIPELINE_CLOSED);
+            }
+            waitStrategy.idle();
+        }
+
+        slot.request = request;
+        slot.waiter = Thread.currentThread();
+        slot.published = sequence;
+
+        while (slot.completed != sequence) {
+            if (!writer.isAlive() && slot.completed != sequence) {
+                return ZooKeeperResponse.error(PIPELINE_CLOSED);
+            }
+            waitStrategy.idle();
+        }
+
+        ZooKeeperResponse response = slot.response;
+        slot.request = null;
+        slot.response = null;
+        slot.waiter = null;
+        slot.free = sequence + ring.length;
+        return response;
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Average number of writes applied per write lock acquisition.
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0 : (double) writeCount.get() / batches;
+    }
+
+    /**
+     * Stops the writer after it has applied every write already published.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Write pipeline stopped after {} writes in {} batches", getWriteCount(), getBatchCount());
+    }
+
+    private void runWriter() {
+        List<ZooKeeperRequest> batch = new ArrayList<>(maxBatchSize);
+        List<Slot> batchSlots = new ArrayList<>(maxBatchSize);
+        long next = 0;
+
+        while (running || isPublished(next)) {
+            if (!isPublished(next)) {
+                waitStrategy.idle();
+                continue;
+            }
+
+            while (batch.size() < maxBatchSize && isPublished(next)) {
+                Slot slot = ring[(int) (next & mask)];
+                batch.add(slot.request);
+                batchSlots.add(slot);
+                next++;
+            }
+
+            Throwable failure = null;
+            List<ZooKeeperResponse> responses;
+            try {
+                responses = zooKeeper.processBatch(batch);
+            } catch (Throwable e) {
+                log.error("Failed to apply write batch of {} requests", batch.size(), e);
+                failure = e;
+                responses = failures(batch.size(), e);
+            }
+            batchCount.incrementAndGet();
+            writeCount.addAndGet(batch.size());
+            log.debug("Applied write batch of {} requests", batch.size());
+
+            // Notify only once the whole batch is visible so waiters never observe a partially applied batch.
+            for (int i = 0; i < batchSlots.size(); i++) {
+                Slot slot = batchSlots.get(i);
+                Thread waiter = slot.waiter;
+                slot.response = responses.get(i);
+                slot.completed = slot.published;
+                if (waitStrategy == WaitStrategy.PARK) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+            batch.clear();
+            batchSlots.clear();
+
+            // The batch's waiters have their responses; an Error still stops the writer so producers see it closed.
+            if (failure instanceof Error) {
+                running = false;
+                throw (Error) failure;
+            }
+        }
+    }
+
+    private static List<ZooKeeperResponse> failures(int count, Throwable cause) {
+        List<ZooKeeperResponse> failures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            failures.add(ZooKeeperResponse.error("Batch failed: " + cause.getMessage()));
+        }
+        return failures;
+    }
+
+    private boolean isPublished(long sequence) {
+        return ring[(int) (sequence & mask)].published == sequence;
+    }
+
+    private static final class Slot {
+        private volatile long free;
+        private volatile long published = -1;
+        private volatile long completed = -1;
+        private ZooKeeperRequest request;
+        private ZooKeeperResponse response;
+        private Thread waiter;
+
+        private Slot(long initialSequence) {
+            this.free = initialSequence;
+        }
+    }
+}
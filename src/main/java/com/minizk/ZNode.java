@@ -3,6 +3,9 @@ package com.minizk;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.List;
@@ -10,15 +13,33 @@ import java.util.ArrayList;
 
 /**
  * ZNode in the hierarchical namespace. Can store data and have children.
- * Thread-safe with version tracking.
+ * Thread-safe with version tracking. Payloads above the {@link PayloadCodec} threshold are kept
+ * compressed and only inflated when read.
+ *
+ * <p>Each node also carries a Merkle-style digest of its subtree: the sum, modulo 2<sup>64</sup>, of the
+ * content hashes of the node and all its descendants, where a content hash covers a node's path and
+ * uncompressed payload. Because the digest is a sum, a write changes its own node's digest by some delta
+ * and the service adds that same delta to every ancestor, which is O(depth) per write.
  */
 @Slf4j
 public final class ZNode {
+
+    // Assumed object sizes on a 64-bit JVM with compressed references, used by estimateRetainedBytes().
+    private static final int NODE_BYTES = 96;
+    private static final int PATH_BYTES = 32;
+    private static final int STRING_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int CHILDREN_MAP_BYTES = 64;
+    private static final int MAP_ENTRY_BYTES = 40;
     
-    @Getter
-    private final String path;
+    private final ZPath path;
     
     private byte[] data;
+
+    @Getter
+    private boolean compressed;
+
+    private int dataLength;
     
     @Getter
     private final Map<String, ZNode> children;
@@ -32,37 +53,229 @@ public final class ZNode {
     @Getter
     private long modifiedTime;
 
+    /** Last sequence number handed out to a sequential child */
+    @Getter
+    private int childSequence;
+
+    /** Milliseconds after the last modification at which a childless node expires; zero if it never does */
+    @Getter
+    private long ttl;
+
+    /** Whether the node is removed once its last child is deleted */
+    @Getter
+    private boolean container;
+
+    /** Hash of this node's path and uncompressed payload */
+    @Getter
+    private long contentHash;
+
+    /** Sum of the content hashes of this node and all its descendants */
+    @Getter
+    private long digest;
+
     public ZNode(String path) {
-        if (path == null || path.trim().isEmpty()) {
-            throw new IllegalArgumentException("Path cannot be null or empty");
+        this(parsePath(path));
+    }
+
+    public ZNode(ZPath path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
         }
-        
+
         this.path = path;
         this.data = new byte[0];
+        this.compressed = false;
+        this.dataLength = 0;
         this.children = new ConcurrentHashMap<>();
         this.version = 0;
         this.createdTime = System.currentTimeMillis();
         this.modifiedTime = this.createdTime;
+        this.contentHash = hashContent(path, this.data);
+        this.digest = this.contentHash;
         
         log.debug("Created ZNode at path: {}", path);
     }
 
+    /**
+     * Restores a node previously written out by a {@link NodeStore}, keeping its version and timestamps.
+     * {@code data} is the stored form, compressed if {@code compressed} is set.
+     */
+    ZNode(ZPath path, byte[] data, boolean compressed, int dataLength,
+          long version, long createdTime, long modifiedTime) {
+        this.path = path;
+        this.data = data;
+        this.compressed = compressed;
+        this.dataLength = dataLength;
+        this.children = new ConcurrentHashMap<>();
+        this.version = version;
+        this.createdTime = createdTime;
+        this.modifiedTime = modifiedTime;
+    }
+
+    /**
+     * Recreates a node from an uncompressed payload and its original metadata, compressing it if {@code codec}
+     * finds it large enough.
+     */
+    static ZNode restore(ZPath path, byte[] data, long version, long createdTime, long modifiedTime,
+                         PayloadCodec codec) {
+        byte[] compressedData = codec.compress(data);
+        ZNode node = compressedData != null
+            ? new ZNode(path, compressedData, true, data.length, version, createdTime, modifiedTime)
+            : new ZNode(path, data, false, data.length, version, createdTime, modifiedTime);
+        long contentHash = hashContent(path, data);
+        node.restoreHashes(contentHash, contentHash);
+        return node;
+    }
+
+    private static ZPath parsePath(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            throw new IllegalArgumentException("Path cannot be null or empty");
+        }
+        return ZPath.of(path);
+    }
+
+    public String getPath() {
+        return path.toString();
+    }
+
+    public ZPath getZPath() {
+        return path;
+    }
+
     public byte[] getData() {
-        return data.clone();
+        return compressed ? PayloadCodec.decompress(data, dataLength) : data.clone();
+    }
+
+    /**
+     * Returns the uncompressed payload length.
+     */
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    /**
+     * Returns the payload as stored, without copying or decompressing. Callers must not modify it.
+     */
+    byte[] getStoredData() {
+        return data;
     }
 
     public void setData(byte[] data) {
+        setData(data, PayloadCodec.DEFAULT);
+    }
+
+    /**
+     * Replaces the payload, compressing it if {@code codec} finds it large enough.
+     */
+    public void setData(byte[] data, PayloadCodec codec) {
         if (data == null) {
             throw new IllegalArgumentException("Data cannot be null");
         }
+        if (codec == null) {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
         
-        this.data = data.clone();
+        byte[] compressedData = codec.compress(data);
+        this.compressed = compressedData != null;
+        this.data = compressed ? compressedData : data.clone();
+        this.dataLength = data.length;
         this.version++;
         this.modifiedTime = System.currentTimeMillis();
+        long newContentHash = hashContent(path, data);
+        this.digest += newContentHash - contentHash;
+        this.contentHash = newContentHash;
         
         log.debug("Updated data for ZNode at path: {}, new version: {}", path, version);
     }
 
+    /**
+     * Estimates the heap this node would retain when resident: the node itself, its path string and parsed
+     * components, its stored payload, its own children map without entries, and its entry and name key in
+     * its parent's children map. Children are not included, so the estimate only changes with the payload.
+     */
+    public long estimateRetainedBytes() {
+        String pathString = path.toString();
+        int nameLength = path.isRoot() ? 0 : path.name().length();
+        return NODE_BYTES
+            + PATH_BYTES + align(ARRAY_HEADER_BYTES + (long) Integer.BYTES * path.depth())
+            + STRING_BYTES + align(ARRAY_HEADER_BYTES + pathString.length())
+            + align(ARRAY_HEADER_BYTES + data.length)
+            + CHILDREN_MAP_BYTES
+            + (path.isRoot() ? 0 : MAP_ENTRY_BYTES + STRING_BYTES + align(ARRAY_HEADER_BYTES + nameLength));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Advances and returns the counter used to name sequential children.
+     */
+    int nextChildSequence() {
+        return ++childSequence;
+    }
+
+    void setChildSequence(int childSequence) {
+        this.childSequence = childSequence;
+    }
+
+    void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    void setContainer(boolean container) {
+        this.container = container;
+    }
+
+    /**
+     * Sets the content hash and subtree digest read back from storage.
+     */
+    void restoreHashes(long contentHash, long digest) {
+        this.contentHash = contentHash;
+        this.digest = digest;
+    }
+
+    /**
+     * Adds {@code delta} to the subtree digest after a descendant was created, changed or deleted.
+     */
+    void addToDigest(long delta) {
+        this.digest += delta;
+    }
+
+    /**
+     * Hashes a path and uncompressed payload to 64 bits: path characters and trailing bytes are mixed in
+     * one at a time, the bulk of the payload eight bytes at a time, and the result is finalized with
+     * MurmurHash3's 64-bit mixer. Fast and well distributed, but not cryptographic.
+     */
+    static long hashContent(ZPath path, byte[] data) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : path.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        hash = (hash ^ 0xFF) * 0x100000001B3L;
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int words = data.length / Long.BYTES;
+        for (int i = 0; i < words; i++) {
+            long k = buffer.getLong() * 0x87C37B91114253D5L;
+            hash ^= Long.rotateLeft(k, 31) * 0x4CF5AD432745937FL;
+            hash = Long.rotateLeft(hash, 27) * 5 + 0x52DCE729;
+        }
+        while (buffer.hasRemaining()) {
+            hash = (hash ^ (buffer.get() & 0xFF)) * 0x100000001B3L;
+        }
+        hash ^= data.length;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Returns the time at which a TTL node expires if it has no children, or {@link Long#MAX_VALUE}.
+     */
+    long getExpiryTime() {
+        return ttl > 0 ? modifiedTime + ttl : Long.MAX_VALUE;
+    }
+
     public void addChild(String name, ZNode child) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Child name cannot be null or empty");
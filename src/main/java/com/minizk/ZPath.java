@@ -0,0 +1,183 @@
+package com.minizk;
+
+import java.util.Arrays;
+
+/**
+ * Validated absolute path in the znode namespace. The string is checked in a single pass that also records
+ * where each component starts, so depth, name and parent are answered from that state instead of rescanning
+ * or re-validating. The hash is computed once and the parent and name are derived lazily and then kept,
+ * so a path held by a {@link ZNode} can be looked up and walked towards the root without allocating.
+ * Immutable and thread-safe.
+ */
+public final class ZPath implements Comparable<ZPath> {
+
+    public static final ZPath ROOT = new ZPath("/", new int[0]);
+
+    private static final char SEPARATOR = '/';
+
+    private final String path;
+
+    /** Index of the separator in front of each component, outermost first; empty for the root */
+    private final int[] separators;
+
+    private final int hash;
+
+    // Derived on first use. Racing threads compute equal values and ZPath publishes safely through its
+    // final fields, so neither needs synchronization.
+    private ZPath parent;
+    private String name;
+
+    private ZPath(String path, int[] separators) {
+        this.path = path;
+        this.separators = separators;
+        this.hash = path.hashCode();
+    }
+
+    /**
+     * Parses {@code path}, throwing {@link IllegalArgumentException} if it is not a valid absolute path.
+     */
+    public static ZPath of(String path) {
+        ZPath parsed = tryParse(path);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Invalid path format: " + path);
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses {@code path}, returning null if it is not a valid absolute path: it must start with a slash,
+     * must not end with one unless it is the root, and must not contain empty components.
+     */
+    public static ZPath tryParse(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != SEPARATOR) {
+            return null;
+        }
+        int length = path.length();
+        if (length == 1) {
+            return ROOT;
+        }
+
+        int[] separators = new int[8];
+        int depth = 0;
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(i) != SEPARATOR) {
+                continue;
+            }
+            if (i == length - 1 || path.charAt(i + 1) == SEPARATOR) {
+                return null;
+            }
+            if (depth == separators.length) {
+                separators = Arrays.copyOf(separators, depth * 2);
+            }
+            separators[depth++] = i;
+        }
+        return new ZPath(path, depth == separators.length ? separators : Arrays.copyOf(separators, depth));
+    }
+
+    public boolean isRoot() {
+        return separators.length == 0;
+    }
+
+    /**
+     * Returns the number of components, zero for the root.
+     */
+    public int depth() {
+        return separators.length;
+    }
+
+    /**
+     * Returns the last component, or an empty string for the root.
+     */
+    public String name() {
+        String result = name;
+        if (result == null) {
+            result = isRoot() ? "" : path.substring(separators[separators.length - 1] + 1);
+            name = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offset in {@link #toString()} of the first character of component {@code index}.
+     */
+    int componentStart(int index) {
+        return separators[index] + 1;
+    }
+
+    /**
+     * Returns the offset in {@link #toString()} just past the last character of component {@code index}.
+     */
+    int componentEnd(int index) {
+        return index + 1 < separators.length ? separators[index + 1] : path.length();
+    }
+
+    /**
+     * Returns the enclosing path, or null for the root.
+     */
+    public ZPath parent() {
+        if (isRoot()) {
+            return null;
+        }
+        ZPath result = parent;
+        if (result == null) {
+            int depth = separators.length - 1;
+            result = depth == 0
+                ? ROOT
+                : new ZPath(path.substring(0, separators[depth]), Arrays.copyOf(separators, depth));
+            parent = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the direct child of this path called {@code childName}, which must be a single component.
+     */
+    public ZPath child(String childName) {
+        if (childName == null || childName.isEmpty() || childName.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Invalid child name: " + childName);
+        }
+        int depth = separators.length;
+        int[] childSeparators = Arrays.copyOf(separators, depth + 1);
+        childSeparators[depth] = isRoot() ? 0 : path.length();
+        return new ZPath(isRoot() ? path + childName : path + SEPARATOR + childName, childSeparators);
+    }
+
+    /**
+     * Returns whether this path is {@code ancestor} itself or lies anywhere below it.
+     */
+    public boolean isAtOrBelow(ZPath ancestor) {
+        if (ancestor.isRoot()) {
+            return true;
+        }
+        int length = ancestor.path.length();
+        return path.startsWith(ancestor.path)
+            && (path.length() == length || path.charAt(length) == SEPARATOR);
+    }
+
+    @Override
+    public int compareTo(ZPath other) {
+        return path.compareTo(other.path);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ZPath)) {
+            return false;
+        }
+        ZPath that = (ZPath) other;
+        return hash == that.hash && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,57 @@
+package com.minizk;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws item indexes in {@code [0, items)} following a Zipf distribution, so a few low indexes are hot and
+ * the tail is cold. Uses the rejection-free method of Gray et al. ("Quickly Generating Billion-Record
+ * Synthetic Databases") as popularized by YCSB. Thread-safe.
+ */
+public final class ZipfianGenerator {
+
+    public static final double DEFAULT_SKEW = 0.99;
+
+    private final long items;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    public ZipfianGenerator(long items) {
+        this(items, DEFAULT_SKEW);
+    }
+
+    public ZipfianGenerator(long items, double theta) {
+        if (items <= 0) {
+            throw new IllegalArgumentException("Item count must be positive");
+        }
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("Skew must be between 0 and 1");
+        }
+        this.items = items;
+        this.theta = theta;
+        this.zetaN = zeta(items, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    public long next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, items - 1);
+        }
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
@@ -14,15 +14,40 @@ public final class ZooKeeperRequest {
     
     public enum Operation {
         /** Create a new ZNode */
-        CREATE,
+        CREATE(true),
         /** Read data from an existing ZNode */
-        READ,
+        READ(false),
         /** Update data in an existing ZNode */
-        UPDATE,
+        UPDATE(true),
         /** Delete an existing ZNode */
-        DELETE,
+        DELETE(true),
         /** List children of an existing ZNode */
-        LIST
+        LIST(false),
+        /** Find every path matching a {@link PathPattern} glob, returned as the response's children */
+        FIND(false),
+        /** Create a ZNode named after the path plus a sequence number unique under its parent */
+        CREATE_SEQUENTIAL(true),
+        /** Check whether a ZNode exists, optionally leaving a {@link Watcher} on it */
+        EXISTS(false),
+        /** Add the signed decimal delta in the data (1 if empty) to the node's decimal payload */
+        INCREMENT(true),
+        /** Append the data to the node's payload, up to the lower of the request limit and the service cap */
+        APPEND(true),
+        /** Return the node's subtree digest and those of its children, see {@link TreeComparator} */
+        DIGEST(false);
+
+        private final boolean write;
+
+        Operation(boolean write) {
+            this.write = write;
+        }
+
+        /**
+         * Returns whether this operation modifies the tree and must be applied under the write lock.
+         */
+        public boolean isWrite() {
+            return write;
+        }
     }
 
     @NonNull
@@ -31,18 +56,66 @@ public final class ZooKeeperRequest {
     @NonNull
     private final String path;
     
+    /** {@link #path} parsed once on construction, or null if it is not a valid absolute path */
+    private final ZPath zPath;
+
     private final byte[] data;
 
+    /** Whether the caller can inflate payloads itself, so compressed znode data may be returned as stored */
+    private final boolean acceptCompressed;
+
+    /** One-shot watch left by an {@link Operation#EXISTS} request; never serialized, may be null */
+    private final Watcher watcher;
+
+    /** For {@link Operation#LIST}: only return children whose names sort after this one; null for all */
+    private final String startAfter;
+
+    /**
+     * For {@link Operation#LIST}: maximum number of children to return in name order; 0 for no limit.
+     * For {@link Operation#APPEND}: maximum payload size after the append, capped by the service; 0 for the cap.
+     */
+    private final int limit;
+
+    /** For creates: milliseconds after its last modification at which the node expires; 0 for never */
+    private final long ttl;
+
+    /** For creates: whether the node is removed once its last child is deleted */
+    private final boolean container;
+
+    /** {@link System#nanoTime()} at construction, used to measure time spent queued before processing */
+    private final long submittedNanos;
+
     public ZooKeeperRequest(@NonNull Operation operation, @NonNull String path) {
-        this.operation = operation;
-        this.path = path;
-        this.data = new byte[0];
+        this(operation, path, new byte[0]);
     }
 
     public ZooKeeperRequest(@NonNull Operation operation, @NonNull String path, @NonNull byte[] data) {
+        this(operation, path, data, false, null, null, 0, 0, false);
+    }
+
+    private ZooKeeperRequest(@NonNull Operation operation, @NonNull String path, byte[] data,
+                             boolean acceptCompressed, Watcher watcher, String startAfter, int limit,
+                             long ttl, boolean container) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        if (ttl < 0) {
+            throw new IllegalArgumentException("TTL cannot be negative");
+        }
+        if (ttl > 0 && container) {
+            throw new IllegalArgumentException("A node cannot be both a TTL and a container node");
+        }
         this.operation = operation;
         this.path = path;
+        this.zPath = ZPath.tryParse(path);
         this.data = data != null ? data.clone() : new byte[0];
+        this.acceptCompressed = acceptCompressed;
+        this.watcher = watcher;
+        this.startAfter = startAfter;
+        this.limit = limit;
+        this.ttl = ttl;
+        this.container = container;
+        this.submittedNanos = System.nanoTime();
     }
 
     public static ZooKeeperRequestBuilder builder() {
@@ -53,6 +126,12 @@ public final class ZooKeeperRequest {
         private Operation operation;
         private String path;
         private byte[] data = new byte[0];
+        private boolean acceptCompressed;
+        private Watcher watcher;
+        private String startAfter;
+        private int limit;
+        private long ttl;
+        private boolean container;
 
         public ZooKeeperRequestBuilder operation(Operation operation) {
             this.operation = operation;
@@ -69,8 +148,39 @@ public final class ZooKeeperRequest {
             return this;
         }
 
+        public ZooKeeperRequestBuilder acceptCompressed(boolean acceptCompressed) {
+            this.acceptCompressed = acceptCompressed;
+            return this;
+        }
+
+        public ZooKeeperRequestBuilder watcher(Watcher watcher) {
+            this.watcher = watcher;
+            return this;
+        }
+
+        public ZooKeeperRequestBuilder startAfter(String startAfter) {
+            this.startAfter = startAfter;
+            return this;
+        }
+
+        public ZooKeeperRequestBuilder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public ZooKeeperRequestBuilder ttl(long ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public ZooKeeperRequestBuilder container(boolean container) {
+            this.container = container;
+            return this;
+        }
+
         public ZooKeeperRequest build() {
-            return new ZooKeeperRequest(operation, path, data);
+            return new ZooKeeperRequest(operation, path, data, acceptCompressed, watcher, startAfter, limit,
+                ttl, container);
         }
     }
 
@@ -78,4 +188,8 @@ public final class ZooKeeperRequest {
     public byte[] getData() {
         return data.clone();
     }
+
+    public int getDataLength() {
+        return data.length;
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Getter;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Response from Mini ZooKeeper service with success status, error messages, and optional data.
@@ -19,11 +20,32 @@ public final class ZooKeeperResponse {
     
     private final List<String> children;
 
+    /** Whether {@link #getData()} holds a {@link PayloadCodec}-compressed payload */
+    private final boolean compressed;
+
+    /** Path of the node created by a sequential create, null otherwise */
+    private final String createdPath;
+
+    /** Subtree digest of the node a DIGEST request named, zero otherwise */
+    private final long digest;
+
+    /** Subtree digests of that node's children by name, null for other requests */
+    private final Map<String, Long> childDigests;
+
     public ZooKeeperResponse(boolean success, String errorMessage, byte[] data, List<String> children) {
+        this(success, errorMessage, data, children, false, null, 0, null);
+    }
+
+    private ZooKeeperResponse(boolean success, String errorMessage, byte[] data, List<String> children,
+                              boolean compressed, String createdPath, long digest, Map<String, Long> childDigests) {
         this.success = success;
         this.errorMessage = errorMessage;
         this.data = data != null ? data.clone() : null;
         this.children = children;
+        this.compressed = compressed;
+        this.createdPath = createdPath;
+        this.digest = digest;
+        this.childDigests = childDigests;
     }
 
     // Convenience constructors for backwards compatibility
@@ -53,6 +75,10 @@ public final class ZooKeeperResponse {
         private String errorMessage;
         private byte[] data;
         private List<String> children;
+        private boolean compressed;
+        private String createdPath;
+        private long digest;
+        private Map<String, Long> childDigests;
 
         public ZooKeeperResponseBuilder success(boolean success) {
             this.success = success;
@@ -74,8 +100,29 @@ public final class ZooKeeperResponse {
             return this;
         }
 
+        public ZooKeeperResponseBuilder compressed(boolean compressed) {
+            this.compressed = compressed;
+            return this;
+        }
+
+        public ZooKeeperResponseBuilder createdPath(String createdPath) {
+            this.createdPath = createdPath;
+            return this;
+        }
+
+        public ZooKeeperResponseBuilder digest(long digest) {
+            this.digest = digest;
+            return this;
+        }
+
+        public ZooKeeperResponseBuilder childDigests(Map<String, Long> childDigests) {
+            this.childDigests = childDigests;
+            return this;
+        }
+
         public ZooKeeperResponse build() {
-            return new ZooKeeperResponse(success, errorMessage, data, children);
+            return new ZooKeeperResponse(success, errorMessage, data, children, compressed, createdPath,
+                digest, childDigests);
         }
     }
 
@@ -103,6 +150,24 @@ public final class ZooKeeperResponse {
             .build();
     }
 
+    /**
+     * Response carrying a payload exactly as stored, compressed, for callers that accept compressed data.
+     */
+    public static ZooKeeperResponse withCompressedData(byte[] compressedData) {
+        return ZooKeeperResponse.builder()
+            .success(true)
+            .data(compressedData)
+            .compressed(true)
+            .build();
+    }
+
+    public static ZooKeeperResponse created(String createdPath) {
+        return ZooKeeperResponse.builder()
+            .success(true)
+            .createdPath(createdPath)
+            .build();
+    }
+
     public static ZooKeeperResponse withChildren(List<String> children) {
         return ZooKeeperResponse.builder()
             .success(true)
@@ -110,7 +175,32 @@ public final class ZooKeeperResponse {
             .build();
     }
 
+    public static ZooKeeperResponse withDigests(long digest, Map<String, Long> childDigests) {
+        return ZooKeeperResponse.builder()
+            .success(true)
+            .digest(digest)
+            .childDigests(childDigests)
+            .build();
+    }
+
     public byte[] getData() {
         return data != null ? data.clone() : null;
     }
+
+    /**
+     * Length of the payload as carried, compressed or not, without copying it.
+     */
+    int getDataLength() {
+        return data != null ? data.length : 0;
+    }
+
+    /**
+     * Returns the payload, inflating it first if it was shipped compressed.
+     */
+    public byte[] getUncompressedData() {
+        if (data == null || !compressed) {
+            return getData();
+        }
+        return PayloadCodec.decompress(data, -1);
+    }
 }
\ No newline at end of file
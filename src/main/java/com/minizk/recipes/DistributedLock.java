@@ -0,0 +1,146 @@
+package com.minizk.recipes;
+
+import com.minizk.RequestProcessor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reentrant mutual-exclusion lock shared by every client of the same lock path. Each acquirer creates a
+ * sequential node below the lock path and holds the lock once its node sorts first. Until then it watches
+ * only the node immediately in front of it, so a release wakes exactly one waiter instead of all of them.
+ *
+ * <p>Reentrant per thread: nested acquisitions by the holding thread only count. Lock nodes are not tied
+ * to a session, so a holder that dies without unlocking keeps the lock until its node is deleted.
+ */
+public final class DistributedLock {
+
+    private static final String LOCK_PREFIX = "lock-";
+
+    private final RequestProcessor zooKeeper;
+    private final String lockPath;
+    private final String nodePrefix;
+    private final BlockerRule blockerRule;
+    private final Map<Thread, Hold> holds;
+
+    public DistributedLock(RequestProcessor zooKeeper, String lockPath) {
+        this(zooKeeper, lockPath, LOCK_PREFIX, DistributedLock::predecessor);
+    }
+
+    DistributedLock(RequestProcessor zooKeeper, String lockPath, String nodePrefix, BlockerRule blockerRule) {
+        if (zooKeeper == null) {
+            throw new IllegalArgumentException("Request processor cannot be null");
+        }
+        if (lockPath == null || !lockPath.startsWith("/") || lockPath.length() == 1) {
+            throw new IllegalArgumentException("Lock path must be an absolute path below the root");
+        }
+        this.zooKeeper = zooKeeper;
+        this.lockPath = lockPath;
+        this.nodePrefix = nodePrefix;
+        this.blockerRule = blockerRule;
+        this.holds = new ConcurrentHashMap<>();
+        RecipeSupport.ensurePath(zooKeeper, lockPath);
+    }
+
+    public String getLockPath() {
+        return lockPath;
+    }
+
+    public void lock() throws InterruptedException {
+        acquire(-1);
+    }
+
+    /**
+     * Acquires the lock if it becomes free within {@code timeout}, withdrawing from the queue otherwise.
+     */
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(Math.max(0, unit.toNanos(timeout)));
+    }
+
+    public void unlock() {
+        Thread thread = Thread.currentThread();
+        Hold hold = holds.get(thread);
+        if (hold == null) {
+            throw new IllegalMonitorStateException("Lock " + lockPath + " is not held by the current thread");
+        }
+        if (--hold.count > 0) {
+            return;
+        }
+        holds.remove(thread);
+        RecipeSupport.delete(zooKeeper, hold.path);
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return holds.containsKey(Thread.currentThread());
+    }
+
+    private boolean acquire(long timeoutNanos) throws InterruptedException {
+        Thread thread = Thread.currentThread();
+        Hold hold = holds.get(thread);
+        if (hold != null) {
+            hold.count++;
+            return true;
+        }
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        String ourPath = RecipeSupport.createSequential(zooKeeper, lockPath + "/" + nodePrefix, new byte[0]);
+        String ourName = ourPath.substring(lockPath.length() + 1);
+        boolean acquired = false;
+        try {
+            while (true) {
+                List<String> children = RecipeSupport.sortedChildren(zooKeeper, lockPath);
+                int index = children.indexOf(ourName);
+                if (index < 0) {
+                    throw new IllegalStateException("Lock node " + ourPath + " was deleted while waiting");
+                }
+                String blocker = blockerRule.blocker(children, index);
+                if (blocker == null) {
+                    holds.put(thread, new Hold(ourPath));
+                    acquired = true;
+                    return true;
+                }
+                long remaining = timeoutNanos < 0 ? -1 : deadline - System.nanoTime();
+                if (timeoutNanos >= 0 && remaining <= 0) {
+                    return false;
+                }
+                if (!RecipeSupport.awaitChange(zooKeeper, lockPath + "/" + blocker, remaining)) {
+                    return false;
+                }
+            }
+        } finally {
+            if (!acquired) {
+                RecipeSupport.delete(zooKeeper, ourPath);
+            }
+        }
+    }
+
+    /**
+     * Exclusive rule: wait for the node directly in front, if any.
+     */
+    static String predecessor(List<String> children, int index) {
+        return index == 0 ? null : children.get(index - 1);
+    }
+
+    /**
+     * Decides which earlier node an acquirer must wait for, given the children in sequence order and the
+     * position of its own node; null means the lock is held.
+     */
+    @FunctionalInterface
+    interface BlockerRule {
+        String blocker(List<String> children, int index);
+    }
+
+    private static final class Hold {
+
+        private final String path;
+
+        private int count;
+
+        private Hold(String path) {
+            this.path = path;
+            this.count = 1;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.minizk.recipes;
+
+import com.minizk.RequestProcessor;
+import com.minizk.ZooKeeperRequest;
+import com.minizk.ZooKeeperResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FIFO work queue stored as sequential item nodes below a queue path. Producers enqueue a batch of items in
+ * one round trip; consumers claim a batch by reading it and deleting it in one round trip, and an item
+ * belongs to the consumer whose delete succeeded.
+ *
+ * <p>Item names are zero-padded sequence numbers taken from the queue node's counter while the write lock
+ * is held, so an item never becomes visible behind one that is already visible. Each consumer therefore
+ * keeps a cursor at the last name it has seen and lists only the page after it, instead of re-listing the
+ * whole queue for every claim. Offers are thread-safe; claims on one instance are serialized, so give each
+ * consumer thread its own instance.
+ */
+public final class DistributedQueue {
+
+    private static final String ITEM_PREFIX = "item-";
+
+    /** Upper bound on a single wait for the next item, after which the consumer re-lists in case of gaps */
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final RequestProcessor zooKeeper;
+    private final String queuePath;
+
+    /** Name of the last item this consumer has listed; every item up to it is claimed or gone */
+    private String cursor;
+
+    public DistributedQueue(RequestProcessor zooKeeper, String queuePath) {
+        if (zooKeeper == null) {
+            throw new IllegalArgumentException("Request processor cannot be null");
+        }
+        if (queuePath == null || !queuePath.startsWith("/") || queuePath.length() == 1) {
+            throw new IllegalArgumentException("Queue path must be an absolute path below the root");
+        }
+        this.zooKeeper = zooKeeper;
+        this.queuePath = queuePath;
+        RecipeSupport.ensurePath(zooKeeper, queuePath);
+    }
+
+    public String getQueuePath() {
+        return queuePath;
+    }
+
+    /**
+     * Enqueues one item and returns its path.
+     */
+    public String offer(byte[] item) {
+        return RecipeSupport.createSequential(zooKeeper, queuePath + "/" + ITEM_PREFIX, item);
+    }
+
+    /**
+     * Enqueues {@code items} in order as a single batch and returns their paths.
+     */
+    public List<String> offerAll(List<byte[]> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Items cannot be null");
+        }
+        List<ZooKeeperRequest> requests = new ArrayList<>(items.size());
+        for (byte[] item : items) {
+            requests.add(ZooKeeperRequest.builder()
+                .operation(ZooKeeperRequest.Operation.CREATE_SEQUENTIAL)
+                .path(queuePath + "/" + ITEM_PREFIX)
+                .data(item)
+                .build());
+        }
+        List<ZooKeeperResponse> responses = zooKeeper.processBatch(requests);
+        List<String> paths = new ArrayList<>(responses.size());
+        for (ZooKeeperResponse response : responses) {
+            if (!response.isSuccess()) {
+                throw new IllegalStateException(
+                    "Cannot enqueue to " + queuePath + ": " + response.getErrorMessage());
+            }
+            paths.add(response.getCreatedPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Claims up to {@code maxItems} of the oldest items not yet claimed, removing them from the queue.
+     * Returns an empty list if there are none.
+     */
+    public synchronized List<byte[]> claim(int maxItems) {
+        if (maxItems <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        while (true) {
+            List<String> page = RecipeSupport.childrenAfter(zooKeeper, queuePath, cursor, maxItems);
+            if (page.isEmpty()) {
+                return Collections.emptyList();
+            }
+            cursor = page.get(page.size() - 1);
+            List<byte[]> claimed = claimPage(page);
+            if (!claimed.isEmpty()) {
+                return claimed;
+            }
+            // Every item on the page went to other consumers; move on to the next one.
+        }
+    }
+
+    /**
+     * Claims up to {@code maxItems} items, waiting up to {@code timeout} for the first one to arrive.
+     */
+    public synchronized List<byte[]> claim(int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            List<byte[]> claimed = claim(maxItems);
+            long remaining = deadline - System.nanoTime();
+            if (!claimed.isEmpty() || remaining <= 0) {
+                return claimed;
+            }
+            RecipeSupport.awaitCreation(zooKeeper, queuePath + "/" + nextItemName(),
+                Math.min(remaining, WAIT_SLICE_NANOS));
+        }
+    }
+
+    private List<byte[]> claimPage(List<String> page) {
+        List<ZooKeeperRequest> requests = new ArrayList<>(page.size() * 2);
+        for (String name : page) {
+            String path = queuePath + "/" + name;
+            requests.add(ZooKeeperRequest.builder().operation(ZooKeeperRequest.Operation.READ).path(path).build());
+            requests.add(ZooKeeperRequest.builder().operation(ZooKeeperRequest.Operation.DELETE).path(path).build());
+        }
+        List<ZooKeeperResponse> responses = zooKeeper.processBatch(requests);
+        List<byte[]> claimed = new ArrayList<>(page.size());
+        for (int i = 0; i < responses.size(); i += 2) {
+            ZooKeeperResponse read = responses.get(i);
+            if (read.isSuccess() && responses.get(i + 1).isSuccess()) {
+                claimed.add(read.getData());
+            }
+        }
+        return claimed;
+    }
+
+    private String nextItemName() {
+        long next = cursor == null ? 1 : RecipeSupport.sequenceOf(cursor) + 1;
+        return ITEM_PREFIX + String.format("%0" + RecipeSupport.SEQUENCE_DIGITS + "d", next);
+    }
+}
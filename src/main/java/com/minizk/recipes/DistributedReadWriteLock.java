@@ -0,0 +1,44 @@
+package com.minizk.recipes;
+
+import com.minizk.RequestProcessor;
+
+import java.util.List;
+
+/**
+ * Shared/exclusive lock over one lock path. Readers and writers queue in a single sequence: a reader holds
+ * the lock once no writer is ahead of it and watches only the nearest writer in front, while a writer must
+ * be first and watches only its direct predecessor. Releasing a reader therefore wakes at most the writer
+ * behind it, and releasing a writer wakes just the readers that were queued behind it.
+ *
+ * <p>Each side is reentrant on its own; a thread cannot upgrade a read hold to a write hold or downgrade.
+ */
+public final class DistributedReadWriteLock {
+
+    private static final String READ_PREFIX = "read-";
+    private static final String WRITE_PREFIX = "write-";
+
+    private final DistributedLock readLock;
+    private final DistributedLock writeLock;
+
+    public DistributedReadWriteLock(RequestProcessor zooKeeper, String lockPath) {
+        this.readLock = new DistributedLock(zooKeeper, lockPath, READ_PREFIX, DistributedReadWriteLock::nearestWriter);
+        this.writeLock = new DistributedLock(zooKeeper, lockPath, WRITE_PREFIX, DistributedLock::predecessor);
+    }
+
+    public DistributedLock readLock() {
+        return readLock;
+    }
+
+    public DistributedLock writeLock() {
+        return writeLock;
+    }
+
+    private static String nearestWriter(List<String> children, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            if (children.get(i).startsWith(WRITE_PREFIX)) {
+                return children.get(i);
+            }
+        }
+        return null;
+    }
+}
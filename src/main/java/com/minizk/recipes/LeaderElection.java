@@ -0,0 +1,145 @@
+package com.minizk.recipes;
+
+import com.minizk.RequestProcessor;
+import com.minizk.ZooKeeperRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leader election among participants sharing an election path. Each participant creates a sequential node
+ * holding its id and the lowest sequence leads. A follower watches only the node in front of it, so when
+ * the leader leaves exactly one follower re-checks, and it takes over if it is now first.
+ *
+ * <p>Re-checks run on a private event thread, never on the thread that fired the watch. Leadership is kept
+ * until {@link #close()}, which withdraws the node and lets the next participant in line take over.
+ */
+@Slf4j
+public final class LeaderElection implements AutoCloseable {
+
+    private static final String NODE_PREFIX = "n-";
+
+    private final RequestProcessor zooKeeper;
+    private final String electionPath;
+    private final String participantId;
+    private final Runnable onElected;
+    private final ExecutorService events;
+    private final CountDownLatch elected;
+    private volatile String ourPath;
+    private volatile boolean leader;
+    private volatile boolean closed;
+
+    /**
+     * @param onElected called once on the event thread when this participant becomes leader, may be null
+     */
+    public LeaderElection(RequestProcessor zooKeeper, String electionPath, String participantId, Runnable onElected) {
+        if (zooKeeper == null || electionPath == null || participantId == null) {
+            throw new IllegalArgumentException("Request processor, election path and participant id are required");
+        }
+        this.zooKeeper = zooKeeper;
+        this.electionPath = electionPath;
+        this.participantId = participantId;
+        this.onElected = onElected;
+        this.events = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "election-" + participantId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.elected = new CountDownLatch(1);
+    }
+
+    /**
+     * Joins the election. Returns immediately; use {@link #awaitLeadership} or {@link #isLeader()} to follow it.
+     */
+    public void start() {
+        if (ourPath != null) {
+            throw new IllegalStateException("Election already started");
+        }
+        RecipeSupport.ensurePath(zooKeeper, electionPath);
+        ourPath = RecipeSupport.createSequential(zooKeeper, electionPath + "/" + NODE_PREFIX,
+            participantId.getBytes(StandardCharsets.UTF_8));
+        events.execute(this::check);
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public String getParticipantId() {
+        return participantId;
+    }
+
+    public boolean awaitLeadership(long timeout, TimeUnit unit) throws InterruptedException {
+        return elected.await(timeout, unit);
+    }
+
+    /**
+     * Returns the id of the current leader, or null if nobody is participating.
+     */
+    public String getLeaderId() {
+        for (String child : RecipeSupport.sortedChildren(zooKeeper, electionPath)) {
+            byte[] data = RecipeSupport.read(zooKeeper, electionPath + "/" + child);
+            if (data != null) {
+                return new String(data, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void check() {
+        try {
+            String ourName = ourPath.substring(electionPath.length() + 1);
+            while (!closed) {
+                List<String> children = RecipeSupport.sortedChildren(zooKeeper, electionPath);
+                int index = children.indexOf(ourName);
+                if (index < 0) {
+                    log.warn("Election node {} of {} was deleted", ourPath, participantId);
+                    return;
+                }
+                if (index == 0) {
+                    becomeLeader();
+                    return;
+                }
+                String predecessor = electionPath + "/" + children.get(index - 1);
+                boolean watching = zooKeeper.processRequest(ZooKeeperRequest.builder()
+                    .operation(ZooKeeperRequest.Operation.EXISTS)
+                    .path(predecessor)
+                    .watcher(event -> {
+                        if (!closed) {
+                            events.execute(this::check);
+                        }
+                    })
+                    .build()).isSuccess();
+                if (watching) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Election check failed for {}", participantId, e);
+        }
+    }
+
+    private void becomeLeader() {
+        leader = true;
+        elected.countDown();
+        log.info("{} is now leader of {}", participantId, electionPath);
+        if (onElected != null) {
+            onElected.run();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        leader = false;
+        if (ourPath != null) {
+            RecipeSupport.delete(zooKeeper, ourPath);
+        }
+        events.shutdown();
+    }
+}
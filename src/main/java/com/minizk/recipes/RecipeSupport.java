@@ -0,0 +1,142 @@
+package com.minizk.recipes;
+
+import com.minizk.RequestProcessor;
+import com.minizk.ZooKeeperRequest;
+import com.minizk.ZooKeeperResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request helpers shared by the recipes. All of them talk to a {@link RequestProcessor} directly rather
+ * than through the client, so expected failures such as an existing parent are not reported as errors.
+ */
+final class RecipeSupport {
+
+    static final int SEQUENCE_DIGITS = 10;
+
+    private static final Comparator<String> BY_SEQUENCE = Comparator.comparingLong(RecipeSupport::sequenceOf);
+
+    private RecipeSupport() {
+    }
+
+    /**
+     * Creates {@code path} and any missing ancestors with empty data.
+     */
+    static void ensurePath(RequestProcessor zooKeeper, String path) {
+        if (exists(zooKeeper, path)) {
+            return;
+        }
+        int next = 0;
+        while (next >= 0) {
+            next = path.indexOf('/', next + 1);
+            String prefix = next < 0 ? path : path.substring(0, next);
+            ZooKeeperResponse response = zooKeeper.processRequest(request(ZooKeeperRequest.Operation.CREATE, prefix));
+            if (!response.isSuccess() && !exists(zooKeeper, prefix)) {
+                throw new IllegalStateException("Cannot create " + prefix + ": " + response.getErrorMessage());
+            }
+        }
+    }
+
+    static String createSequential(RequestProcessor zooKeeper, String pathPrefix, byte[] data) {
+        ZooKeeperResponse response = zooKeeper.processRequest(ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.CREATE_SEQUENTIAL)
+            .path(pathPrefix)
+            .data(data)
+            .build());
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Cannot create " + pathPrefix + ": " + response.getErrorMessage());
+        }
+        return response.getCreatedPath();
+    }
+
+    /**
+     * Returns the children of {@code path} in sequence order.
+     */
+    static List<String> sortedChildren(RequestProcessor zooKeeper, String path) {
+        ZooKeeperResponse response = zooKeeper.processRequest(request(ZooKeeperRequest.Operation.LIST, path));
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Cannot list " + path + ": " + response.getErrorMessage());
+        }
+        List<String> children = new ArrayList<>(response.getChildren());
+        children.sort(BY_SEQUENCE);
+        return children;
+    }
+
+    /**
+     * Returns up to {@code limit} children of {@code path} in name order after {@code startAfter}.
+     */
+    static List<String> childrenAfter(RequestProcessor zooKeeper, String path, String startAfter, int limit) {
+        ZooKeeperResponse response = zooKeeper.processRequest(ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.LIST)
+            .path(path)
+            .startAfter(startAfter)
+            .limit(limit)
+            .build());
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Cannot list " + path + ": " + response.getErrorMessage());
+        }
+        return response.getChildren();
+    }
+
+    static long sequenceOf(String name) {
+        return name.length() < SEQUENCE_DIGITS ? -1 : Long.parseLong(name.substring(name.length() - SEQUENCE_DIGITS));
+    }
+
+    static boolean exists(RequestProcessor zooKeeper, String path) {
+        return zooKeeper.processRequest(request(ZooKeeperRequest.Operation.EXISTS, path)).isSuccess();
+    }
+
+    /**
+     * Watches {@code path} and waits until it changes or disappears. Returns immediately if it is already
+     * gone, and returns false if {@code timeoutNanos} elapsed first; a negative timeout waits indefinitely.
+     */
+    static boolean awaitChange(RequestProcessor zooKeeper, String path, long timeoutNanos)
+            throws InterruptedException {
+        CountDownLatch changed = new CountDownLatch(1);
+        ZooKeeperResponse response = zooKeeper.processRequest(ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.EXISTS)
+            .path(path)
+            .watcher(event -> changed.countDown())
+            .build());
+        if (!response.isSuccess()) {
+            return true;
+        }
+        if (timeoutNanos < 0) {
+            changed.await();
+            return true;
+        }
+        return changed.await(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Watches {@code path} and waits until it is created. Returns immediately if it already exists, and
+     * returns false if {@code timeoutNanos} elapsed first.
+     */
+    static boolean awaitCreation(RequestProcessor zooKeeper, String path, long timeoutNanos)
+            throws InterruptedException {
+        CountDownLatch created = new CountDownLatch(1);
+        ZooKeeperResponse response = zooKeeper.processRequest(ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.EXISTS)
+            .path(path)
+            .watcher(event -> created.countDown())
+            .build());
+        return response.isSuccess() || created.await(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    static void delete(RequestProcessor zooKeeper, String path) {
+        zooKeeper.processRequest(request(ZooKeeperRequest.Operation.DELETE, path));
+    }
+
+    static byte[] read(RequestProcessor zooKeeper, String path) {
+        ZooKeeperResponse response = zooKeeper.processRequest(request(ZooKeeperRequest.Operation.READ, path));
+        return response.isSuccess() ? response.getData() : null;
+    }
+
+    private static ZooKeeperRequest request(ZooKeeperRequest.Operation operation, String path) {
+        return ZooKeeperRequest.builder().operation(operation).path(path).build();
+    }
+}
@@ -0,0 +1,195 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for AdmissionController class.
+ */
+@Slf4j
+@DisplayName("AdmissionController Tests")
+class AdmissionControllerTest {
+
+    private static final String[] SESSIONS = {"batch-job", "client-1", "client-2", "client-3", "client-4"};
+    private static final int[] THREADS_PER_SESSION = {16, 1, 1, 1, 1};
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        zooKeeper.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, "/app", new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Should rate limit writes and reads on separate budgets")
+    void shouldLimitReadsAndWritesSeparately() {
+        AdmissionController admission = new AdmissionController(zooKeeper, 1, 1, Duration.ofSeconds(3),
+            AdmissionController.DEFAULT_MAX_PENDING, Duration.ZERO);
+        MiniZooKeeperClient client = new MiniZooKeeperClient(admission.forSession("job"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.setData("/app", "v" + i)).isTrue();
+        }
+        assertThat(write(admission.forSession("job")).getErrorMessage())
+            .isEqualTo(AdmissionController.RATE_LIMIT_EXCEEDED);
+        assertThat(client.getData("/app")).isEqualTo("v2");
+        assertThat(write(admission.forSession("other")).isSuccess()).isTrue();
+
+        assertThat(admission.getRateLimitedCount()).isEqualTo(1);
+        assertThat(admission.getRateLimitedCount("job")).isEqualTo(1);
+        assertThat(admission.getAdmittedCount("job")).isEqualTo(4);
+        assertThat(admission.getAdmittedCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should delay a request whose token is due within the throttle wait")
+    void shouldThrottleShortWaits() {
+        AdmissionController admission = new AdmissionController(zooKeeper, 1000, 100, Duration.ZERO, 16,
+            Duration.ofMillis(50));
+
+        long start = System.nanoTime();
+        assertThat(write(admission).isSuccess()).isTrue();
+        assertThat(write(admission).isSuccess()).isTrue();
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(admission.getThrottledCount()).isEqualTo(1);
+        assertThat(elapsedNanos).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(9));
+    }
+
+    @Test
+    @DisplayName("Should reject immediately once every pending slot is taken")
+    void shouldRejectWhenPendingIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(2);
+        RequestProcessor blocking = request -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return zooKeeper.processRequest(request);
+        };
+        AdmissionController admission = new AdmissionController(blocking, 1000, 1000, Duration.ofSeconds(1), 2,
+            Duration.ZERO);
+
+        List<CompletableFuture<ZooKeeperResponse>> inFlight = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            inFlight.add(CompletableFuture.supplyAsync(() -> write(admission)));
+        }
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long start = System.nanoTime();
+        ZooKeeperResponse overflow = write(admission);
+        long rejectNanos = System.nanoTime() - start;
+        release.countDown();
+
+        assertThat(overflow.getErrorMessage()).isEqualTo(AdmissionController.TOO_MANY_PENDING_REQUESTS);
+        assertThat(rejectNanos).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+        for (CompletableFuture<ZooKeeperResponse> response : inFlight) {
+            assertThat(response.get(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+        }
+        assertThat(admission.getRejectedCount()).isEqualTo(1);
+        assertThat(admission.getPendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should share an overloaded service fairly between a runaway job and light clients")
+    void shouldShareFairlyUnderOverload() throws Exception {
+        // A service that applies about 5,000 writes per second, shared by one runaway batch job with
+        // 16 threads and four single-threaded clients.
+        ReentrantLock capacity = new ReentrantLock(true);
+        RequestProcessor slowService = request -> {
+            capacity.lock();
+            try {
+                LockSupport.parkNanos(200_000);
+                return zooKeeper.processRequest(request);
+            } finally {
+                capacity.unlock();
+            }
+        };
+        AdmissionController admission = new AdmissionController(slowService, 800, 800, Duration.ofMillis(50),
+            64, Duration.ofMillis(20));
+
+        long[] unlimited = runSessions(session -> slowService);
+        long[] admitted = runSessions(admission::forSession);
+
+        log.debug("Without admission control: {}, Jain fairness index {}", describe(unlimited),
+            String.format("%.3f", fairness(unlimited)));
+        log.debug("With admission control: {}, Jain fairness index {}; {} throttled, {} rate limited, {} rejected",
+            describe(admitted), String.format("%.3f", fairness(admitted)), admission.getThrottledCount(),
+            admission.getRateLimitedCount(), admission.getRejectedCount());
+        assertThat(fairness(admitted)).isGreaterThan(0.9).isGreaterThan(fairness(unlimited));
+        assertThat(admitted[0]).isLessThan(800 * 2 + 100);
+        assertThat(admission.getThrottledCount() + admission.getRateLimitedCount()).isPositive();
+    }
+
+    /**
+     * Runs the batch job and the light clients for two seconds and returns their successful writes.
+     */
+    private long[] runSessions(Function<String, RequestProcessor> processorFor) throws InterruptedException {
+        long[] completed = new long[SESSIONS.length];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < SESSIONS.length; s++) {
+            int index = s;
+            RequestProcessor session = processorFor.apply(SESSIONS[s]);
+            for (int t = 0; t < THREADS_PER_SESSION[s]; t++) {
+                Thread thread = new Thread(() -> {
+                    while (System.nanoTime() < deadline) {
+                        if (write(session).isSuccess()) {
+                            synchronized (completed) {
+                                completed[index]++;
+                            }
+                        } else {
+                            LockSupport.parkNanos(1_000_000);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return completed;
+    }
+
+    private static String describe(long[] completed) {
+        StringBuilder description = new StringBuilder();
+        for (int s = 0; s < SESSIONS.length; s++) {
+            description.append(s == 0 ? "" : ", ").append(SESSIONS[s]).append('=').append(completed[s]);
+        }
+        return description.toString();
+    }
+
+    private static double fairness(long[] completed) {
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (long count : completed) {
+            sum += count;
+            sumOfSquares += (double) count * count;
+        }
+        return sum * sum / (completed.length * sumOfSquares);
+    }
+
+    private static ZooKeeperResponse write(RequestProcessor processor) {
+        return processor.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.UPDATE, "/app", new byte[1]));
+    }
+}
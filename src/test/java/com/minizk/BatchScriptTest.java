@@ -0,0 +1,180 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for BatchScript class.
+ */
+@Slf4j
+@DisplayName("BatchScript Tests")
+class BatchScriptTest {
+
+    private MiniZooKeeper zooKeeper;
+    private MiniZooKeeperClient client;
+    private StringWriter out;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        client = new MiniZooKeeperClient(zooKeeper);
+        out = new StringWriter();
+    }
+
+    private BatchScript.Summary run(String script, int batchSize) throws Exception {
+        return new BatchScript(zooKeeper, batchSize).run(new StringReader(script), out);
+    }
+
+    @Nested
+    @DisplayName("Parsing Tests")
+    class ParsingTests {
+
+        @Test
+        @DisplayName("Should keep the rest of the line as data")
+        void shouldKeepDataWithSpaces() {
+            BatchScript.Command command = BatchScript.parseLine(1, "  set   /app   config  data ");
+
+            assertThat(command.getError()).isNull();
+            assertThat(command.getRequest().getOperation()).isEqualTo(ZooKeeperRequest.Operation.UPDATE);
+            assertThat(command.getRequest().getPath()).isEqualTo("/app");
+            assertThat(new String(command.getRequest().getData())).isEqualTo("config  data");
+        }
+
+        @Test
+        @DisplayName("Should skip blank lines and comments")
+        void shouldSkipBlankLinesAndComments() {
+            assertThat(BatchScript.parseLine(1, "")).isNull();
+            assertThat(BatchScript.parseLine(2, "   \t")).isNull();
+            assertThat(BatchScript.parseLine(3, "# create /a")).isNull();
+        }
+
+        @Test
+        @DisplayName("Should parse TTL and container creates")
+        void shouldParseCreateVariants() {
+            ZooKeeperRequest ttl = BatchScript.parseLine(1, "createttl /t 5000 some data").getRequest();
+            ZooKeeperRequest container = BatchScript.parseLine(2, "createcontainer /c").getRequest();
+
+            assertThat(ttl.getTtl()).isEqualTo(5000);
+            assertThat(new String(ttl.getData())).isEqualTo("some data");
+            assertThat(container.isContainer()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should carry the error of a malformed line")
+        void shouldReportMalformedLines() {
+            assertThat(BatchScript.parseLine(1, "frobnicate /a").getError()).contains("Unknown command");
+            assertThat(BatchScript.parseLine(2, "get").getError()).contains("Missing path");
+            assertThat(BatchScript.parseLine(3, "incr /a x").getError()).contains("number");
+        }
+    }
+
+    @Nested
+    @DisplayName("Execution Tests")
+    class ExecutionTests {
+
+        @Test
+        @DisplayName("Should print reads and failures and count both")
+        void shouldPrintReadsAndFailures() throws Exception {
+            BatchScript.Summary summary = run(String.join("\n",
+                "# set up",
+                "create /app v1",
+                "create /app/web web config",
+                "set /app v2",
+                "get /app",
+                "ls /app",
+                "incr /counter",
+                "create /counter 41",
+                "incr /counter",
+                "create /app v3",
+                "bogus /x"), 3);
+
+            assertThat(summary.getSucceeded()).isEqualTo(7);
+            assertThat(summary.getFailed()).isEqualTo(3);
+            assertThat(out.toString().split("\n")).containsExactly(
+                "/app: v2",
+                "/app: [web]",
+                "line 7: incr /counter failed: Node does not exist",
+                "/counter: 42",
+                "line 10: create /app v3 failed: Node already exists",
+                "line 11: bogus /x failed: Unknown command: bogus");
+        }
+
+        @Test
+        @DisplayName("Should apply commands in order across batches")
+        void shouldKeepOrderAcrossBatches() throws Exception {
+            StringBuilder script = new StringBuilder("create /app\n");
+            for (int i = 0; i < 1_000; i++) {
+                script.append("create /app/n").append(i).append(" v0\n");
+                script.append("set /app/n").append(i).append(" v1\n");
+                if (i % 2 == 0) {
+                    script.append("delete /app/n").append(i).append('\n');
+                }
+            }
+
+            BatchScript.Summary summary = run(script.toString(), 7);
+
+            assertThat(summary.getFailed()).isZero();
+            assertThat(summary.getCommandCount()).isEqualTo(2_501);
+            assertThat(client.getChildren("/app")).hasSize(500);
+            assertThat(client.getData("/app/n999")).isEqualTo("v1");
+        }
+
+        @Test
+        @DisplayName("Should fail when the script cannot be read")
+        void shouldPropagateReadFailure() {
+            Reader failing = new Reader() {
+                private boolean served;
+
+                @Override
+                public int read(char[] buffer, int offset, int length) throws IOException {
+                    if (served) {
+                        throw new IOException("disk error");
+                    }
+                    served = true;
+                    String line = "create /a x\n";
+                    line.getChars(0, line.length(), buffer, offset);
+                    return line.length();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+            assertThatThrownBy(() -> new BatchScript(zooKeeper).run(failing, out))
+                .isInstanceOf(IOException.class)
+                .hasMessage("disk error");
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Should report script throughput")
+    void shouldReportThroughput() throws Exception {
+        StringBuilder script = new StringBuilder("create /load\n");
+        for (int group = 0; group < 100; group++) {
+            script.append("create /load/g").append(group).append('\n');
+            for (int i = 0; i < 1_000; i++) {
+                script.append("create /load/g").append(group).append("/k").append(i).append(" value-").append(i)
+                    .append('\n');
+            }
+        }
+
+        BatchScript.Summary summary = run(script.toString(), BatchScript.DEFAULT_BATCH_SIZE);
+
+        assertThat(summary.getFailed()).isZero();
+        assertThat(summary.getSucceeded()).isEqualTo(100_101);
+        log.info("Batch script: {}", summary);
+    }
+}
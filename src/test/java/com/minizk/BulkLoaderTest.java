@@ -0,0 +1,242 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for BulkLoader class.
+ */
+@Slf4j
+@DisplayName("BulkLoader Tests")
+class BulkLoaderTest {
+
+    private MiniZooKeeper zooKeeper;
+    private MiniZooKeeperClient client;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        client = new MiniZooKeeperClient(zooKeeper);
+    }
+
+    /**
+     * Returns a tree of {@code fanOut} children per node, {@code depth} levels below each of {@code roots},
+     * as (path, data) entries in path order.
+     */
+    private static Iterator<Map.Entry<String, byte[]>> tree(List<String> roots, int fanOut, int depth) {
+        TreeMap<String, byte[]> entries = new TreeMap<>();
+        for (String root : roots) {
+            addTree(entries, root, fanOut, depth);
+        }
+        return entries.entrySet().iterator();
+    }
+
+    private static void addTree(Map<String, byte[]> entries, String path, int fanOut, int depth) {
+        entries.put(path, ("data-" + path).getBytes());
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < fanOut; i++) {
+            addTree(entries, path + "/n" + i, fanOut, depth - 1);
+        }
+    }
+
+    private static Iterator<Map.Entry<String, byte[]>> entries(String... paths) {
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>();
+        for (String path : paths) {
+            entries.add(new AbstractMap.SimpleEntry<>(path, path.getBytes()));
+        }
+        return entries.iterator();
+    }
+
+    @Nested
+    @DisplayName("Load Tests")
+    class LoadTests {
+
+        @Test
+        @DisplayName("Should link every subtree with its data")
+        void shouldLinkSubtrees() {
+            client.create("/a", "");
+            client.create("/b", "");
+
+            long loaded = zooKeeper.bulkLoad(tree(List.of("/a/x", "/b/y"), 3, 3), 4);
+
+            assertThat(loaded).isEqualTo(2 * 40);
+            assertThat(client.getData("/a/x/n2/n0/n1")).isEqualTo("data-/a/x/n2/n0/n1");
+            assertThat(client.getChildren("/b/y")).containsExactlyInAnyOrder("n0", "n1", "n2");
+            assertThat(zooKeeper.getMemoryAccounting().getTotalNodes()).isEqualTo(3 + 80);
+        }
+
+        @Test
+        @DisplayName("Should produce the same digests and memory usage as nodes created one by one")
+        void shouldMatchCreatedNodes() {
+            MiniZooKeeper createdZooKeeper = new MiniZooKeeper();
+            MiniZooKeeperClient created = new MiniZooKeeperClient(createdZooKeeper);
+            created.create("/app", "root");
+            Iterator<Map.Entry<String, byte[]>> entries = tree(List.of("/app/x"), 4, 3);
+            List<Map.Entry<String, byte[]>> copy = new ArrayList<>();
+            entries.forEachRemaining(entry -> {
+                created.create(entry.getKey(), new String(entry.getValue()));
+                copy.add(entry);
+            });
+            client.create("/app", "root");
+
+            zooKeeper.bulkLoad(copy.iterator(), 2);
+
+            assertThat(client.getDigest("/")).isEqualTo(created.getDigest("/"));
+            assertThat(client.getDigest("/app/x/n3")).isEqualTo(created.getDigest("/app/x/n3"));
+            assertThat(zooKeeper.getMemoryAccounting().getTotalBytes())
+                .isEqualTo(createdZooKeeper.getMemoryAccounting().getTotalBytes());
+            assertThat(zooKeeper.getMemoryAccounting().getTopSubtrees(10, MemoryAccounting.Order.BYTES))
+                .usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(createdZooKeeper.getMemoryAccounting().getTopSubtrees(10, MemoryAccounting.Order.BYTES));
+        }
+
+        @Test
+        @DisplayName("Should store loaded nodes in a disk store")
+        void shouldLoadIntoDiskStore(@TempDir Path directory) {
+            try (MiniZooKeeper diskZooKeeper = new MiniZooKeeper(new DiskNodeStore(directory, 4 * 1024, 16))) {
+                new MiniZooKeeperClient(diskZooKeeper).create("/app", "");
+                assertThat(diskZooKeeper.bulkLoad(tree(List.of("/app/x"), 3, 3), 2)).isEqualTo(40);
+            }
+
+            try (MiniZooKeeper reopened = new MiniZooKeeper(new DiskNodeStore(directory, 4 * 1024, 16))) {
+                MiniZooKeeperClient reopenedClient = new MiniZooKeeperClient(reopened);
+                assertThat(reopenedClient.getData("/app/x/n1/n2/n0")).isEqualTo("data-/app/x/n1/n2/n0");
+                assertThat(reopenedClient.getChildren("/app/x/n2")).hasSize(3);
+            }
+        }
+
+        @Test
+        @DisplayName("Should not keep the loaded subtrees in a disk store's cache")
+        void shouldNotCacheLoadedSubtrees(@TempDir Path directory) {
+            DiskNodeStore store = new DiskNodeStore(directory, 1024 * 1024, 16);
+            try (MiniZooKeeper diskZooKeeper = new MiniZooKeeper(store)) {
+                new MiniZooKeeperClient(diskZooKeeper).create("/app", "");
+                diskZooKeeper.bulkLoad(tree(List.of("/app/x"), 3, 3), 2);
+
+                ZNode root = store.get(ZPath.of("/app/x"));
+                assertThat(root.getChildren()).isEmpty();
+                assertThat(store.getChildrenNames(root)).containsExactlyInAnyOrder("n0", "n1", "n2");
+                assertThat(store.get(ZPath.of("/app/x/n1")).getChildren()).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Should link nodes whose parent was read in an earlier chunk")
+        void shouldLinkAcrossReadChunks() {
+            client.create("/app", "");
+            int fanOut = 260;
+
+            long loaded = zooKeeper.bulkLoad(tree(List.of("/app/x"), fanOut, 2), 2);
+
+            assertThat(loaded).isEqualTo(1 + fanOut + fanOut * fanOut).isGreaterThan(BulkLoader.READ_CHUNK_SIZE);
+            assertThat(client.getChildren("/app/x")).hasSize(fanOut);
+            for (int i = 0; i < fanOut; i++) {
+                assertThat(client.getChildren("/app/x/n" + i)).hasSize(fanOut);
+            }
+            assertThat(client.getData("/app/x/n99/n259")).isEqualTo("data-/app/x/n99/n259");
+        }
+
+        @Test
+        @DisplayName("Should count loaded nodes against quotas")
+        void shouldAdjustQuotas() {
+            client.create("/limited", "");
+            zooKeeper.setQuota("/limited", 100, -1);
+
+            zooKeeper.bulkLoad(entries("/limited/a", "/limited/a/b", "/limited/c"), 2);
+
+            assertThat(zooKeeper.getQuota("/limited").getUsedNodes()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("Validation Tests")
+    class ValidationTests {
+
+        @Test
+        @DisplayName("Should reject paths out of order")
+        void shouldRejectUnsortedPaths() {
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(entries("/b", "/a"), 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("sorted");
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(entries("/a", "/a"), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("Should reject invalid paths")
+        void shouldRejectInvalidPaths() {
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(entries("/a", "/a//b"), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(entries("/"), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThat(client.exists("/a")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should link nothing when any subtree cannot be linked")
+        void shouldLinkAllOrNothing() {
+            client.create("/a", "");
+            client.create("/c", "");
+
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(entries("/a/x", "/b/x", "/c/x"), 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("/b/x");
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(entries("/a/x", "/c"), 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("/c");
+
+            assertThat(client.exists("/a/x")).isFalse();
+            assertThat(client.exists("/c/x")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should reject a load exceeding a quota over all its subtrees")
+        void shouldCheckQuotasAcrossSubtrees() {
+            client.create("/limited", "");
+            client.create("/limited/a", "");
+            client.create("/limited/b", "");
+            zooKeeper.setQuota("/limited", 5, -1);
+
+            assertThatThrownBy(() -> zooKeeper.bulkLoad(
+                entries("/limited/a/1", "/limited/a/2", "/limited/b/1", "/limited/b/2"), 2))
+                .isInstanceOf(IllegalStateException.class);
+            assertThat(client.getChildren("/limited/a")).isEmpty();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Should report bulk load throughput by thread count")
+    void shouldReportThroughput() {
+        for (int threads : new int[] {1, 2, 4}) {
+            MiniZooKeeper target = new MiniZooKeeper();
+            new MiniZooKeeperClient(target).create("/load", "");
+            Iterator<Map.Entry<String, byte[]>> entries = tree(List.of("/load/t"), 10, 4);
+
+            long start = System.nanoTime();
+            long loaded = target.bulkLoad(entries, threads);
+            long elapsedNanos = System.nanoTime() - start;
+
+            assertThat(loaded).isEqualTo(11_111);
+            log.info("{} threads: {} nodes in {} ms, {} nodes/sec", threads, loaded, elapsedNanos / 1_000_000,
+                Math.round(loaded * 1e9 / elapsedNanos));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.minizk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for ChangeLog class.
+ */
+@DisplayName("ChangeLog Tests")
+class ChangeLogTest {
+
+    private MiniZooKeeper zooKeeper;
+    private MiniZooKeeperClient client;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper(new InMemoryNodeStore(), 8);
+        client = new MiniZooKeeperClient(zooKeeper);
+    }
+
+    @Test
+    @DisplayName("Should assign increasing zxids to committed writes only")
+    void shouldAssignZxidsToCommittedWrites() throws Exception {
+        client.create("/app", "v1");
+        client.setData("/app", "v2");
+        client.create("/app", "duplicate");
+        client.getData("/app");
+        client.delete("/app");
+
+        List<ChangeLog.ChangeEvent> changes = zooKeeper.subscribe(0, "/").poll(10, Duration.ZERO);
+
+        assertThat(changes).extracting(ChangeLog.ChangeEvent::getZxid).containsExactly(zxid(1), zxid(2), zxid(3));
+        assertThat(changes).extracting(ChangeLog.ChangeEvent::getOperation).containsExactly(
+            ZooKeeperRequest.Operation.CREATE, ZooKeeperRequest.Operation.UPDATE, ZooKeeperRequest.Operation.DELETE);
+        assertThat(new String(changes.get(1).getData(), StandardCharsets.UTF_8)).isEqualTo("v2");
+        assertThat(changes.get(1).getVersion()).isEqualTo(2);
+        assertThat(zooKeeper.getChangeLog().getLastZxid()).isEqualTo(zxid(3));
+    }
+
+    @Test
+    @DisplayName("Should filter by prefix and resume from the last position")
+    void shouldFilterAndResume() throws Exception {
+        client.create("/app", "");
+        client.create("/apple", "");
+        client.create("/app/web", "");
+
+        ChangeLog.Subscription subscription = zooKeeper.subscribe(0, "/app");
+        List<ChangeLog.ChangeEvent> first = subscription.poll(1, Duration.ZERO);
+        long resumeAfter = subscription.getPosition();
+        client.setData("/app/web", "8080");
+
+        List<ChangeLog.ChangeEvent> resumed = zooKeeper.subscribe(resumeAfter, "/app").poll(10, Duration.ZERO);
+
+        assertThat(first).extracting(ChangeLog.ChangeEvent::getPath).containsExactly("/app");
+        assertThat(resumed).extracting(ChangeLog.ChangeEvent::getPath).containsExactly("/app/web", "/app/web");
+    }
+
+    @Test
+    @DisplayName("Should fail a subscription whose position was overwritten")
+    void shouldFailTruncatedSubscription() throws Exception {
+        client.create("/a", "");
+        ChangeLog.Subscription subscription = zooKeeper.subscribe(0, "/");
+        for (int i = 0; i < 10; i++) {
+            client.setData("/a", "v" + i);
+        }
+
+        assertThat(zooKeeper.getChangeLog().getFirstRetainedZxid()).isEqualTo(zxid(4));
+        assertThatThrownBy(() -> subscription.poll(10, Duration.ZERO))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageStartingWith(ChangeLog.CHANGE_LOG_TRUNCATED);
+        assertThatThrownBy(() -> zooKeeper.subscribe(zxid(1), "/"))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(zooKeeper.subscribe(0, "/").poll(100, Duration.ZERO)).hasSize(8);
+    }
+
+    @Test
+    @DisplayName("Should wake a waiting subscriber when a change commits")
+    void shouldWakeWaitingSubscriber() throws Exception {
+        ChangeLog.Subscription subscription = zooKeeper.subscribe(0, "/");
+        CompletableFuture<List<ChangeLog.ChangeEvent>> pending = CompletableFuture.supplyAsync(() -> {
+            try {
+                return subscription.poll(10, Duration.ofSeconds(10));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(50);
+        client.create("/late", "");
+
+        assertThat(pending.get(5, TimeUnit.SECONDS).stream().map(ChangeLog.ChangeEvent::getPath)
+            .collect(Collectors.toList())).containsExactly("/late");
+    }
+
+    @Test
+    @DisplayName("Should reject positions that have not been committed")
+    void shouldRejectFuturePositions() {
+        assertThatThrownBy(() -> zooKeeper.subscribe(zxid(5), "/")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> zooKeeper.subscribe(0, "app")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should start every service on a later epoch")
+    void shouldAdvanceEpochPerService() {
+        MiniZooKeeper restarted = new MiniZooKeeper(new InMemoryNodeStore(), 8);
+
+        assertThat(restarted.getChangeLog().getEpoch()).isGreaterThan(zooKeeper.getChangeLog().getEpoch());
+        assertThat(restarted.getChangeLog().getLastZxid()).isGreaterThan(zooKeeper.getChangeLog().getLastZxid());
+    }
+
+    @Test
+    @DisplayName("Should reject a position from an earlier epoch after a restart")
+    void shouldRejectPositionFromEarlierEpoch(@TempDir Path directory) throws Exception {
+        long position;
+        try (MiniZooKeeper before = new MiniZooKeeper(new DiskNodeStore(directory), 8)) {
+            for (int i = 0; i < 3; i++) {
+                new MiniZooKeeperClient(before).create("/before" + i, "");
+            }
+            ChangeLog.Subscription subscription = before.subscribe(0, "/");
+            subscription.poll(10, Duration.ZERO);
+            position = subscription.getPosition();
+        }
+
+        try (MiniZooKeeper after = new MiniZooKeeper(new DiskNodeStore(directory), 8)) {
+            for (int i = 0; i < 5; i++) {
+                new MiniZooKeeperClient(after).create("/after" + i, "");
+            }
+
+            assertThat(after.getChangeLog().getFirstRetainedZxid()).isGreaterThan(position + 1);
+            assertThatThrownBy(() -> after.subscribe(position, "/"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith(ChangeLog.CHANGE_LOG_TRUNCATED);
+            assertThat(after.subscribe(0, "/").poll(10, Duration.ZERO)).hasSize(5);
+        }
+    }
+
+    private long zxid(long counter) {
+        return (zooKeeper.getChangeLog().getEpoch() << 32) + counter;
+    }
+}
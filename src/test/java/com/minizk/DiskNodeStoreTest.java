@@ -0,0 +1,276 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for DiskNodeStore class.
+ */
+@Slf4j
+@DisplayName("DiskNodeStore Tests")
+class DiskNodeStoreTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Leaves the store open, as a crashed process would, once its next log segment has been created in the
+     * background, so a reopen does not race the abandoned store for the same segment file.
+     */
+    private static void abandon(DiskNodeStore store) {
+        store.getTransactionLog().getSegmentCount();
+    }
+
+    @Test
+    @DisplayName("Should serve CRUD operations through MiniZooKeeper")
+    void shouldServeCrudOperations() {
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory))) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+
+            assertThat(client.create("/app", "config")).isTrue();
+            assertThat(client.create("/app/web", "web")).isTrue();
+            assertThat(client.setData("/app", "updated")).isTrue();
+
+            assertThat(client.getData("/app")).isEqualTo("updated");
+            assertThat(client.getChildren("/")).containsExactly("app");
+            assertThat(client.getChildren("/app")).containsExactly("web");
+            assertThat(client.delete("/app")).isFalse();
+            assertThat(client.delete("/app/web")).isTrue();
+            assertThat(client.getChildren("/app")).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should load cold nodes from sorted runs after flush and compaction")
+    void shouldLoadColdNodesFromSortedRuns() {
+        DiskNodeStore store = new DiskNodeStore(directory, 4 * 1024, 16);
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(store)) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/items", "");
+            for (int i = 0; i < 2_000; i++) {
+                client.create("/items/item" + i, "value" + i);
+            }
+            for (int i = 0; i < 2_000; i += 2) {
+                client.delete("/items/item" + i);
+            }
+
+            assertThat(store.getRunCount()).isBetween(1, 9);
+            assertThat(client.getData("/items/item1")).isEqualTo("value1");
+            assertThat(client.getData("/items/item1999")).isEqualTo("value1999");
+            assertThat(client.getData("/items/item0")).isNull();
+            assertThat(client.getChildren("/items")).hasSize(1_000).doesNotContain("item0");
+        }
+    }
+
+    @Test
+    @DisplayName("Should find paths one depth level at a time")
+    void shouldFindPathsByDepth() {
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory, 4 * 1024, 16))) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/services", "");
+            for (int i = 0; i < 50; i++) {
+                client.create("/services/s" + i, "");
+                client.create("/services/s" + i + "/instances", "");
+                client.create("/services/s" + i + "/instances/i", "");
+            }
+            client.create("/servicesx", "");
+
+            assertThat(client.find("/services/*/instances/*")).hasSize(50).allMatch(path -> path.endsWith("/i"));
+            assertThat(client.find("/services/**")).hasSize(151).doesNotContain("/servicesx");
+            assertThat(client.find("/services/s1?")).hasSize(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep nodes, versions and children across reopen")
+    void shouldPersistAcrossReopen() {
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory))) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/a", "1");
+            client.create("/a/b", "2");
+            client.create("/ab", "3");
+            client.setData("/a", "4");
+        }
+
+        DiskNodeStore store = new DiskNodeStore(directory);
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(store)) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+
+            assertThat(client.getData("/a")).isEqualTo("4");
+            assertThat(store.get(ZPath.of("/a")).getVersion()).isEqualTo(2);
+            assertThat(client.getChildren("/")).containsExactlyInAnyOrder("a", "ab");
+            assertThat(client.getChildren("/a")).containsExactly("b");
+        }
+    }
+
+    @Test
+    @DisplayName("Should reschedule TTL and container nodes after reopen")
+    void shouldRescheduleExpiringNodesAfterReopen() {
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory))) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.createTtl("/session", "data", 1);
+            client.createContainer("/locks");
+            client.create("/locks/a", "");
+            client.delete("/locks/a");
+        }
+
+        DiskNodeStore store = new DiskNodeStore(directory);
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(store)) {
+            assertThat(store.get(ZPath.of("/session")).getTtl()).isEqualTo(1);
+            assertThat(store.get(ZPath.of("/locks")).isContainer()).isTrue();
+            assertThat(zooKeeper.getPendingExpiryCount()).isEqualTo(2);
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis() + 1000, 10)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep subtree digests across reopen")
+    void shouldPersistDigests() {
+        MiniZooKeeper inMemory = new MiniZooKeeper();
+        Long digest;
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory, 4 * 1024, 16))) {
+            for (MiniZooKeeperClient client : Arrays.asList(new MiniZooKeeperClient(zooKeeper),
+                    new MiniZooKeeperClient(inMemory))) {
+                client.create("/app", "root");
+                for (int i = 0; i < 50; i++) {
+                    client.create("/app/n" + i, "value-" + i);
+                }
+                client.delete("/app/n7");
+            }
+            digest = new MiniZooKeeperClient(zooKeeper).getDigest("/");
+        }
+
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory, 4 * 1024, 16))) {
+            assertThat(new MiniZooKeeperClient(zooKeeper).getDigest("/")).isEqualTo(digest);
+            assertThat(new TreeComparator(zooKeeper, inMemory).compare("/")).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should log only the written nodes and repair ancestor digests after a crash")
+    void shouldRepairDigestsAfterCrash() {
+        MiniZooKeeper inMemory = new MiniZooKeeper();
+        DiskNodeStore crashedStore = new DiskNodeStore(directory, 64L * 1024 * 1024, 16);
+        MiniZooKeeper crashed = new MiniZooKeeper(crashedStore);
+        for (MiniZooKeeper zooKeeper : Arrays.asList(crashed, inMemory)) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/a", "");
+            client.create("/a/b", "");
+            for (int i = 0; i < 30; i++) {
+                client.create("/a/b/n" + i, "value-" + i);
+            }
+            client.setData("/a/b/n3", "changed");
+        }
+        // No close, so the ancestors' digests were never flushed and must be rebuilt from the log.
+        abandon(crashedStore);
+
+        DiskNodeStore store = new DiskNodeStore(directory, 4 * 1024, 16);
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(store)) {
+            assertThat(store.getTransactionLog().getRecoveredRecordCount()).isEqualTo(1 + 32 + 1);
+            assertThat(new MiniZooKeeperClient(zooKeeper).getDigest("/"))
+                .isEqualTo(new MiniZooKeeperClient(inMemory).getDigest("/"));
+            assertThat(new TreeComparator(zooKeeper, inMemory).compare("/")).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should load the same tree on any number of threads")
+    void shouldLoadInParallel() {
+        DiskNodeStore crashed = new DiskNodeStore(directory, 16 * 1024, 16);
+        MiniZooKeeperClient client = new MiniZooKeeperClient(new MiniZooKeeper(crashed));
+        for (int i = 0; i < 20; i++) {
+            client.create("/n" + i, "");
+            client.createContainer("/n" + i + "/locks");
+            for (int j = 0; j < 20; j++) {
+                client.create("/n" + i + "/c" + j, "value-" + j);
+            }
+            client.createTtl("/n" + i + "/c0/session", "", 60_000);
+        }
+        // No close, so no index is saved and each restart reads the tree.
+        abandon(crashed);
+
+        for (int threads : new int[] {1, 4}) {
+            DiskNodeStore store = new DiskNodeStore(directory, 16 * 1024, 16);
+            MiniZooKeeper zooKeeper = new MiniZooKeeper(store, ChangeLog.DEFAULT_CAPACITY, 0, threads);
+            assertThat(zooKeeper.getLoadedNodeCount()).isEqualTo(20 * 23);
+            assertThat(zooKeeper.getPendingExpiryCount()).isEqualTo(40);
+            abandon(store);
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore the expiry queue and memory accounting saved at close without reading the tree")
+    void shouldRestoreStartupIndex() {
+        long totalBytes;
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory, 16 * 1024, 16))) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            for (int i = 0; i < 10; i++) {
+                client.create("/n" + i, "value-" + i);
+                client.createTtl("/n" + i + "/session", "", 60_000);
+            }
+            client.createContainer("/locks");
+            totalBytes = zooKeeper.getMemoryAccounting().getTotalBytes();
+        }
+
+        DiskNodeStore restartedStore = new DiskNodeStore(directory, 16 * 1024, 16);
+        MiniZooKeeper restarted = new MiniZooKeeper(restartedStore);
+        assertThat(restarted.getLoadedNodeCount()).isZero();
+        assertThat(restarted.getPendingExpiryCount()).isEqualTo(10);
+        assertThat(restarted.getMemoryAccounting().getTotalNodes()).isEqualTo(22);
+        assertThat(restarted.getMemoryAccounting().getTotalBytes()).isEqualTo(totalBytes);
+        assertThat(restarted.getMemoryAccounting().getTopSubtrees(100, MemoryAccounting.Order.NODES)).hasSize(21);
+        new MiniZooKeeperClient(restarted).delete("/n0/session");
+        // No close: the index no longer matches the log, so the next restart reads the tree.
+        abandon(restartedStore);
+
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(new DiskNodeStore(directory, 16 * 1024, 16))) {
+            assertThat(zooKeeper.getLoadedNodeCount()).isEqualTo(20);
+            assertThat(zooKeeper.getPendingExpiryCount()).isEqualTo(10);
+            assertThat(zooKeeper.getMemoryAccounting().getTotalNodes()).isEqualTo(21);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Should report restart time by startup thread count")
+    void shouldReportRestartTime() {
+        int fanout = 40;
+        long nodes = fanout + (long) fanout * fanout * 2;
+        DiskNodeStore crashed = new DiskNodeStore(directory, 64L * 1024 * 1024, 16, 1024 * 1024, 0, Duration.ZERO);
+        MiniZooKeeper writer = new MiniZooKeeper(crashed);
+        MiniZooKeeperClient client = new MiniZooKeeperClient(writer);
+        for (int i = 0; i < fanout; i++) {
+            client.create("/n" + i, "");
+            for (int j = 0; j < fanout; j++) {
+                client.create("/n" + i + "/n" + j, "");
+                client.create("/n" + i + "/n" + j + "/leaf", "value-" + i + "." + j);
+            }
+        }
+        // No close, so every write is replayed from the log on each restart.
+        abandon(crashed);
+
+        for (int threads : new int[] {1, 2, 4}) {
+            long start = System.nanoTime();
+            DiskNodeStore store = new DiskNodeStore(directory, 64L * 1024 * 1024, 16, 1024 * 1024, 0, Duration.ZERO,
+                threads);
+            MiniZooKeeper restarted = new MiniZooKeeper(store, ChangeLog.DEFAULT_CAPACITY, 0, threads);
+            long elapsedNanos = System.nanoTime() - start;
+            abandon(store);
+
+            log.info("Restarted {} nodes from {} log records on {} threads in {} ms", nodes,
+                store.getTransactionLog().getRecoveredRecordCount(), threads,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            assertThat(restarted.getLoadedNodeCount()).isEqualTo(nodes);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for LaneScheduler class.
+ */
+@Slf4j
+@DisplayName("LaneScheduler Tests")
+class LaneSchedulerTest {
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+    }
+
+    /**
+     * Service that blocks every request on a latch, recording the order requests started in.
+     */
+    private static final class GatedProcessor implements RequestProcessor {
+
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final List<String> started = new ArrayList<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunningWrites = new AtomicInteger();
+
+        @Override
+        public ZooKeeperResponse processRequest(ZooKeeperRequest request) {
+            synchronized (started) {
+                started.add(request.getOperation() + " " + request.getPath());
+            }
+            int now = running.incrementAndGet();
+            if (request.getOperation().isWrite()) {
+                maxRunningWrites.accumulateAndGet(now, Math::max);
+            }
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return ZooKeeperResponse.success();
+        }
+
+        private List<String> started() {
+            synchronized (started) {
+                return new ArrayList<>(started);
+            }
+        }
+    }
+
+    private static ZooKeeperRequest read(String path) {
+        return new ZooKeeperRequest(ZooKeeperRequest.Operation.READ, path);
+    }
+
+    private static ZooKeeperRequest write(String path) {
+        return new ZooKeeperRequest(ZooKeeperRequest.Operation.UPDATE, path, new byte[0]);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Nested
+    @DisplayName("Scheduling Tests")
+    class SchedulingTests {
+
+        @Test
+        @DisplayName("Should run reads together and writes alone")
+        void shouldRunReadsTogetherAndWritesAlone() throws Exception {
+            GatedProcessor service = new GatedProcessor();
+            LaneScheduler scheduler = new LaneScheduler(service);
+            ExecutorService executor = Executors.newFixedThreadPool(6);
+            try {
+                for (int i = 0; i < 3; i++) {
+                    String path = "/r" + i;
+                    executor.submit(() -> scheduler.processRequest(read(path)));
+                }
+                awaitCondition(() -> service.running.get() == 3);
+                for (int i = 0; i < 3; i++) {
+                    String path = "/w" + i;
+                    executor.submit(() -> scheduler.processRequest(write(path)));
+                }
+                awaitCondition(() -> scheduler.getWriteLane().getQueueDepth() == 3);
+
+                assertThat(scheduler.getReadLane().getGrantedCount()).isEqualTo(3);
+                assertThat(scheduler.getWriteLane().getGrantedCount()).isZero();
+                service.gate.countDown();
+                awaitCondition(() -> scheduler.getWriteLane().getGrantedCount() == 3 && service.running.get() == 0);
+                assertThat(service.maxRunningWrites).hasValue(1);
+                assertThat(scheduler.getWriteLane().getPeakQueueDepth()).isEqualTo(3);
+            } finally {
+                service.gate.countDown();
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should alternate lanes by weight while both have waiters")
+        void shouldAlternateByWeight() throws Exception {
+            GatedProcessor service = new GatedProcessor();
+            LaneScheduler scheduler = new LaneScheduler(service, 2, 1, Duration.ofMinutes(1));
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                // Hold the service with one write, then queue reads and writes behind it.
+                executor.submit(() -> scheduler.processRequest(write("/first")));
+                awaitCondition(() -> service.running.get() == 1);
+                for (int i = 0; i < 4; i++) {
+                    String path = "/r" + i;
+                    int depth = i + 1;
+                    executor.submit(() -> scheduler.processRequest(read(path)));
+                    awaitCondition(() -> scheduler.getReadLane().getQueueDepth() == depth);
+                }
+                for (int i = 0; i < 2; i++) {
+                    String path = "/w" + i;
+                    int depth = i + 1;
+                    executor.submit(() -> scheduler.processRequest(write(path)));
+                    awaitCondition(() -> scheduler.getWriteLane().getQueueDepth() == depth);
+                }
+                service.gate.countDown();
+                awaitCondition(() -> service.started().size() == 7 && service.running.get() == 0);
+
+                // Reads granted together run concurrently, so each pair may start in either order.
+                List<String> started = service.started();
+                assertThat(started).hasSize(7);
+                assertThat(started.get(0)).isEqualTo("UPDATE /first");
+                assertThat(started.subList(1, 3)).containsExactlyInAnyOrder("READ /r0", "READ /r1");
+                assertThat(started.get(3)).isEqualTo("UPDATE /w0");
+                assertThat(started.subList(4, 6)).containsExactlyInAnyOrder("READ /r2", "READ /r3");
+                assertThat(started.get(6)).isEqualTo("UPDATE /w1");
+            } finally {
+                service.gate.countDown();
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should serve an overdue lane out of turn")
+        void shouldServeOverdueLane() throws Exception {
+            GatedProcessor service = new GatedProcessor();
+            LaneScheduler scheduler = new LaneScheduler(service, 100, 1, Duration.ZERO);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                executor.submit(() -> scheduler.processRequest(write("/first")));
+                awaitCondition(() -> service.running.get() == 1);
+                executor.submit(() -> scheduler.processRequest(write("/w")));
+                awaitCondition(() -> scheduler.getWriteLane().getQueueDepth() == 1);
+                executor.submit(() -> scheduler.processRequest(read("/r")));
+                awaitCondition(() -> scheduler.getReadLane().getQueueDepth() == 1);
+                Thread.sleep(2);
+                service.gate.countDown();
+                awaitCondition(() -> service.started().size() == 3 && service.running.get() == 0);
+
+                // Despite the read lane's turn and weight, the write that has waited longest goes first.
+                assertThat(service.started()).containsExactly("UPDATE /first", "UPDATE /w", "READ /r");
+            } finally {
+                service.gate.countDown();
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should pass requests and batches through to the service")
+    void shouldPassThrough() {
+        LaneScheduler scheduler = new LaneScheduler(zooKeeper);
+        MiniZooKeeperClient client = new MiniZooKeeperClient(scheduler);
+
+        assertThat(client.create("/config", "v1")).isTrue();
+        List<ZooKeeperResponse> responses = scheduler.processBatch(List.of(
+            new ZooKeeperRequest(ZooKeeperRequest.Operation.UPDATE, "/config", "v2".getBytes()),
+            new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, "/config", new byte[0])));
+
+        assertThat(responses.get(0).isSuccess()).isTrue();
+        assertThat(responses.get(1).isSuccess()).isFalse();
+        assertThat(client.getData("/config")).isEqualTo("v2");
+        assertThat(scheduler.getWriteLane().getGrantedCount()).isEqualTo(2);
+        assertThat(scheduler.getReadLane().getGrantedCount()).isEqualTo(1);
+        assertThat(scheduler.getReadLane().getQueueDepth()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject invalid weights")
+    void shouldRejectInvalidWeights() {
+        assertThatThrownBy(() -> new LaneScheduler(zooKeeper, 0, 1, Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LaneScheduler(zooKeeper, 1, 1, Duration.ofMillis(-1)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should keep read p99 flat when write load doubles")
+    void shouldKeepReadLatencyFlat() throws Exception {
+        MiniZooKeeperClient setup = new MiniZooKeeperClient(zooKeeper);
+        setup.create("/config", "value");
+        for (int i = 0; i < 8; i++) {
+            setup.create("/data" + i, "0");
+        }
+
+        // Straight to the service, a read can wait indefinitely while writers hand its lock to each other.
+        LaneScheduler scheduler = new LaneScheduler(zooKeeper);
+        long lanes = readP99(scheduler, 2);
+        long lanesDoubled = readP99(scheduler, 4);
+        log.debug("Read p99 with 2 writers: {} us, with 4 writers: {} us; {}", lanes / 1_000, lanesDoubled / 1_000,
+            scheduler);
+
+        assertThat(lanesDoubled).isLessThanOrEqualTo(Math.max(lanes * 2, lanes + TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    /**
+     * Returns the 99th percentile latency of up to 5000 reads issued by one thread, for at most a second,
+     * while {@code writers} threads update nodes as fast as they can.
+     */
+    private static long readP99(RequestProcessor processor, int writers) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        byte[] payload = new byte[4_096];
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                String path = "/data" + w;
+                futures.add(executor.submit(() -> {
+                    while (running.get()) {
+                        processor.processRequest(
+                            new ZooKeeperRequest(ZooKeeperRequest.Operation.UPDATE, path, payload));
+                    }
+                }));
+            }
+            long[] latencies = new long[5_000];
+            int reads = 0;
+            while (reads < latencies.length && System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                assertThat(processor.processRequest(read("/config")).isSuccess()).isTrue();
+                latencies[reads++] = System.nanoTime() - start;
+            }
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Arrays.sort(latencies, 0, reads);
+            return latencies[reads * 99 / 100];
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.minizk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for LoadGenerator and its histogram and key distribution helpers.
+ */
+@DisplayName("LoadGenerator Tests")
+class LoadGeneratorTest {
+
+    @Nested
+    @DisplayName("Latency Histogram Tests")
+    class LatencyHistogramTests {
+
+        @Test
+        @DisplayName("Should report percentiles within bucket precision")
+        void shouldReportPercentilesWithinPrecision() {
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (long value = 1; value <= 100_000; value++) {
+                histogram.record(value * 1_000);
+            }
+
+            assertThat(histogram.getTotalCount()).isEqualTo(100_000);
+            assertThat(histogram.getValueAtPercentile(50)).isCloseTo(50_000_000L, withinPercentage(4));
+            assertThat(histogram.getValueAtPercentile(99)).isCloseTo(99_000_000L, withinPercentage(4));
+            assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100_000_000L);
+            assertThat(histogram.getMin()).isEqualTo(1_000);
+        }
+
+        @Test
+        @DisplayName("Should merge histograms")
+        void shouldMergeHistograms() {
+            LatencyHistogram first = new LatencyHistogram();
+            LatencyHistogram second = new LatencyHistogram();
+            first.record(10);
+            second.record(1_000_000);
+
+            first.add(second);
+
+            assertThat(first.getTotalCount()).isEqualTo(2);
+            assertThat(first.getMax()).isEqualTo(1_000_000);
+            assertThat(first.getValueAtPercentile(50)).isEqualTo(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Should skew zipfian draws towards low indexes")
+    void shouldSkewZipfianDraws() {
+        ZipfianGenerator zipfian = new ZipfianGenerator(10_000);
+        int hot = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long item = zipfian.next();
+            assertThat(item).isBetween(0L, 9_999L);
+            if (item < 100) {
+                hot++;
+            }
+        }
+
+        assertThat(hot).isGreaterThan(4_000);
+    }
+
+    @Test
+    @DisplayName("Should parse options and reject unknown ones")
+    void shouldParseOptions() {
+        LoadGenerator.Options options = LoadGenerator.Options.parse(new String[] {
+            "--threads=2", "--mix=read:3,update:1", "--distribution=zipfian", "--target=direct"});
+
+        assertThat(options.getThreads()).isEqualTo(2);
+        assertThat(options.getMix()).containsOnlyKeys(ZooKeeperRequest.Operation.READ, ZooKeeperRequest.Operation.UPDATE);
+        assertThat(options.getDistribution()).isEqualTo(LoadGenerator.KeyDistribution.ZIPFIAN);
+        assertThatThrownBy(() -> LoadGenerator.Options.parse(new String[] {"--bogus=1"}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should run a rate-limited mixed workload without errors")
+    void shouldRunRateLimitedWorkload() throws Exception {
+        LoadGenerator.Options options = new LoadGenerator.Options()
+            .threads(2)
+            .durationSeconds(1)
+            .targetRate(2_000)
+            .keys(500)
+            .payloadBytes(32);
+
+        LoadGenerator.Report report = new LoadGenerator(new MiniZooKeeper(), options).run();
+
+        assertThat(report.isCorrected()).isTrue();
+        assertThat(report.getErrors()).isZero();
+        assertThat(report.getOverall().getTotalCount()).isBetween(1_000L, 2_100L);
+        assertThat(report.getHistogram(ZooKeeperRequest.Operation.READ).getTotalCount()).isPositive();
+        assertThat(report.toString()).contains("ALL", "coordinated omission");
+    }
+}
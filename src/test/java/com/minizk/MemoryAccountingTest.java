@@ -0,0 +1,141 @@
+package com.minizk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for MemoryAccounting class.
+ */
+@DisplayName("MemoryAccounting Tests")
+class MemoryAccountingTest {
+
+    private MiniZooKeeper zooKeeper;
+    private MiniZooKeeperClient client;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        client = new MiniZooKeeperClient(zooKeeper);
+    }
+
+    private static List<String> paths(List<MemoryAccounting.SubtreeUsage> usages) {
+        return usages.stream().map(MemoryAccounting.SubtreeUsage::getPath).collect(Collectors.toList());
+    }
+
+    @Nested
+    @DisplayName("Estimate Tests")
+    class EstimateTests {
+
+        @Test
+        @DisplayName("Should grow with the path and payload")
+        void shouldGrowWithPathAndPayload() {
+            ZNode small = new ZNode("/a");
+            ZNode longPath = new ZNode("/a/much/longer/path/name");
+            ZNode large = new ZNode("/b");
+            large.setData(new byte[1000]);
+
+            assertThat(small.estimateRetainedBytes()).isPositive();
+            assertThat(longPath.estimateRetainedBytes()).isGreaterThan(small.estimateRetainedBytes());
+            assertThat(large.estimateRetainedBytes() - small.estimateRetainedBytes()).isBetween(1000L, 1008L);
+        }
+
+        @Test
+        @DisplayName("Should count the stored, possibly compressed, payload")
+        void shouldCountStoredPayload() {
+            ZNode compressible = new ZNode("/c");
+            compressible.setData(new byte[PayloadCodec.DEFAULT_THRESHOLD_BYTES * 4]);
+
+            assertThat(compressible.isCompressed()).isTrue();
+            assertThat(compressible.estimateRetainedBytes()).isLessThan(PayloadCodec.DEFAULT_THRESHOLD_BYTES * 4L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Counter Tests")
+    class CounterTests {
+
+        @Test
+        @DisplayName("Should track every write in the totals and enclosing subtrees")
+        void shouldTrackWrites() {
+            MemoryAccounting accounting = zooKeeper.getMemoryAccounting();
+            long emptyBytes = accounting.getTotalBytes();
+            client.create("/app", "");
+            client.create("/app/config", "v1");
+            client.create("/app/config/deep", "x".repeat(500));
+
+            assertThat(accounting.getTotalNodes()).isEqualTo(4);
+            MemoryAccounting.SubtreeUsage app = accounting.getTopSubtrees(1, MemoryAccounting.Order.BYTES).get(0);
+            assertThat(app.getPath()).isEqualTo("/app");
+            assertThat(app.getNodes()).isEqualTo(3);
+            assertThat(app.getBytes()).isEqualTo(accounting.getTotalBytes() - emptyBytes);
+            // Only the top two levels are tracked on their own.
+            assertThat(accounting.getTrackedSubtreeCount()).isEqualTo(2);
+
+            client.setData("/app/config/deep", "");
+            client.delete("/app/config/deep");
+            client.delete("/app/config");
+            client.delete("/app");
+            assertThat(accounting.getTotalNodes()).isEqualTo(1);
+            assertThat(accounting.getTotalBytes()).isEqualTo(emptyBytes);
+            assertThat(accounting.getTrackedSubtreeCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should rank subtrees by bytes or by node count")
+        void shouldRankSubtrees() {
+            client.create("/many", "");
+            for (int i = 0; i < 20; i++) {
+                client.create("/many/n" + i, "");
+            }
+            client.create("/big", "x".repeat(10_000));
+            client.create("/small", "");
+
+            MemoryAccounting accounting = zooKeeper.getMemoryAccounting();
+            assertThat(paths(accounting.getTopSubtrees(2, MemoryAccounting.Order.BYTES)))
+                .containsExactly("/big", "/many");
+            assertThat(paths(accounting.getTopSubtrees(2, MemoryAccounting.Order.NODES)))
+                .containsExactly("/many", "/big");
+            assertThat(accounting.getTopSubtrees(100, MemoryAccounting.Order.NODES)).hasSize(23);
+            assertThatThrownBy(() -> accounting.getTopSubtrees(0, MemoryAccounting.Order.BYTES))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild the same counters when a stored tree is loaded")
+    void shouldSeedFromStartupLoad(@TempDir Path directory) {
+        List<String> before;
+        long totalBytes;
+        try (MiniZooKeeper stored = new MiniZooKeeper(new DiskNodeStore(directory, 16 * 1024, 16))) {
+            MiniZooKeeperClient storedClient = new MiniZooKeeperClient(stored);
+            for (int i = 0; i < 10; i++) {
+                storedClient.create("/n" + i, "");
+                for (int j = 0; j <= i; j++) {
+                    storedClient.create("/n" + i + "/c" + j, "");
+                    storedClient.create("/n" + i + "/c" + j + "/leaf", "value-" + i + "." + j);
+                }
+            }
+            before = stored.getMemoryAccounting().getTopSubtrees(100, MemoryAccounting.Order.BYTES).stream()
+                .map(MemoryAccounting.SubtreeUsage::toString).collect(Collectors.toList());
+            totalBytes = stored.getMemoryAccounting().getTotalBytes();
+        }
+
+        try (MiniZooKeeper reopened = new MiniZooKeeper(new DiskNodeStore(directory, 16 * 1024, 16),
+                ChangeLog.DEFAULT_CAPACITY, 0, 4)) {
+            MemoryAccounting accounting = reopened.getMemoryAccounting();
+            assertThat(accounting.getTotalNodes()).isEqualTo(1 + 10 + 2 * 55);
+            assertThat(accounting.getTotalBytes()).isEqualTo(totalBytes);
+            assertThat(accounting.getTopSubtrees(100, MemoryAccounting.Order.BYTES).stream()
+                .map(MemoryAccounting.SubtreeUsage::toString).collect(Collectors.toList())).isEqualTo(before);
+        }
+    }
+}
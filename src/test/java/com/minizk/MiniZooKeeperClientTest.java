@@ -1,17 +1,25 @@
 package com.minizk;
 
+import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.assertj.core.api.Assertions.*;
 
 /**
  * Integration tests for MiniZooKeeperClient class.
  */
+@Slf4j
 @DisplayName("MiniZooKeeperClient Tests")
 class MiniZooKeeperClientTest {
 
@@ -356,4 +364,142 @@ class MiniZooKeeperClientTest {
         }
     }
 
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Read Coalescing Tests")
+    class ReadCoalescingTests {
+
+        private static final int READERS = 200;
+
+        @Test
+        @DisplayName("Should send one request for identical concurrent reads")
+        void shouldCoalesceConcurrentReads() throws Exception {
+            client.create(TEST_PATH, TEST_DATA);
+            AtomicInteger serverRequests = new AtomicInteger();
+            RequestProcessor slowServer = request -> {
+                serverRequests.incrementAndGet();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                return zooKeeper.processRequest(request);
+            };
+
+            int uncoalesced = runReaders(new MiniZooKeeperClient(slowServer, false), serverRequests);
+            MiniZooKeeperClient coalescing = new MiniZooKeeperClient(slowServer);
+            int coalesced = runReaders(coalescing, serverRequests);
+
+            log.debug("{} concurrent getData calls: {} server requests without coalescing, {} with",
+                READERS, uncoalesced, coalesced);
+            assertThat(uncoalesced).isEqualTo(READERS);
+            assertThat(coalesced).isLessThan(READERS / 10);
+            assertThat(coalescing.getCoalescedReadCount()).isEqualTo(READERS - coalesced);
+        }
+
+        @Test
+        @DisplayName("Should not let a read join a flight that started before the client's last write")
+        void shouldNotHideOwnWrites() throws Exception {
+            client.create(TEST_PATH, "old");
+            CountDownLatch firstReadStarted = new CountDownLatch(1);
+            CountDownLatch releaseFirstRead = new CountDownLatch(1);
+            AtomicInteger reads = new AtomicInteger();
+            RequestProcessor server = request -> {
+                if (request.getOperation() == ZooKeeperRequest.Operation.READ && reads.incrementAndGet() == 1) {
+                    ZooKeeperResponse stale = zooKeeper.processRequest(request);
+                    firstReadStarted.countDown();
+                    try {
+                        releaseFirstRead.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return stale;
+                }
+                return zooKeeper.processRequest(request);
+            };
+            MiniZooKeeperClient shared = new MiniZooKeeperClient(server);
+
+            CompletableFuture<String> slowRead = CompletableFuture.supplyAsync(() -> shared.getData(TEST_PATH));
+            assertThat(firstReadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            shared.setData(TEST_PATH, "new");
+            String afterWrite = shared.getData(TEST_PATH);
+            releaseFirstRead.countDown();
+
+            assertThat(afterWrite).isEqualTo("new");
+            assertThat(slowRead.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+            assertThat(shared.getCoalescedReadCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should release coalesced reads when the shared read throws an error")
+        void shouldReleaseWaitersOnError() throws Exception {
+            client.create(TEST_PATH, TEST_DATA);
+            CountDownLatch failRead = new CountDownLatch(1);
+            AtomicInteger reads = new AtomicInteger();
+            RequestProcessor server = request -> {
+                if (request.getOperation() == ZooKeeperRequest.Operation.READ && reads.incrementAndGet() == 1) {
+                    try {
+                        failRead.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new StackOverflowError("server failed");
+                }
+                return zooKeeper.processRequest(request);
+            };
+            MiniZooKeeperClient shared = new MiniZooKeeperClient(server);
+
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> shared.getData(TEST_PATH));
+            CompletableFuture<String> joined = new CompletableFuture<>();
+            new Thread(() -> {
+                while (reads.get() == 0) {
+                    Thread.onSpinWait();
+                }
+                try {
+                    joined.complete(shared.getData(TEST_PATH));
+                } catch (Throwable e) {
+                    joined.completeExceptionally(e);
+                }
+            }).start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (shared.getCoalescedReadCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            failRead.countDown();
+
+            assertThatThrownBy(() -> joined.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThat(shared.getCoalescedReadCount()).isEqualTo(1);
+            assertThat(shared.getData(TEST_PATH)).isEqualTo(TEST_DATA);
+        }
+
+        @Test
+        @DisplayName("Should share children as an immutable list")
+        void shouldShareImmutableChildren() {
+            client.create("/parent", "");
+            client.create("/parent/a", "");
+
+            assertThatThrownBy(() -> client.getChildren("/parent").add("b"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        }
+
+        private int runReaders(MiniZooKeeperClient readerClient, AtomicInteger serverRequests) throws Exception {
+            serverRequests.set(0);
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<String>> results = new ArrayList<>(READERS);
+            for (int i = 0; i < READERS; i++) {
+                CompletableFuture<String> result = new CompletableFuture<>();
+                new Thread(() -> {
+                    try {
+                        start.await();
+                        result.complete(readerClient.getData(TEST_PATH));
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                }).start();
+                results.add(result);
+            }
+            start.countDown();
+            for (CompletableFuture<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(TEST_DATA);
+            }
+            return serverRequests.get();
+        }
+    }
+}
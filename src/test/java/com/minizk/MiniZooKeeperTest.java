@@ -1,15 +1,20 @@
 package com.minizk;
 
+import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.*;
 
 /**
  * Unit tests for MiniZooKeeper class.
  */
+@Slf4j
 @DisplayName("MiniZooKeeper Tests")
 class MiniZooKeeperTest {
 
@@ -134,6 +139,27 @@ class MiniZooKeeperTest {
             assertThat(response.getData()).isEqualTo(TEST_DATA.getBytes());
         }
 
+        @Test
+        @DisplayName("Should ship compressed payload only to callers that accept it")
+        void shouldShipCompressedPayloadOnlyWhenAccepted() {
+            byte[] data = "config-line\n".repeat(PayloadCodec.DEFAULT_THRESHOLD_BYTES).getBytes();
+            zooKeeper.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, TEST_PATH, data));
+
+            ZooKeeperResponse plain = zooKeeper.processRequest(new ZooKeeperRequest(
+                ZooKeeperRequest.Operation.READ, TEST_PATH));
+            ZooKeeperResponse compressed = zooKeeper.processRequest(ZooKeeperRequest.builder()
+                .operation(ZooKeeperRequest.Operation.READ)
+                .path(TEST_PATH)
+                .acceptCompressed(true)
+                .build());
+
+            assertThat(plain.isCompressed()).isFalse();
+            assertThat(plain.getData()).isEqualTo(data);
+            assertThat(compressed.isCompressed()).isTrue();
+            assertThat(compressed.getData().length).isLessThan(data.length);
+            assertThat(compressed.getUncompressedData()).isEqualTo(data);
+        }
+
         @Test
         @DisplayName("Should fail to read non-existent node")
         void shouldFailToReadNonExistentNode() {
@@ -313,6 +339,295 @@ class MiniZooKeeperTest {
         }
     }
 
+    @Nested
+    @DisplayName("Find Operation Tests")
+    class FindOperationTests {
+
+        private MiniZooKeeperClient client;
+
+        @BeforeEach
+        void setUpTree() {
+            client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/services", "");
+            for (String service : new String[] {"api", "web"}) {
+                client.create("/services/" + service, "");
+                client.create("/services/" + service + "/instances", "");
+                client.create("/services/" + service + "/instances/i1", "");
+                client.create("/services/" + service + "/instances/i2", "");
+                client.create("/services/" + service + "/config", "");
+            }
+            client.create("/other", "");
+        }
+
+        @Test
+        @DisplayName("Should match single-level wildcards")
+        void shouldMatchSingleLevelWildcards() {
+            assertThat(client.find("/services/*/instances/*")).containsExactly(
+                "/services/api/instances/i1", "/services/api/instances/i2",
+                "/services/web/instances/i1", "/services/web/instances/i2");
+            assertThat(client.find("/services/w?b/*")).containsExactly(
+                "/services/web/config", "/services/web/instances");
+        }
+
+        @Test
+        @DisplayName("Should match prefixes with a multi-level wildcard")
+        void shouldMatchPrefixes() {
+            assertThat(client.find("/services/api/**")).containsExactly(
+                "/services/api", "/services/api/config", "/services/api/instances",
+                "/services/api/instances/i1", "/services/api/instances/i2");
+            assertThat(client.find("/**/i2")).containsExactly(
+                "/services/api/instances/i2", "/services/web/instances/i2");
+        }
+
+        @Test
+        @DisplayName("Should find shallow matches next to siblings below deeper subtrees")
+        void shouldFindShallowMatchesPastDeepSubtrees() {
+            client.create("/services/api-v2", "");
+            client.create("/services/api-v2/instances", "");
+            client.create("/services/api.old", "");
+
+            assertThat(client.find("/services/*")).containsExactly(
+                "/services/api", "/services/api-v2", "/services/api.old", "/services/web");
+            assertThat(client.find("/services/*/*")).containsExactly(
+                "/services/api-v2/instances", "/services/api/config", "/services/api/instances",
+                "/services/web/config", "/services/web/instances");
+        }
+
+        @Test
+        @DisplayName("Should treat a pattern without wildcards as an exact path")
+        void shouldMatchLiteralPaths() {
+            assertThat(client.find("/other")).containsExactly("/other");
+            assertThat(client.find("/missing/*")).isEmpty();
+            assertThat(client.find("services")).isNull();
+        }
+
+        @Test
+        @DisplayName("Should stop streaming when the visitor declines more results")
+        void shouldStopStreamingEarly() {
+            List<String> seen = new ArrayList<>();
+            long visited = zooKeeper.find("/**", path -> {
+                seen.add(path.toString());
+                return seen.size() < 3;
+            });
+
+            assertThat(visited).isEqualTo(3);
+            assertThat(seen).containsExactly("/", "/other", "/services");
+        }
+    }
+
+    @Nested
+    @DisplayName("Exists Operation Tests")
+    class ExistsOperationTests {
+
+        @Test
+        @DisplayName("Should fire an exists watch once on the next change")
+        void shouldFireWatchOnce() {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            List<ZooKeeperRequest.Operation> fired = new ArrayList<>();
+
+            assertThat(client.exists(TEST_PATH, event -> fired.add(event.getOperation()))).isFalse();
+            client.create(TEST_PATH, TEST_DATA);
+            client.setData(TEST_PATH, "changed");
+
+            assertThat(fired).containsExactly(ZooKeeperRequest.Operation.CREATE);
+            assertThat(zooKeeper.getWatchedPathCount()).isZero();
+            assertThat(client.exists(TEST_PATH)).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Atomic Update Tests")
+    class AtomicUpdateTests {
+
+        private static final int COUNTER_THREADS = 8;
+        private static final int INCREMENTS_PER_THREAD = 20_000;
+
+        @Test
+        @DisplayName("Should increment a decimal counter in one step")
+        void shouldIncrementCounter() {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/counter", "");
+
+            assertThat(client.increment("/counter", 1)).isEqualTo(1L);
+            assertThat(client.increment("/counter", 41)).isEqualTo(42L);
+            assertThat(client.increment("/counter", -50)).isEqualTo(-8L);
+            assertThat(client.getData("/counter")).isEqualTo("-8");
+            assertThat(zooKeeper.processRequest(ZooKeeperRequest.builder()
+                .operation(ZooKeeperRequest.Operation.INCREMENT).path("/counter").build()).getData())
+                .isEqualTo("-7".getBytes());
+        }
+
+        @Test
+        @DisplayName("Should reject non-numeric payloads and overflow")
+        void shouldRejectInvalidIncrements() {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create(TEST_PATH, TEST_DATA);
+            client.create("/max", Long.toString(Long.MAX_VALUE));
+
+            assertThat(increment(TEST_PATH, "1").getErrorMessage()).isEqualTo("Node data is not a number");
+            assertThat(increment("/max", "1").getErrorMessage()).isEqualTo("Counter overflow");
+            assertThat(increment("/max", "one").getErrorMessage()).isEqualTo("Invalid increment");
+            assertThat(increment("/missing", "1").getErrorMessage()).isEqualTo("Node does not exist");
+            assertThat(client.getData("/max")).isEqualTo(Long.toString(Long.MAX_VALUE));
+        }
+
+        @Test
+        @DisplayName("Should append up to the size limit")
+        void shouldAppendUpToLimit() {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/log", "ab");
+
+            assertThat(client.append("/log", "cd", 0)).isTrue();
+            assertThat(client.append("/log", "ef", 6)).isTrue();
+            assertThat(client.append("/log", "g", 6)).isFalse();
+            assertThat(client.getData("/log")).isEqualTo("abcdef");
+            assertThat(zooKeeper.getChangeLog().getLastZxid())
+                .isEqualTo((zooKeeper.getChangeLog().getEpoch() << 32) + 3);
+        }
+
+        @Test
+        @DisplayName("Should cap appends at the service maximum whatever the request limit")
+        void shouldCapAppendsAtServiceMaximum() {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/log", "");
+            String chunk = "x".repeat(MiniZooKeeper.MAX_APPEND_BYTES / 2);
+
+            assertThat(client.append("/log", chunk, Integer.MAX_VALUE)).isTrue();
+            assertThat(client.append("/log", chunk, Integer.MAX_VALUE)).isTrue();
+            assertThat(client.append("/log", "y", Integer.MAX_VALUE)).isFalse();
+            assertThat(zooKeeper.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.READ, "/log"))
+                .getData()).hasSize(MiniZooKeeper.MAX_APPEND_BYTES);
+        }
+
+        @Test
+        @DisplayName("Should not lose increments under contention, unlike a read-modify-write loop")
+        void shouldBenchmarkHotCounter() throws Exception {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+            client.create("/rmw", "0");
+            client.create("/atomic", "0");
+
+            long rmwNanos = runCounterThreads(() -> {
+                long value = Long.parseLong(client.getData("/rmw"));
+                client.setData("/rmw", Long.toString(value + 1));
+            });
+            long atomicNanos = runCounterThreads(() -> client.increment("/atomic", 1));
+
+            long expected = (long) COUNTER_THREADS * INCREMENTS_PER_THREAD;
+            long rmwValue = Long.parseLong(client.getData("/rmw"));
+            log.debug("{} threads x {} increments: read-modify-write {} ops/sec with {} lost updates, "
+                    + "atomic increment {} ops/sec with none",
+                COUNTER_THREADS, INCREMENTS_PER_THREAD, Math.round(expected * 1e9 / rmwNanos), expected - rmwValue,
+                Math.round(expected * 1e9 / atomicNanos));
+            assertThat(client.getData("/atomic")).isEqualTo(Long.toString(expected));
+        }
+
+        private long runCounterThreads(Runnable increment) throws InterruptedException {
+            List<Thread> threads = new ArrayList<>(COUNTER_THREADS);
+            long start = System.nanoTime();
+            for (int i = 0; i < COUNTER_THREADS; i++) {
+                Thread thread = new Thread(() -> {
+                    for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+                        increment.run();
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return System.nanoTime() - start;
+        }
+
+        private ZooKeeperResponse increment(String path, String delta) {
+            return zooKeeper.processRequest(new ZooKeeperRequest(
+                ZooKeeperRequest.Operation.INCREMENT, path, delta.getBytes()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Quota Tests")
+    class QuotaTests {
+
+        @BeforeEach
+        void createQuotaRoot() {
+            zooKeeper.processRequest(new ZooKeeperRequest(
+                ZooKeeperRequest.Operation.CREATE, "/tenant", new byte[0]));
+        }
+
+        @Test
+        @DisplayName("Should reject create beyond node count quota")
+        void shouldRejectCreateBeyondNodeCountQuota() {
+            assertThat(zooKeeper.setQuota("/tenant", 2, SubtreeQuota.UNLIMITED).isSuccess()).isTrue();
+
+            assertThat(create("/tenant/a", "x").isSuccess()).isTrue();
+            assertThat(create("/tenant/a/b", "x").isSuccess()).isTrue();
+            ZooKeeperResponse response = create("/tenant/c", "x");
+
+            assertThat(response.isSuccess()).isFalse();
+            assertThat(response.getErrorMessage()).isEqualTo("Node count quota exceeded");
+        }
+
+        @Test
+        @DisplayName("Should reject create and update beyond data bytes quota")
+        void shouldRejectWritesBeyondDataBytesQuota() {
+            zooKeeper.setQuota("/tenant", SubtreeQuota.UNLIMITED, 10);
+
+            assertThat(create("/tenant/a", "12345").isSuccess()).isTrue();
+            assertThat(create("/tenant/b", "123456").getErrorMessage()).isEqualTo("Data bytes quota exceeded");
+
+            ZooKeeperResponse update = zooKeeper.processRequest(new ZooKeeperRequest(
+                ZooKeeperRequest.Operation.UPDATE, "/tenant/a", "12345678901".getBytes()));
+            assertThat(update.getErrorMessage()).isEqualTo("Data bytes quota exceeded");
+        }
+
+        @Test
+        @DisplayName("Should count existing nodes and track usage incrementally")
+        void shouldTrackUsageIncrementally() {
+            create("/tenant/a", "abc");
+            create("/tenant/a/b", "de");
+            zooKeeper.setQuota("/tenant", 10, 100);
+
+            assertThat(zooKeeper.getQuota("/tenant").getUsedNodes()).isEqualTo(2);
+            assertThat(zooKeeper.getQuota("/tenant").getUsedBytes()).isEqualTo(5);
+
+            zooKeeper.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.DELETE, "/tenant/a/b"));
+
+            assertThat(zooKeeper.getQuota("/tenant").getUsedNodes()).isEqualTo(1);
+            assertThat(zooKeeper.getQuota("/tenant").getUsedBytes()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should apply nested quotas set or removed after writes below them")
+        void shouldApplyNestedQuotasChangedAfterWrites() {
+            create("/tenant/a", "");
+            create("/tenant/a/b", "");
+            zooKeeper.setQuota("/tenant", 10, SubtreeQuota.UNLIMITED);
+            assertThat(create("/tenant/a/b/c", "").isSuccess()).isTrue();
+
+            zooKeeper.setQuota("/tenant/a", 2, SubtreeQuota.UNLIMITED);
+            assertThat(create("/tenant/a/b/d", "").getErrorMessage()).isEqualTo("Node count quota exceeded");
+            assertThat(zooKeeper.removeQuota("/tenant/a").isSuccess()).isTrue();
+            assertThat(create("/tenant/a/b/d", "").isSuccess()).isTrue();
+
+            assertThat(zooKeeper.getQuota("/tenant").getUsedNodes()).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("Should not limit nodes outside the quota root")
+        void shouldNotLimitNodesOutsideQuotaRoot() {
+            zooKeeper.setQuota("/tenant", 0, 0);
+
+            assertThat(create("/other", "data").isSuccess()).isTrue();
+            assertThat(zooKeeper.getQuota("/other")).isNull();
+        }
+
+        private ZooKeeperResponse create(String path, String data) {
+            return zooKeeper.processRequest(new ZooKeeperRequest(
+                ZooKeeperRequest.Operation.CREATE, path, data.getBytes()));
+        }
+    }
+
     @Nested
     @DisplayName("Basic Workflow Tests")
     class BasicWorkflowTests {
@@ -374,7 +689,13 @@ class MiniZooKeeperTest {
                 ZooKeeperRequest.Operation.READ,
                 ZooKeeperRequest.Operation.UPDATE,
                 ZooKeeperRequest.Operation.DELETE,
-                ZooKeeperRequest.Operation.LIST
+                ZooKeeperRequest.Operation.LIST,
+                ZooKeeperRequest.Operation.FIND,
+                ZooKeeperRequest.Operation.CREATE_SEQUENTIAL,
+                ZooKeeperRequest.Operation.EXISTS,
+                ZooKeeperRequest.Operation.INCREMENT,
+                ZooKeeperRequest.Operation.APPEND,
+                ZooKeeperRequest.Operation.DIGEST
             );
         }
     }
@@ -0,0 +1,186 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for NodeReaper class.
+ */
+@Slf4j
+@DisplayName("NodeReaper Tests")
+class NodeReaperTest {
+
+    private static final long TTL = 60_000;
+
+    private MiniZooKeeper zooKeeper;
+    private MiniZooKeeperClient client;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        client = new MiniZooKeeperClient(zooKeeper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        zooKeeper.close();
+    }
+
+    @Nested
+    @DisplayName("TTL Node Tests")
+    class TtlNodeTests {
+
+        @Test
+        @DisplayName("Should delete a TTL node once it expires")
+        void shouldDeleteExpiredNode() {
+            client.createTtl("/session", "data", TTL);
+            long now = System.currentTimeMillis();
+
+            assertThat(zooKeeper.reapExpired(now, 10)).isZero();
+            assertThat(zooKeeper.reapExpired(now + TTL + 1000, 10)).isEqualTo(1);
+            assertThat(client.exists("/session")).isFalse();
+            assertThat(zooKeeper.getPendingExpiryCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should measure expiry from the last modification")
+        void shouldExtendExpiryOnUpdate() throws Exception {
+            client.createTtl("/session", "v1", TTL);
+            long created = System.currentTimeMillis();
+            Thread.sleep(20);
+            client.setData("/session", "v2");
+
+            assertThat(zooKeeper.reapExpired(created + TTL + 5, 10)).isZero();
+            assertThat(zooKeeper.getPendingExpiryCount()).isEqualTo(1);
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis() + TTL, 10)).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should keep an expired TTL node until its last child is deleted")
+        void shouldKeepNodeWithChildren() {
+            client.createTtl("/jobs", "", TTL);
+            client.create("/jobs/a", "");
+            long later = System.currentTimeMillis() + TTL + 1000;
+
+            assertThat(zooKeeper.reapExpired(later, 10)).isZero();
+            assertThat(zooKeeper.getPendingExpiryCount()).isZero();
+            client.delete("/jobs/a");
+            assertThat(zooKeeper.reapExpired(later, 10)).isEqualTo(1);
+            assertThat(client.exists("/jobs")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should reject TTL nodes that are also containers")
+        void shouldRejectTtlContainer() {
+            assertThatThrownBy(() -> ZooKeeperRequest.builder()
+                .operation(ZooKeeperRequest.Operation.CREATE).path("/x").ttl(1).container(true).build())
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> ZooKeeperRequest.builder()
+                .operation(ZooKeeperRequest.Operation.CREATE).path("/x").ttl(-1).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Container Node Tests")
+    class ContainerNodeTests {
+
+        @Test
+        @DisplayName("Should delete a container after its last child goes away")
+        void shouldDeleteEmptiedContainer() {
+            client.createContainer("/locks");
+            client.create("/locks/a", "");
+            client.create("/locks/b", "");
+            long now = System.currentTimeMillis();
+
+            assertThat(zooKeeper.reapExpired(now, 10)).isZero();
+            client.delete("/locks/a");
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis(), 10)).isZero();
+            client.delete("/locks/b");
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis(), 10)).isEqualTo(1);
+            assertThat(client.exists("/locks")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should cascade through nested containers one slice at a time")
+        void shouldCascadeNestedContainers() {
+            client.createContainer("/outer");
+            client.createContainer("/outer/inner");
+            client.create("/outer/inner/leaf", "");
+            client.delete("/outer/inner/leaf");
+
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis(), 10)).isEqualTo(1);
+            assertThat(client.exists("/outer/inner")).isFalse();
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis(), 10)).isEqualTo(1);
+            assertThat(client.exists("/outer")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should keep a container that has not had a child yet")
+        void shouldKeepNewContainer() {
+            client.createContainer("/fresh");
+
+            assertThat(zooKeeper.reapExpired(System.currentTimeMillis(), 10)).isZero();
+            assertThat(client.exists("/fresh")).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("Should delete at most one slice per call")
+    void shouldBoundSliceSize() {
+        client.create("/stale", "");
+        for (int i = 0; i < 250; i++) {
+            client.createTtl("/stale/n" + i, "", 1);
+        }
+        long later = System.currentTimeMillis() + 1000;
+
+        assertThat(zooKeeper.reapExpired(later, 100)).isEqualTo(100);
+        assertThat(zooKeeper.getPendingExpiryCount()).isEqualTo(150);
+        assertThat(zooKeeper.reapExpired(later, 100)).isEqualTo(100);
+        assertThat(zooKeeper.reapExpired(later, 100)).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("Should drain a backlog in the background without stalling writers")
+    void shouldDrainBacklogInBackground() throws Exception {
+        int backlog = 50_000;
+        client.create("/stale", "");
+        for (int i = 0; i < backlog; i++) {
+            client.createTtl("/stale/n" + i, "", 1);
+        }
+        client.create("/live", "0");
+        client.increment("/live", 1);
+        Thread.sleep(5);
+
+        LatencyHistogram writeLatency = new LatencyHistogram();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(30);
+        NodeReaper reaper = new NodeReaper(zooKeeper, 1, NodeReaper.DEFAULT_SLICE_SIZE);
+        try {
+            while (zooKeeper.getPendingExpiryCount() > 0 && System.nanoTime() < deadline) {
+                long before = System.nanoTime();
+                client.increment("/live", 1);
+                writeLatency.record(System.nanoTime() - before);
+            }
+        } finally {
+            reaper.close();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        log.debug("Reaped {} nodes in {} slices over {} ms; concurrent writes p50={}us p99={}us max={}us",
+            reaper.getReapedCount(), reaper.getSliceCount(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            TimeUnit.NANOSECONDS.toMicros(writeLatency.getValueAtPercentile(50)),
+            TimeUnit.NANOSECONDS.toMicros(writeLatency.getValueAtPercentile(99)),
+            TimeUnit.NANOSECONDS.toMicros(writeLatency.getMax()));
+        assertThat(reaper.getReapedCount()).isEqualTo(backlog);
+        assertThat(client.getChildren("/stale")).isEmpty();
+    }
+}
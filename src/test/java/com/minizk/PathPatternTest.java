@@ -0,0 +1,60 @@
+package com.minizk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for PathPattern class.
+ */
+@DisplayName("PathPattern Tests")
+class PathPatternTest {
+
+    @Test
+    @DisplayName("Should derive the base path and depth bounds")
+    void shouldDeriveBaseAndDepthBounds() {
+        PathPattern structured = PathPattern.compile("/services/*/instances/*");
+        PathPattern prefix = PathPattern.compile("/services/api/**");
+
+        assertThat(structured.getBase()).isEqualTo(ZPath.of("/services"));
+        assertThat(structured.getMinDepth()).isEqualTo(4);
+        assertThat(structured.getMaxDepth()).isEqualTo(4);
+        assertThat(prefix.getBase()).isEqualTo(ZPath.of("/services/api"));
+        assertThat(prefix.getMinDepth()).isEqualTo(2);
+        assertThat(prefix.getMaxDepth()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(PathPattern.compile("/a/b").isLiteral()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should match globs within a component")
+    void shouldMatchComponentGlobs() {
+        PathPattern pattern = PathPattern.compile("/hosts/web-*-?");
+
+        assertThat(pattern.matches(ZPath.of("/hosts/web-eu-1"))).isTrue();
+        assertThat(pattern.matches(ZPath.of("/hosts/web--1"))).isTrue();
+        assertThat(pattern.matches(ZPath.of("/hosts/web-eu-12"))).isFalse();
+        assertThat(pattern.matches(ZPath.of("/hosts/db-eu-1"))).isFalse();
+        assertThat(pattern.matches(ZPath.of("/hosts/web-eu-1/x"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should match zero or more components with a double star")
+    void shouldMatchAnyComponents() {
+        PathPattern pattern = PathPattern.compile("/a/**/z");
+
+        assertThat(pattern.matches(ZPath.of("/a/z"))).isTrue();
+        assertThat(pattern.matches(ZPath.of("/a/b/c/z"))).isTrue();
+        assertThat(pattern.matches(ZPath.of("/a/b/c"))).isFalse();
+        assertThat(pattern.matches(ZPath.of("/b/z"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject malformed patterns")
+    void shouldRejectMalformedPatterns() {
+        assertThatThrownBy(() -> PathPattern.compile("services/*"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PathPattern.compile("/services//*"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
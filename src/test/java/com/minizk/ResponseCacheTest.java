@@ -0,0 +1,242 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for ResponseCache class.
+ */
+@Slf4j
+@DisplayName("ResponseCache Tests")
+class ResponseCacheTest {
+
+    private MiniZooKeeper zooKeeper;
+    private MiniZooKeeperClient client;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        client = new MiniZooKeeperClient(zooKeeper, false);
+    }
+
+    @Nested
+    @DisplayName("Invalidation Tests")
+    class InvalidationTests {
+
+        @Test
+        @DisplayName("Should answer repeated reads from the cache")
+        void shouldServeRepeatedReads() {
+            client.create("/config", "v1");
+
+            assertThat(client.getData("/config")).isEqualTo("v1");
+            assertThat(client.getData("/config")).isEqualTo("v1");
+            assertThat(zooKeeper.getResponseCache().getHitCount()).isEqualTo(1);
+            assertThat(zooKeeper.getResponseCache().getMissCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should drop a cached response when its node is written")
+        void shouldInvalidateOnWrite() {
+            client.create("/config", "1");
+            client.getData("/config");
+
+            client.setData("/config", "2");
+            assertThat(client.getData("/config")).isEqualTo("2");
+            client.increment("/config", 1);
+            assertThat(client.getData("/config")).isEqualTo("3");
+            client.append("/config", "0", 100);
+            assertThat(client.getData("/config")).isEqualTo("30");
+            assertThat(zooKeeper.getResponseCache().getInvalidationCount()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should not serve a deleted node")
+        void shouldInvalidateOnDelete() {
+            client.create("/config", "v1");
+            client.getData("/config");
+
+            client.delete("/config");
+            assertThat(client.getData("/config")).isNull();
+            client.create("/config", "v2");
+            assertThat(client.getData("/config")).isEqualTo("v2");
+        }
+
+        @Test
+        @DisplayName("Should only return a compressed response to callers that accept one")
+        void shouldRespectAcceptCompressed() {
+            byte[] payload = new byte[PayloadCodec.DEFAULT_THRESHOLD_BYTES * 2];
+            Arrays.fill(payload, (byte) 'x');
+            zooKeeper.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, "/big", payload));
+            ZooKeeperRequest compressedRead = ZooKeeperRequest.builder()
+                .operation(ZooKeeperRequest.Operation.READ).path("/big").acceptCompressed(true).build();
+
+            assertThat(zooKeeper.processRequest(compressedRead).isCompressed()).isTrue();
+            ZooKeeperResponse plain = zooKeeper.processRequest(
+                new ZooKeeperRequest(ZooKeeperRequest.Operation.READ, "/big"));
+            assertThat(plain.isCompressed()).isFalse();
+            assertThat(plain.getData()).isEqualTo(payload);
+            assertThat(zooKeeper.processRequest(compressedRead).isCompressed()).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Eviction Tests")
+    class EvictionTests {
+
+        @Test
+        @DisplayName("Should stay within its byte budget")
+        void shouldBoundBytes() {
+            ResponseCache cache = new ResponseCache(10 * (ResponseCache.ENTRY_OVERHEAD_BYTES + 100));
+            for (int i = 0; i < 100; i++) {
+                ZPath path = ZPath.of("/n" + i);
+                cache.get(path, true);
+                cache.put(path, ZooKeeperResponse.withData(new byte[90]), false);
+                assertThat(cache.getUsedBytes()).isLessThanOrEqualTo(cache.getMaxBytes());
+            }
+            assertThat(cache.getEntryCount()).isLessThanOrEqualTo(10);
+            assertThat(cache.getEvictionCount()).isPositive();
+        }
+
+        @Test
+        @DisplayName("Should stay within its byte budget under concurrent fills and invalidations")
+        void shouldBoundBytesUnderConcurrentFills() throws Exception {
+            ResponseCache cache = new ResponseCache(4L * 1024 * 1024);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        ZPath path = ZPath.of("/n" + (i * 4 + offset) % 5_000);
+                        cache.get(path, true);
+                        cache.put(path, ZooKeeperResponse.withData(new byte[1024]), false);
+                        if (i % 7 == 0) {
+                            cache.invalidate(path);
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertThat(cache.getUsedBytes()).isLessThanOrEqualTo(cache.getMaxBytes());
+            long entryWeight = ResponseCache.ENTRY_OVERHEAD_BYTES + 1024;
+            assertThat(cache.getUsedBytes()).isBetween(cache.getEntryCount() * entryWeight,
+                cache.getEntryCount() * (entryWeight + 2 * "/n0000".length()));
+        }
+
+        @Test
+        @DisplayName("Should not cache a response larger than the whole budget")
+        void shouldRejectOversizedResponse() {
+            ResponseCache cache = new ResponseCache(1024);
+            cache.put(ZPath.of("/big"), ZooKeeperResponse.withData(new byte[2048]), false);
+
+            assertThat(cache.getEntryCount()).isZero();
+            assertThat(cache.getRejectionCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should keep hot entries through a scan of cold nodes")
+        void shouldResistScans() {
+            ResponseCache cache = new ResponseCache(8 * (ResponseCache.ENTRY_OVERHEAD_BYTES + 100));
+            List<ZPath> hot = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                hot.add(ZPath.of("/hot" + i));
+            }
+            for (int round = 0; round < 10; round++) {
+                for (ZPath path : hot) {
+                    if (cache.get(path, true) == null) {
+                        cache.put(path, ZooKeeperResponse.withData(new byte[90]), false);
+                    }
+                }
+            }
+            for (int i = 0; i < 1000; i++) {
+                ZPath path = ZPath.of("/cold" + i);
+                cache.get(path, true);
+                cache.put(path, ZooKeeperResponse.withData(new byte[90]), false);
+            }
+
+            for (ZPath path : hot) {
+                assertThat(cache.get(path, true)).isNotNull();
+            }
+            assertThat(cache.getRejectionCount()).isPositive();
+        }
+
+        @Test
+        @DisplayName("Should cache nothing when disabled")
+        void shouldDisable() {
+            MiniZooKeeper uncached = new MiniZooKeeper(new InMemoryNodeStore(), ChangeLog.DEFAULT_CAPACITY, 0);
+            MiniZooKeeperClient uncachedClient = new MiniZooKeeperClient(uncached);
+            uncachedClient.create("/a", "1");
+
+            assertThat(uncachedClient.getData("/a")).isEqualTo("1");
+            assertThat(uncachedClient.getData("/a")).isEqualTo("1");
+            assertThat(uncached.getResponseCache().getEntryCount()).isZero();
+            assertThat(uncached.getResponseCache().getHitCount()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer most of a skewed read load from a cache holding a tenth of the nodes")
+    void shouldServeSkewedLoad() throws Exception {
+        int nodes = 5_000;
+        int payloadBytes = 1024;
+        long cacheBytes = nodes / 10 * (ResponseCache.ENTRY_OVERHEAD_BYTES + payloadBytes + 20);
+        MiniZooKeeper cached = new MiniZooKeeper(new InMemoryNodeStore(), ChangeLog.DEFAULT_CAPACITY, cacheBytes);
+        MiniZooKeeper uncached = new MiniZooKeeper(new InMemoryNodeStore(), ChangeLog.DEFAULT_CAPACITY, 0);
+        for (MiniZooKeeper service : Arrays.asList(cached, uncached)) {
+            for (int i = 0; i < nodes; i++) {
+                service.processRequest(new ZooKeeperRequest(ZooKeeperRequest.Operation.CREATE, "/n" + i,
+                    new byte[payloadBytes]));
+            }
+        }
+
+        runReads(uncached, nodes);
+        runReads(cached, nodes);
+        long uncachedNanos = runReads(uncached, nodes);
+        long cachedNanos = runReads(cached, nodes);
+
+        ResponseCache cache = cached.getResponseCache();
+        log.debug("Zipfian reads over {} nodes: {} ms uncached, {} ms cached; {}", nodes,
+            TimeUnit.NANOSECONDS.toMillis(uncachedNanos), TimeUnit.NANOSECONDS.toMillis(cachedNanos), cache);
+        assertThat(cache.getHitRate()).isGreaterThan(0.5);
+        assertThat(cache.getUsedBytes()).isLessThanOrEqualTo(cacheBytes);
+    }
+
+    /**
+     * Runs 4 threads of 250,000 Zipfian-distributed reads each and returns the elapsed time.
+     */
+    private static long runReads(MiniZooKeeper service, int nodes) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                ZipfianGenerator keys = new ZipfianGenerator(nodes);
+                for (int i = 0; i < 250_000; i++) {
+                    ZooKeeperResponse response = service.processRequest(
+                        new ZooKeeperRequest(ZooKeeperRequest.Operation.READ, "/n" + keys.next()));
+                    if (!response.isSuccess()) {
+                        throw new IllegalStateException(response.getErrorMessage());
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+}
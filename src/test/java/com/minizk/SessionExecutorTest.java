@@ -0,0 +1,134 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for SessionExecutor class.
+ */
+@Slf4j
+@DisplayName("SessionExecutor Tests")
+class SessionExecutorTest {
+
+    private static final int SESSIONS = 10_000;
+    private static final long BLOCKED_TIMEOUT_SECONDS = 120;
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+        new MiniZooKeeperClient(zooKeeper).create("/sessions", "");
+    }
+
+    @Test
+    @DisplayName("Should parse execution mode names")
+    void shouldParseExecutionModeNames() {
+        assertThat(ExecutionMode.parse("virtual")).isEqualTo(ExecutionMode.VIRTUAL_THREADS);
+        assertThat(ExecutionMode.parse("PLATFORM_THREADS")).isEqualTo(ExecutionMode.PLATFORM_THREADS);
+        assertThatThrownBy(() -> ExecutionMode.parse("carrier"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should run concurrent sessions on platform threads")
+    void shouldRunConcurrentSessionsOnPlatformThreads() throws Exception {
+        try (SessionExecutor sessions = new SessionExecutor(zooKeeper, ExecutionMode.PLATFORM_THREADS, 8)) {
+            runSessions(sessions);
+        }
+
+        assertThat(new MiniZooKeeperClient(zooKeeper).getChildren("/sessions")).hasSize(SESSIONS);
+    }
+
+    @Test
+    @DisplayName("Should run concurrent sessions on virtual threads when supported")
+    void shouldRunConcurrentSessionsOnVirtualThreads() throws Exception {
+        assumeTrue(SessionExecutor.isVirtualThreadSupported(), "Virtual threads require Java 21+");
+
+        try (SessionExecutor sessions = new SessionExecutor(zooKeeper, ExecutionMode.VIRTUAL_THREADS)) {
+            runSessions(sessions);
+        }
+
+        assertThat(new MiniZooKeeperClient(zooKeeper).getChildren("/sessions")).hasSize(SESSIONS);
+    }
+
+    @Test
+    @DisplayName("Should fail fast when virtual threads are unavailable")
+    void shouldFailFastWhenVirtualThreadsUnavailable() {
+        assumeTrue(!SessionExecutor.isVirtualThreadSupported());
+
+        assertThatThrownBy(() -> new SessionExecutor(zooKeeper, ExecutionMode.VIRTUAL_THREADS))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Java 21");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    @Tag("benchmark")
+    @DisplayName("Should hold every session open across a blocking call")
+    void shouldBenchmarkBlockedSessions(ExecutionMode mode) throws Exception {
+        assumeTrue(mode != ExecutionMode.VIRTUAL_THREADS || SessionExecutor.isVirtualThreadSupported(),
+            "Virtual threads require Java 21+");
+        CountDownLatch waiting = new CountDownLatch(SESSIONS);
+        CountDownLatch reply = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        // Platform mode gets a thread per session, the most it could hold open without queueing.
+        try (SessionExecutor sessions = new SessionExecutor(zooKeeper, mode, SESSIONS)) {
+            List<Future<?>> futures = new ArrayList<>(SESSIONS);
+            for (int i = 0; i < SESSIONS; i++) {
+                String path = "/sessions/s" + i;
+                futures.add(sessions.openSession(client -> {
+                    client.create(path, "data");
+                    waiting.countDown();
+                    try {
+                        // Stands in for a remote call whose reply only comes once every session is blocked.
+                        reply.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    client.setData(path, "updated");
+                }));
+            }
+            assertThat(waiting.await(BLOCKED_TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+            long blockedMillis = (System.nanoTime() - start) / 1_000_000;
+            reply.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            log.info("{} sessions in {} mode: all blocked after {} ms, finished after {} ms", SESSIONS, mode,
+                blockedMillis, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        assertThat(new MiniZooKeeperClient(zooKeeper).getChildren("/sessions")).hasSize(SESSIONS);
+    }
+
+    private static void runSessions(SessionExecutor sessions) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            String path = "/sessions/s" + i;
+            futures.add(sessions.openSession(client -> {
+                client.create(path, "data");
+                client.getData(path);
+                client.setData(path, "updated");
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
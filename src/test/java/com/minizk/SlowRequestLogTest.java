@@ -0,0 +1,130 @@
+package com.minizk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for SlowRequestLog class.
+ */
+@DisplayName("SlowRequestLog Tests")
+class SlowRequestLogTest {
+
+    private SlowRequestLog slowRequestLog;
+
+    @BeforeEach
+    void setUp() {
+        slowRequestLog = new SlowRequestLog(4, Duration.ofMillis(10));
+    }
+
+    @Test
+    @DisplayName("Should ignore requests under the threshold")
+    void shouldIgnoreRequestsUnderThreshold() {
+        slowRequestLog.record(ZooKeeperRequest.Operation.READ, "/fast", 0, 1_000, 1_000, 1_000);
+
+        assertThat(slowRequestLog.dump()).isEmpty();
+        assertThat(slowRequestLog.getRecordedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should record requests over the threshold with timing breakdown")
+    void shouldRecordRequestsOverThreshold() {
+        slowRequestLog.record(ZooKeeperRequest.Operation.CREATE, "/slow", 42,
+            1_000_000, 4_000_000, 6_000_000);
+
+        List<SlowRequestLog.SlowRequest> dump = slowRequestLog.dump();
+        assertThat(dump).hasSize(1);
+        SlowRequestLog.SlowRequest slowRequest = dump.get(0);
+        assertThat(slowRequest.getOperation()).isEqualTo(ZooKeeperRequest.Operation.CREATE);
+        assertThat(slowRequest.getPath()).isEqualTo("/slow");
+        assertThat(slowRequest.getPayloadSize()).isEqualTo(42);
+        assertThat(slowRequest.getQueueNanos()).isEqualTo(1_000_000);
+        assertThat(slowRequest.getLockWaitNanos()).isEqualTo(4_000_000);
+        assertThat(slowRequest.getExecutionNanos()).isEqualTo(6_000_000);
+        assertThat(slowRequest.getTotalNanos()).isEqualTo(11_000_000);
+    }
+
+    @Test
+    @DisplayName("Should keep only the most recent entries when full")
+    void shouldKeepOnlyMostRecentEntriesWhenFull() {
+        for (int i = 0; i < 6; i++) {
+            slowRequestLog.record(ZooKeeperRequest.Operation.UPDATE, "/node" + i, i, 0, 0, 20_000_000);
+        }
+
+        assertThat(slowRequestLog.getRecordedCount()).isEqualTo(6);
+        assertThat(slowRequestLog.dump())
+            .extracting(SlowRequestLog.SlowRequest::getPath)
+            .containsExactly("/node2", "/node3", "/node4", "/node5");
+    }
+
+    @Test
+    @DisplayName("Should never return a torn entry while concurrent writers wrap the log")
+    void shouldNotTearEntriesWhenWrapping() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int value = writer * 100_000 + i;
+                    slowRequestLog.record(ZooKeeperRequest.Operation.UPDATE, "/n" + value, value, value, value,
+                        20_000_000);
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (SlowRequestLog.SlowRequest request : slowRequestLog.dump()) {
+                    assertThat(request.getPath()).isEqualTo("/n" + request.getPayloadSize());
+                    assertThat(request.getQueueNanos()).isEqualTo(request.getPayloadSize());
+                    assertThat(request.getLockWaitNanos()).isEqualTo(request.getPayloadSize());
+                }
+            }
+        });
+        List<Throwable> failures = new ArrayList<>();
+        reader.setUncaughtExceptionHandler((thread, e) -> failures.add(e));
+        reader.start();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(failures).isEmpty();
+        assertThat(slowRequestLog.getRecordedCount()).isEqualTo(200_000);
+        assertThat(slowRequestLog.dump()).hasSizeLessThanOrEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should record slow requests processed by MiniZooKeeper")
+    void shouldRecordSlowRequestsProcessedByMiniZooKeeper() {
+        MiniZooKeeper zooKeeper = new MiniZooKeeper();
+        zooKeeper.getSlowRequestLog().setThreshold(Duration.ZERO);
+
+        zooKeeper.processRequest(new ZooKeeperRequest(
+            ZooKeeperRequest.Operation.CREATE, "/traced", "data".getBytes()));
+
+        assertThat(zooKeeper.getSlowRequestLog().dump())
+            .singleElement()
+            .satisfies(slowRequest -> {
+                assertThat(slowRequest.getPath()).isEqualTo("/traced");
+                assertThat(slowRequest.getPayloadSize()).isEqualTo(4);
+            });
+    }
+
+    @Test
+    @DisplayName("Should reject capacity that is not a power of two")
+    void shouldRejectInvalidCapacity() {
+        assertThatThrownBy(() -> new SlowRequestLog(3, Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,290 @@
+package com.minizk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for TransactionLog class.
+ */
+@DisplayName("TransactionLog Tests")
+class TransactionLogTest {
+
+    private static final long SEGMENT_BYTES = 4 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final List<String> replayed = new ArrayList<>();
+
+    private TransactionLog open(int retainedSegments, Duration retentionAge) throws IOException {
+        replayed.clear();
+        return new TransactionLog(directory, SEGMENT_BYTES, retainedSegments, retentionAge,
+            (key, value) -> replayed.add(key + "=" + (value == null ? "<deleted>" : new String(value))));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(TransactionLog.SEGMENT_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static void appendRecords(TransactionLog transactionLog, int from, int to) {
+        for (int i = from; i < to; i++) {
+            transactionLog.append("key" + i, ("value-" + i + "-" + "x".repeat(100)).getBytes());
+        }
+    }
+
+    @Nested
+    @DisplayName("Segment Tests")
+    class SegmentTests {
+
+        @Test
+        @DisplayName("Should roll over into segments created at full size")
+        void shouldRollPreallocatedSegments() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            appendRecords(transactionLog, 0, 200);
+            transactionLog.close();
+
+            List<Path> segments = segments();
+            assertThat(segments.size()).isGreaterThan(5);
+            for (Path segment : segments) {
+                assertThat(Files.size(segment)).isEqualTo(SEGMENT_BYTES);
+            }
+            assertThat(transactionLog.getLastLsn()).isEqualTo(200);
+        }
+
+        @Test
+        @DisplayName("Should give an oversized record a segment of its own")
+        void shouldFitOversizedRecord() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            transactionLog.append("small", new byte[10]);
+            transactionLog.append("big", new byte[(int) SEGMENT_BYTES * 3]);
+            transactionLog.append("after", new byte[10]);
+            transactionLog.close();
+
+            open(0, Duration.ZERO).close();
+            assertThat(replayed).hasSize(3);
+            assertThat(replayed.get(2)).startsWith("after=");
+        }
+    }
+
+    @Nested
+    @DisplayName("Recovery Tests")
+    class RecoveryTests {
+
+        @Test
+        @DisplayName("Should replay every write and delete after the checkpoint")
+        void shouldReplayAfterCheckpoint() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            transactionLog.append("a", "1".getBytes());
+            transactionLog.checkpoint();
+            transactionLog.append("b", "2".getBytes());
+            transactionLog.append("a", null);
+            transactionLog.close();
+
+            TransactionLog reopened = open(0, Duration.ZERO);
+            assertThat(replayed).containsExactly("b=2", "a=<deleted>");
+            assertThat(reopened.append("c", new byte[0])).isEqualTo(4);
+            reopened.close();
+        }
+
+        @Test
+        @DisplayName("Should open only the segments after the checkpoint")
+        void shouldReadOnlyNeededSegments() throws IOException {
+            TransactionLog transactionLog = open(100, Duration.ZERO);
+            appendRecords(transactionLog, 0, 300);
+            transactionLog.checkpoint();
+            appendRecords(transactionLog, 300, 310);
+            transactionLog.close();
+
+            TransactionLog reopened = open(100, Duration.ZERO);
+            assertThat(segments().size()).isGreaterThan(10);
+            assertThat(reopened.getRecoveredSegmentCount()).isLessThanOrEqualTo(2);
+            assertThat(reopened.getRecoveredRecordCount()).isEqualTo(10);
+            reopened.close();
+        }
+
+        @Test
+        @DisplayName("Should stream records of any size in batches and delete the unwritten spare on open")
+        void shouldStreamRecordsAndDropSpare() throws IOException {
+            TransactionLog transactionLog = new TransactionLog(directory, 1024 * 1024, 0, Duration.ZERO,
+                (key, value) -> { });
+            appendRecords(transactionLog, 0, 20_000);
+            transactionLog.append("big", new byte[200 * 1024]);
+            transactionLog.close();
+            List<Path> before = segments();
+            Path spare = before.get(before.size() - 1);
+
+            TransactionLog reopened = open(0, Duration.ZERO);
+            assertThat(replayed).hasSize(20_001);
+            assertThat(replayed.get(19_999)).startsWith("key19999=value-19999-");
+            assertThat(replayed.get(20_000)).hasSize("big=".length() + 200 * 1024);
+            assertThat(spare).doesNotExist();
+            reopened.close();
+        }
+
+        @Test
+        @DisplayName("Should replay each key's writes in log order across parallel lanes")
+        void shouldKeepPerKeyOrderInParallel() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            for (int i = 0; i < 2_000; i++) {
+                transactionLog.append("key" + i % 37, Integer.toString(i).getBytes());
+            }
+            transactionLog.close();
+
+            Map<String, List<Integer>> byKey = new ConcurrentHashMap<>();
+            new TransactionLog(directory, SEGMENT_BYTES, 0, Duration.ZERO, 4, (key, value) ->
+                byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(Integer.parseInt(new String(value)))).close();
+
+            assertThat(byKey).hasSize(37);
+            for (int key = 0; key < 37; key++) {
+                List<Integer> expected = new ArrayList<>();
+                for (int i = key; i < 2_000; i += 37) {
+                    expected.add(i);
+                }
+                assertThat(byKey.get("key" + key)).isEqualTo(expected);
+            }
+        }
+
+        @Test
+        @DisplayName("Should replay a batch only if its commit was logged")
+        void shouldReplayOnlyCommittedBatches() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            transactionLog.append("a", "1".getBytes());
+            transactionLog.beginBatch();
+            appendRecords(transactionLog, 0, 100);
+            transactionLog.commitBatch();
+            transactionLog.beginBatch();
+            transactionLog.append("b", "2".getBytes());
+            transactionLog.append("a", null);
+            // Closed without a commit, as a crash in the middle of the batch would leave it.
+            transactionLog.close();
+
+            TransactionLog reopened = open(0, Duration.ZERO);
+            assertThat(segments().size()).isGreaterThan(3);
+            assertThat(replayed).hasSize(101).contains("a=1").doesNotContain("b=2", "a=<deleted>");
+            assertThat(reopened.getDiscardedRecordCount()).isEqualTo(2);
+            reopened.append("c", "3".getBytes());
+            reopened.close();
+
+            open(0, Duration.ZERO).close();
+            assertThat(replayed).hasSize(102).contains("a=1", "c=3").doesNotContain("b=2", "a=<deleted>");
+        }
+
+        @Test
+        @DisplayName("Should stop at a torn record")
+        void shouldStopAtTornRecord() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            transactionLog.append("a", "1".getBytes());
+            transactionLog.append("b", "2".getBytes());
+            transactionLog.close();
+            // Overwrite the last byte of the second record's value, as a write cut short by a crash would.
+            Path segment = segments().get(0);
+            byte[] bytes = Files.readAllBytes(segment);
+            int lastWritten = bytes.length - 1;
+            while (bytes[lastWritten] == 0) {
+                lastWritten--;
+            }
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] {'X'}), lastWritten);
+            }
+
+            open(0, Duration.ZERO).close();
+            assertThat(replayed).containsExactly("a=1");
+        }
+    }
+
+    @Nested
+    @DisplayName("Retention Tests")
+    class RetentionTests {
+
+        @Test
+        @DisplayName("Should purge covered segments beyond the retained count")
+        void shouldPurgeCoveredSegments() throws IOException {
+            TransactionLog transactionLog = open(2, Duration.ZERO);
+            appendRecords(transactionLog, 0, 300);
+            int before = transactionLog.getSegmentCount();
+            transactionLog.checkpoint();
+
+            // The current segment, the preallocated next one and two retained covered ones are left.
+            assertThat(segments()).hasSize(4);
+            assertThat(transactionLog.getPurgedSegmentCount()).isEqualTo(before - 4);
+            transactionLog.close();
+        }
+
+        @Test
+        @DisplayName("Should keep covered segments younger than the retention age")
+        void shouldKeepRecentSegments() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ofHours(1));
+            appendRecords(transactionLog, 0, 300);
+            int before = transactionLog.getSegmentCount();
+            transactionLog.checkpoint();
+
+            assertThat(segments()).hasSize(before);
+            assertThat(transactionLog.getPurgedSegmentCount()).isZero();
+            transactionLog.close();
+        }
+
+        @Test
+        @DisplayName("Should replay only what was written since the last checkpoint")
+        void shouldKeepUncoveredSegments() throws IOException {
+            TransactionLog transactionLog = open(0, Duration.ZERO);
+            appendRecords(transactionLog, 0, 50);
+            transactionLog.checkpoint();
+            appendRecords(transactionLog, 50, 150);
+            transactionLog.checkpoint();
+            transactionLog.close();
+
+            open(0, Duration.ZERO).close();
+            assertThat(replayed).isEmpty();
+            TransactionLog reopened = open(0, Duration.ZERO);
+            appendRecords(reopened, 150, 250);
+            reopened.close();
+            open(0, Duration.ZERO).close();
+            assertThat(replayed).hasSize(100);
+            assertThat(replayed.get(0)).startsWith("key150=");
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover a disk store's unflushed writes after a crash")
+    void shouldRecoverDiskStoreAfterCrash() {
+        DiskNodeStore crashed = new DiskNodeStore(directory, 64 * 1024, 16, SEGMENT_BYTES, 0, Duration.ZERO);
+        MiniZooKeeperClient client = new MiniZooKeeperClient(new MiniZooKeeper(crashed));
+        client.create("/app", "v1");
+        for (int i = 0; i < 100; i++) {
+            client.create("/app/n" + i, "value-" + i);
+        }
+        client.setData("/app", "v2");
+        client.delete("/app/n7");
+        // No flush or close: the memtable is lost and only the log remains.
+
+        DiskNodeStore recovered = new DiskNodeStore(directory, 64 * 1024, 16, SEGMENT_BYTES, 0, Duration.ZERO);
+        try (MiniZooKeeper zooKeeper = new MiniZooKeeper(recovered)) {
+            MiniZooKeeperClient recoveredClient = new MiniZooKeeperClient(zooKeeper);
+            assertThat(recoveredClient.getData("/app")).isEqualTo("v2");
+            assertThat(recoveredClient.getChildren("/app")).hasSize(99).doesNotContain("n7");
+            assertThat(recovered.getTransactionLog().getRecoveredRecordCount()).isPositive();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.minizk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for TreeComparator class.
+ */
+@Slf4j
+@DisplayName("TreeComparator Tests")
+class TreeComparatorTest {
+
+    private MiniZooKeeper primary;
+    private MiniZooKeeper replica;
+    private MiniZooKeeperClient primaryClient;
+    private MiniZooKeeperClient replicaClient;
+
+    @BeforeEach
+    void setUp() {
+        primary = new MiniZooKeeper();
+        replica = new MiniZooKeeper();
+        primaryClient = new MiniZooKeeperClient(primary);
+        replicaClient = new MiniZooKeeperClient(replica);
+    }
+
+    @Nested
+    @DisplayName("Digest Tests")
+    class DigestTests {
+
+        @Test
+        @DisplayName("Should give equal trees equal digests regardless of write order")
+        void shouldIgnoreWriteOrder() {
+            primaryClient.create("/a", "1");
+            primaryClient.create("/a/b", "2");
+            primaryClient.create("/c", "3");
+            replicaClient.create("/c", "3");
+            replicaClient.create("/a", "0");
+            replicaClient.create("/a/b", "2");
+            replicaClient.setData("/a", "1");
+
+            assertThat(replicaClient.getDigest("/")).isEqualTo(primaryClient.getDigest("/"));
+            assertThat(replicaClient.getDigest("/a")).isEqualTo(primaryClient.getDigest("/a"));
+        }
+
+        @Test
+        @DisplayName("Should return to the previous digest when a change is undone")
+        void shouldRevertDigest() {
+            primaryClient.create("/a", "1");
+            Long before = primaryClient.getDigest("/");
+
+            primaryClient.setData("/a", "2");
+            primaryClient.create("/a/b", "");
+            assertThat(primaryClient.getDigest("/")).isNotEqualTo(before);
+            primaryClient.delete("/a/b");
+            primaryClient.setData("/a", "1");
+            assertThat(primaryClient.getDigest("/")).isEqualTo(before);
+        }
+
+        @Test
+        @DisplayName("Should hash the uncompressed payload")
+        void shouldIgnoreCompression() {
+            StringBuilder large = new StringBuilder();
+            while (large.length() < PayloadCodec.DEFAULT_THRESHOLD_BYTES * 2) {
+                large.append("payload ");
+            }
+            primaryClient.create("/big", large.toString());
+            replicaClient.create("/big", "");
+            replicaClient.append("/big", large.toString(), Integer.MAX_VALUE);
+
+            assertThat(replicaClient.getDigest("/big")).isEqualTo(primaryClient.getDigest("/big"));
+            assertThat(primaryClient.getDigest("/missing")).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Comparison Tests")
+    class ComparisonTests {
+
+        @Test
+        @DisplayName("Should report data, missing and extra nodes")
+        void shouldReportDifferences() {
+            for (MiniZooKeeperClient client : List.of(primaryClient, replicaClient)) {
+                client.create("/app", "");
+                client.create("/app/config", "v1");
+                client.create("/app/jobs", "");
+                client.create("/app/jobs/1", "");
+            }
+            replicaClient.setData("/app/config", "v2");
+            primaryClient.create("/app/jobs/2", "");
+            primaryClient.create("/app/jobs/2/step", "");
+            replicaClient.create("/app/extra", "");
+
+            List<String> differences = new TreeComparator(primary, replica).compare("/").stream()
+                .map(TreeComparator.Difference::toString)
+                .collect(Collectors.toList());
+
+            assertThat(differences).containsExactly(
+                "DATA /app/config", "ONLY_IN_RIGHT /app/extra", "ONLY_IN_LEFT /app/jobs/2");
+        }
+
+        @Test
+        @DisplayName("Should report a compared root missing on one side")
+        void shouldReportMissingRoot() {
+            primaryClient.create("/app", "");
+
+            assertThat(new TreeComparator(primary, replica).compare("/app"))
+                .extracting(TreeComparator.Difference::getType)
+                .containsExactly(TreeComparator.DifferenceType.ONLY_IN_LEFT);
+            assertThat(new TreeComparator(primary, replica).compare("/other")).isEmpty();
+            assertThatThrownBy(() -> new TreeComparator(primary, replica).compare("bad"))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Should take requests in proportion to the difference, not the tree")
+    void shouldScaleWithDifference() {
+        int fanout = 50;
+        for (MiniZooKeeperClient client : List.of(primaryClient, replicaClient)) {
+            for (int i = 0; i < fanout; i++) {
+                client.create("/n" + i, "");
+                for (int j = 0; j < fanout; j++) {
+                    client.create("/n" + i + "/n" + j, "");
+                    for (int k = 0; k < fanout; k++) {
+                        client.create("/n" + i + "/n" + j + "/n" + k, i + "." + j + "." + k);
+                    }
+                }
+            }
+        }
+        TreeComparator comparator = new TreeComparator(primary, replica);
+        int changed = 0;
+        for (int differences : new int[] {0, 1, 10, 100}) {
+            for (; changed < differences; changed++) {
+                replicaClient.setData("/n" + (changed * 7 % fanout) + "/n" + (changed % fanout) + "/n" + changed % 13,
+                    "changed-" + changed);
+            }
+            long start = System.nanoTime();
+            List<TreeComparator.Difference> found = comparator.compare("/");
+            long elapsedNanos = System.nanoTime() - start;
+
+            log.debug("{} of {} nodes changed: found {} with {} DIGEST requests in {} us", differences,
+                fanout * (fanout * fanout + fanout + 1), found.size(), comparator.getRequestCount(),
+                TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+            assertThat(found).hasSize(differences);
+            assertThat(comparator.getRequestCount()).isLessThanOrEqualTo(2 + 6L * differences);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.minizk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for subtree export and import.
+ */
+@DisplayName("TreeTransfer Tests")
+class TreeTransferTest {
+
+    private MiniZooKeeper source;
+    private MiniZooKeeperClient sourceClient;
+
+    @BeforeEach
+    void setUp() {
+        source = new MiniZooKeeper();
+        sourceClient = new MiniZooKeeperClient(source);
+        sourceClient.create("/app", "config");
+        sourceClient.create("/app/web", "web");
+        sourceClient.create("/app/web/port", "8080");
+        sourceClient.create("/other", "ignored");
+    }
+
+    @Test
+    @DisplayName("Should round-trip a subtree at its original location")
+    void shouldRoundTripSubtree() throws Exception {
+        sourceClient.setData("/app", "config v2");
+        byte[] export = export("/app");
+
+        MiniZooKeeper target = new MiniZooKeeper();
+        long imported = target.importTree(new ByteArrayInputStream(export), null);
+
+        MiniZooKeeperClient targetClient = new MiniZooKeeperClient(target);
+        assertThat(imported).isEqualTo(3);
+        assertThat(targetClient.getData("/app")).isEqualTo("config v2");
+        assertThat(targetClient.getData("/app/web/port")).isEqualTo("8080");
+        assertThat(targetClient.getChildren("/")).containsExactly("app");
+    }
+
+    @Test
+    @DisplayName("Should rebase an import onto another path")
+    void shouldRebaseImport() throws Exception {
+        byte[] export = export("/app");
+
+        sourceClient.create("/copy", "");
+        source.importTree(new ByteArrayInputStream(export), "/copy/app2");
+
+        assertThat(sourceClient.getData("/copy/app2")).isEqualTo("config");
+        assertThat(sourceClient.getData("/copy/app2/web/port")).isEqualTo("8080");
+    }
+
+    @Test
+    @DisplayName("Should stream trees larger than one import batch")
+    void shouldStreamLargeTrees() throws Exception {
+        sourceClient.create("/big", "");
+        for (int i = 0; i < TreeTransfer.IMPORT_BATCH_SIZE * 3 + 7; i++) {
+            sourceClient.create("/big/n" + i, "value" + i);
+        }
+
+        MiniZooKeeper target = new MiniZooKeeper();
+        long imported = target.importTree(new ByteArrayInputStream(export("/big")), null);
+
+        assertThat(imported).isEqualTo(TreeTransfer.IMPORT_BATCH_SIZE * 3 + 8);
+        assertThat(new MiniZooKeeperClient(target).getChildren("/big")).hasSize(TreeTransfer.IMPORT_BATCH_SIZE * 3 + 7);
+    }
+
+    @Test
+    @DisplayName("Should stop import on quota violation")
+    void shouldStopImportOnQuotaViolation() throws Exception {
+        byte[] export = export("/app");
+        MiniZooKeeper target = new MiniZooKeeper();
+        new MiniZooKeeperClient(target).create("/limited", "");
+        target.setQuota("/limited", 1, SubtreeQuota.UNLIMITED);
+
+        assertThatThrownBy(() -> target.importTree(new ByteArrayInputStream(export), "/limited/app"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageStartingWith("Node count quota exceeded");
+    }
+
+    @Test
+    @DisplayName("Should reject input that is not a tree export")
+    void shouldRejectMalformedInput() {
+        byte[] input = "{\"format\":\"something-else\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> new MiniZooKeeper().importTree(new ByteArrayInputStream(input), null))
+            .isInstanceOf(IOException.class);
+    }
+
+    private byte[] export(String path) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.exportTree(path, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,164 @@
+package com.minizk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for WritePipeline class.
+ */
+@DisplayName("WritePipeline Tests")
+class WritePipelineTest {
+
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 500;
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    @DisplayName("Should apply concurrent writes in per-thread order")
+    void shouldApplyConcurrentWrites(WaitStrategy waitStrategy) throws Exception {
+        assumeTrue(waitStrategy != WaitStrategy.BUSY_SPIN || Runtime.getRuntime().availableProcessors() > THREADS,
+            "Busy spinning needs a core per spinning thread");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try (WritePipeline pipeline = new WritePipeline(zooKeeper, 64, 32, waitStrategy)) {
+            MiniZooKeeperClient client = new MiniZooKeeperClient(pipeline);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                String path = "/counter" + t;
+                futures.add(executor.submit(() -> {
+                    assertThat(client.create(path, "0")).isTrue();
+                    for (int i = 1; i <= WRITES_PER_THREAD; i++) {
+                        assertThat(client.setData(path, String.valueOf(i))).isTrue();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertThat(pipeline.getWriteCount()).isEqualTo(THREADS * (WRITES_PER_THREAD + 1L));
+            assertThat(pipeline.getBatchCount()).isBetween(1L, pipeline.getWriteCount());
+            for (int t = 0; t < THREADS; t++) {
+                assertThat(client.getData("/counter" + t)).isEqualTo(String.valueOf(WRITES_PER_THREAD));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve reads without going through the writer")
+    void shouldServeReadsDirectly() {
+        try (WritePipeline pipeline = new WritePipeline(zooKeeper)) {
+            new MiniZooKeeperClient(zooKeeper).create("/config", "value");
+
+            MiniZooKeeperClient client = new MiniZooKeeperClient(pipeline);
+
+            assertThat(client.getData("/config")).isEqualTo("value");
+            assertThat(client.getChildren("/")).containsExactly("config");
+            assertThat(pipeline.getWriteCount()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return write errors from the underlying service")
+    void shouldReturnWriteErrors() {
+        try (WritePipeline pipeline = new WritePipeline(zooKeeper)) {
+            ZooKeeperResponse response = pipeline.processRequest(new ZooKeeperRequest(
+                ZooKeeperRequest.Operation.CREATE, "/missing/child", new byte[0]));
+
+            assertThat(response.isSuccess()).isFalse();
+            assertThat(response.getErrorMessage()).isEqualTo("Parent node does not exist");
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject writes after close")
+    void shouldRejectWritesAfterClose() {
+        WritePipeline pipeline = new WritePipeline(zooKeeper);
+        pipeline.close();
+
+        ZooKeeperResponse response = pipeline.processRequest(new ZooKeeperRequest(
+            ZooKeeperRequest.Operation.CREATE, "/late", new byte[0]));
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorMessage()).isEqualTo("Write pipeline is closed");
+    }
+
+    @Test
+    @DisplayName("Should answer the failed batch and close the pipeline when a write throws an Error")
+    void shouldClosePipelineOnError() {
+        MiniZooKeeperClient direct = new MiniZooKeeperClient(zooKeeper);
+        direct.create("/watched", "0");
+        direct.exists("/watched", event -> {
+            throw new AssertionError("watcher failed");
+        });
+
+        try (WritePipeline pipeline = new WritePipeline(zooKeeper, 4, 4, WaitStrategy.PARK)) {
+            ZooKeeperResponse failed = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                pipeline.processRequest(new ZooKeeperRequest(
+                    ZooKeeperRequest.Operation.UPDATE, "/watched", new byte[] {1})));
+            assertThat(failed.isSuccess()).isFalse();
+            assertThat(failed.getErrorMessage()).isEqualTo("Batch failed: watcher failed");
+
+            for (int i = 0; i < 8; i++) {
+                String path = "/after" + i;
+                ZooKeeperResponse late = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                    pipeline.processRequest(new ZooKeeperRequest(
+                        ZooKeeperRequest.Operation.CREATE, path, new byte[0])));
+                assertThat(late.getErrorMessage()).isEqualTo("Write pipeline is closed");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should not strand producers waiting for a free slot when closed")
+    void shouldReleaseProducersWaitingForSlotsOnClose() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            WritePipeline pipeline = new WritePipeline(zooKeeper, 2, 1, WaitStrategy.PARK);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                String path = "/producer" + t;
+                futures.add(executor.submit(() -> {
+                    ZooKeeperResponse response = pipeline.processRequest(new ZooKeeperRequest(
+                        ZooKeeperRequest.Operation.CREATE, path, new byte[0]));
+                    for (int i = 0; response.isSuccess(); i++) {
+                        response = pipeline.processRequest(new ZooKeeperRequest(
+                            ZooKeeperRequest.Operation.UPDATE, path, new byte[] {(byte) i}));
+                    }
+                    assertThat(response.getErrorMessage()).isEqualTo("Write pipeline is closed");
+                }));
+            }
+            Thread.sleep(50);
+            pipeline.close();
+
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -5,7 +5,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 /**
  * Unit tests for ZNode class.
@@ -60,5 +65,61 @@ class ZNodeTest {
         assertThat(znode.getChildrenNames()).containsExactly("child2");
     }
 
+    @Test
+    @DisplayName("Should store large compressible payloads compressed")
+    void shouldStoreLargePayloadsCompressed() {
+        byte[] data = "{\"key\": \"value\"}, ".repeat(PayloadCodec.DEFAULT_THRESHOLD_BYTES / 8).getBytes();
+        znode.setData(data);
+
+        assertThat(znode.isCompressed()).isTrue();
+        assertThat(znode.getDataLength()).isEqualTo(data.length);
+        assertThat(znode.getStoredData().length).isLessThan(data.length / 4);
+        assertThat(znode.getData()).isEqualTo(data);
+    }
+
+    @Test
+    @DisplayName("Should keep small or incompressible payloads as is")
+    void shouldKeepSmallOrIncompressiblePayloadsAsIs() {
+        znode.setData(TEST_DATA.getBytes());
+        assertThat(znode.isCompressed()).isFalse();
+
+        byte[] random = new byte[PayloadCodec.DEFAULT_THRESHOLD_BYTES * 2];
+        new Random(42).nextBytes(random);
+        znode.setData(random);
+        assertThat(znode.isCompressed()).isFalse();
+        assertThat(znode.getData()).isEqualTo(random);
+    }
+
+    @Test
+    @DisplayName("Should compress from the threshold of the given codec")
+    void shouldCompressFromCodecThreshold() {
+        byte[] data = "abcd".repeat(64).getBytes();
+        znode.setData(data);
+        assertThat(znode.isCompressed()).isFalse();
+
+        znode.setData(data, new PayloadCodec(128));
+        assertThat(znode.isCompressed()).isTrue();
+        assertThat(znode.getData()).isEqualTo(data);
+        assertThat(PayloadCodec.DEFAULT.getThresholdBytes()).isEqualTo(PayloadCodec.DEFAULT_THRESHOLD_BYTES);
+    }
+
+    @Test
+    @DisplayName("Should reject a truncated compressed payload")
+    void shouldRejectTruncatedPayload() {
+        byte[] data = "{\"key\": \"value\"}, ".repeat(PayloadCodec.DEFAULT_THRESHOLD_BYTES / 8).getBytes();
+        byte[] compressed = PayloadCodec.DEFAULT.compress(data);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThatThrownBy(() -> PayloadCodec.decompress(truncated, data.length))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Truncated");
+            assertThatThrownBy(() -> PayloadCodec.decompress(truncated, -1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Truncated");
+        });
+        assertThat(PayloadCodec.decompress(compressed, data.length)).isEqualTo(data);
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.minizk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for ZPath class.
+ */
+@DisplayName("ZPath Tests")
+class ZPathTest {
+
+    @Nested
+    @DisplayName("Parsing Tests")
+    class ParsingTests {
+
+        @Test
+        @DisplayName("Should accept valid absolute paths")
+        void shouldAcceptValidPaths() {
+            assertThat(ZPath.tryParse("/")).isSameAs(ZPath.ROOT);
+            assertThat(ZPath.tryParse("/a")).hasToString("/a");
+            assertThat(ZPath.tryParse("/a/b c/d.e")).hasToString("/a/b c/d.e");
+        }
+
+        @Test
+        @DisplayName("Should reject malformed paths")
+        void shouldRejectMalformedPaths() {
+            assertThat(ZPath.tryParse(null)).isNull();
+            assertThat(ZPath.tryParse("")).isNull();
+            assertThat(ZPath.tryParse("a/b")).isNull();
+            assertThat(ZPath.tryParse("/a/")).isNull();
+            assertThat(ZPath.tryParse("/a//b")).isNull();
+            assertThat(ZPath.tryParse("//")).isNull();
+            assertThatThrownBy(() -> ZPath.of("/a//b"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid path format");
+        }
+    }
+
+    @Test
+    @DisplayName("Should expose depth, name and parent")
+    void shouldExposeComponents() {
+        ZPath path = ZPath.of("/app/web/port");
+
+        assertThat(path.depth()).isEqualTo(3);
+        assertThat(path.name()).isEqualTo("port");
+        assertThat(path.parent()).isEqualTo(ZPath.of("/app/web"));
+        assertThat(path.parent().parent().parent()).isSameAs(ZPath.ROOT);
+        assertThat(ZPath.ROOT.parent()).isNull();
+        assertThat(ZPath.ROOT.name()).isEmpty();
+        assertThat(ZPath.ROOT.depth()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should build child paths")
+    void shouldBuildChildPaths() {
+        assertThat(ZPath.ROOT.child("app")).isEqualTo(ZPath.of("/app"));
+        assertThat(ZPath.of("/app").child("web")).isEqualTo(ZPath.of("/app/web"));
+        assertThat(ZPath.of("/app").child("web").parent()).isEqualTo(ZPath.of("/app"));
+        assertThatThrownBy(() -> ZPath.ROOT.child("a/b")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should compare by path string")
+    void shouldCompareByPath() {
+        assertThat(ZPath.of("/a/b")).isEqualTo(ZPath.of("/a/b")).hasSameHashCodeAs(ZPath.of("/a/b"));
+        assertThat(ZPath.of("/a/b")).isNotEqualTo(ZPath.of("/a/c"));
+        assertThat(ZPath.of("/a").compareTo(ZPath.of("/b"))).isNegative();
+    }
+
+    @Test
+    @DisplayName("Should look up and walk a parsed path without allocating")
+    void shouldNotAllocateOnLookup() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean allocations = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        InMemoryNodeStore store = new InMemoryNodeStore();
+        ZNode parent = store.get(ZPath.ROOT);
+        for (String name : new String[] {"a", "b", "c"}) {
+            ZNode child = new ZNode(parent.getZPath().child(name));
+            store.insert(parent, name, child);
+            parent = child;
+        }
+        ZPath path = ZPath.of("/a/b/c");
+
+        int iterations = 100_000;
+        long visited = walk(store, path, iterations);
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        visited += walk(store, path, iterations);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(visited).isEqualTo(2L * iterations * 4);
+        assertThat(allocated).isLessThan(iterations / 10);
+    }
+
+    private static long walk(NodeStore store, ZPath path, int iterations) {
+        long visited = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (ZPath current = path; current != null; current = current.parent()) {
+                if (store.get(current) != null && !current.name().equals("?")) {
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+}
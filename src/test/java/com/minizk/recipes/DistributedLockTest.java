@@ -0,0 +1,236 @@
+package com.minizk.recipes;
+
+import com.minizk.LatencyHistogram;
+import com.minizk.MiniZooKeeper;
+import com.minizk.RequestProcessor;
+import com.minizk.ZooKeeperRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for the lock recipes.
+ */
+@Slf4j
+@DisplayName("DistributedLock Tests")
+class DistributedLockTest {
+
+    private static final int BENCHMARK_CLIENTS = 1_000;
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+    }
+
+    @Test
+    @DisplayName("Should be reentrant for the holding thread")
+    void shouldBeReentrant() throws Exception {
+        DistributedLock lock = new DistributedLock(zooKeeper, "/locks/reentrant");
+
+        lock.lock();
+        lock.lock();
+        lock.unlock();
+
+        assertThat(lock.isHeldByCurrentThread()).isTrue();
+        lock.unlock();
+        assertThat(lock.isHeldByCurrentThread()).isFalse();
+        assertThatThrownBy(lock::unlock).isInstanceOf(IllegalMonitorStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should time out and withdraw from the queue")
+    void shouldTimeOutAndWithdraw() throws Exception {
+        DistributedLock holder = new DistributedLock(zooKeeper, "/locks/timeout");
+        DistributedLock contender = new DistributedLock(zooKeeper, "/locks/timeout");
+        holder.lock();
+
+        AtomicInteger acquired = new AtomicInteger();
+        Thread thread = new Thread(() -> {
+            try {
+                if (contender.tryLock(50, TimeUnit.MILLISECONDS)) {
+                    acquired.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(acquired).hasValue(0);
+        assertThat(RecipeSupport.sortedChildren(zooKeeper, "/locks/timeout")).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should exclude contenders and wake one waiter per release")
+    void shouldWakeOneWaiterPerRelease() throws Exception {
+        int clients = 20;
+        DistributedLock lock = new DistributedLock(zooKeeper, "/locks/herd");
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+
+        runContenders(clients, () -> {
+            lock.lock();
+            try {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                inside.decrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        });
+
+        assertThat(maxInside).hasValue(1);
+        assertThat(zooKeeper.getTriggeredWatchCount()).isLessThanOrEqualTo(clients);
+    }
+
+    @Nested
+    @DisplayName("Read Write Lock Tests")
+    class ReadWriteLockTests {
+
+        @Test
+        @DisplayName("Should share reads and exclude writes")
+        void shouldShareReadsAndExcludeWrites() throws Exception {
+            DistributedReadWriteLock lock = new DistributedReadWriteLock(zooKeeper, "/locks/rw");
+            AtomicInteger readers = new AtomicInteger();
+            AtomicInteger writers = new AtomicInteger();
+            AtomicInteger maxReaders = new AtomicInteger();
+            AtomicInteger violations = new AtomicInteger();
+
+            runContenders(12, index -> {
+                boolean write = index % 4 == 0;
+                DistributedLock side = write ? lock.writeLock() : lock.readLock();
+                side.lock();
+                try {
+                    if (write) {
+                        if (writers.incrementAndGet() > 1 || readers.get() > 0) {
+                            violations.incrementAndGet();
+                        }
+                        Thread.sleep(2);
+                        writers.decrementAndGet();
+                    } else {
+                        maxReaders.accumulateAndGet(readers.incrementAndGet(), Math::max);
+                        if (writers.get() > 0) {
+                            violations.incrementAndGet();
+                        }
+                        Thread.sleep(2);
+                        readers.decrementAndGet();
+                    }
+                } finally {
+                    side.unlock();
+                }
+            });
+
+            assertThat(violations).hasValue(0);
+            assertThat(maxReaders.get()).isGreaterThan(1);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Should benchmark acquire and release with 1,000 contending clients")
+    void shouldBenchmarkContendedLock() throws Exception {
+        AtomicLong requests = new AtomicLong();
+        RequestProcessor counting = request -> {
+            requests.incrementAndGet();
+            return zooKeeper.processRequest(request);
+        };
+        DistributedLock lock = new DistributedLock(counting, "/locks/benchmark");
+        LatencyHistogram acquireLatency = new LatencyHistogram();
+        LatencyHistogram releaseLatency = new LatencyHistogram();
+
+        long start = System.nanoTime();
+        runContenders(BENCHMARK_CLIENTS, () -> {
+            long requested = System.nanoTime();
+            lock.lock();
+            long acquired = System.nanoTime();
+            lock.unlock();
+            long released = System.nanoTime();
+            synchronized (acquireLatency) {
+                acquireLatency.record(acquired - requested);
+                releaseLatency.record(released - acquired);
+            }
+        });
+        long elapsedNanos = System.nanoTime() - start;
+
+        log.info("{} contending clients: acquire p50={}us p99={}us, release p50={}us p99={}us, "
+                + "{} requests at {} QPS, {} watches fired",
+            BENCHMARK_CLIENTS,
+            TimeUnit.NANOSECONDS.toMicros(acquireLatency.getValueAtPercentile(50)),
+            TimeUnit.NANOSECONDS.toMicros(acquireLatency.getValueAtPercentile(99)),
+            TimeUnit.NANOSECONDS.toMicros(releaseLatency.getValueAtPercentile(50)),
+            TimeUnit.NANOSECONDS.toMicros(releaseLatency.getValueAtPercentile(99)),
+            requests.get(), Math.round(requests.get() * 1e9 / elapsedNanos), zooKeeper.getTriggeredWatchCount());
+        assertThat(acquireLatency.getTotalCount()).isEqualTo(BENCHMARK_CLIENTS);
+        assertThat(zooKeeper.getTriggeredWatchCount()).isLessThanOrEqualTo(BENCHMARK_CLIENTS);
+        assertThat(RecipeSupport.sortedChildren(zooKeeper, "/locks/benchmark")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should name sequential nodes in creation order")
+    void shouldNameSequentialNodesInOrder() {
+        RecipeSupport.ensurePath(zooKeeper, "/seq");
+        String first = RecipeSupport.createSequential(zooKeeper, "/seq/item-", new byte[0]);
+        String second = RecipeSupport.createSequential(zooKeeper, "/seq/item-", new byte[0]);
+
+        assertThat(first).isEqualTo("/seq/item-0000000001");
+        assertThat(second).isEqualTo("/seq/item-0000000002");
+        assertThat(zooKeeper.processRequest(ZooKeeperRequest.builder()
+            .operation(ZooKeeperRequest.Operation.CREATE_SEQUENTIAL).path("/missing/item-").build()).isSuccess())
+            .isFalse();
+    }
+
+    private static void runContenders(int count, Contender contender) throws Exception {
+        runContenders(count, index -> contender.run());
+    }
+
+    private static void runContenders(int count, IndexedContender contender) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(count);
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    contender.run(index);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+        }
+        assertThat(failures).isEmpty();
+    }
+
+    @FunctionalInterface
+    private interface Contender {
+        void run() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface IndexedContender {
+        void run(int index) throws Exception;
+    }
+}
@@ -0,0 +1,192 @@
+package com.minizk.recipes;
+
+import com.minizk.MiniZooKeeper;
+import com.minizk.MiniZooKeeperClient;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for DistributedQueue class.
+ */
+@Slf4j
+@DisplayName("DistributedQueue Tests")
+class DistributedQueueTest {
+
+    private static final int BENCHMARK_PRODUCERS = 10;
+    private static final int BENCHMARK_CONSUMERS = 10;
+    private static final int BENCHMARK_BATCH = 100;
+
+    /** Total items moved through the benchmark queue; raise with -Dminizk.queueBenchmarkItems=1000000 */
+    private static final int BENCHMARK_ITEMS = Integer.getInteger("minizk.queueBenchmarkItems", 200_000);
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+    }
+
+    @Test
+    @DisplayName("Should claim items in the order they were offered")
+    void shouldClaimInOrder() {
+        DistributedQueue queue = new DistributedQueue(zooKeeper, "/queues/fifo");
+        queue.offer(bytes("a"));
+        queue.offerAll(List.of(bytes("b"), bytes("c"), bytes("d")));
+
+        assertThat(strings(queue.claim(2))).containsExactly("a", "b");
+        assertThat(strings(queue.claim(10))).containsExactly("c", "d");
+        assertThat(queue.claim(10)).isEmpty();
+        assertThat(RecipeSupport.sortedChildren(zooKeeper, "/queues/fifo")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should hand each item to exactly one consumer")
+    void shouldNotClaimTwice() {
+        DistributedQueue producer = new DistributedQueue(zooKeeper, "/queues/shared");
+        DistributedQueue first = new DistributedQueue(zooKeeper, "/queues/shared");
+        DistributedQueue second = new DistributedQueue(zooKeeper, "/queues/shared");
+        producer.offerAll(List.of(bytes("1"), bytes("2"), bytes("3")));
+
+        List<String> claimed = new ArrayList<>(strings(first.claim(2)));
+        claimed.addAll(strings(second.claim(2)));
+        producer.offer(bytes("4"));
+        claimed.addAll(strings(first.claim(2)));
+
+        assertThat(claimed).containsExactly("1", "2", "3", "4");
+    }
+
+    @Test
+    @DisplayName("Should wait for an item to be offered")
+    void shouldWaitForItem() throws Exception {
+        DistributedQueue consumer = new DistributedQueue(zooKeeper, "/queues/wait");
+        CompletableFuture<List<byte[]>> pending = CompletableFuture.supplyAsync(() -> {
+            try {
+                return consumer.claim(1, 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(50);
+        new DistributedQueue(zooKeeper, "/queues/wait").offer(bytes("late"));
+
+        assertThat(strings(pending.get(5, TimeUnit.SECONDS))).containsExactly("late");
+        assertThat(consumer.claim(1, 10, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should page through children after a cursor")
+    void shouldPageChildren() {
+        MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+        client.create("/page", "");
+        for (String name : new String[] {"c", "a", "b", "d"}) {
+            client.create("/page/" + name, "");
+        }
+        client.create("/page/b/nested", "");
+
+        assertThat(client.getChildren("/page", null, 2)).containsExactly("a", "b");
+        assertThat(client.getChildren("/page", "b", 0)).containsExactly("c", "d");
+        assertThat(client.getChildren("/page", "bb", 1)).containsExactly("c");
+        assertThat(client.getChildren("/page", "d", 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should page past the subtrees of children")
+    void shouldPagePastSubtrees() {
+        MiniZooKeeperClient client = new MiniZooKeeperClient(zooKeeper);
+        client.create("/page", "");
+        // Names with '-' and '.' sort between a child and its own subtree.
+        for (String path : new String[] {"/page/b", "/page/b/x", "/page/b/x/y", "/page/b-1", "/page/b-1/q",
+                                         "/page/b.2", "/page/b0"}) {
+            client.create(path, "");
+        }
+
+        assertThat(client.getChildren("/page", null, 10)).containsExactly("b", "b-1", "b.2", "b0");
+        assertThat(client.getChildren("/page", null, 2)).containsExactly("b", "b-1");
+        assertThat(client.getChildren("/page", "b", 2)).containsExactly("b-1", "b.2");
+        assertThat(client.getChildren("/page", "b-1", 5)).containsExactly("b.2", "b0");
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Should benchmark 10 producers and 10 consumers")
+    void shouldBenchmarkProducersAndConsumers() throws Exception {
+        int perProducer = BENCHMARK_ITEMS / BENCHMARK_PRODUCERS;
+        int total = perProducer * BENCHMARK_PRODUCERS;
+        AtomicLong claimed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+        for (int p = 0; p < BENCHMARK_PRODUCERS; p++) {
+            DistributedQueue producer = new DistributedQueue(zooKeeper, "/queues/benchmark");
+            workers.add(CompletableFuture.runAsync(() -> {
+                await(start);
+                for (int sent = 0; sent < perProducer; sent += BENCHMARK_BATCH) {
+                    int size = Math.min(BENCHMARK_BATCH, perProducer - sent);
+                    producer.offerAll(IntStream.range(0, size).mapToObj(i -> new byte[16])
+                        .collect(Collectors.toList()));
+                }
+            }, threadPerTask()));
+        }
+        for (int c = 0; c < BENCHMARK_CONSUMERS; c++) {
+            DistributedQueue consumer = new DistributedQueue(zooKeeper, "/queues/benchmark");
+            workers.add(CompletableFuture.runAsync(() -> {
+                await(start);
+                while (claimed.get() < total) {
+                    try {
+                        claimed.addAndGet(consumer.claim(BENCHMARK_BATCH, 10, TimeUnit.MILLISECONDS).size());
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, threadPerTask()));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        log.info("{} producers, {} consumers: {} items in {} ms, {} items/sec", BENCHMARK_PRODUCERS,
+            BENCHMARK_CONSUMERS, total, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            Math.round(total * 1e9 / elapsedNanos));
+        assertThat(claimed).hasValue(total);
+        assertThat(RecipeSupport.childrenAfter(zooKeeper, "/queues/benchmark", null, 1)).isEmpty();
+    }
+
+    private static Executor threadPerTask() {
+        return task -> new Thread(task).start();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(List<byte[]> items) {
+        return items.stream().map(item -> new String(item, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+}
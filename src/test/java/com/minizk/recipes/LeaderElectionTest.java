@@ -0,0 +1,83 @@
+package com.minizk.recipes;
+
+import com.minizk.MiniZooKeeper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for LeaderElection class.
+ */
+@DisplayName("LeaderElection Tests")
+class LeaderElectionTest {
+
+    private MiniZooKeeper zooKeeper;
+
+    @BeforeEach
+    void setUp() {
+        zooKeeper = new MiniZooKeeper();
+    }
+
+    @Test
+    @DisplayName("Should elect the first participant and hand over in join order")
+    void shouldHandOverInJoinOrder() throws Exception {
+        AtomicInteger elections = new AtomicInteger();
+        List<LeaderElection> participants = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            LeaderElection participant = new LeaderElection(zooKeeper, "/election", "p" + i, elections::incrementAndGet);
+            participant.start();
+            participants.add(participant);
+        }
+
+        assertThat(participants.get(0).awaitLeadership(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(participants.get(0).getLeaderId()).isEqualTo("p0");
+        // Followers join on their own threads; wait until each one watches the node in front of it.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (zooKeeper.getWatchedPathCount() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            long watchesBefore = zooKeeper.getTriggeredWatchCount();
+            participants.get(i).close();
+
+            assertThat(participants.get(i + 1).awaitLeadership(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(zooKeeper.getTriggeredWatchCount() - watchesBefore).isEqualTo(1);
+        }
+        assertThat(participants.get(4).getLeaderId()).isEqualTo("p4");
+        // The callback runs just after leadership is announced.
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (elections.get() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(elections).hasValue(5);
+        assertThat(participants.stream().filter(LeaderElection::isLeader)).hasSize(1);
+        participants.get(4).close();
+    }
+
+    @Test
+    @DisplayName("Should pass over a follower that leaves before the leader")
+    void shouldSkipDepartedFollowers() throws Exception {
+        LeaderElection first = new LeaderElection(zooKeeper, "/election", "first", null);
+        LeaderElection second = new LeaderElection(zooKeeper, "/election", "second", null);
+        LeaderElection third = new LeaderElection(zooKeeper, "/election", "third", null);
+        first.start();
+        second.start();
+        third.start();
+        assertThat(first.awaitLeadership(5, TimeUnit.SECONDS)).isTrue();
+
+        second.close();
+        first.close();
+
+        assertThat(third.awaitLeadership(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(third.getLeaderId()).isEqualTo("third");
+        third.close();
+    }
+}